@@ -1,5 +1,6 @@
 package com.launchdarkly.sdk.android;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
@@ -7,6 +8,7 @@ import static org.junit.Assert.assertTrue;
 
 import android.app.Application;
 import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
 import android.content.ComponentName;
 import android.content.ContentResolver;
 import android.content.Context;
@@ -150,6 +152,43 @@ public class AndroidPlatformStateTest extends EasyMockSupport {
         }
     }
 
+    @Test
+    public void callsListenerOnMemoryPressure() throws Exception {
+        TestApplication testApp = new TestApplication(true, baseContext);
+        try (AndroidPlatformState platformState = new AndroidPlatformState(testApp,
+                taskExecutor, logging.logger)) {
+            BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+            platformState.addMemoryPressureListener(level -> received.add(level));
+
+            testApp.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+            testApp.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+            Integer receivedLevel = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull("timed out waiting for callback", receivedLevel);
+            assertEquals(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, receivedLevel.intValue());
+            assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    @Test
+    public void memoryPressureListenerThatThrowsDoesNotStopTheOthers() throws Exception {
+        TestApplication testApp = new TestApplication(true, baseContext);
+        try (AndroidPlatformState platformState = new AndroidPlatformState(testApp,
+                taskExecutor, logging.logger)) {
+            BlockingQueue<Integer> received = new LinkedBlockingQueue<>();
+            platformState.addMemoryPressureListener(level -> {
+                throw new RuntimeException("sorry");
+            });
+            platformState.addMemoryPressureListener(level -> received.add(level));
+
+            testApp.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+
+            Integer receivedLevel = received.poll(5, TimeUnit.SECONDS);
+            assertNotNull("timed out waiting for callback", receivedLevel);
+            assertEquals(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW, receivedLevel.intValue());
+        }
+    }
+
     private static class TestApplication extends Application
             implements AndroidPlatformState.TestApplicationForegroundStateOverride {
         private boolean startInForeground;
@@ -18,6 +18,7 @@ import com.launchdarkly.sdk.android.DataModel.Flag;
 import com.launchdarkly.sdk.android.LDConfig.Builder.AutoEnvAttributes;
 import com.launchdarkly.sdk.android.integrations.DedupingHook;
 import com.launchdarkly.sdk.android.integrations.Hook;
+import com.launchdarkly.sdk.android.integrations.TrackSeriesContext;
 import com.launchdarkly.sdk.android.subsystems.PersistentDataStore;
 import com.launchdarkly.sdk.internal.GsonHelpers;
 import com.launchdarkly.sdk.json.JsonSerialization;
@@ -26,6 +27,10 @@ import org.junit.Before;
 import org.junit.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 import okhttp3.HttpUrl;
 import okhttp3.mockwebserver.MockResponse;
@@ -163,6 +168,57 @@ public class LDClientEventTest {
         }
     }
 
+    @Test
+    public void testTrackBatchAggregatesMetricsInBatchOrder() throws IOException, InterruptedException {
+        try (MockWebServer mockEventsServer = new MockWebServer()) {
+            mockEventsServer.start();
+            // Enqueue a successful empty response
+            mockEventsServer.enqueue(new MockResponse());
+
+            List<List<String>> hookBatches = new ArrayList<>();
+            Hook batchHook = new Hook("batch") {
+                @Override
+                public void afterTrackBatch(List<TrackSeriesContext> seriesContexts) {
+                    List<String> keys = new ArrayList<>();
+                    for (TrackSeriesContext seriesContext : seriesContexts) {
+                        keys.add(seriesContext.key);
+                    }
+                    hookBatches.add(keys);
+                }
+            };
+            LDConfig ldConfig = baseConfigBuilder(mockEventsServer)
+                    .hooks(Components.hooks().addHook(batchHook))
+                    .build();
+            try (LDClient client = LDClient.init(application, ldConfig, ldContext, 0)) {
+                client.trackBatch(Arrays.asList(
+                        TrackedEvent.of("first"),
+                        TrackedEvent.ofMetric("metric", null, 1.5),
+                        null,
+                        TrackedEvent.ofData("second", LDValue.of("abc")),
+                        TrackedEvent.ofMetric("metric", LDValue.ofNull(), 2.5),
+                        TrackedEvent.ofMetric("metric", LDValue.of("with-data"), 1.0)
+                ), true);
+                client.blockingFlush();
+
+                LDValue[] events = getEventsFromLastRequest(mockEventsServer, 5);
+                assertIdentifyEvent(events[0], ldContext);
+                assertCustomEvent(events[1], ldContext, "first");
+                // The metric events without data are combined where the first of them was.
+                assertCustomEvent(events[2], ldContext, "metric");
+                assertEquals(LDValue.of(4.0), events[2].get("metricValue"));
+                assertEquals(LDValue.of(2), events[2].get("data").get("count"));
+                assertCustomEvent(events[3], ldContext, "second");
+                assertEquals(LDValue.of("abc"), events[3].get("data"));
+                assertCustomEvent(events[4], ldContext, "metric");
+                assertEquals(LDValue.of(1.0), events[4].get("metricValue"));
+                assertEquals(LDValue.of("with-data"), events[4].get("data"));
+
+                assertEquals(Collections.singletonList(Arrays.asList("first", "metric", "second", "metric")),
+                        hookBatches);
+            }
+        }
+    }
+
     @Test
     public void variationFlagTrackReasonGeneratesEventWithReason() throws IOException, InterruptedException {
         try (MockWebServer mockEventsServer = new MockWebServer()) {
@@ -1,7 +1,9 @@
 package com.launchdarkly.sdk.android;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -66,6 +68,21 @@ public class MultiEnvironmentLDClientTest {
         assertEquals(expectedJson, ldClient.jsonValueVariation("jsonFlag", expectedJson));
     }
 
+    @Test
+    public void initCreatesAClientForEveryEnvironment() throws Exception {
+        try (LDClient primary = LDClient.init(ApplicationProvider.getApplicationContext(), ldConfig, ldContext, 1)) {
+            LDClient test = LDClient.getForMobileKey("test");
+            LDClient test1 = LDClient.getForMobileKey("test1");
+
+            assertSame(primary, LDClient.getForMobileKey(LDConfig.primaryEnvironmentName));
+            assertNotSame(primary, test);
+            assertNotSame(primary, test1);
+            assertNotSame(test, test1);
+            assertTrue(test.isInitialized());
+            assertTrue(test1.isInitialized());
+        }
+    }
+
     @Test
     public void givenDefaultsAreNullAndTestOfflineClientReturnsDefaults() {
         ldClient = LDClient.init(ApplicationProvider.getApplicationContext(), ldConfig, ldContext, 1);
@@ -13,6 +13,7 @@ import android.content.SharedPreferences;
 
 import androidx.test.core.app.ApplicationProvider;
 
+import com.launchdarkly.logging.LDLogger;
 import com.launchdarkly.sdk.android.subsystems.PersistentDataStore;
 
 import org.junit.Rule;
@@ -27,6 +28,7 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class SharedPreferencesPersistentDataStoreTest {
     private static final String BASE_NAMESPACE = SharedPreferencesPersistentDataStoreTest.class.getName();
@@ -359,6 +361,115 @@ public class SharedPreferencesPersistentDataStoreTest {
         store.flushSynchronously();
     }
 
+    @Test(timeout = 5000)
+    public void writesWithinWriteBackDelayAreCommittedTogether() {
+        String namespace = BASE_NAMESPACE + "-writesWithinWriteBackDelayAreCommittedTogether";
+        SharedPreferencesPersistentDataStore store = new SharedPreferencesPersistentDataStore(
+                application, 60_000, 60_000, LDLogger.none());
+        AtomicInteger commits = new AtomicInteger();
+        store.preCommitRunnable = commits::incrementAndGet;
+
+        store.setValue(namespace, "key1", "value1");
+        store.setValue(namespace, "key2", "value2");
+        store.setValue(namespace, "key1", "value3");
+
+        // Nothing is on disk yet, but the store reads its own writes.
+        PersistentDataStore store2 = new SharedPreferencesPersistentDataStore(application);
+        assertNull(store2.getValue(namespace, "key1"));
+        assertEquals("value3", store.getValue(namespace, "key1"));
+        assertEquals(0, commits.get());
+
+        store.flushSynchronously();
+        assertEquals(1, commits.get());
+        assertEquals("value3", store2.getValue(namespace, "key1"));
+        assertEquals("value2", store2.getValue(namespace, "key2"));
+    }
+
+    @Test(timeout = 5000)
+    public void writesAreCommittedWithinMaxDirtyAge() throws InterruptedException {
+        String namespace = BASE_NAMESPACE + "-writesAreCommittedWithinMaxDirtyAge";
+        SharedPreferencesPersistentDataStore store = new SharedPreferencesPersistentDataStore(
+                application, 60_000, 200, LDLogger.none());
+        CountDownLatch committed = new CountDownLatch(1);
+        store.preCommitRunnable = committed::countDown;
+
+        store.setValue(namespace, "key", "value");
+        assertTrue("write was not committed", committed.await(4, TimeUnit.SECONDS));
+        store.preCommitRunnable = null;
+        store.flushSynchronously();
+
+        PersistentDataStore store2 = new SharedPreferencesPersistentDataStore(application);
+        assertEquals("value", store2.getValue(namespace, "key"));
+    }
+
+    @Test(timeout = 5000)
+    public void flushAsynchronouslyCommitsWithoutWaitingForWriteBackDelay() throws InterruptedException {
+        String namespace = BASE_NAMESPACE + "-flushAsynchronouslyCommitsWithoutWaitingForWriteBackDelay";
+        SharedPreferencesPersistentDataStore store = new SharedPreferencesPersistentDataStore(
+                application, 60_000, 60_000, LDLogger.none());
+        CountDownLatch committed = new CountDownLatch(1);
+        store.preCommitRunnable = committed::countDown;
+
+        store.setValue(namespace, "key", "value");
+        store.flushAsynchronously();
+        assertTrue("write was not committed", committed.await(4, TimeUnit.SECONDS));
+        store.preCommitRunnable = null;
+        store.flushSynchronously();
+
+        PersistentDataStore store2 = new SharedPreferencesPersistentDataStore(application);
+        assertEquals("value", store2.getValue(namespace, "key"));
+    }
+
+    @Test(timeout = 5000)
+    public void reportsCommitsAndReadsToInstrumentation() {
+        String namespace = BASE_NAMESPACE + "-reportsCommitsAndReadsToInstrumentation";
+        PersistenceInstrumentation instrumentation = new PersistenceInstrumentation();
+        SharedPreferencesPersistentDataStore store = new SharedPreferencesPersistentDataStore(
+                application, 60_000, 60_000, instrumentation, LDLogger.none());
+
+        store.setValue(namespace, "key1", "value1");
+        store.setValue(namespace, "key2", "value2");
+        assertEquals("value1", store.getValue(namespace, "key1"));
+        assertEquals(2, instrumentation.getStatistics().getPendingWrites());
+
+        store.flushSynchronously();
+        assertEquals("value1", store.getValue(namespace, "key1"));
+
+        PersistenceStatistics stats = instrumentation.getStatistics();
+        assertEquals(1, stats.getPendingReadHits());
+        assertEquals(1, stats.getStoreReads());
+        assertEquals(0, stats.getPendingWrites());
+        assertEquals(2, stats.getMaxPendingWrites());
+        assertEquals(1, stats.getCommitLatency().getCount());
+        assertEquals(Long.valueOf(20), stats.getBytesWrittenByNamespace().get(namespace));
+    }
+
+    @Test(timeout = 5000)
+    public void pendingWriteCountFollowsCoalescing() {
+        String namespace = BASE_NAMESPACE + "-pendingWriteCountFollowsCoalescing";
+        PersistenceInstrumentation instrumentation = new PersistenceInstrumentation();
+        SharedPreferencesPersistentDataStore store = new SharedPreferencesPersistentDataStore(
+                application, 60_000, 60_000, instrumentation, LDLogger.none());
+
+        store.setValue(namespace, "key1", "value1");
+        store.setValue(namespace, "key1", "value2");
+        Map<String, String> values = new HashMap<>();
+        values.put("key1", "value3");
+        values.put("key2", "value4");
+        store.setValues(namespace, values);
+        assertEquals(2, instrumentation.getStatistics().getPendingWrites());
+
+        // A clear discards the writes before it, and counts as one.
+        store.clear(namespace, false);
+        assertEquals(1, instrumentation.getStatistics().getPendingWrites());
+        store.setValue(namespace, "key3", "value5");
+        assertEquals(2, instrumentation.getStatistics().getPendingWrites());
+
+        store.flushSynchronously();
+        assertEquals(0, instrumentation.getStatistics().getPendingWrites());
+        assertEquals(2, instrumentation.getStatistics().getMaxPendingWrites());
+    }
+
     @Test
     public void concurrentWritesCoalesce() throws InterruptedException {
         String subNamespace = "-concurrentWritesCoalesce";
@@ -7,9 +7,11 @@ import android.app.Activity;
 import android.app.ActivityManager;
 import android.app.Application;
 import android.content.BroadcastReceiver;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.Intent;
 import android.content.IntentFilter;
+import android.content.res.Configuration;
 import android.net.ConnectivityManager;
 import android.net.Network;
 import android.net.NetworkCapabilities;
@@ -17,6 +19,8 @@ import android.net.NetworkInfo;
 import android.os.Build;
 import android.os.Bundle;
 
+import androidx.annotation.NonNull;
+
 import com.launchdarkly.logging.LDLogger;
 
 import java.io.File;
@@ -36,10 +40,13 @@ final class AndroidPlatformState implements PlatformState {
     private final LDLogger logger;
     private final ConnectivityReceiver connectivityReceiver;
     private final Application.ActivityLifecycleCallbacks lifecycleCallbacks;
+    private final ComponentCallbacks2 componentCallbacks;
     private final CopyOnWriteArrayList<ConnectivityChangeListener> connectivityChangeListeners =
             new CopyOnWriteArrayList<>();
     private final CopyOnWriteArrayList<ForegroundChangeListener> foregroundChangeListeners =
             new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<MemoryPressureListener> memoryPressureListeners =
+            new CopyOnWriteArrayList<>();
 
     private final AtomicBoolean foreground = new AtomicBoolean(false);
     private volatile boolean paused = true;
@@ -100,6 +107,8 @@ final class AndroidPlatformState implements PlatformState {
         }
         lifecycleCallbacks = new ActivityCallbacks();
         application.registerActivityLifecycleCallbacks(lifecycleCallbacks);
+        componentCallbacks = new MemoryCallbacks();
+        application.registerComponentCallbacks(componentCallbacks);
     }
 
     @Override
@@ -164,6 +173,16 @@ final class AndroidPlatformState implements PlatformState {
         foregroundChangeListeners.remove(listener);
     }
 
+    @Override
+    public void addMemoryPressureListener(MemoryPressureListener listener) {
+        memoryPressureListeners.add(listener);
+    }
+
+    @Override
+    public void removeMemoryPressureListener(MemoryPressureListener listener) {
+        memoryPressureListeners.remove(listener);
+    }
+
     @Override
     public File getCacheDir() {
         return application.getCacheDir();
@@ -173,6 +192,7 @@ final class AndroidPlatformState implements PlatformState {
     public void close() {
         connectivityChangeListeners.clear();
         foregroundChangeListeners.clear();
+        memoryPressureListeners.clear();
         try {
             application.unregisterReceiver(connectivityReceiver);
         } catch (IllegalArgumentException e) {
@@ -180,6 +200,7 @@ final class AndroidPlatformState implements PlatformState {
         }
 
         application.unregisterActivityLifecycleCallbacks(lifecycleCallbacks);
+        application.unregisterComponentCallbacks(componentCallbacks);
     }
 
     private final class ConnectivityReceiver extends BroadcastReceiver {
@@ -292,4 +313,36 @@ final class AndroidPlatformState implements PlatformState {
         public void onActivityDestroyed(Activity activity) {
         }
     }
+
+    private final class MemoryCallbacks implements ComponentCallbacks2 {
+        @Override
+        public void onTrimMemory(int level) {
+            // UI_HIDDEN is sent whenever the app leaves the foreground, with no shortage of memory;
+            // the background-related levels above it are the ones that report pressure.
+            if (level < TRIM_MEMORY_RUNNING_LOW || level == TRIM_MEMORY_UI_HIDDEN) {
+                return;
+            }
+            logger.debug("memory pressure reported, level {}", level);
+            // The callback is on the main thread, so the listeners are called from the executor.
+            taskExecutor.scheduleTask(() -> {
+                for (MemoryPressureListener listener : memoryPressureListeners) {
+                    // One failing listener must not keep the others from releasing memory.
+                    try {
+                        listener.onMemoryPressure(level);
+                    } catch (RuntimeException e) {
+                        LDUtil.logExceptionAtWarnLevel(logger, e, "Unexpected exception from memory pressure listener");
+                    }
+                }
+            }, 0);
+        }
+
+        @Override
+        public void onLowMemory() {
+            onTrimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(@NonNull Configuration newConfig) {
+        }
+    }
 }
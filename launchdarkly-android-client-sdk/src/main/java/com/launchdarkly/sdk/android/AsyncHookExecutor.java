@@ -0,0 +1,146 @@
+package com.launchdarkly.sdk.android;
+
+import com.launchdarkly.logging.LDLogger;
+import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder.AsyncOverflowPolicy;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+
+/**
+ * Runs the after stages of hooks on a single background thread, for
+ * {@link com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder#runAfterStagesAsynchronously}.
+ * <p>
+ * One thread, taking tasks in the order they were queued, is what keeps every hook's stages in the
+ * order the SDK produced them; a pool would let two series of the same hook overtake each other.
+ * The queue is a plain deque under a lock rather than a {@code BlockingQueue} because the
+ * drop-oldest policy needs to remove from the head and add to the tail as one step.
+ * <p>
+ * A task queued from the worker thread itself, which happens when a hook evaluates a flag in its
+ * after stage, is run at once instead of queued: with {@link AsyncOverflowPolicy#BLOCK} the worker
+ * would otherwise wait on a queue only it can drain.
+ */
+final class AsyncHookExecutor implements Closeable {
+    private static final String THREAD_NAME = "LaunchDarkly-HookRunner";
+
+    private final int capacity;
+    private final AsyncOverflowPolicy overflowPolicy;
+    private final LDLogger logger;
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private final Thread worker;
+
+    // All guarded by queue.
+    private boolean closed;
+    private long dropped;
+
+    AsyncHookExecutor(int capacity, AsyncOverflowPolicy overflowPolicy, LDLogger logger) {
+        this.capacity = capacity;
+        this.overflowPolicy = overflowPolicy;
+        this.logger = logger;
+        this.worker = new Thread(this::runTasks, THREAD_NAME);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Queues a task, or applies the overflow policy if the queue is full. After {@link #close()},
+     * tasks are discarded.
+     *
+     * @param task the task
+     */
+    void execute(Runnable task) {
+        if (Thread.currentThread() == worker) {
+            task.run();
+            return;
+        }
+        synchronized (queue) {
+            if (closed) {
+                return;
+            }
+            if (queue.size() >= capacity) {
+                switch (overflowPolicy) {
+                    case DROP_NEWEST:
+                        recordDrop();
+                        return;
+                    case DROP_OLDEST:
+                        queue.pollFirst();
+                        recordDrop();
+                        break;
+                    case BLOCK:
+                        while (!closed && queue.size() >= capacity) {
+                            try {
+                                queue.wait();
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                recordDrop();
+                                return;
+                            }
+                        }
+                        if (closed) {
+                            return;
+                        }
+                        break;
+                }
+            }
+            queue.addLast(task);
+            queue.notifyAll();
+        }
+    }
+
+    // Called with the queue lock held.
+    private void recordDrop() {
+        dropped++;
+        // Logged at the first drop and then at every power of two, so that a hook that has fallen
+        // behind is reported without the report itself flooding the log.
+        if (Long.bitCount(dropped) == 1) {
+            logger.warn("Hook after stages are not keeping up; {} series dropped so far", dropped);
+        }
+    }
+
+    /**
+     * @return how many series have been discarded by the overflow policy
+     */
+    long getDroppedCount() {
+        synchronized (queue) {
+            return dropped;
+        }
+    }
+
+    /**
+     * Stops accepting tasks. Tasks already queued still run, and the worker thread then exits.
+     */
+    @Override
+    public void close() {
+        synchronized (queue) {
+            closed = true;
+            queue.notifyAll();
+        }
+    }
+
+    private void runTasks() {
+        while (true) {
+            Runnable task;
+            synchronized (queue) {
+                while (queue.isEmpty()) {
+                    if (closed) {
+                        return;
+                    }
+                    try {
+                        queue.wait();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                task = queue.pollFirst();
+                // Wakes a caller blocked by the BLOCK policy, now that there is room.
+                queue.notifyAll();
+            }
+            try {
+                task.run();
+            } catch (Exception e) {
+                // HookRunner catches what each hook throws, so this is only a safety net that keeps
+                // one bad task from stopping every later one.
+                LDUtil.logExceptionAtErrorLevel(logger, e, "Unexpected exception running hook after stages");
+            }
+        }
+    }
+}
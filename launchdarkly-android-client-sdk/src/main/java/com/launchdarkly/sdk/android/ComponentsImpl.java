@@ -98,22 +98,31 @@ abstract class ComponentsImpl {
 
     static final class EventProcessorBuilderImpl extends EventProcessorBuilder
             implements DiagnosticDescription {
+        /**
+         * Gives {@link EventSampler} the sampling hash, which only a subclass can reach from here.
+         */
+        static double sampleBucketFor(String contextKey, String key) {
+            return sampleBucket(contextKey, key);
+        }
+
         @Override
         public EventProcessor build(ClientContext clientContext) {
             ClientContextImpl clientContextImpl = ClientContextImpl.get(clientContext);
+            EventProcessorInstrumentation instrumentation =
+                    new EventProcessorInstrumentation(capacity, clientContext.getBaseLogger());
             EventsConfiguration eventsConfig = new EventsConfiguration(
                     allAttributesPrivate,
                     capacity,
                     null, // contextDeduplicator - not needed for client-side use
                     diagnosticRecordingIntervalMillis,
                     clientContextImpl.getDiagnosticStore(),
-                    new DefaultEventSender(
+                    instrumentation.instrument(new DefaultEventSender(
                             LDUtil.makeHttpProperties(clientContext),
                             StandardEndpoints.ANALYTICS_EVENTS_REQUEST_PATH,
                             StandardEndpoints.DIAGNOSTIC_EVENTS_REQUEST_PATH,
                             0L, // use default retry delay
                             false, // disable gzip compression for Android
-                            clientContext.getBaseLogger()),
+                            clientContext.getBaseLogger())),
                     1, // eventSendingThreadPoolSize
                     clientContext.getServiceEndpoints().getEventsBaseUri(),
                     flushIntervalMillis,
@@ -127,7 +136,9 @@ abstract class ComponentsImpl {
                     EventUtil.makeEventsTaskExecutor(),
                     Thread.NORM_PRIORITY, // note, we may want to make this configurable as it is in java-server-sdk
                     clientContext.getBaseLogger()
-            ));
+            ), instrumentation,
+                    evaluationEventSampling.isEmpty() ? EventSampler.NONE : new EventSampler(evaluationEventSampling),
+                    customEventSampling.isEmpty() ? EventSampler.NONE : new EventSampler(customEventSampling));
         }
 
         @Override
@@ -145,11 +156,25 @@ abstract class ComponentsImpl {
          * Adapter from the public component interface of EventProcessor to the internal
          * implementation class from java-sdk-internal.
          */
-        private final class DefaultEventProcessorWrapper implements EventProcessor {
+        private final class DefaultEventProcessorWrapper implements EventProcessor, InstrumentedEventProcessor {
             private final DefaultEventProcessor eventProcessor;
-
-            DefaultEventProcessorWrapper(DefaultEventProcessor eventProcessor) {
+            private final EventProcessorInstrumentation instrumentation;
+            private final EventSampler evaluationEventSampler;
+            private final EventSampler customEventSampler;
+
+            DefaultEventProcessorWrapper(DefaultEventProcessor eventProcessor,
+                                         EventProcessorInstrumentation instrumentation,
+                                         EventSampler evaluationEventSampler,
+                                         EventSampler customEventSampler) {
                 this.eventProcessor = eventProcessor;
+                this.instrumentation = instrumentation;
+                this.evaluationEventSampler = evaluationEventSampler;
+                this.customEventSampler = customEventSampler;
+            }
+
+            @Override
+            public EventProcessorInstrumentation getInstrumentation() {
+                return instrumentation;
             }
 
             @Override
@@ -164,19 +189,35 @@ abstract class ComponentsImpl {
                     boolean requireFullEvent,
                     Long debugEventsUntilDate
             ) {
+                long now = System.currentTimeMillis();
+                if ((requireFullEvent || debugEventsUntilDate != null) &&
+                        !evaluationEventSampler.isSampled(flagKey, context)) {
+                    // Still sent, so that it is counted in the summary event, but only as a summary.
+                    requireFullEvent = false;
+                    debugEventsUntilDate = null;
+                }
+                // Mirrors the processor's own rule: a full event if the flag asks for one, and a
+                // debug event as well while debugging is on. Either one takes a buffer place.
+                boolean debug = debugEventsUntilDate != null && debugEventsUntilDate > now;
+                instrumentation.recordEvent((requireFullEvent ? 1 : 0) + (debug ? 1 : 0));
                 eventProcessor.sendEvent(new Event.FeatureRequest(
-                        System.currentTimeMillis(), flagKey, context, flagVersion, variation,
+                        now, flagKey, context, flagVersion, variation,
                         value, defaultValue, reason, null, requireFullEvent,
                         debugEventsUntilDate, false));
             }
 
             @Override
             public void recordIdentifyEvent(LDContext context) {
+                instrumentation.recordEvent(1);
                 eventProcessor.sendEvent(new Event.Identify(System.currentTimeMillis(), context));
             }
 
             @Override
             public void recordCustomEvent(LDContext context, String eventKey, LDValue data, Double metricValue) {
+                if (!customEventSampler.isSampled(eventKey, context)) {
+                    return;
+                }
+                instrumentation.recordEvent(1);
                 eventProcessor.sendEvent(new Event.Custom(System.currentTimeMillis(), eventKey,
                         context, data, metricValue));
             }
@@ -360,12 +401,20 @@ abstract class ComponentsImpl {
         public static HooksConfigurationBuilderImpl fromHooksConfiguration(HookConfiguration hooksConfiguration) {
             HooksConfigurationBuilderImpl builder = new HooksConfigurationBuilderImpl();
             builder.setHooks(hooksConfiguration.getHooks());
+            if (hooksConfiguration.isRunAfterStagesAsynchronously()) {
+                builder.runAfterStagesAsynchronously(hooksConfiguration.getAsyncQueueCapacity(),
+                        hooksConfiguration.getAsyncOverflowPolicy());
+            }
+            builder.bypassSlowHooks(hooksConfiguration.getSlowHookBudgetMicros(),
+                    hooksConfiguration.getSlowHookOverrunLimit());
+            builder.recordStatistics(hooksConfiguration.isRecordStatistics());
             return builder;
         }
 
         @Override
         public HookConfiguration build() {
-            return new HookConfiguration(hooks);
+            return new HookConfiguration(hooks, runAfterStagesAsynchronously, asyncQueueCapacity,
+                    asyncOverflowPolicy, slowHookBudgetMicros, slowHookOverrunLimit, recordStatistics);
         }
     }
 
@@ -379,4 +428,9 @@ abstract class ComponentsImpl {
 
     // Marker interface for data source implementations that will require a FeatureFetcher
     interface DataSourceRequiresFeatureFetcher {}
+
+    // Implemented by event processors that can report on the event pipeline
+    interface InstrumentedEventProcessor {
+        EventProcessorInstrumentation getInstrumentation();
+    }
 }
@@ -0,0 +1,107 @@
+package com.launchdarkly.sdk.android;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs several constructors at once on worker threads, for {@link LDClient#init}, which constructs
+ * one client per environment and has each of them read and decode its stored flags as it does.
+ * <p>
+ * What the constructors share has to be safe for them to use at once. For the clients, that is the
+ * persistent store, which {@link SharedPreferencesPersistentDataStore} guards with a lock, and each
+ * client reads only its own environment's namespaces of it; the {@link PersistenceInstrumentation},
+ * which only counts, with atomics; and the {@link FlagDataPool}, whose tables are locked separately.
+ */
+final class ConcurrentConstruction {
+    static final String THREAD_NAME = "LaunchDarkly-ClientConstruction";
+
+    interface Constructor<T> {
+        T construct() throws LaunchDarklyException;
+    }
+
+    interface Cleanup<T> {
+        void cleanUp(T instance);
+    }
+
+    private ConcurrentConstruction() {}
+
+    /**
+     * Runs the constructors, up to {@code maxConcurrent} at once, and returns what they constructed
+     * in the same order. It returns only once every constructor has finished.
+     * <p>
+     * If any constructor fails, the failure of the first one to fail, in the order they were given,
+     * is thrown, and everything the others constructed is given to {@code cleanup}, so that nothing
+     * is left running.
+     *
+     * @param constructors  the constructors
+     * @param maxConcurrent how many may run at once
+     * @param cleanup       releases an instance that will not be returned
+     * @return the instances
+     * @throws LaunchDarklyException if a constructor failed with one, or with a checked exception,
+     *                               or if the calling thread was interrupted while waiting
+     */
+    static <T> List<T> constructAll(List<Constructor<T>> constructors, int maxConcurrent,
+                                    Cleanup<T> cleanup) throws LaunchDarklyException {
+        List<T> instances = new ArrayList<>(constructors.size());
+        if (constructors.size() == 1) {
+            instances.add(constructors.get(0).construct());
+            return instances;
+        }
+        List<Callable<T>> tasks = new ArrayList<>(constructors.size());
+        for (Constructor<T> constructor : constructors) {
+            tasks.add(constructor::construct);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.max(1, Math.min(constructors.size(), maxConcurrent)), r -> {
+                    Thread thread = new Thread(r, THREAD_NAME);
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        Throwable failure = null;
+        try {
+            // invokeAll waits for every task, so each future is done.
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                try {
+                    T instance = future.get();
+                    if (failure == null) {
+                        instances.add(instance);
+                    } else {
+                        cleanup.cleanUp(instance);
+                    }
+                } catch (ExecutionException e) {
+                    if (failure == null) {
+                        failure = e.getCause();
+                        for (T instance : instances) {
+                            cleanup.cleanUp(instance);
+                        }
+                        instances.clear();
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            // invokeAll has cancelled whatever had not finished.
+            Thread.currentThread().interrupt();
+            throw new LaunchDarklyException("Interrupted while creating LDClient", e);
+        } finally {
+            executor.shutdown();
+        }
+        if (failure instanceof LaunchDarklyException) {
+            throw (LaunchDarklyException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        }
+        if (failure != null) {
+            throw new LaunchDarklyException("Unable to create LDClient", failure);
+        }
+        return instances;
+    }
+}
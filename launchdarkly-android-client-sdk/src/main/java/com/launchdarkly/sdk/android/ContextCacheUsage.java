@@ -0,0 +1,71 @@
+package com.launchdarkly.sdk.android;
+
+/**
+ * How much of the local cache of evaluation contexts' flag data is in use for one environment, as
+ * returned by {@link LDClient#getContextCacheUsage()}.
+ * <p>
+ * Sizes are the length of the JSON stored for each context, which is its size in bytes unless flag
+ * values hold non-ASCII text. The size of data stored by an SDK version that did not record it
+ * counts as zero until the data is stored again.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ */
+public final class ContextCacheUsage {
+    private final int contextCount;
+    private final long totalBytes;
+    private final long currentContextBytes;
+    private final int maxContexts;
+    private final long maxTotalBytes;
+
+    ContextCacheUsage(int contextCount, long totalBytes, long currentContextBytes, int maxContexts, long maxTotalBytes) {
+        this.contextCount = contextCount;
+        this.totalBytes = totalBytes;
+        this.currentContextBytes = currentContextBytes;
+        this.maxContexts = maxContexts;
+        this.maxTotalBytes = maxTotalBytes;
+    }
+
+    /**
+     * @return the number of contexts whose flag data is cached, including the current context if
+     * its data has been stored
+     */
+    public int getContextCount() {
+        return contextCount;
+    }
+
+    /**
+     * @return the total size of the cached flag data of all contexts
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return the size of the current context's cached flag data, or zero if it has none
+     */
+    public long getCurrentContextBytes() {
+        return currentContextBytes;
+    }
+
+    /**
+     * @return the limit set by {@link LDConfig.Builder#maxCachedContexts(int)}; negative if there
+     * is none
+     */
+    public int getMaxContexts() {
+        return maxContexts;
+    }
+
+    /**
+     * @return the limit set by {@link LDConfig.Builder#maxCachedContextBytes(long)}; negative if
+     * there is none
+     */
+    public long getMaxTotalBytes() {
+        return maxTotalBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextCacheUsage(" + contextCount + " contexts, " + totalBytes + " bytes)";
+    }
+}
@@ -15,6 +15,7 @@ import com.launchdarkly.sdk.fdv2.Selector;
 
 import com.launchdarkly.sdk.android.subsystems.Callback;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -22,9 +23,11 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The component that maintains the state of the current context and last known flag values, syncs
@@ -44,13 +47,30 @@ import java.util.concurrent.CopyOnWriteArrayList;
  * deferred listener calls are done via the {@link TaskExecutor} abstraction.
  */
 final class ContextDataManager {
+    // The combined size of two data sets at which comparing them is no longer done on the thread
+    // applying them.
+    static final int BACKGROUND_DIFF_FLAG_COUNT = 2_000;
+
     private final PersistentDataStoreWrapper.PerEnvironmentData environmentStore;
     private final int maxCachedContexts;
+    private final long maxCachedContextBytes;
+    private final ContextEvictionPolicy evictionPolicy;
     private final TaskExecutor taskExecutor;
     private final ConcurrentHashMap<String, Set<FeatureFlagChangeListener>> listeners =
             new ConcurrentHashMap<>();
     private final CopyOnWriteArrayList<LDAllFlagsListener> allFlagsListeners =
             new CopyOnWriteArrayList<>();
+    // Null unless the configuration asks for batched notifications or a listener executor.
+    @Nullable private final FlagChangeDispatcher flagChangeDispatcher;
+    private final boolean notifyOnlyOnValueChange;
+    private final boolean loadCachedFlagsInBackground;
+    private final AtomicLong suppressedNotificationCount = new AtomicLong();
+
+    // Notifications waiting behind a comparison of large data sets that was moved off the applying
+    // thread, so that listeners still hear about changes in the order they were applied. Both are
+    // guarded by queuedNotifications.
+    private final ArrayDeque<Runnable> queuedNotifications = new ArrayDeque<>();
+    private boolean drainingNotifications;
 
     @Nullable private volatile ContextSwitchListener contextSwitchListener;
     private final LDLogger logger;
@@ -62,7 +82,10 @@ final class ContextDataManager {
 
     @NonNull private volatile LDContext currentContext;
     @NonNull private volatile EnvironmentData flags = new EnvironmentData();
-    @NonNull private volatile ContextIndex index;
+    @NonNull private final ContextIndex index; // guarded by lock
+    // True if the switch to the current context has not been counted in the index yet, because the
+    // context had no stored data then; it is counted when its data is first stored. Guarded by lock.
+    private boolean currentContextUseUncounted;
     @NonNull private volatile ContextDataManagerView currentView;
 
     /** Selector from the last applied changeset that carried one; in-memory only, not persisted. */
@@ -84,8 +107,28 @@ final class ContextDataManager {
         this.maxCachedContexts = maxCachedContexts;
         this.taskExecutor = ClientContextImpl.get(clientContext).getTaskExecutor();
         this.logger = clientContext.getBaseLogger();
+        LDConfig config = clientContext.getConfig();
+        this.maxCachedContextBytes = config.getMaxCachedContextBytes();
+        this.evictionPolicy = ContextEvictionPolicy.allOf(
+                config.isEvictLeastFrequentlyUsedContexts()
+                        ? ContextEvictionPolicy.leastFrequentlyUsed(maxCachedContexts)
+                        : ContextEvictionPolicy.leastRecentlyUsed(maxCachedContexts),
+                ContextEvictionPolicy.maxAge(config.getMaxCachedContextAgeMillis()),
+                ContextEvictionPolicy.maxTotalBytes(maxCachedContextBytes));
+        this.notifyOnlyOnValueChange = config.isNotifyOnlyOnFlagValueChange();
+        this.loadCachedFlagsInBackground = config.isLoadCachedFlagsInBackground();
+        if (config.getFlagChangeCoalesceWindowMillis() != FlagChangeDispatcher.NO_COALESCING
+                || config.getFlagChangeListenerExecutor() != null) {
+            this.flagChangeDispatcher = new FlagChangeDispatcher(taskExecutor,
+                    config.getFlagChangeListenerExecutor(), config.getFlagChangeCoalesceWindowMillis(),
+                    this::deliverFlagChanges, logger);
+        } else {
+            this.flagChangeDispatcher = null;
+        }
         this.currentView = new ContextDataManagerView();
-        switchToContext(clientContext.getEvaluationContext(), skipCacheLoad, LDUtil.noOpCallback());
+        // The initial context's cached flags are always loaded here, so that they are available as
+        // soon as the client is constructed.
+        switchToContext(clientContext.getEvaluationContext(), skipCacheLoad, false, LDUtil.noOpCallback());
     }
 
     /**
@@ -99,6 +142,11 @@ final class ContextDataManager {
      * <p>
      * If the context is the same as the current context, the callback is completed
      * immediately with success.
+     * <p>
+     * If {@link LDConfig.Builder#loadCachedFlagsInBackground(boolean)} is enabled, the stored data
+     * is loaded by a task on the {@link TaskExecutor} instead, and applied only if the new view has
+     * not received any data by then. If there was stored data, the callback is completed as soon as
+     * it is applied, and not again when downstream work completes.
      *
      * @param context       the context to switch to
      * @param skipCacheLoad true to skip loading cached data from the persistent store here
@@ -107,6 +155,15 @@ final class ContextDataManager {
      * @param onCompletion  callback for when downstream work is complete
      */
     public void switchToContext(@NonNull LDContext context, boolean skipCacheLoad, @NonNull Callback<Void> onCompletion) {
+        switchToContext(context, skipCacheLoad, loadCachedFlagsInBackground, onCompletion);
+    }
+
+    private void switchToContext(
+            @NonNull LDContext context,
+            boolean skipCacheLoad,
+            boolean loadInBackground,
+            @NonNull Callback<Void> onCompletion
+    ) {
         ContextDataManagerView newView;
         synchronized (lock) {
             if (context.equals(currentContext)) {
@@ -119,15 +176,21 @@ final class ContextDataManager {
             currentSelector = Selector.EMPTY;
             newView = new ContextDataManagerView();
             currentView = newView;
+            recordContextUse(context);
         }
 
         if (!skipCacheLoad) {
-            EnvironmentData storedData = getStoredData(context);
-            if (storedData == null) {
-                logger.debug("No stored flag data is available for this context");
+            if (loadInBackground) {
+                // The previous context's flags must not be evaluated for this one while the stored
+                // data is loading. The data source is not given the new view until below, so it
+                // cannot have delivered anything yet.
+                applyFullData(context, Selector.EMPTY, new HashMap<>(), false);
+                BackgroundLoadCompletion completion = new BackgroundLoadCompletion(onCompletion);
+                onCompletion = completion;
+                ContextDataManagerView view = newView;
+                taskExecutor.scheduleTask(() -> completion.storedDataChecked(loadStoredData(context, view)), 0);
             } else {
-                logger.debug("Using stored flag data for this context");
-                applyFullData(context, Selector.EMPTY, storedData.getAll(), false);
+                loadStoredData(context, newView);
             }
         }
 
@@ -142,6 +205,41 @@ final class ContextDataManager {
         }
     }
 
+    /**
+     * Counts a switch to a context in the index, for {@link LDConfig.Builder#evictLeastFrequentlyUsedContexts(boolean)},
+     * and stores the index if it changed. Must be called while holding the lock.
+     */
+    private void recordContextUse(@NonNull LDContext context) {
+        currentContextUseUncounted = !index.recordUse(LDUtil.urlSafeBase64HashedContextId(context));
+        if (!currentContextUseUncounted) {
+            environmentStore.setIndex(index);
+        }
+    }
+
+    /**
+     * Reads the context's flag data from the persistent store and, unless the view has been
+     * invalidated or has already received data, which is more recent, makes it the current data.
+     *
+     * @return true if stored data was applied
+     */
+    private boolean loadStoredData(@NonNull LDContext context, @NonNull ContextDataManagerView view) {
+        // Read and decoded outside of the lock, since that is the slow part.
+        EnvironmentData storedData = getStoredData(context);
+        if (storedData == null) {
+            logger.debug("No stored flag data is available for this context");
+            return false;
+        }
+        synchronized (lock) {
+            if (!view.isAwaitingData()) {
+                logger.debug("Not using stored flag data for this context; it has been superseded");
+                return false;
+            }
+            logger.debug("Using stored flag data for this context");
+            applyFullData(context, Selector.EMPTY, storedData.getAll(), false);
+            return true;
+        }
+    }
+
     /**
      * Sets the listener that will be notified on every context switch. The listener
      * is immediately called with the current context and view (with a no-op callback)
@@ -225,33 +323,32 @@ final class ContextDataManager {
     @VisibleForTesting
     boolean upsert(@NonNull LDContext context, @NonNull Flag flag) {
         EnvironmentData updatedFlags;
+        Flag oldFlag;
         synchronized (lock) {
             if (!context.equals(currentContext)) {
                 // if incoming data is not for the current context, reject it.
                 return false;
             }
 
-            Flag oldFlag = flags.getFlag(flag.getKey());
+            oldFlag = flags.getFlag(flag.getKey());
             if (oldFlag != null && oldFlag.getVersion() >= flag.getVersion()) {
                 return false;
             }
             updatedFlags = flags.withFlagUpdatedOrAdded(flag);
             flags = updatedFlags;
 
-            String hashedContextId = LDUtil.urlSafeBase64HashedContextId(context);
-            String fingerprint = LDUtil.urlSafeBase64Hash(context);
-            environmentStore.setContextData(hashedContextId, fingerprint, updatedFlags);
-            index = index.updateTimestamp(hashedContextId, System.currentTimeMillis());
-            environmentStore.setIndex(index);
+            storeContextData(context, updatedFlags, false);
         }
 
-        Collection<String> updatedFlag = Collections.singletonList(flag.getKey());
-
         // We really should only be calling to listeners if the value has changed, but we left this
         // unconditional out of fear that we'd uncover bugs in customer code as a result of
-        // conditionally notifying listeners
-        notifyAllFlagsListeners(updatedFlag);
-        notifyFlagListeners(updatedFlag);
+        // conditionally notifying listeners; applications can opt in to the comparison.
+        if (notifyOnlyOnValueChange && !isObservableChange(oldFlag, flag)) {
+            suppressedNotificationCount.incrementAndGet();
+            return true;
+        }
+        Collection<String> updatedFlag = Collections.singletonList(flag.getKey());
+        notifyListenersInOrder(updatedFlag);
 
         return true;
     }
@@ -289,25 +386,7 @@ final class ContextDataManager {
             flags = newData;
 
             if (shouldPersist) {
-                String contextId = LDUtil.urlSafeBase64HashedContextId(context);
-                String fingerprint = LDUtil.urlSafeBase64Hash(context);
-                List<String> removedContextIds = new ArrayList<>();
-                ContextIndex newIndex = index.updateTimestamp(contextId, System.currentTimeMillis())
-                        .prune(maxCachedContexts, removedContextIds);
-                index = newIndex;
-
-                for (String removedContextId : removedContextIds) {
-                    environmentStore.removeContextData(removedContextId);
-                    logger.debug("Removed flag data for context {} from persistent store", removedContextId);
-                }
-
-                environmentStore.setContextData(contextId, fingerprint, newData);
-                environmentStore.setIndex(newIndex);
-
-                if (logger.isEnabled(LDLogLevel.DEBUG)) {
-                    logger.debug("Stored context index is now: {}", newIndex.toJson());
-                }
-                logger.debug("Updated flag data for context {} in persistent store", contextId);
+                storeContextData(context, newData, true);
             }
         }
 
@@ -318,20 +397,48 @@ final class ContextDataManager {
         // upsert. Upsert should only be calling to listeners if the value has changed,
         // but we left upsert alone out of fear that we'd uncover bugs in customer code
         // if we added conditionals in upsert.
-        Set<String> updatedFlagKeys = new HashSet<>();
+        //
+        // Listeners are called asynchronously anyway, so for a large data set the comparison is
+        // moved off the calling thread too, which may be the one identifying a context. Changes
+        // applied after this are notified after it.
+        if (oldData.size() + newData.size() >= BACKGROUND_DIFF_FLAG_COUNT) {
+            notifyListenersInBackground(() -> notifyListeners(findChangedFlagKeys(oldData, newData)));
+        } else {
+            notifyListenersInOrder(findChangedFlagKeys(oldData, newData));
+        }
+    }
+
+    /**
+     * Returns the keys of flags that were added, removed, or given a different value.
+     */
+    @VisibleForTesting
+    static Set<String> findChangedFlagKeys(@NonNull EnvironmentData oldData, @NonNull EnvironmentData newData) {
+        if (oldData.size() == 0) {
+            // Everything is new, so there is no need to decode flags that were loaded lazily.
+            return new HashSet<>(newData.keys());
+        }
+        Set<String> changedFlagKeys = new HashSet<>();
+        int oldFlagsStillPresent = 0;
         for (Flag newFlag : newData.values()) {
             Flag oldFlag = oldData.getFlag(newFlag.getKey());
-            if (oldFlag == null || !oldFlag.getValue().equals(newFlag.getValue())) {
-                updatedFlagKeys.add(newFlag.getKey());
+            if (oldFlag == null) {
+                changedFlagKeys.add(newFlag.getKey());
+            } else {
+                oldFlagsStillPresent++;
+                if (!oldFlag.hasSameValueAs(newFlag)) {
+                    changedFlagKeys.add(newFlag.getKey());
+                }
             }
         }
-        for (Flag oldFlag : oldData.values()) {
-            if (newData.getFlag(oldFlag.getKey()) == null) {
-                updatedFlagKeys.add(oldFlag.getKey());
+        // Only look for removed flags if some of the old ones were not found above.
+        if (oldFlagsStillPresent < oldData.size()) {
+            for (Flag oldFlag : oldData.values()) {
+                if (newData.getFlag(oldFlag.getKey()) == null) {
+                    changedFlagKeys.add(oldFlag.getKey());
+                }
             }
         }
-        notifyAllFlagsListeners(updatedFlagKeys);
-        notifyFlagListeners(updatedFlagKeys);
+        return changedFlagKeys;
     }
 
     private void applyPartialData(
@@ -348,25 +455,101 @@ final class ContextDataManager {
                 return;
             }
             currentSelector = selector;
-            Map<String, Flag> merged = new HashMap<>(flags.getAll());
+            Map<String, Flag> merged = flags.getAll();
             for (Map.Entry<String, Flag> entry : items.entrySet()) {
-                merged.put(entry.getKey(), entry.getValue());
-                updatedFlagKeys.add(entry.getKey());
+                Flag oldFlag = merged.put(entry.getKey(), entry.getValue());
+                if (notifyOnlyOnValueChange && !isObservableChange(oldFlag, entry.getValue())) {
+                    suppressedNotificationCount.incrementAndGet();
+                } else {
+                    updatedFlagKeys.add(entry.getKey());
+                }
             }
             updatedFlags = EnvironmentData.usingExistingFlagsMap(merged);
             flags = updatedFlags;
 
             if (shouldPersist) {
-                String hashedContextId = LDUtil.urlSafeBase64HashedContextId(context);
-                String fingerprint = LDUtil.urlSafeBase64Hash(context);
-                environmentStore.setContextData(hashedContextId, fingerprint, updatedFlags);
-                index = index.updateTimestamp(hashedContextId, System.currentTimeMillis());
-                environmentStore.setIndex(index);
+                storeContextData(context, updatedFlags, false);
             }
         }
 
-        notifyAllFlagsListeners(updatedFlagKeys);
-        notifyFlagListeners(updatedFlagKeys);
+        notifyListenersInOrder(updatedFlagKeys);
+    }
+
+    /**
+     * Stores the current context's flag data, updates the index, and removes other contexts' data
+     * if that is needed to stay within the configured limits. Must be called while holding the lock.
+     * <p>
+     * The index is only stored again if it changed; see {@link ContextIndex#touch(String, long)}.
+     *
+     * @param fullData true if the data is a full data set; false if it is an update to data that
+     *                 was already stored
+     */
+    private void storeContextData(@NonNull LDContext context, @NonNull EnvironmentData data, boolean fullData) {
+        String contextId = LDUtil.urlSafeBase64HashedContextId(context);
+        String fingerprint = LDUtil.urlSafeBase64Hash(context);
+        long now = System.currentTimeMillis();
+        index.touch(contextId, now);
+        if (currentContextUseUncounted) {
+            index.recordUse(contextId);
+            currentContextUseUncounted = false;
+        }
+        int byteSize = environmentStore.setContextData(contextId, fingerprint, data);
+        index.setByteSize(contextId, byteSize);
+
+        List<String> removedContextIds = new ArrayList<>();
+        index.evict(evictionPolicy, now, removedContextIds);
+        for (String removedContextId : removedContextIds) {
+            // A limit of zero contexts takes even the current one out of the index, but its data has
+            // always been kept.
+            if (!removedContextId.equals(contextId)) {
+                environmentStore.removeContextData(removedContextId);
+                logger.debug("Removed flag data for context {} from persistent store", removedContextId);
+            }
+        }
+        environmentStore.setIndex(index);
+
+        if (fullData) {
+            if (logger.isEnabled(LDLogLevel.DEBUG)) {
+                logger.debug("Stored context index is now: {}", index.toJson());
+            }
+            logger.debug("Updated flag data for context {} in persistent store", contextId);
+        }
+    }
+
+    /**
+     * @return how many contexts' flag data is cached, and how large it is
+     */
+    @NonNull
+    ContextCacheUsage getCacheUsage() {
+        synchronized (lock) {
+            ContextIndex.IndexEntry current = index.getEntry(LDUtil.urlSafeBase64HashedContextId(currentContext));
+            return new ContextCacheUsage(index.size(), index.getTotalBytes(),
+                    current == null ? 0 : current.byteSize, maxCachedContexts, maxCachedContextBytes);
+        }
+    }
+
+    /**
+     * @return how many flag updates did not notify listeners because neither the flag's value nor
+     * its variation changed; always zero unless {@link LDConfig.Builder#notifyOnlyOnFlagValueChange(boolean)}
+     * was enabled
+     */
+    long getSuppressedNotificationCount() {
+        return suppressedNotificationCount.get();
+    }
+
+    /**
+     * Whether replacing one version of a flag with another could change what an application sees:
+     * its value or variation, or whether it exists at all. A deleted item placeholder counts as
+     * the flag not existing.
+     */
+    private static boolean isObservableChange(@Nullable Flag oldFlag, @NonNull Flag newFlag) {
+        boolean existed = oldFlag != null && !oldFlag.isDeleted();
+        boolean exists = !newFlag.isDeleted();
+        if (existed != exists) {
+            return true;
+        }
+        return existed && (!oldFlag.getValue().equals(newFlag.getValue())
+                || !Objects.equals(oldFlag.getVariation(), newFlag.getVariation()));
     }
 
     @VisibleForTesting
@@ -425,16 +608,106 @@ final class ContextDataManager {
         return environmentStore.getContextData(LDUtil.urlSafeBase64HashedContextId(context));
     }
 
+    /**
+     * Notifies listeners now, unless notifications are waiting for a comparison being made in the
+     * background, in which case this one waits behind them.
+     */
+    private void notifyListenersInOrder(Collection<String> updatedFlagKeys) {
+        synchronized (queuedNotifications) {
+            if (drainingNotifications) {
+                queuedNotifications.add(() -> notifyListeners(updatedFlagKeys));
+            } else {
+                // Under the lock, so that a notification queued after this one cannot overtake it.
+                // It only hands the keys to another thread.
+                notifyListeners(updatedFlagKeys);
+            }
+        }
+    }
+
+    /**
+     * Runs a notification on the task executor, after any that are already waiting, and makes any
+     * that follow wait for it.
+     */
+    private void notifyListenersInBackground(Runnable notification) {
+        synchronized (queuedNotifications) {
+            queuedNotifications.add(notification);
+            if (drainingNotifications) {
+                return;
+            }
+            drainingNotifications = true;
+        }
+        taskExecutor.scheduleTask(this::drainNotifications, 0);
+    }
+
+    private void drainNotifications() {
+        while (true) {
+            Runnable notification;
+            synchronized (queuedNotifications) {
+                notification = queuedNotifications.poll();
+                if (notification == null) {
+                    drainingNotifications = false;
+                    return;
+                }
+            }
+            try {
+                notification.run();
+            } catch (RuntimeException e) {
+                LDUtil.logExceptionAtErrorLevel(logger, e, "Unexpected exception notifying flag listeners");
+            }
+        }
+    }
+
+    private void notifyListeners(Collection<String> updatedFlagKeys) {
+        if (flagChangeDispatcher != null) {
+            flagChangeDispatcher.dispatch(updatedFlagKeys);
+            return;
+        }
+        notifyAllFlagsListeners(updatedFlagKeys);
+        notifyFlagListeners(updatedFlagKeys);
+    }
+
+    /**
+     * Calls the listeners for a batch of changes from the {@link FlagChangeDispatcher}, on whatever
+     * thread it delivers on. Listeners are looked up now rather than when the changes arrived, so one
+     * registered while the batch was collecting hears about it.
+     */
+    private void deliverFlagChanges(@NonNull List<String> changedFlagKeys) {
+        // Each listener is called separately, so that one that throws does not keep the batch from
+        // the others.
+        for (LDAllFlagsListener listener: allFlagsListeners) {
+            try {
+                listener.onChange(changedFlagKeys);
+            } catch (RuntimeException e) {
+                LDUtil.logExceptionAtWarnLevel(logger, e, "Flag change listener threw an exception");
+            }
+        }
+        for (String flagKey: changedFlagKeys) {
+            Set<FeatureFlagChangeListener> flagListeners = listeners.get(flagKey);
+            if (flagListeners != null) {
+                for (FeatureFlagChangeListener listener: flagListeners) {
+                    try {
+                        listener.onFeatureFlagChange(flagKey);
+                    } catch (RuntimeException e) {
+                        LDUtil.logExceptionAtWarnLevel(logger, e, "Flag change listener threw an exception");
+                    }
+                }
+            }
+        }
+    }
+
+    // TODO: SDK-1040. Skipping null flag keys is a short term mitigation for a rare issue where a
+    // null flag key is encountered.
+    static boolean isSkippedFlagKey(String flagKey) {
+        return flagKey == null;
+    }
+
     private void notifyFlagListeners(Collection<String> updatedFlagKeys) {
         if (updatedFlagKeys == null || updatedFlagKeys.isEmpty()) {
             return;
         }
         final Map<String, Set<FeatureFlagChangeListener>> listenersToCall = new HashMap<>();
         for (String flagKey: updatedFlagKeys) {
-
-            // TODO: SDK-1040. This conditional is a short term mitigation for a rare issue where a
-            // null flag key is encountered.
-            if (flagKey == null) {
+            if (isSkippedFlagKey(flagKey)) {
                 continue;
             }
 
@@ -511,19 +784,93 @@ final class ContextDataManager {
      * (which may still be running asynchronously after a context switch) from writing stale
      * data or reading selectors that belong to a different context.
      */
+    /**
+     * Completes a context switch whose stored data is loaded in the background: as soon as stored
+     * data is applied, or otherwise with the data source's result, which is held until the stored
+     * data has been looked for, so that the switch never completes before the stored data is there.
+     */
+    private static final class BackgroundLoadCompletion implements Callback<Void> {
+        private final Callback<Void> onCompletion;
+        // All guarded by this.
+        private boolean storedDataChecked;
+        private boolean hasDataSourceResult;
+        private Throwable dataSourceError;
+        private boolean completed;
+
+        BackgroundLoadCompletion(@NonNull Callback<Void> onCompletion) {
+            this.onCompletion = onCompletion;
+        }
+
+        void storedDataChecked(boolean applied) {
+            Throwable error;
+            synchronized (this) {
+                storedDataChecked = true;
+                if (completed || !(applied || hasDataSourceResult)) {
+                    return;
+                }
+                completed = true;
+                error = applied ? null : dataSourceError;
+            }
+            complete(error);
+        }
+
+        @Override
+        public void onSuccess(Void result) {
+            dataSourceCompleted(null);
+        }
+
+        @Override
+        public void onError(Throwable error) {
+            dataSourceCompleted(error);
+        }
+
+        private void dataSourceCompleted(Throwable error) {
+            synchronized (this) {
+                if (completed || hasDataSourceResult) {
+                    return;
+                }
+                if (!storedDataChecked) {
+                    hasDataSourceResult = true;
+                    dataSourceError = error;
+                    return;
+                }
+                completed = true;
+            }
+            complete(error);
+        }
+
+        private void complete(Throwable error) {
+            if (error == null) {
+                onCompletion.onSuccess(null);
+            } else {
+                onCompletion.onError(error);
+            }
+        }
+    }
+
     final class ContextDataManagerView implements TransactionalDataStore, SelectorSource {
 
         private boolean valid = true;
+        private boolean receivedData = false;
 
         void invalidate() {
             valid = false;
         }
 
+        /**
+         * @return true if the view is still valid and no data has been given to it yet; only called
+         * with the lock held
+         */
+        boolean isAwaitingData() {
+            return valid && !receivedData;
+        }
+
         public void init(@NonNull LDContext context, @NonNull Map<String, Flag> items) {
             synchronized (lock) {
                 if (!valid) {
                     return;
                 }
+                receivedData = true;
                 initData(context, EnvironmentData.usingExistingFlagsMap(items));
             }
         }
@@ -533,6 +880,7 @@ final class ContextDataManager {
                 if (!valid) {
                     return false;
                 }
+                receivedData = true;
                 return ContextDataManager.this.upsert(context, flag);
             }
         }
@@ -543,6 +891,7 @@ final class ContextDataManager {
                 if (!valid) {
                     return;
                 }
+                receivedData = true;
                 ContextDataManager.this.apply(context, changeSet);
             }
         }
@@ -0,0 +1,151 @@
+package com.launchdarkly.sdk.android;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Decides which contexts' cached flag data {@link ContextDataManager} removes from the persistent
+ * store, by removing entries from the {@link ContextIndex}.
+ * <p>
+ * {@link LDConfig.Builder#maxCachedContexts(int)} is enforced by {@link #leastRecentlyUsed(int)}, or
+ * by {@link #leastFrequentlyUsed(int)} if {@link LDConfig.Builder#evictLeastFrequentlyUsedContexts(boolean)}
+ * is set, and the other limits in {@link LDConfig} each have a policy of their own. Apart from
+ * {@link #leastRecentlyUsed(int)}, which is how the number of contexts has always been limited, none
+ * of the policies remove the most recently touched entry, which is the context whose data was just
+ * stored; removing it would leave that data in the store with nothing referring to it.
+ */
+abstract class ContextEvictionPolicy {
+    /**
+     * Removes entries from the index until it satisfies this policy.
+     *
+     * @param index the index
+     * @param now the current time in milliseconds
+     * @param removedIdsOut receives context IDs of any entries that were removed
+     */
+    abstract void evict(ContextIndex index, long now, List<String> removedIdsOut);
+
+    /**
+     * Keeps at most the given number of contexts, removing the least recently touched first.
+     *
+     * @param maxContexts the maximum number of contexts; a negative number means no limit
+     * @return a policy
+     */
+    static ContextEvictionPolicy leastRecentlyUsed(final int maxContexts) {
+        return new ContextEvictionPolicy() {
+            @Override
+            void evict(ContextIndex index, long now, List<String> removedIdsOut) {
+                if (maxContexts < 0) {
+                    return;
+                }
+                while (index.size() > maxContexts) {
+                    removeEntry(index, index.getLeastRecentlyUsed(), removedIdsOut);
+                }
+            }
+        };
+    }
+
+    /**
+     * Keeps at most the given number of contexts, removing the least often used first, and the
+     * least recently touched first among those used equally often.
+     *
+     * @param maxContexts the maximum number of contexts; a negative number means no limit
+     * @return a policy
+     */
+    static ContextEvictionPolicy leastFrequentlyUsed(final int maxContexts) {
+        return new ContextEvictionPolicy() {
+            @Override
+            void evict(ContextIndex index, long now, List<String> removedIdsOut) {
+                if (maxContexts < 0 || index.size() <= maxContexts) {
+                    return;
+                }
+                ContextIndex.IndexEntry mostRecent = index.getMostRecentlyUsed();
+                List<ContextIndex.IndexEntry> candidates = index.getEntries();
+                candidates.remove(mostRecent);
+                // The sort is stable, so equally used entries stay least recently touched first.
+                Collections.sort(candidates, new Comparator<ContextIndex.IndexEntry>() {
+                    @Override
+                    public int compare(ContextIndex.IndexEntry o1, ContextIndex.IndexEntry o2) {
+                        return Integer.compare(o1.useCount, o2.useCount);
+                    }
+                });
+                for (int i = 0; i < candidates.size() && index.size() > maxContexts; i++) {
+                    removeEntry(index, candidates.get(i), removedIdsOut);
+                }
+            }
+        };
+    }
+
+    /**
+     * Removes contexts that have not been touched for longer than the given time.
+     *
+     * @param maxAgeMillis the maximum age in milliseconds; a negative number means no limit
+     * @return a policy
+     */
+    static ContextEvictionPolicy maxAge(final long maxAgeMillis) {
+        return new ContextEvictionPolicy() {
+            @Override
+            void evict(ContextIndex index, long now, List<String> removedIdsOut) {
+                if (maxAgeMillis < 0) {
+                    return;
+                }
+                // Entries are in the order they were touched, so the timestamps are ascending and
+                // the first one that is recent enough ends the search.
+                while (index.size() > 1) {
+                    ContextIndex.IndexEntry oldest = index.getLeastRecentlyUsed();
+                    if (now - oldest.timestamp <= maxAgeMillis) {
+                        return;
+                    }
+                    removeEntry(index, oldest, removedIdsOut);
+                }
+            }
+        };
+    }
+
+    /**
+     * Keeps the total stored size of all contexts' flag data within the given number of bytes,
+     * removing the least recently touched first. Contexts whose size is not known, because they
+     * were stored by an earlier SDK version, count as zero.
+     *
+     * @param maxBytes the maximum total size; a negative number means no limit
+     * @return a policy
+     */
+    static ContextEvictionPolicy maxTotalBytes(final long maxBytes) {
+        return new ContextEvictionPolicy() {
+            @Override
+            void evict(ContextIndex index, long now, List<String> removedIdsOut) {
+                if (maxBytes < 0) {
+                    return;
+                }
+                while (index.size() > 1 && index.getTotalBytes() > maxBytes) {
+                    removeEntry(index, index.getLeastRecentlyUsed(), removedIdsOut);
+                }
+            }
+        };
+    }
+
+    /**
+     * Applies several policies in turn.
+     *
+     * @param policies the policies
+     * @return a policy
+     */
+    static ContextEvictionPolicy allOf(ContextEvictionPolicy... policies) {
+        final List<ContextEvictionPolicy> all = new ArrayList<>();
+        Collections.addAll(all, policies);
+        return new ContextEvictionPolicy() {
+            @Override
+            void evict(ContextIndex index, long now, List<String> removedIdsOut) {
+                for (ContextEvictionPolicy policy : all) {
+                    policy.evict(index, now, removedIdsOut);
+                }
+            }
+        };
+    }
+
+    private static void removeEntry(ContextIndex index, ContextIndex.IndexEntry entry, List<String> removedIdsOut) {
+        index.remove(entry.contextId);
+        removedIdsOut.add(entry.contextId);
+    }
+}
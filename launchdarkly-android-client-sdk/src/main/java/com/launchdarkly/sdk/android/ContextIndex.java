@@ -1,17 +1,19 @@
 package com.launchdarkly.sdk.android;
 
+import androidx.annotation.Nullable;
+
 import com.google.gson.stream.JsonReader;
 import com.google.gson.stream.JsonWriter;
-import com.launchdarkly.sdk.internal.GsonHelpers;
 import com.launchdarkly.sdk.json.SerializationException;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 
 /**
@@ -20,90 +22,260 @@ import java.util.List;
  * <p>
  * This exists because we can't assume that the persistent store mechanism has an "enumerate all
  * the keys that exist under such-and-such prefix" capability, so we need a table of contents at a
- * fixed location. The only information being tracked here is, for each flag data set that exists
- * in storage, 1. a context identifier (hashed fully-qualified key, as defined by FlagDataManager)
- * and 2. the millisecond timestamp when it was last accessed, to support the LRU eviction behavior
- * of FlagDataManager.
+ * fixed location. The information being tracked here is, for each flag data set that exists in
+ * storage, 1. a context identifier (hashed fully-qualified key, as defined by FlagDataManager),
+ * 2. the millisecond timestamp when it was last accessed, 3. how many times it has been used, and
+ * 4. the size of its stored flag data, to support the eviction policies in
+ * {@link ContextEvictionPolicy}.
+ * <p>
+ * Entries are kept in the order they were last touched, least recent first, so that touching one
+ * and evicting the least recently used are constant-time. Instances are not thread-safe; the owner
+ * must synchronize access.
  * <p>
- * Instances are immutable; the update methods return a new instance.
+ * The current context's data is stored again with every flag update, and each time its entry is
+ * touched. Touching the entry that is already the most recent does not change the order, so its
+ * timestamp is then only updated once {@link #TIMESTAMP_RESOLUTION_MILLIS} has passed, and the
+ * index is not rewritten for every update.
  * <p>
- * The format of the JSON data is intentionally very minimal for efficiency: it is an array of
- * arrays, where the first value in each array is a context identifier and the second value is the
- * millisecond timestamp.
+ * Changes are tracked separately for the two persisted forms, {@link #toJson()} and
+ * {@link #statsToJson()}, so that {@link PersistentDataStoreWrapper.PerEnvironmentData#setIndex(ContextIndex)}
+ * only rewrites what changed and does nothing at all for an unchanged index.
+ * <p>
+ * The format of the JSON data is intentionally very minimal for efficiency. The index is an array
+ * of arrays, where the first value in each array is a context identifier and the second value is
+ * the millisecond timestamp; this is the format that earlier SDK versions read, so it must not
+ * change. The stats are an object whose property names are context identifiers and whose values
+ * are arrays of use count and stored size, for only the contexts where either is known.
  */
 final class ContextIndex {
-    final List<IndexEntry> data;
+    static final long TIMESTAMP_RESOLUTION_MILLIS = 60_000;
 
-    static class IndexEntry {
+    static final class IndexEntry {
         final String contextId;
         final long timestamp;
+        final int useCount;
+        final long byteSize;
 
         IndexEntry(String contextId, long timestamp) {
+            this(contextId, timestamp, 0, 0);
+        }
+
+        IndexEntry(String contextId, long timestamp, int useCount, long byteSize) {
             this.contextId = contextId;
             this.timestamp = timestamp;
+            this.useCount = useCount;
+            this.byteSize = byteSize;
+        }
+
+        boolean hasStats() {
+            return useCount != 0 || byteSize != 0;
         }
     }
 
+    // Insertion-ordered; touching an entry removes it and puts it back at the end.
+    private final LinkedHashMap<String, IndexEntry> entries = new LinkedHashMap<>();
+    // The ID of the last entry, or null if the index is empty.
+    private String mostRecentId;
+    private long totalBytes;
+    private boolean dirty;
+    private boolean statsDirty;
+
     ContextIndex() {
-        this(new ArrayList<>());
     }
 
     ContextIndex(List<IndexEntry> data) {
-        this.data = data == null ? new ArrayList<>() : data;
+        if (data != null) {
+            for (IndexEntry e: data) {
+                put(e);
+                mostRecentId = e.contextId;
+            }
+        }
+    }
+
+    /**
+     * @return the number of contexts in the index
+     */
+    int size() {
+        return entries.size();
     }
 
     /**
-     * Updates the timestamp for a context ID, or adds it if that context is not already in the list.
-     * The new or updated entry is always added at the end; the list will be re-sorted if necessary
-     * by prune().
+     * @return the total stored size of the flag data of all contexts in the index, as far as it
+     * is known
+     */
+    long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @param hashedContextId the context ID
+     * @return the entry for that context, or null if it is not in the index
+     */
+    @Nullable
+    IndexEntry getEntry(String hashedContextId) {
+        return entries.get(hashedContextId);
+    }
+
+    /**
+     * @return a snapshot of the entries, least recently touched first
+     */
+    List<IndexEntry> getEntries() {
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * @return the least recently touched entry, or null if the index is empty
+     */
+    @Nullable
+    IndexEntry getLeastRecentlyUsed() {
+        Iterator<IndexEntry> it = entries.values().iterator();
+        return it.hasNext() ? it.next() : null;
+    }
+
+    /**
+     * @return the most recently touched entry, or null if the index is empty
+     */
+    @Nullable
+    IndexEntry getMostRecentlyUsed() {
+        return mostRecentId == null ? null : entries.get(mostRecentId);
+    }
+
+    /**
+     * Updates the timestamp for a context ID, or adds it if that context is not already in the
+     * index, and makes it the most recently touched. If it already was, the timestamp is only
+     * updated if it is at least {@link #TIMESTAMP_RESOLUTION_MILLIS} later.
      *
      * @param hashedContextId the context ID
      * @param timestamp the updated timestamp
-     * @return a new ContextIndex instance with updated data
      */
-    public ContextIndex updateTimestamp(String hashedContextId, long timestamp) {
-        List<IndexEntry> newData = new ArrayList<>();
-        for (IndexEntry e: data) {
-            if (!e.contextId.equals(hashedContextId)) {
-                newData.add(e);
+    void touch(String hashedContextId, long timestamp) {
+        if (hashedContextId.equals(mostRecentId)) {
+            IndexEntry e = entries.get(hashedContextId);
+            if (timestamp - e.timestamp < TIMESTAMP_RESOLUTION_MILLIS) {
+                return;
             }
+            put(new IndexEntry(hashedContextId, timestamp, e.useCount, e.byteSize));
+            dirty = true;
+            return;
         }
-        newData.add(new IndexEntry(hashedContextId, timestamp));
-        return new ContextIndex(newData);
+        IndexEntry old = entries.remove(hashedContextId);
+        put(old == null ? new IndexEntry(hashedContextId, timestamp) :
+                new IndexEntry(hashedContextId, timestamp, old.useCount, old.byteSize));
+        mostRecentId = hashedContextId;
+        dirty = true;
     }
 
     /**
-     * Removes context IDs if necessary to stay within the configured limit, starting with the
-     * oldest ones.
+     * Counts one more use of a context, for {@link ContextEvictionPolicy#leastFrequentlyUsed(int)}.
+     * This does not change its position or timestamp.
      *
-     * @param maxContextsToRetain the maximum number of contexts that should be in the cache;
-     *                            a negative number means no limit
-     * @param removedIdsOut receives context IDs of any entries that were removed
-     * @return a new ContextIndex instance with updated data.
+     * @param hashedContextId the context ID
+     * @return true if the context is in the index, and the use was counted
      */
-    public ContextIndex prune(int maxContextsToRetain, List<String> removedIdsOut) {
-        if (data.size() <= maxContextsToRetain || maxContextsToRetain < 0) {
-            return this;
+    boolean recordUse(String hashedContextId) {
+        IndexEntry e = entries.get(hashedContextId);
+        if (e == null) {
+            return false;
         }
-        // The data will normally already be in ascending timestamp order, in which case this sort
-        // won't do anything, but this is just in case unsorted data somehow got persisted.
-        IndexEntry[] items = data.toArray(new IndexEntry[data.size()]);
-        Arrays.sort(items, new Comparator<IndexEntry>() {
-            @Override
-            public int compare(IndexEntry o1, IndexEntry o2) {
-                return Long.compare(o1.timestamp, o2.timestamp);
+        put(new IndexEntry(hashedContextId, e.timestamp, e.useCount + 1, e.byteSize));
+        statsDirty = true;
+        return true;
+    }
+
+    /**
+     * Records the stored size of a context's flag data. This does not change its position.
+     *
+     * @param hashedContextId the context ID; does nothing if it is not in the index
+     * @param byteSize the size of the stored flag data
+     */
+    void setByteSize(String hashedContextId, long byteSize) {
+        IndexEntry e = entries.get(hashedContextId);
+        if (e == null || e.byteSize == byteSize) {
+            return;
+        }
+        put(new IndexEntry(hashedContextId, e.timestamp, e.useCount, byteSize));
+        statsDirty = true;
+    }
+
+    /**
+     * Removes a context ID from the index.
+     *
+     * @param hashedContextId the context ID
+     * @return true if it was in the index
+     */
+    boolean remove(String hashedContextId) {
+        IndexEntry e = entries.remove(hashedContextId);
+        if (e == null) {
+            return false;
+        }
+        totalBytes -= e.byteSize;
+        if (hashedContextId.equals(mostRecentId)) {
+            IndexEntry last = null;
+            for (IndexEntry remaining: entries.values()) {
+                last = remaining;
             }
-        });
-        List<IndexEntry> newData = new ArrayList<>(Arrays.asList(items));
-        int numDrop = newData.size() - maxContextsToRetain;
-        for (int i = 0; i < numDrop; i++) {
-            removedIdsOut.add(newData.get(0).contextId);
-            newData.remove(0);
+            mostRecentId = last == null ? null : last.contextId;
         }
-        return new ContextIndex(newData);
+        dirty = true;
+        statsDirty |= e.hasStats();
+        return true;
+    }
+
+    /**
+     * Removes context IDs if necessary to satisfy an eviction policy.
+     *
+     * @param policy the eviction policy
+     * @param now the current time in milliseconds
+     * @param removedIdsOut receives context IDs of any entries that were removed
+     */
+    void evict(ContextEvictionPolicy policy, long now, List<String> removedIdsOut) {
+        policy.evict(this, now, removedIdsOut);
+    }
+
+    /**
+     * @return true if {@link #toJson()} has changed since the index was created or last
+     * {@link #markPersisted() persisted}
+     */
+    boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return true if {@link #statsToJson()} has changed since the index was created or last
+     * {@link #markPersisted() persisted}
+     */
+    boolean isStatsDirty() {
+        return statsDirty;
+    }
+
+    /**
+     * Called once the index has been stored, so it is not stored again until it changes.
+     */
+    void markPersisted() {
+        dirty = false;
+        statsDirty = false;
+    }
+
+    // Replaces an existing entry in place, or adds a new one at the end.
+    private void put(IndexEntry e) {
+        IndexEntry old = entries.put(e.contextId, e);
+        totalBytes += e.byteSize - (old == null ? 0 : old.byteSize);
     }
 
     public static ContextIndex fromJson(String json) throws SerializationException {
+        return fromJson(json, null);
+    }
+
+    /**
+     * Parses the index along with its stats. Stats that cannot be parsed are ignored, since they
+     * only make eviction choices better.
+     *
+     * @param json the output of {@link #toJson()}
+     * @param statsJson the output of {@link #statsToJson()}, or null
+     * @return the index
+     * @throws SerializationException if the index cannot be parsed
+     */
+    public static ContextIndex fromJson(String json, @Nullable String statsJson) throws SerializationException {
         List<IndexEntry> out = new ArrayList<>();
         JsonReader r = new JsonReader(new StringReader(json));
         try {
@@ -117,14 +289,52 @@ final class ContextIndex {
                         out.add(new IndexEntry(contextId, timestamp));
                     }
                 }
-                while (r.hasNext()) {}
+                while (r.hasNext()) {
+                    r.skipValue();
+                }
                 r.endArray();
             }
             r.endArray();
         } catch (Exception e) { // Gson throws various kinds of parsing exceptions that have no common base class
             throw new SerializationException(e);
         }
-        return new ContextIndex(out);
+        // The data will normally already be in ascending timestamp order, in which case this sort
+        // won't do anything, but this is just in case unsorted data somehow got persisted.
+        Collections.sort(out, new Comparator<IndexEntry>() {
+            @Override
+            public int compare(IndexEntry o1, IndexEntry o2) {
+                return Long.compare(o1.timestamp, o2.timestamp);
+            }
+        });
+        ContextIndex index = new ContextIndex(out);
+        if (statsJson != null) {
+            index.readStats(statsJson);
+        }
+        return index;
+    }
+
+    private void readStats(String statsJson) {
+        JsonReader r = new JsonReader(new StringReader(statsJson));
+        try {
+            r.beginObject();
+            while (r.hasNext()) {
+                String contextId = r.nextName();
+                r.beginArray();
+                int useCount = r.hasNext() ? r.nextInt() : 0;
+                long byteSize = r.hasNext() ? r.nextLong() : 0;
+                while (r.hasNext()) {
+                    r.skipValue();
+                }
+                r.endArray();
+                IndexEntry e = entries.get(contextId);
+                if (e != null) {
+                    put(new IndexEntry(contextId, e.timestamp, useCount, byteSize));
+                }
+            }
+            r.endObject();
+        } catch (Exception e) {
+            // Keep whatever was read before the problem.
+        }
     }
 
     public String toJson() {
@@ -132,7 +342,7 @@ final class ContextIndex {
         try {
             JsonWriter w = new JsonWriter(sw);
             w.beginArray();
-            for (IndexEntry e: data) {
+            for (IndexEntry e: entries.values()) {
                 w.beginArray();
                 w.value(e.contextId);
                 w.value(e.timestamp);
@@ -145,4 +355,26 @@ final class ContextIndex {
         }
         return sw.toString();
     }
+
+    public String statsToJson() {
+        StringWriter sw = new StringWriter();
+        try {
+            JsonWriter w = new JsonWriter(sw);
+            w.beginObject();
+            for (IndexEntry e: entries.values()) {
+                if (e.hasStats()) {
+                    w.name(e.contextId);
+                    w.beginArray();
+                    w.value(e.useCount);
+                    w.value(e.byteSize);
+                    w.endArray();
+                }
+            }
+            w.endObject();
+            w.flush();
+        } catch (IOException e) {
+            throw new IllegalArgumentException(e);
+        }
+        return sw.toString();
+    }
 }
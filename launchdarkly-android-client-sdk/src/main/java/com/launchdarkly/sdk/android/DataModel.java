@@ -5,10 +5,15 @@ import static com.launchdarkly.sdk.internal.GsonHelpers.gsonInstance;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import com.google.gson.annotations.JsonAdapter;
+import com.launchdarkly.sdk.EvaluationDetail;
 import com.launchdarkly.sdk.EvaluationReason;
 import com.launchdarkly.sdk.LDValue;
 import com.launchdarkly.sdk.json.SerializationException;
 
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 
 /**
@@ -28,21 +33,37 @@ public abstract class DataModel {
     /**
      * Represents the state of a feature flag evaluation received from LaunchDarkly.
      */
+    @JsonAdapter(FlagSerialization.class)
     public static final class Flag {
+        // A copy of every flag is held for each cached context, so the optional numbers are stored
+        // as primitives with a bit in bits saying whether they are present, rather than as
+        // boxed objects, and the booleans are bits too. The JSON form is unchanged; see
+        // FlagSerialization.
+        private static final int TRACK_EVENTS = 1;
+        private static final int TRACK_REASON = 1 << 1;
+        private static final int DELETED = 1 << 2;
+        private static final int HAS_FLAG_VERSION = 1 << 3;
+        private static final int HAS_VARIATION = 1 << 4;
+        private static final int HAS_DEBUG_EVENTS_UNTIL_DATE = 1 << 5;
+
         @NonNull
         private final String key;
         private final LDValue value;
-        private final int version;
-        private final Integer flagVersion;
-        private final Integer variation;
         private final EvaluationReason reason;
-        private final Boolean trackEvents;
-        private final Boolean trackReason;
-        private final Long debugEventsUntilDate;
-        private final String[] prerequisites;
-        private final Boolean deleted;
+        // Unmodifiable, since a decoded flag shares it with every other that has the same list.
+        private final List<String> prerequisites;
+        private final long debugEventsUntilDate;
+        private final int version;
+        private final int flagVersion;
+        private final int variation;
+        private final byte bits;
+
+        // Hash of the value, kept so that comparing two sets of flag data walks each large JSON value
+        // once rather than on every comparison. Zero until computed; transient so that it is never
+        // serialized, and racy in the way String.hashCode is, since every thread computes the same.
+        private transient int valueHash;
 
-        private Flag(
+        Flag(
                 @NonNull String key,
                 LDValue value,
                 int version,
@@ -52,20 +73,23 @@ public abstract class DataModel {
                 boolean trackEvents,
                 boolean trackReason,
                 Long debugEventsUntilDate,
-                String[] prerequisites,
+                List<String> prerequisites,
                 boolean deleted
         ) {
             this.key = key;
             this.value = value;
             this.version = version;
-            this.flagVersion = flagVersion;
-            this.variation = variation;
+            this.flagVersion = flagVersion == null ? 0 : flagVersion.intValue();
+            this.variation = variation == null ? 0 : variation.intValue();
             this.reason = reason;
-            this.trackEvents = trackEvents ? Boolean.TRUE : null;
-            this.trackReason = trackReason ? Boolean.TRUE : null;
-            this.debugEventsUntilDate = debugEventsUntilDate;
+            this.debugEventsUntilDate = debugEventsUntilDate == null ? 0 : debugEventsUntilDate.longValue();
             this.prerequisites = prerequisites;
-            this.deleted = deleted ? Boolean.TRUE : null;
+            this.bits = (byte) ((trackEvents ? TRACK_EVENTS : 0)
+                    | (trackReason ? TRACK_REASON : 0)
+                    | (deleted ? DELETED : 0)
+                    | (flagVersion != null ? HAS_FLAG_VERSION : 0)
+                    | (variation != null ? HAS_VARIATION : 0)
+                    | (debugEventsUntilDate != null ? HAS_DEBUG_EVENTS_UNTIL_DATE : 0));
         }
 
         /**
@@ -93,7 +117,9 @@ public abstract class DataModel {
                 @Nullable EvaluationReason reason,
                 @Nullable String[] prerequisites
         ) {
-            this(key, value, version, flagVersion, variation, reason, trackEvents, trackReason, debugEventsUntilDate, prerequisites, false);
+            this(key, value, version, flagVersion, variation, reason, trackEvents, trackReason, debugEventsUntilDate,
+                    prerequisites == null ? null : Collections.unmodifiableList(Arrays.asList(prerequisites.clone())),
+                    false);
         }
 
         /**
@@ -109,6 +135,16 @@ public abstract class DataModel {
             return key;
         }
 
+        /**
+         * @param key the key
+         * @return a flag that is this one with a different key; it shares this one's value and
+         * prerequisites
+         */
+        Flag withKey(@NonNull String key) {
+            return new Flag(key, value, version, getFlagVersion(), getVariation(), reason, isTrackEvents(),
+                    isTrackReason(), getDebugEventsUntilDate(), prerequisites, isDeleted());
+        }
+
         @NonNull
         LDValue getValue() {
             // normalize() ensures that nulls become LDValue.ofNull() - Gson may give us nulls
@@ -120,11 +156,19 @@ public abstract class DataModel {
         }
 
         Integer getFlagVersion() {
-            return flagVersion;
+            return (bits & HAS_FLAG_VERSION) == 0 ? null : flagVersion;
         }
 
         Integer getVariation() {
-            return variation;
+            return (bits & HAS_VARIATION) == 0 ? null : variation;
+        }
+
+        /**
+         * @return the variation index, or {@link com.launchdarkly.sdk.EvaluationDetail#NO_VARIATION}
+         * if there is none; unlike {@link #getVariation()}, this never allocates
+         */
+        int getVariationIndex() {
+            return (bits & HAS_VARIATION) == 0 ? EvaluationDetail.NO_VARIATION : variation;
         }
 
         @Nullable
@@ -133,27 +177,64 @@ public abstract class DataModel {
         }
 
         boolean isTrackEvents() {
-            return trackEvents != null && trackEvents.booleanValue();
+            return (bits & TRACK_EVENTS) != 0;
         }
 
-        boolean isTrackReason() { return trackReason != null && trackReason.booleanValue(); }
+        boolean isTrackReason() { return (bits & TRACK_REASON) != 0; }
 
         @Nullable
         Long getDebugEventsUntilDate() {
-            return debugEventsUntilDate;
+            return (bits & HAS_DEBUG_EVENTS_UNTIL_DATE) == 0 ? null : debugEventsUntilDate;
         }
 
         int getVersionForEvents() {
-            return flagVersion == null ? version : flagVersion.intValue();
+            return (bits & HAS_FLAG_VERSION) == 0 ? version : flagVersion;
         }
 
+        /**
+         * @return the keys of the flag's prerequisites, or null; the list cannot be modified
+         */
         @Nullable
-        String[] getPrerequisites() {
+        List<String> getPrerequisites() {
             return prerequisites;
         }
 
         boolean isDeleted() {
-            return deleted != null && deleted.booleanValue();
+            return (bits & DELETED) != 0;
+        }
+
+        /**
+         * Returns true if this flag's value is the same as another's. Values whose hashes differ are
+         * known to differ without comparing them, and most values that have changed are caught that
+         * way; only values whose hashes match are compared in full.
+         *
+         * @param other another flag
+         * @return true if the values are equal
+         */
+        boolean hasSameValueAs(@NonNull Flag other) {
+            return getValueHash() == other.getValueHash() && getValue().equals(other.getValue());
+        }
+
+        /**
+         * Computes the value's hash now, so that it is done on the thread decoding the data rather
+         * than whichever later compares it.
+         */
+        void computeValueHash() {
+            getValueHash();
+        }
+
+        private int getValueHash() {
+            int h = valueHash;
+            if (h == 0) {
+                // Zero means "not yet computed", so a value that hashes to zero is given another
+                // hash that is just as consistent.
+                h = getValue().hashCode();
+                if (h == 0) {
+                    h = 1;
+                }
+                valueHash = h;
+            }
+            return h;
         }
 
         @Override
@@ -165,16 +246,16 @@ public abstract class DataModel {
         public boolean equals(Object other) {
             if (other instanceof Flag) {
                 Flag o = (Flag)other;
+                // The flag version is not part of equality.
+                int comparedBits = ~HAS_FLAG_VERSION;
                 return Objects.equals(key, o.key) &&
                         Objects.equals(value, o.value) &&
                         version == o.version &&
-                        Objects.equals(variation, o.variation) &&
+                        Objects.equals(getVariation(), o.getVariation()) &&
                         Objects.equals(reason, o.reason) &&
-                        trackEvents == o.trackEvents &&
-                        trackReason == o.trackReason &&
-                        Objects.equals(debugEventsUntilDate, o.debugEventsUntilDate) &&
+                        Objects.equals(getDebugEventsUntilDate(), o.getDebugEventsUntilDate()) &&
                         Objects.equals(prerequisites, o.prerequisites) &&
-                        deleted == o.deleted;
+                        (bits & comparedBits) == (o.bits & comparedBits);
             }
             return false;
         }
@@ -187,7 +268,11 @@ public abstract class DataModel {
          */
         public static Flag fromJson(String json) throws SerializationException {
             try {
-                return gsonInstance().fromJson(json, Flag.class);
+                Flag flag = gsonInstance().fromJson(json, Flag.class);
+                if (flag != null) {
+                    flag.computeValueHash();
+                }
+                return flag;
             } catch (Exception e) { // Gson throws various kinds of parsing exceptions that have no common base class
                 throw new SerializationException(e);
             }
@@ -9,8 +9,10 @@ import com.launchdarkly.sdk.json.SerializationException;
 
 import java.lang.reflect.Type;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * An immutable set of flag data.
@@ -31,7 +33,7 @@ final class EnvironmentData {
     }
 
     public static EnvironmentData copyingFlagsMap(Map<String, Flag> flags) {
-        return new EnvironmentData(flags == null ? null : new HashMap<>(flags));
+        return new EnvironmentData(flags == null ? null : copyOf(flags));
     }
 
     public static EnvironmentData usingExistingFlagsMap(Map<String, Flag> flags) {
@@ -43,18 +45,26 @@ final class EnvironmentData {
     }
 
     public Map<String, Flag> getAll() {
-        return new HashMap<>(flags);
+        return copyOf(flags);
+    }
+
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(flags.keySet());
     }
 
     public Collection<Flag> values() {
         return flags.values();
     }
 
+    public int size() {
+        return flags.size();
+    }
+
     public EnvironmentData withFlagUpdatedOrAdded(Flag flag) {
         if (flag == null) {
             return this;
         }
-        Map<String, Flag> newFlags = new HashMap<>(flags);
+        Map<String, Flag> newFlags = copyOf(flags);
         newFlags.put(flag.getKey(), flag);
         return new EnvironmentData(newFlags);
     }
@@ -63,7 +73,7 @@ final class EnvironmentData {
         if (key == null || !flags.containsKey(key)) {
             return this;
         }
-        Map<String, Flag> newFlags = new HashMap<>(flags);
+        Map<String, Flag> newFlags = copyOf(flags);
         newFlags.remove(key);
         return new EnvironmentData(newFlags);
     }
@@ -77,20 +87,76 @@ final class EnvironmentData {
         }
         // Normalize the data set to ensure that the flag keys are present not only as map keys,
         // but also in each Flag object. That is normally the case in data sent by LD, even though
-        // it's redundant, but if for any reason it isn't we can transparently fix it.
+        // it's redundant, but if for any reason it isn't we can transparently fix it. The values'
+        // hashes are computed as the data is decoded, so that comparing it with the current data
+        // later is quicker.
+        // The map's keys are decoded separately from the flags' own, so they are interned too, to
+        // share them with the flags.
+        FlagDataPool pool = FlagDataPool.shared();
+        Map<String, Flag> flags = new HashMap<>(dataMap.size() * 4 / 3 + 1);
         for (Map.Entry<String, Flag> entry: dataMap.entrySet()) {
-            Flag f = entry.getValue();
-            if (f.getKey() == null) {
-                f = new Flag(entry.getKey(), f.getValue(), f.getVersion(), f.getFlagVersion(),
-                        f.getVariation(), f.isTrackEvents(), f.isTrackReason(), f.getDebugEventsUntilDate(),
-                        f.getReason(), f.getPrerequisites());
-                entry.setValue(f);
-            }
+            String key = pool.internKey(entry.getKey());
+            flags.put(key, normalizeFlag(key, entry.getValue()));
+        }
+        return new EnvironmentData(flags);
+    }
+
+    /**
+     * Like {@link #fromJson(String)}, but only finds where each flag is in the JSON, and decodes it
+     * the first time it is used; see {@link LazyFlagMap}. This is for cached data, of which typically
+     * only a few flags are ever evaluated.
+     *
+     * @param json the JSON of a flags map
+     * @return the data
+     * @throws SerializationException if the JSON is not a well-formed object
+     */
+    public static EnvironmentData fromJsonLazily(String json) throws SerializationException {
+        return fromJsonLazily(json, null);
+    }
+
+    /**
+     * Like {@link #fromJsonLazily(String)}, and records how long each flag takes to decode.
+     *
+     * @param json the JSON of a flags map
+     * @param instrumentation where to record decoding times, or null
+     * @return the data
+     * @throws SerializationException if the JSON is not a well-formed object
+     */
+    static EnvironmentData fromJsonLazily(String json, PersistenceInstrumentation instrumentation)
+            throws SerializationException {
+        return new EnvironmentData(LazyFlagMap.parse(json, instrumentation));
+    }
+
+    /**
+     * Applies the normalization described in {@link #fromJson(String)} to a decoded flag.
+     *
+     * @param key the flag's key in the map
+     * @param flag the decoded flag, or null
+     * @return the flag, with its key set; null if it was null
+     */
+    static Flag normalizeFlag(String key, Flag flag) {
+        if (flag == null) {
+            return null;
+        }
+        if (flag.getKey() == null) {
+            flag = flag.withKey(key);
         }
-        return new EnvironmentData(dataMap);
+        flag.computeValueHash();
+        return flag;
     }
 
     public String toJson() {
+        if (flags instanceof LazyFlagMap) {
+            return ((LazyFlagMap) flags).toJson();
+        }
         return GsonHelpers.gsonInstance().toJson(flags);
     }
+
+    // Copies of lazily decoded data stay lazy, sharing whatever has been decoded.
+    private static Map<String, Flag> copyOf(Map<String, Flag> flags) {
+        if (flags instanceof LazyFlagMap) {
+            return ((LazyFlagMap) flags).copy();
+        }
+        return new HashMap<>(flags);
+    }
 }
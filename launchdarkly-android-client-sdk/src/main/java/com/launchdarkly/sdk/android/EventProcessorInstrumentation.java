@@ -0,0 +1,241 @@
+package com.launchdarkly.sdk.android;
+
+import com.launchdarkly.logging.LDLogger;
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.LDValueType;
+import com.launchdarkly.sdk.ObjectBuilder;
+import com.launchdarkly.sdk.internal.events.EventSender;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what the analytics event pipeline does, for {@link EventProcessorStatistics}.
+ * <p>
+ * The event processor from java-sdk-internal does not report on its buffer or its deliveries, so
+ * this observes it from both ends: the SDK's event processor wrapper tells it about every event it
+ * hands over, and the {@link EventSender} it wraps tells it about every payload that comes out. A
+ * payload coming out means the buffer was drained to build it, which is what lets the queue depth
+ * be estimated without the buffer's help. It is only an estimate: the library never says when an
+ * event leaves the buffer, only how many went into each payload, a number that includes events the
+ * library generated itself.
+ * <p>
+ * Counting is lock-free and does not allocate. A snapshot is built once per delivery, on the event
+ * sending thread, and published for {@link #getStatistics()} to return as is.
+ * <p>
+ * Once startup is over, the {@link EventSender} also adds its duration to diagnostic events, along
+ * with a summary of {@link PersistenceStatistics} if it has been given a source of them.
+ */
+final class EventProcessorInstrumentation {
+    static final String STARTUP_DURATION_PROPERTY = "startupDurationMillis";
+    static final String PERSISTENCE_PROPERTY = "persistence";
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final int capacity;
+    private final LDLogger logger;
+
+    private final AtomicLong eventsRecorded = new AtomicLong();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final AtomicLong eventsDroppedAtCapacity = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong flushFailures = new AtomicLong();
+    private final AtomicLong eventsDelivered = new AtomicLong();
+    private final AtomicLong totalPayloadBytes = new AtomicLong();
+    private final AtomicLong maxPayloadBytes = new AtomicLong();
+    private final LatencyHistogram.Recorder flushLatency = new LatencyHistogram.Recorder();
+
+    private final CopyOnWriteArrayList<LDEventFlushListener> flushListeners = new CopyOnWriteArrayList<>();
+
+    private volatile EventProcessorStatistics statistics = EventProcessorStatistics.EMPTY;
+    // Negative until startup is over.
+    private volatile long startupDurationMillis = -1;
+    private volatile PersistenceInstrumentation persistenceInstrumentation;
+
+    EventProcessorInstrumentation(int capacity, LDLogger logger) {
+        this.capacity = capacity;
+        this.logger = logger;
+    }
+
+    /**
+     * Counts an event handed to the event processor.
+     *
+     * @param bufferPlaces how many places in the buffer the event takes: zero for an evaluation
+     *                     that is only summarized, two for one that is both tracked and debugged
+     */
+    void recordEvent(int bufferPlaces) {
+        eventsRecorded.incrementAndGet();
+        for (int i = 0; i < bufferPlaces; i++) {
+            // The processor drops an event that arrives when the buffer is full, rather than
+            // evicting one, so a place is only taken while there is one to take.
+            int depth = buffered.get();
+            while (depth < capacity && !buffered.compareAndSet(depth, depth + 1)) {
+                depth = buffered.get();
+            }
+            if (depth >= capacity) {
+                eventsDroppedAtCapacity.incrementAndGet();
+            }
+        }
+    }
+
+    EventProcessorStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Sets how long startup took, to be added to each diagnostic event from now on.
+     */
+    void setStartupDurationMillis(long startupDurationMillis) {
+        this.startupDurationMillis = startupDurationMillis;
+    }
+
+    /**
+     * Sets where the persistence summary in each diagnostic event comes from.
+     */
+    void setPersistenceInstrumentation(PersistenceInstrumentation persistenceInstrumentation) {
+        this.persistenceInstrumentation = persistenceInstrumentation;
+    }
+
+    void addFlushListener(LDEventFlushListener listener) {
+        flushListeners.add(listener);
+    }
+
+    void removeFlushListener(LDEventFlushListener listener) {
+        flushListeners.remove(listener);
+    }
+
+    /**
+     * @param delegate the sender that delivers payloads
+     * @return a sender that delivers through {@code delegate} and counts what it delivers
+     */
+    EventSender instrument(EventSender delegate) {
+        return new InstrumentedEventSender(delegate);
+    }
+
+    private void recordFlush(int payloadBytes, int eventCount, long elapsedNanos, boolean success) {
+        flushCount.incrementAndGet();
+        flushLatency.recordNanos(elapsedNanos);
+        totalPayloadBytes.addAndGet(payloadBytes);
+        long max = maxPayloadBytes.get();
+        while (payloadBytes > max && !maxPayloadBytes.compareAndSet(max, payloadBytes)) {
+            max = maxPayloadBytes.get();
+        }
+        if (success) {
+            eventsDelivered.addAndGet(eventCount);
+        } else {
+            flushFailures.incrementAndGet();
+        }
+
+        EventProcessorStatistics snapshot = new EventProcessorStatistics(
+                eventsRecorded.get(),
+                buffered.get(),
+                eventsDroppedAtCapacity.get(),
+                flushCount.get(),
+                flushFailures.get(),
+                eventsDelivered.get(),
+                payloadBytes,
+                maxPayloadBytes.get(),
+                totalPayloadBytes.get(),
+                System.currentTimeMillis(),
+                flushLatency.snapshot()
+        );
+        statistics = snapshot;
+
+        for (LDEventFlushListener listener : flushListeners) {
+            try {
+                listener.onEventsFlushed(snapshot);
+            } catch (Exception e) {
+                LDUtil.logExceptionAtWarnLevel(logger, e, "Unexpected exception from event flush listener");
+            }
+        }
+    }
+
+    private final class InstrumentedEventSender implements EventSender {
+        private final EventSender delegate;
+
+        InstrumentedEventSender(EventSender delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public Result sendAnalyticsEvents(byte[] data, int eventCount, URI eventsBaseUri) {
+            // The buffer was drained to build this payload, so anything recorded from here on
+            // is waiting for the next one.
+            buffered.set(0);
+            long startNanos = System.nanoTime();
+            Result result = delegate.sendAnalyticsEvents(data, eventCount, eventsBaseUri);
+            recordFlush(data == null ? 0 : data.length, eventCount, System.nanoTime() - startNanos,
+                    result != null && result.isSuccess());
+            return result;
+        }
+
+        @Override
+        public Result sendDiagnosticEvent(byte[] data, URI eventsBaseUri) {
+            return delegate.sendDiagnosticEvent(withSdkProperties(data), eventsBaseUri);
+        }
+
+        // The diagnostic events are built by the shared event processing library, which has no
+        // place for these, so they are added to the JSON on the way out. They are sent rarely enough
+        // that parsing them again costs little.
+        private byte[] withSdkProperties(byte[] data) {
+            long duration = startupDurationMillis;
+            PersistenceInstrumentation persistence = persistenceInstrumentation;
+            if ((duration < 0 && persistence == null) || data == null) {
+                return data;
+            }
+            try {
+                LDValue event = LDValue.parse(new String(data, UTF_8));
+                if (event.getType() != LDValueType.OBJECT) {
+                    return data;
+                }
+                ObjectBuilder builder = LDValue.buildObject();
+                for (String key : event.keys()) {
+                    builder.put(key, event.get(key));
+                }
+                if (duration >= 0) {
+                    builder.put(STARTUP_DURATION_PROPERTY, duration);
+                }
+                if (persistence != null) {
+                    builder.put(PERSISTENCE_PROPERTY, describePersistence(persistence.getStatistics()));
+                }
+                return builder.build().toJsonString().getBytes(UTF_8);
+            } catch (RuntimeException e) {
+                // Not expected, since the library built the JSON; send it as it was.
+                return data;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            delegate.close();
+        }
+    }
+
+    // A summary rather than the whole snapshot: histogram buckets and namespace names would make
+    // every diagnostic event much larger.
+    private static LDValue describePersistence(PersistenceStatistics stats) {
+        LatencyHistogram commits = stats.getCommitLatency();
+        LatencyHistogram decodes = stats.getFlagDataDecodeLatency();
+        return LDValue.buildObject()
+                .put("commits", commits.getCount())
+                .put("commitFailures", stats.getCommitFailures())
+                .put("commitP50Micros", commits.getPercentileMicros(50))
+                .put("commitP99Micros", commits.getPercentileMicros(99))
+                .put("commitMaxMicros", commits.getMaxMicros())
+                .put("bytesWritten", stats.getTotalBytesWritten())
+                .put("maxPendingWrites", stats.getMaxPendingWrites())
+                .put("pendingReadHits", stats.getPendingReadHits())
+                .put("committingReadHits", stats.getCommittingReadHits())
+                .put("storeReads", stats.getStoreReads())
+                .put("flagDataDecodes", decodes.getCount())
+                .put("flagDataDecodeP50Micros", decodes.getPercentileMicros(50))
+                .put("flagDataDecodeMaxMicros", decodes.getMaxMicros())
+                .put("flagDataDecompressions", stats.getFlagDataDecompressLatency().getCount())
+                .put("flagDecodes", stats.getFlagDecodeLatency().getCount())
+                .put("flagDecodeP50Micros", stats.getFlagDecodeLatency().getPercentileMicros(50))
+                .build();
+    }
+}
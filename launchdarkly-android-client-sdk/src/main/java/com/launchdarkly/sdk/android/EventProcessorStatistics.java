@@ -0,0 +1,169 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+
+import com.launchdarkly.sdk.android.integrations.EventProcessorBuilder;
+
+/**
+ * An immutable snapshot of what the SDK's analytics event pipeline has done, as returned by
+ * {@link LDClient#getEventProcessorStatistics()} and passed to an {@link LDEventFlushListener}.
+ * <p>
+ * The snapshot is taken each time the SDK delivers a payload of events to LaunchDarkly, so it
+ * describes the pipeline as of the most recent flush; counters are cumulative since the client was
+ * created. Use it to alarm on lost events, or to tune {@link EventProcessorBuilder#capacity(int)}
+ * and {@link EventProcessorBuilder#flushIntervalMillis(int)}.
+ * <p>
+ * The event buffer itself belongs to the SDK's shared event processing library, which does not
+ * report its contents, so {@link #getQueueDepth()} and {@link #getEventsDroppedAtCapacity()} are
+ * estimates, derived from the events the SDK hands it: every identify and custom event, and every
+ * evaluation event that asks for full-fidelity or debug tracking, is counted as taking a place in
+ * the buffer, and a flush is counted as emptying it. Evaluations that only contribute to summary
+ * counts never take a place, and are never dropped. The estimate can be off when the library adds
+ * events of its own, such as index events, or when events arrive while a payload is being built; it
+ * is corrected at every flush.
+ * <p>
+ * If the SDK is not sending events, as when it was configured with {@link Components#noEvents()} or
+ * a custom event processor, every value is zero.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ */
+public final class EventProcessorStatistics {
+    static final EventProcessorStatistics EMPTY = new EventProcessorStatistics(
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, LatencyHistogram.EMPTY);
+
+    private final long eventsRecorded;
+    private final int queueDepth;
+    private final long eventsDroppedAtCapacity;
+    private final long flushCount;
+    private final long flushFailures;
+    private final long eventsDelivered;
+    private final long lastPayloadBytes;
+    private final long maxPayloadBytes;
+    private final long totalPayloadBytes;
+    private final long lastFlushMillis;
+    @NonNull
+    private final LatencyHistogram flushLatency;
+
+    EventProcessorStatistics(
+            long eventsRecorded,
+            int queueDepth,
+            long eventsDroppedAtCapacity,
+            long flushCount,
+            long flushFailures,
+            long eventsDelivered,
+            long lastPayloadBytes,
+            long maxPayloadBytes,
+            long totalPayloadBytes,
+            long lastFlushMillis,
+            @NonNull LatencyHistogram flushLatency
+    ) {
+        this.eventsRecorded = eventsRecorded;
+        this.queueDepth = queueDepth;
+        this.eventsDroppedAtCapacity = eventsDroppedAtCapacity;
+        this.flushCount = flushCount;
+        this.flushFailures = flushFailures;
+        this.eventsDelivered = eventsDelivered;
+        this.lastPayloadBytes = lastPayloadBytes;
+        this.maxPayloadBytes = maxPayloadBytes;
+        this.totalPayloadBytes = totalPayloadBytes;
+        this.lastFlushMillis = lastFlushMillis;
+        this.flushLatency = flushLatency;
+    }
+
+    /**
+     * @return how many evaluation, identify, and custom events the SDK has handed to the pipeline
+     */
+    public long getEventsRecorded() {
+        return eventsRecorded;
+    }
+
+    /**
+     * @return an estimate of how many events were waiting in the buffer when the snapshot was
+     *         taken; see the class description
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * @return an estimate of how many events have been discarded because the buffer was at its
+     *         capacity; see the class description
+     */
+    public long getEventsDroppedAtCapacity() {
+        return eventsDroppedAtCapacity;
+    }
+
+    /**
+     * @return how many payloads the SDK has tried to deliver, successfully or not
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * @return how many payloads could not be delivered, after the SDK's own retry
+     */
+    public long getFlushFailures() {
+        return flushFailures;
+    }
+
+    /**
+     * @return how many events, including summary events, were in payloads that were delivered
+     */
+    public long getEventsDelivered() {
+        return eventsDelivered;
+    }
+
+    /**
+     * @return the size of the most recent payload, in bytes
+     */
+    public long getLastPayloadBytes() {
+        return lastPayloadBytes;
+    }
+
+    /**
+     * @return the size of the largest payload, in bytes
+     */
+    public long getMaxPayloadBytes() {
+        return maxPayloadBytes;
+    }
+
+    /**
+     * @return the size of every payload together, in bytes
+     */
+    public long getTotalPayloadBytes() {
+        return totalPayloadBytes;
+    }
+
+    /**
+     * @return when the most recent flush finished, in milliseconds since the epoch, or zero if
+     *         there has been none
+     */
+    public long getLastFlushMillis() {
+        return lastFlushMillis;
+    }
+
+    /**
+     * @return how long each delivery took, including the SDK's own retry of a failed request
+     */
+    @NonNull
+    public LatencyHistogram getFlushLatency() {
+        return flushLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "EventProcessorStatistics(eventsRecorded=" + eventsRecorded
+                + ", queueDepth=" + queueDepth
+                + ", eventsDroppedAtCapacity=" + eventsDroppedAtCapacity
+                + ", flushCount=" + flushCount
+                + ", flushFailures=" + flushFailures
+                + ", eventsDelivered=" + eventsDelivered
+                + ", lastPayloadBytes=" + lastPayloadBytes
+                + ", maxPayloadBytes=" + maxPayloadBytes
+                + ", totalPayloadBytes=" + totalPayloadBytes
+                + ", lastFlushMillis=" + lastFlushMillis
+                + ", flushLatency=" + flushLatency + ")";
+    }
+}
@@ -0,0 +1,109 @@
+package com.launchdarkly.sdk.android;
+
+import com.launchdarkly.sdk.LDContext;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides which contexts an event is recorded for, from the ratios configured with
+ * {@link com.launchdarkly.sdk.android.integrations.EventProcessorBuilder#sampleEvaluationEvents}
+ * and {@link com.launchdarkly.sdk.android.integrations.EventProcessorBuilder#sampleCustomEvents}.
+ * <p>
+ * A context is in the sample for a key if a hash of the two, the same one that
+ * {@link com.launchdarkly.sdk.android.integrations.SamplingHook} uses, falls below the ratio, so the
+ * answer never changes for the life of the process, or between processes: {@link String#hashCode()} is
+ * specified, not just consistent. Evaluation is the hot path, so a key named exactly costs a single
+ * map lookup, and the ratio of a key that has to be matched against the prefix patterns is
+ * remembered. Only {@link #MAX_RESOLVED_KEYS} of those are remembered, since flag keys and event
+ * names are not bounded; beyond that, a key is matched against the patterns each time.
+ */
+final class EventSampler {
+    static final EventSampler NONE = new EventSampler(Collections.<String, Double>emptyMap());
+
+    static final int MAX_RESOLVED_KEYS = 1000;
+
+    private static final Double ALWAYS = 1.0;
+
+    private final Map<String, Double> exact = new HashMap<>();
+    private final List<String> prefixes = new ArrayList<>(); // longest first
+    private final Map<String, Double> prefixRatios = new HashMap<>();
+    private final ConcurrentHashMap<String, Double> resolved = new ConcurrentHashMap<>(); // bounded
+
+    EventSampler(Map<String, Double> ratiosByPattern) {
+        for (Map.Entry<String, Double> e : ratiosByPattern.entrySet()) {
+            String pattern = e.getKey();
+            if (pattern.endsWith("*")) {
+                String prefix = pattern.substring(0, pattern.length() - 1);
+                prefixes.add(prefix);
+                prefixRatios.put(prefix, e.getValue());
+            } else {
+                exact.put(pattern, e.getValue());
+            }
+        }
+        Collections.sort(prefixes, (a, b) -> b.length() - a.length());
+    }
+
+    /**
+     * @return true if no key is ever sampled out, so callers can skip asking
+     */
+    boolean isEmpty() {
+        return exact.isEmpty() && prefixes.isEmpty();
+    }
+
+    /**
+     * @param key a flag key or custom event name
+     * @param context the context the event is for
+     * @return true if the event should be recorded
+     */
+    boolean isSampled(String key, LDContext context) {
+        if (key == null || isEmpty()) {
+            return true;
+        }
+        double ratio = ratioFor(key);
+        if (ratio >= 1) {
+            return true;
+        }
+        if (ratio <= 0 || context == null) {
+            return false;
+        }
+        return ComponentsImpl.EventProcessorBuilderImpl.sampleBucketFor(context.getFullyQualifiedKey(), key) < ratio;
+    }
+
+    private double ratioFor(String key) {
+        Double ratio = exact.get(key);
+        if (ratio != null) {
+            return ratio;
+        }
+        if (prefixes.isEmpty()) {
+            return ALWAYS;
+        }
+        ratio = resolved.get(key);
+        if (ratio == null) {
+            ratio = ALWAYS;
+            for (String prefix : prefixes) {
+                if (key.startsWith(prefix)) {
+                    ratio = prefixRatios.get(prefix);
+                    break;
+                }
+            }
+            // The size is only checked, not enforced atomically, so a few threads racing may go a
+            // little over; that is still bounded.
+            if (resolved.size() < MAX_RESOLVED_KEYS) {
+                resolved.put(key, ratio);
+            }
+        }
+        return ratio;
+    }
+
+    /**
+     * @return how many keys have their prefix match remembered; for tests
+     */
+    int resolvedKeyCount() {
+        return resolved.size();
+    }
+}
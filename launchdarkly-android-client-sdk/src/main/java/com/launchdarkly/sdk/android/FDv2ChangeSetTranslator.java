@@ -61,6 +61,7 @@ final class FDv2ChangeSetTranslator {
                 continue;
             }
 
+            String key = FlagDataPool.shared().internKey(change.getKey());
             Flag flag;
             if (change.getType() == FDv2ChangeType.PUT) {
                 if (change.getObject() == null) {
@@ -69,23 +70,12 @@ final class FDv2ChangeSetTranslator {
                 }
                 Flag parsed = Flag.fromJson(change.getObject().toString());
                 // Inner object JSON omits "key" (it appears on the envelope). Always use the envelope key.
-                flag = new Flag(
-                        change.getKey(),
-                        parsed.getValue(),
-                        parsed.getVersion(),
-                        parsed.getFlagVersion(),
-                        parsed.getVariation(),
-                        parsed.isTrackEvents(),
-                        parsed.isTrackReason(),
-                        parsed.getDebugEventsUntilDate(),
-                        parsed.getReason(),
-                        parsed.getPrerequisites()
-                );
+                flag = parsed.withKey(key);
             } else {
-                flag = Flag.deletedItemPlaceholder(change.getKey(), change.getVersion());
+                flag = Flag.deletedItemPlaceholder(key, change.getVersion());
             }
 
-            flags.put(change.getKey(), flag);
+            flags.put(key, flag);
         }
 
         Selector selector = changeset.getSelector() != null
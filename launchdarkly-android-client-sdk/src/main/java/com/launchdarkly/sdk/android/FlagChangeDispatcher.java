@@ -0,0 +1,150 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.launchdarkly.logging.LDLogger;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Collects the keys of flags that have changed and hands them to {@link ContextDataManager}'s
+ * listeners in batches, so that a burst of updates does not become a burst of listener calls.
+ * <p>
+ * While a delivery is pending, further keys join its batch instead of scheduling another, and a key
+ * that changes several times is delivered once. With a window of zero, a batch closes when the
+ * delivery task starts running, which on the main thread means the changes that arrived before the
+ * looper got to it, typically within a frame. With a positive window, the batch stays open for that
+ * many milliseconds after its first key.
+ * <p>
+ * Deliveries run on the main thread unless an executor was configured, in which case they run on it,
+ * and batches are only delivered in order if that executor runs tasks in order.
+ */
+final class FlagChangeDispatcher {
+    /**
+     * Receives a batch of changed flag keys, on the thread that listeners are to be called on.
+     */
+    interface Delivery {
+        void deliver(@NonNull List<String> changedFlagKeys);
+    }
+
+    /** The window that means "deliver each update separately". */
+    static final int NO_COALESCING = -1;
+
+    private final TaskExecutor taskExecutor;
+    @Nullable private final Executor listenerExecutor;
+    private final int coalesceWindowMillis;
+    private final Delivery delivery;
+    private final LDLogger logger;
+
+    private final Object lock = new Object();
+    // Keys waiting for the delivery that has been scheduled, in the order they first changed; null
+    // when no delivery is pending. Guarded by lock.
+    @Nullable private LinkedHashSet<String> pending;
+
+    /**
+     * @param taskExecutor         runs deliveries on the main thread and times the window
+     * @param listenerExecutor     runs deliveries instead of the main thread, or null
+     * @param coalesceWindowMillis how long to collect keys before delivering them; zero to collect
+     *                             them until the delivery runs, or {@link #NO_COALESCING}
+     * @param delivery             what to do with each batch
+     * @param logger               for reporting a delivery that could not be scheduled
+     */
+    FlagChangeDispatcher(
+            @NonNull TaskExecutor taskExecutor,
+            @Nullable Executor listenerExecutor,
+            int coalesceWindowMillis,
+            @NonNull Delivery delivery,
+            @NonNull LDLogger logger
+    ) {
+        this.taskExecutor = taskExecutor;
+        this.listenerExecutor = listenerExecutor;
+        this.coalesceWindowMillis = Math.max(NO_COALESCING, coalesceWindowMillis);
+        this.delivery = delivery;
+        this.logger = logger;
+    }
+
+    /**
+     * Queues the keys of flags that have changed for delivery.
+     *
+     * @param changedFlagKeys the keys; null keys are ignored
+     */
+    void dispatch(@Nullable Collection<String> changedFlagKeys) {
+        if (changedFlagKeys == null || changedFlagKeys.isEmpty()) {
+            return;
+        }
+        if (coalesceWindowMillis == NO_COALESCING) {
+            List<String> batch = withoutNulls(changedFlagKeys);
+            if (!batch.isEmpty()) {
+                runOnListenerThread(() -> delivery.deliver(batch));
+            }
+            return;
+        }
+        synchronized (lock) {
+            if (pending != null) {
+                addAllExceptNulls(pending, changedFlagKeys);
+                return;
+            }
+            LinkedHashSet<String> batch = new LinkedHashSet<>();
+            addAllExceptNulls(batch, changedFlagKeys);
+            if (batch.isEmpty()) {
+                return;
+            }
+            pending = batch;
+        }
+        if (coalesceWindowMillis == 0) {
+            runOnListenerThread(this::deliverPending);
+        } else {
+            taskExecutor.scheduleTask(() -> runOnListenerThread(this::deliverPending), coalesceWindowMillis);
+        }
+    }
+
+    private void deliverPending() {
+        List<String> batch;
+        synchronized (lock) {
+            if (pending == null) {
+                return;
+            }
+            batch = new ArrayList<>(pending);
+            pending = null;
+        }
+        delivery.deliver(batch);
+    }
+
+    private void runOnListenerThread(Runnable action) {
+        if (listenerExecutor == null) {
+            // We make sure to call listener callbacks on the main thread by default, as we
+            // consistently did so in the past by virtue of using SharedPreferences to implement them.
+            taskExecutor.executeOnMainThread(action);
+            return;
+        }
+        try {
+            listenerExecutor.execute(action);
+        } catch (RejectedExecutionException e) {
+            // The batch is dropped rather than left pending, so that later changes are not held up.
+            synchronized (lock) {
+                pending = null;
+            }
+            LDUtil.logExceptionAtWarnLevel(logger, e, "Flag change listener executor rejected a delivery");
+        }
+    }
+
+    private static void addAllExceptNulls(Collection<String> target, Collection<String> keys) {
+        for (String key : keys) {
+            if (!ContextDataManager.isSkippedFlagKey(key)) {
+                target.add(key);
+            }
+        }
+    }
+
+    private static List<String> withoutNulls(Collection<String> keys) {
+        List<String> result = new ArrayList<>(keys.size());
+        addAllExceptNulls(result, keys);
+        return result;
+    }
+}
@@ -0,0 +1,260 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.VisibleForTesting;
+
+import com.launchdarkly.sdk.LDValue;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Gives flag data that is decoded again and again the same instances each time: flag keys, flag
+ * values, and prerequisite key lists.
+ * <p>
+ * The same flags arrive for every cached context and with every update, and without this each copy
+ * would hold its own strings and JSON values. All of the decoders go through {@link #shared()}:
+ * {@link FlagSerialization}, which {@link DataModel.Flag#fromJson(String)} and
+ * {@link EnvironmentData#fromJson(String)} use, and the FDv2 changeset translation.
+ * <p>
+ * Keys and values are held weakly, so one is forgotten once no flag refers to it. They are spread
+ * across {@link #STRIPES} tables, each with its own lock, by a hash computed before any lock is
+ * taken, so that threads decoding flags at once, as cached contexts are loaded in parallel, rarely
+ * wait for each other; a lock is only held to find an equal instance among those with the same hash.
+ * A prerequisite list cannot be looked up by its contents in a weak table, since nothing else holds
+ * the list it would be keyed by, so those are held strongly instead, up to
+ * {@link #MAX_PREREQUISITE_LISTS} of them, forgetting the least recently used; the keys in them are
+ * interned like any other, so they cost little. Lists are returned unmodifiable, since one is shared
+ * by every flag that has it.
+ * <p>
+ * The weakly held keys and values cost nothing once no flag refers to them, but the prerequisite
+ * lists are kept until they are crowded out, so they are dropped by {@link #clearPrerequisiteLists()}
+ * when the OS reports memory pressure, and the table fills up again as flags are decoded.
+ */
+final class FlagDataPool {
+    static final int MAX_PREREQUISITE_LISTS = 1024;
+    static final int STRIPES = 16;
+
+    private static final FlagDataPool shared = new FlagDataPool();
+
+    private final WeakInterner<String> keys = new WeakInterner<>();
+    private final WeakInterner<LDValue> values = new WeakInterner<>();
+
+    // Guarded by itself.
+    private final LinkedHashMap<List<String>, List<String>> prerequisiteLists =
+            new LinkedHashMap<List<String>, List<String>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<List<String>, List<String>> eldest) {
+                    return size() > MAX_PREREQUISITE_LISTS;
+                }
+            };
+
+    static FlagDataPool shared() {
+        return shared;
+    }
+
+    /**
+     * @param key a flag key, or null
+     * @return an equal key, shared with other decoded flags if there is one
+     */
+    String internKey(String key) {
+        return key == null ? null : keys.intern(key);
+    }
+
+    /**
+     * Shares values that can be shared without a lookup, such as booleans and small numbers, by
+     * using {@link FlagSerialization#canonicalValue(LDValue)}, and looks up any other.
+     *
+     * @param value a flag value, or null
+     * @return an equal value, shared with other decoded flags if there is one
+     */
+    LDValue internValue(LDValue value) {
+        LDValue canonical = FlagSerialization.canonicalValue(value);
+        if (canonical != value || value == null) {
+            return canonical;
+        }
+        return values.intern(value);
+    }
+
+    /**
+     * @param prerequisites the keys of a flag's prerequisites, or null; a newly decoded array, whose
+     *                      elements are replaced with interned keys, and which must not be used
+     *                      afterwards
+     * @return an unmodifiable list of the same keys, shared with other decoded flags if there is one
+     */
+    List<String> internPrerequisites(String[] prerequisites) {
+        if (prerequisites == null) {
+            return null;
+        }
+        for (int i = 0; i < prerequisites.length; i++) {
+            prerequisites[i] = internKey(prerequisites[i]);
+        }
+        List<String> contents = Collections.unmodifiableList(Arrays.asList(prerequisites));
+        // Strings cache their hashes, so hashing the list under the lock is cheap.
+        synchronized (prerequisiteLists) {
+            List<String> existing = prerequisiteLists.get(contents);
+            if (existing != null) {
+                return existing;
+            }
+            prerequisiteLists.put(contents, contents);
+            return contents;
+        }
+    }
+
+    /**
+     * Forgets every prerequisite list, which is the only part of the pool that holds instances that
+     * no flag may refer to any more. Flags that were already decoded keep theirs.
+     *
+     * @return how many prerequisite lists were forgotten
+     */
+    int clearPrerequisiteLists() {
+        synchronized (prerequisiteLists) {
+            int size = prerequisiteLists.size();
+            prerequisiteLists.clear();
+            return size;
+        }
+    }
+
+    /**
+     * Forgets every instance. Flags that were already decoded keep theirs.
+     *
+     * @return how many keys, values and prerequisite lists were forgotten
+     */
+    @VisibleForTesting
+    int clear() {
+        return keys.clear() + values.clear() + clearPrerequisiteLists();
+    }
+
+    @VisibleForTesting
+    int size() {
+        int size = keys.size() + values.size();
+        synchronized (prerequisiteLists) {
+            return size + prerequisiteLists.size();
+        }
+    }
+
+    /**
+     * A set of weakly held instances, looked up by equality, in {@link #STRIPES} independently
+     * locked tables.
+     */
+    private static final class WeakInterner<T> {
+        @SuppressWarnings("unchecked")
+        private final Stripe<T>[] stripes = (Stripe<T>[]) new Stripe[STRIPES];
+
+        WeakInterner() {
+            for (int i = 0; i < stripes.length; i++) {
+                stripes[i] = new Stripe<>();
+            }
+        }
+
+        T intern(T instance) {
+            // Computed here, outside any lock; for a large JSON value this is the costly part.
+            int hash = instance.hashCode();
+            Stripe<T> stripe = stripes[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+            synchronized (stripe) {
+                return stripe.intern(instance, hash);
+            }
+        }
+
+        int clear() {
+            int size = 0;
+            for (Stripe<T> stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.expunge();
+                    size += stripe.table.size();
+                    stripe.table.clear();
+                }
+            }
+            return size;
+        }
+
+        int size() {
+            int size = 0;
+            for (Stripe<T> stripe : stripes) {
+                synchronized (stripe) {
+                    stripe.expunge();
+                    size += stripe.table.size();
+                }
+            }
+            return size;
+        }
+    }
+
+    // One table of a WeakInterner. Each entry is a reference to an instance, which is its own key and
+    // knows the instance's hash, so the table is searched by that hash and the instance is only
+    // compared for equality with those that have it. Guarded by the stripe.
+    private static final class Stripe<T> {
+        final HashMap<Object, Ref<T>> table = new HashMap<>();
+        final ReferenceQueue<T> collected = new ReferenceQueue<>();
+        // Reused for every lookup, so that a lookup allocates nothing.
+        final Probe probe = new Probe();
+
+        T intern(T instance, int hash) {
+            expunge();
+            probe.instance = instance;
+            probe.hash = hash;
+            Ref<T> ref = table.get(probe);
+            probe.instance = null;
+            T existing = ref == null ? null : ref.get();
+            if (existing != null) {
+                return existing;
+            }
+            Ref<T> added = new Ref<>(instance, hash, collected);
+            table.put(added, added);
+            return instance;
+        }
+
+        void expunge() {
+            Object ref;
+            while ((ref = collected.poll()) != null) {
+                table.remove(ref);
+            }
+        }
+    }
+
+    private static final class Ref<T> extends WeakReference<T> {
+        final int hash;
+
+        Ref(T instance, int hash, ReferenceQueue<T> queue) {
+            super(instance, queue);
+            this.hash = hash;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        // Identity, so that a reference whose instance has been collected can still be removed.
+        @Override
+        public boolean equals(Object other) {
+            return other == this;
+        }
+    }
+
+    // Finds the reference to an instance equal to the one it holds. HashMap compares the key it is
+    // given with the keys it holds, not the other way round, so this is the side that compares.
+    private static final class Probe {
+        Object instance;
+        int hash;
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Ref)) {
+                return false;
+            }
+            Object referent = ((Ref<?>) other).get();
+            return referent != null && instance.equals(referent);
+        }
+    }
+}
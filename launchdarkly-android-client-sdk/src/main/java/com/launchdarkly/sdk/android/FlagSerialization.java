@@ -0,0 +1,238 @@
+package com.launchdarkly.sdk.android;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import com.launchdarkly.sdk.EvaluationReason;
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.android.DataModel.Flag;
+import com.launchdarkly.sdk.internal.GsonHelpers;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads and writes {@link Flag} in the same JSON form that Gson's reflection produced when
+ * {@link Flag} held its properties as boxed fields, so data stored by earlier versions is still
+ * readable: properties in field order, and absent or false optional properties omitted.
+ * <p>
+ * While reading, common values are replaced by shared instances, since each cached context holds its
+ * own copy of every flag: evaluation reasons that carry nothing specific to a flag, and, through
+ * {@link FlagDataPool}, keys, values and prerequisite lists.
+ */
+final class FlagSerialization extends TypeAdapter<Flag> {
+    private static final int SMALL_INT_MIN = -128;
+    private static final int SMALL_INT_MAX = 127;
+    private static final LDValue[] SMALL_INTS = new LDValue[SMALL_INT_MAX - SMALL_INT_MIN + 1];
+    private static final EvaluationReason[] SHARED_REASONS;
+
+    static {
+        for (int i = 0; i < SMALL_INTS.length; i++) {
+            SMALL_INTS[i] = LDValue.of(i + SMALL_INT_MIN);
+        }
+        List<EvaluationReason> reasons = new ArrayList<>();
+        reasons.add(EvaluationReason.off());
+        reasons.add(EvaluationReason.fallthrough());
+        reasons.add(EvaluationReason.fallthrough(true));
+        reasons.add(EvaluationReason.targetMatch());
+        for (EvaluationReason.ErrorKind errorKind : EvaluationReason.ErrorKind.values()) {
+            reasons.add(EvaluationReason.error(errorKind));
+        }
+        SHARED_REASONS = reasons.toArray(new EvaluationReason[0]);
+    }
+
+    @Override
+    public void write(JsonWriter out, Flag flag) throws IOException {
+        if (flag == null) {
+            out.nullValue();
+            return;
+        }
+        out.beginObject();
+        if (flag.getKey() != null) {
+            out.name("key").value(flag.getKey());
+        }
+        if (!flag.getValue().isNull()) {
+            out.name("value");
+            valueAdapter().write(out, flag.getValue());
+        }
+        out.name("version").value(flag.getVersion());
+        if (flag.getFlagVersion() != null) {
+            out.name("flagVersion").value(flag.getFlagVersion());
+        }
+        if (flag.getVariation() != null) {
+            out.name("variation").value(flag.getVariation());
+        }
+        if (flag.getReason() != null) {
+            out.name("reason");
+            reasonAdapter().write(out, flag.getReason());
+        }
+        if (flag.isTrackEvents()) {
+            out.name("trackEvents").value(true);
+        }
+        if (flag.isTrackReason()) {
+            out.name("trackReason").value(true);
+        }
+        if (flag.getDebugEventsUntilDate() != null) {
+            out.name("debugEventsUntilDate").value(flag.getDebugEventsUntilDate());
+        }
+        if (flag.getPrerequisites() != null) {
+            out.name("prerequisites").beginArray();
+            for (String prerequisite : flag.getPrerequisites()) {
+                out.value(prerequisite);
+            }
+            out.endArray();
+        }
+        if (flag.isDeleted()) {
+            out.name("deleted").value(true);
+        }
+        out.endObject();
+    }
+
+    @Override
+    public Flag read(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        FlagDataPool pool = FlagDataPool.shared();
+        String key = null;
+        LDValue value = null;
+        int version = 0;
+        Integer flagVersion = null;
+        Integer variation = null;
+        EvaluationReason reason = null;
+        boolean trackEvents = false;
+        boolean trackReason = false;
+        Long debugEventsUntilDate = null;
+        List<String> prerequisites = null;
+        boolean deleted = false;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                continue;
+            }
+            switch (name) {
+                case "key":
+                    key = pool.internKey(in.nextString());
+                    break;
+                case "value":
+                    value = pool.internValue(valueAdapter().read(in));
+                    break;
+                case "version":
+                    version = in.nextInt();
+                    break;
+                case "flagVersion":
+                    flagVersion = in.nextInt();
+                    break;
+                case "variation":
+                    variation = in.nextInt();
+                    break;
+                case "reason":
+                    reason = canonicalReason(reasonAdapter().read(in));
+                    break;
+                case "trackEvents":
+                    trackEvents = readBoolean(in);
+                    break;
+                case "trackReason":
+                    trackReason = readBoolean(in);
+                    break;
+                case "debugEventsUntilDate":
+                    debugEventsUntilDate = in.nextLong();
+                    break;
+                case "prerequisites":
+                    prerequisites = pool.internPrerequisites(readStrings(in));
+                    break;
+                case "deleted":
+                    deleted = readBoolean(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+        return new Flag(key, value, version, flagVersion, variation, reason, trackEvents, trackReason,
+                debugEventsUntilDate, prerequisites, deleted);
+    }
+
+    /**
+     * Returns a shared instance equal to the given value if there is one, or else the value itself.
+     *
+     * @param value a flag value, or null
+     * @return an equal value
+     */
+    static LDValue canonicalValue(LDValue value) {
+        if (value == null) {
+            return null;
+        }
+        switch (value.getType()) {
+            case NULL:
+                return LDValue.ofNull();
+            case BOOLEAN:
+                return LDValue.of(value.booleanValue());
+            case NUMBER:
+                if (value.isInt() && value.intValue() >= SMALL_INT_MIN && value.intValue() <= SMALL_INT_MAX) {
+                    return SMALL_INTS[value.intValue() - SMALL_INT_MIN];
+                }
+                return value;
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Returns a shared instance equal to the given reason if there is one, or else the reason itself.
+     *
+     * @param reason an evaluation reason, or null
+     * @return an equal reason
+     */
+    static EvaluationReason canonicalReason(EvaluationReason reason) {
+        if (reason == null) {
+            return null;
+        }
+        for (EvaluationReason shared : SHARED_REASONS) {
+            if (shared.equals(reason)) {
+                return shared;
+            }
+        }
+        return reason;
+    }
+
+    // Looked up on each use rather than kept, because Gson creates this adapter while it is still
+    // building its own; it caches the adapters, so the lookup is cheap.
+    private static TypeAdapter<LDValue> valueAdapter() {
+        return GsonHelpers.gsonInstance().getAdapter(LDValue.class);
+    }
+
+    private static TypeAdapter<EvaluationReason> reasonAdapter() {
+        return GsonHelpers.gsonInstance().getAdapter(EvaluationReason.class);
+    }
+
+    // Accepts "true" as a string as well, as Gson's own boolean reading does.
+    private static boolean readBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.STRING) {
+            return Boolean.parseBoolean(in.nextString());
+        }
+        return in.nextBoolean();
+    }
+
+    private static String[] readStrings(JsonReader in) throws IOException {
+        List<String> strings = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            if (in.peek() == JsonToken.NULL) {
+                in.nextNull();
+                strings.add(null);
+            } else {
+                strings.add(in.nextString());
+            }
+        }
+        in.endArray();
+        return strings.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,93 @@
+package com.launchdarkly.sdk.android;
+
+import com.launchdarkly.sdk.android.integrations.Hook;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A hook as {@link HookRunner} holds it: the hook, how long its stages have taken, and whether it
+ * has been bypassed for being too slow.
+ * <p>
+ * Recording a stage costs a few atomic operations and no allocation, and the runner only records
+ * when a budget is set or statistics were asked for. The runner keeps one of these
+ * per registered hook for as long as the client lives.
+ */
+final class HookMonitor {
+    final Hook hook;
+
+    private final LatencyHistogram.Recorder[] latencies;
+    // Per stage, since a hook whose before stage does nothing would otherwise start the count again
+    // between every two runs of a slow after stage.
+    private final AtomicInteger[] consecutiveOverruns;
+    private final AtomicLong budgetOverruns = new AtomicLong();
+    private volatile boolean bypassed;
+
+    HookMonitor(Hook hook) {
+        this.hook = hook;
+        HookStatistics.Stage[] stages = HookStatistics.Stage.values();
+        this.latencies = new LatencyHistogram.Recorder[stages.length];
+        this.consecutiveOverruns = new AtomicInteger[stages.length];
+        for (int i = 0; i < stages.length; i++) {
+            latencies[i] = new LatencyHistogram.Recorder();
+            consecutiveOverruns[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * @return true if the hook is no longer to be called
+     */
+    boolean isBypassed() {
+        return bypassed;
+    }
+
+    /**
+     * Records how long a stage took, and checks it against the budget.
+     * <p>
+     * Overruns are counted for each stage separately, and a run of that stage within the budget starts
+     * its count again, so a hook is bypassed only for one of its stages being slow consistently, not
+     * for one slow call such as the first one, which may be loading classes. A hook that is bypassed
+     * is bypassed in all of its stages.
+     *
+     * @param stage        the stage
+     * @param nanos        how long it took
+     * @param budgetNanos  the longest a stage may take, or zero for no budget
+     * @param overrunLimit how many runs of one stage in a row may exceed the budget before the hook is
+     *                     bypassed
+     * @return true if this stage is the one that got the hook bypassed; that is true of one call only
+     */
+    boolean record(HookStatistics.Stage stage, long nanos, long budgetNanos, int overrunLimit) {
+        latencies[stage.ordinal()].recordNanos(nanos);
+        if (budgetNanos <= 0) {
+            return false;
+        }
+        AtomicInteger overruns = consecutiveOverruns[stage.ordinal()];
+        if (nanos <= budgetNanos) {
+            overruns.set(0);
+            return false;
+        }
+        budgetOverruns.incrementAndGet();
+        if (overruns.incrementAndGet() < overrunLimit || bypassed) {
+            return false;
+        }
+        synchronized (this) {
+            if (bypassed) {
+                return false;
+            }
+            bypassed = true;
+            return true;
+        }
+    }
+
+    /**
+     * @param hookName the name to report the hook under
+     * @return what has been recorded so far
+     */
+    HookStatistics getStatistics(String hookName) {
+        LatencyHistogram[] snapshots = new LatencyHistogram[latencies.length];
+        for (int i = 0; i < latencies.length; i++) {
+            snapshots[i] = latencies[i].snapshot();
+        }
+        return new HookStatistics(hookName, snapshots, budgetOverruns.get(), bypassed);
+    }
+}
@@ -15,6 +15,8 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
 public class HookRunner {
     @FunctionalInterface
@@ -29,19 +31,37 @@ public class HookRunner {
 
     private static final String UNKNOWN_HOOK_NAME = "unknown hook";
 
+    // Shared by every series, as the data a first stage starts from and as the data of a hook that
+    // returned none. emptyMap() is already immutable; wrapping it would only allocate.
+    private static final Map<String, Object> EMPTY_SERIES_DATA = Collections.emptyMap();
+
     private final LDLogger logger;
     /**
      * The hooks to run, which is replaced rather than modified so that a caller of {@link #addHook(Hook)} on one thread
      * cannot be seen half way by a series running on another. Every method that runs hooks reads this once into a local
-     * and works from that, so the hooks a series ends with are the hooks it began with.
+     * and works from that, so the hooks a series ends with are the hooks it began with. A hook that has been bypassed
+     * stays in the list, so that its statistics can still be read, and is skipped where it is run.
      */
-    private volatile List<Hook> hooks;
+    private volatile List<HookMonitor> hooks;
+
+    // The longest a stage may take, and how many runs of one stage of a hook in a row may take longer
+    // before it is bypassed; a budget of zero bypasses nothing.
+    private final long budgetNanos;
+    private final int overrunLimit;
+    // Whether stages are timed at all: only when there is a budget to check them against, or the
+    // application asked for statistics. Otherwise a stage costs nothing beyond calling the hook.
+    private final boolean timed;
+    private final CopyOnWriteArrayList<LDHookStatusListener> statusListeners = new CopyOnWriteArrayList<>();
 
     // Handed to every evaluation series context, which calls it only if a hook asks what the
     // evaluation's result identifies. Dedupe is the only thing that asks, and only a hook that has
     // been wrapped in a DedupingHook dedupes, so an application without one never pays for this.
     private final EvaluationExposureKeySupplier exposureKeySupplier;
 
+    // Runs after stages off the calling thread when the application asked for that; null runs them
+    // on the calling thread, before the call that triggered them returns.
+    private final AsyncHookExecutor asyncExecutor;
+
     /**
      * Builds a runner whose evaluations describe no result, so a hook that asks what one identifies
      * is told nothing and treats every evaluation as its own.
@@ -52,9 +72,55 @@ public class HookRunner {
 
     public HookRunner(LDLogger logger, List<Hook> initialHooks,
                       EvaluationExposureKeySupplier exposureKeySupplier) {
+        this(logger, initialHooks, exposureKeySupplier, null);
+    }
+
+    HookRunner(LDLogger logger, List<Hook> initialHooks,
+               EvaluationExposureKeySupplier exposureKeySupplier, AsyncHookExecutor asyncExecutor) {
+        this(logger, initialHooks, exposureKeySupplier, asyncExecutor, 0, 0, false);
+    }
+
+    /**
+     * @param budgetMicros     the longest a stage may take, or zero for no limit
+     * @param overrunLimit     how many runs of one stage of a hook in a row may take longer before the
+     *                         hook is no longer called
+     * @param recordStatistics true to time every stage for {@link #getStatistics()} even if there is
+     *                         no budget
+     */
+    HookRunner(LDLogger logger, List<Hook> initialHooks,
+               EvaluationExposureKeySupplier exposureKeySupplier, AsyncHookExecutor asyncExecutor,
+               long budgetMicros, int overrunLimit, boolean recordStatistics) {
         this.logger = logger;
         this.exposureKeySupplier = exposureKeySupplier;
-        this.hooks = Collections.unmodifiableList(new ArrayList<>(initialHooks));
+        this.asyncExecutor = asyncExecutor;
+        this.budgetNanos = Math.max(0, TimeUnit.MICROSECONDS.toNanos(budgetMicros));
+        this.overrunLimit = Math.max(1, overrunLimit);
+        this.timed = budgetNanos > 0 || recordStatistics;
+        List<HookMonitor> monitors = new ArrayList<>(initialHooks.size());
+        for (Hook hook : initialHooks) {
+            monitors.add(new HookMonitor(hook));
+        }
+        this.hooks = Collections.unmodifiableList(monitors);
+    }
+
+    /**
+     * Stops running after stages in the background, if they were. Stages already queued still run.
+     */
+    public void close() {
+        if (asyncExecutor != null) {
+            asyncExecutor.close();
+        }
+    }
+
+    // Runs a series' after stages on the background thread if there is one, or here if not. The
+    // evaluation and single track paths branch on their own instead, so that running synchronously
+    // costs them no lambda.
+    private void runAfterStages(Runnable afterStages) {
+        if (asyncExecutor == null) {
+            afterStages.run();
+        } else {
+            asyncExecutor.execute(afterStages);
+        }
     }
 
     private String getHookName(Hook hook) {
@@ -73,11 +139,73 @@ public class HookRunner {
      * @param hook the hook to add
      */
     public synchronized void addHook(Hook hook) {
-        List<Hook> updated = new ArrayList<>(hooks);
-        updated.add(hook);
+        List<HookMonitor> updated = new ArrayList<>(hooks);
+        updated.add(new HookMonitor(hook));
         hooks = Collections.unmodifiableList(updated);
     }
 
+    /**
+     * Returns how long each hook's stages have taken, in the order the hooks were added. Stages are
+     * only timed if there is a budget or statistics were asked for; otherwise every count is zero.
+     *
+     * @return a snapshot per hook
+     */
+    public List<HookStatistics> getStatistics() {
+        List<HookMonitor> hooks = this.hooks;
+        List<HookStatistics> statistics = new ArrayList<>(hooks.size());
+        for (HookMonitor monitor : hooks) {
+            statistics.add(monitor.getStatistics(getHookName(monitor.hook)));
+        }
+        return Collections.unmodifiableList(statistics);
+    }
+
+    /**
+     * @param listener a listener to be told when a hook is bypassed for being too slow
+     */
+    public void addStatusListener(LDHookStatusListener listener) {
+        statusListeners.add(listener);
+    }
+
+    /**
+     * @param listener a listener previously added
+     */
+    public void removeStatusListener(LDHookStatusListener listener) {
+        statusListeners.remove(listener);
+    }
+
+    private long startStage() {
+        return timed ? System.nanoTime() : 0;
+    }
+
+    // Records how long a stage took. Called whether or not the stage threw, since a hook that fails
+    // slowly costs the caller as much as one that succeeds slowly.
+    private void recordStage(HookMonitor monitor, HookStatistics.Stage stage, long startNanos) {
+        if (!timed) {
+            return;
+        }
+        long nanos = System.nanoTime() - startNanos;
+        if (monitor.record(stage, nanos, budgetNanos, overrunLimit)) {
+            reportBypassed(monitor, stage, nanos);
+        }
+    }
+
+    private void reportBypassed(HookMonitor monitor, HookStatistics.Stage stage, long nanos) {
+        String name = getHookName(monitor.hook);
+        logger.warn("Hook \"{}\" took longer than {}µs in {} stages in a row, most recently {}µs in {}; it will no longer be called",
+                name, TimeUnit.NANOSECONDS.toMicros(budgetNanos), overrunLimit, TimeUnit.NANOSECONDS.toMicros(nanos), stage);
+        if (statusListeners.isEmpty()) {
+            return;
+        }
+        HookStatistics statistics = monitor.getStatistics(name);
+        for (LDHookStatusListener listener : statusListeners) {
+            try {
+                listener.onHookBypassed(statistics, stage);
+            } catch (Exception e) {
+                LDUtil.logExceptionAtWarnLevel(logger, e, "Unexpected exception calling hook status listener");
+            }
+        }
+    }
+
     /**
      * Runs the evaluation series around an evaluation of a flag the caller has not read, so a hook
      * that asks what the evaluation's result identifies is told nothing.
@@ -93,45 +221,79 @@ public class HookRunner {
      *             result the evaluation returns rather than about a later read of the store
      */
     public EvaluationDetail<LDValue> withEvaluation(String method, String key, LDContext context, LDValue defaultValue, DataModel.Flag flag, EvaluationMethod evalMethod) {
-        List<Hook> hooks = this.hooks;
+        List<HookMonitor> hooks = this.hooks;
         if (hooks.isEmpty()) {
             return evalMethod.evaluate();
         }
 
-        List<Map<String, Object>> seriesDataList = new ArrayList<>(hooks.size());
+        // Most hooks return the series data they were given, which is empty, so the array holding
+        // what the before stages returned is only allocated once one of them returns something.
+        Map<String, Object>[] seriesDataList = null;
         EvaluationSeriesContext seriesContext =
                 new EvaluationSeriesContext(method, key, context, defaultValue, exposureKeySupplier, flag);
         for (int i = 0; i < hooks.size(); i++) {
-            Hook currentHook = hooks.get(i);
+            HookMonitor monitor = hooks.get(i);
+            Hook currentHook = monitor.hook;
+            if (!currentHook.runsBeforeEvaluation() || monitor.isBypassed()) {
+                continue;
+            }
+            long startNanos = startStage();
             try {
-                Map<String, Object> seriesData = currentHook.beforeEvaluation(seriesContext, Collections.unmodifiableMap(Collections.emptyMap()));
-                seriesDataList.add(Collections.unmodifiableMap(seriesData));
+                Map<String, Object> seriesData = currentHook.beforeEvaluation(seriesContext, EMPTY_SERIES_DATA);
+                if (!seriesData.isEmpty()) {
+                    if (seriesDataList == null) {
+                        seriesDataList = newSeriesDataArray(hooks.size());
+                    }
+                    seriesDataList[i] = Collections.unmodifiableMap(seriesData);
+                }
             } catch (Exception e) {
-                seriesDataList.add(Collections.unmodifiableMap(Collections.emptyMap()));
                 logger.error("During evaluation of flag \"{}\". Stage \"beforeEvaluation\" of hook \"{}\" reported error: {}", key, getHookName(currentHook), e.toString());
             }
+            recordStage(monitor, HookStatistics.Stage.BEFORE_EVALUATION, startNanos);
         }
 
         EvaluationDetail<LDValue> result = evalMethod.evaluate();
 
+        Map<String, Object>[] beforeSeriesData = seriesDataList;
+        if (asyncExecutor == null) {
+            runAfterEvaluation(hooks, seriesContext, beforeSeriesData, result);
+        } else {
+            asyncExecutor.execute(() -> runAfterEvaluation(hooks, seriesContext, beforeSeriesData, result));
+        }
+        return result;
+    }
+
+    private void runAfterEvaluation(List<HookMonitor> hooks, EvaluationSeriesContext seriesContext,
+                                    Map<String, Object>[] seriesDataList, EvaluationDetail<LDValue> result) {
         // Invoke hooks in reverse order and give them back the series data they gave us.
         for (int i = hooks.size() - 1; i >= 0; i--) {
-            Hook currentHook = hooks.get(i);
+            HookMonitor monitor = hooks.get(i);
+            if (monitor.isBypassed()) {
+                continue;
+            }
+            Hook currentHook = monitor.hook;
+            Map<String, Object> seriesData = seriesDataList == null || seriesDataList[i] == null ?
+                    EMPTY_SERIES_DATA : seriesDataList[i];
+            long startNanos = startStage();
             try {
-                currentHook.afterEvaluation(seriesContext, seriesDataList.get(i), result);
+                currentHook.afterEvaluation(seriesContext, seriesData, result);
             } catch (Exception e) {
-                logger.error("During evaluation of flag \"{}\". Stage \"afterEvaluation\" of hook \"{}\" reported error: {}", key, getHookName(currentHook), e.toString());
+                logger.error("During evaluation of flag \"{}\". Stage \"afterEvaluation\" of hook \"{}\" reported error: {}", seriesContext.flagKey, getHookName(currentHook), e.toString());
             }
+            recordStage(monitor, HookStatistics.Stage.AFTER_EVALUATION, startNanos);
         }
+    }
 
-        return result;
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object>[] newSeriesDataArray(int size) {
+        return (Map<String, Object>[]) new Map[size];
     }
 
     public AfterIdentifyMethod identify(LDContext context, Integer timeout) {
         // The returned method runs when the identify completes, which is a round trip later, so it closes over these
         // hooks rather than reading the field again: otherwise a hook added in between would be given an "after" stage
         // for a series whose "before" stage it was never in.
-        List<Hook> hooks = this.hooks;
+        List<HookMonitor> hooks = this.hooks;
         if (hooks.isEmpty()) {
             return (IdentifySeriesResult result) -> {};
         }
@@ -139,45 +301,105 @@ public class HookRunner {
         List<Map<String, Object>> seriesDataList = new ArrayList<>(hooks.size());
         IdentifySeriesContext seriesContext = new IdentifySeriesContext(context, timeout);
         for (int i = 0; i < hooks.size(); i++) {
-            Hook currentHook = hooks.get(i);
+            HookMonitor monitor = hooks.get(i);
+            if (monitor.isBypassed()) {
+                seriesDataList.add(EMPTY_SERIES_DATA);
+                continue;
+            }
+            Hook currentHook = monitor.hook;
+            long startNanos = startStage();
             try {
-                Map<String, Object> seriesData = currentHook.beforeIdentify(seriesContext, Collections.unmodifiableMap(Collections.emptyMap()));
+                Map<String, Object> seriesData = currentHook.beforeIdentify(seriesContext, EMPTY_SERIES_DATA);
                 seriesDataList.add(Collections.unmodifiableMap(seriesData));
             } catch (Exception e) {
-                seriesDataList.add(Collections.unmodifiableMap(Collections.emptyMap()));
+                seriesDataList.add(EMPTY_SERIES_DATA);
                 logger.error("During identify with context \"{}\". Stage \"beforeIdentify\" of hook \"{}\" reported error: {}", context.getKey(), getHookName(currentHook), e.toString());
             }
+            recordStage(monitor, HookStatistics.Stage.BEFORE_IDENTIFY, startNanos);
         }
 
-        return (IdentifySeriesResult result) -> {
+        return (IdentifySeriesResult result) -> runAfterStages(() -> {
             // Invoke hooks in reverse order and give them back the series data they gave us.
             for (int i = hooks.size() - 1; i >= 0; i--) {
-                Hook currentHook = hooks.get(i);
+                HookMonitor monitor = hooks.get(i);
+                if (monitor.isBypassed()) {
+                    continue;
+                }
+                Hook currentHook = monitor.hook;
+                long startNanos = startStage();
                 try {
                     currentHook.afterIdentify(seriesContext, seriesDataList.get(i), result);
                 } catch (Exception e) {
                     logger.error("During identify with context \"{}\". Stage \"afterIdentify\" of hook \"{}\" reported error: {}", context.getKey(), getHookName(currentHook), e.toString());
                 }
+                recordStage(monitor, HookStatistics.Stage.AFTER_IDENTIFY, startNanos);
             }
-        };
+        });
     }
 
     public void afterTrack(String key, LDContext context, LDValue data, Double metricValue) {
-        List<Hook> hooks = this.hooks;
+        List<HookMonitor> hooks = this.hooks;
         if (hooks.isEmpty()) {
             return;
         }
-
         TrackSeriesContext seriesContext = new TrackSeriesContext(key, context, data, metricValue);
+        if (asyncExecutor == null) {
+            runAfterTrack(hooks, seriesContext);
+        } else {
+            asyncExecutor.execute(() -> runAfterTrack(hooks, seriesContext));
+        }
+    }
+
+    /**
+     * Runs one track series for a batch of events: each hook, in registration order, is given the
+     * whole batch through {@link Hook#afterTrackBatch(List)}, which by default passes the events to
+     * {@link Hook#afterTrack(TrackSeriesContext)} in the order of the batch. The hooks are read once,
+     * so a hook added while the batch is running sees none of it.
+     *
+     * @param seriesContexts the tracked events
+     */
+    public void afterTrack(List<TrackSeriesContext> seriesContexts) {
+        List<HookMonitor> hooks = this.hooks;
+        if (hooks.isEmpty() || seriesContexts.isEmpty()) {
+            return;
+        }
+        List<TrackSeriesContext> batch = Collections.unmodifiableList(seriesContexts);
+        runAfterStages(() -> runAfterTrackBatch(hooks, batch));
+    }
+
+    private void runAfterTrackBatch(List<HookMonitor> hooks, List<TrackSeriesContext> batch) {
+        for (int i = 0; i < hooks.size(); i++) {
+            HookMonitor monitor = hooks.get(i);
+            if (monitor.isBypassed()) {
+                continue;
+            }
+            Hook currentHook = monitor.hook;
+            long startNanos = startStage();
+            try {
+                currentHook.afterTrackBatch(batch);
+            } catch (Exception e) {
+                logger.error("During tracking of a batch of {} events. Stage \"afterTrackBatch\" of hook \"{}\" reported error: {}", batch.size(), getHookName(currentHook), e.toString());
+            }
+            recordStage(monitor, HookStatistics.Stage.AFTER_TRACK, startNanos);
+        }
+    }
+
+    private void runAfterTrack(List<HookMonitor> hooks, TrackSeriesContext seriesContext) {
         // The track series has only an "after" stage, so hooks run in registration order, as required by
         // the shared SDK contract tests (unlike afterEvaluation/afterIdentify, which run in reverse).
         for (int i = 0; i < hooks.size(); i++) {
-            Hook currentHook = hooks.get(i);
+            HookMonitor monitor = hooks.get(i);
+            if (monitor.isBypassed()) {
+                continue;
+            }
+            Hook currentHook = monitor.hook;
+            long startNanos = startStage();
             try {
                 currentHook.afterTrack(seriesContext);
             } catch (Exception e) {
-                logger.error("During tracking of event \"{}\". Stage \"afterTrack\" of hook \"{}\" reported error: {}", key, getHookName(currentHook), e.toString());
+                logger.error("During tracking of event \"{}\". Stage \"afterTrack\" of hook \"{}\" reported error: {}", seriesContext.key, getHookName(currentHook), e.toString());
             }
+            recordStage(monitor, HookStatistics.Stage.AFTER_TRACK, startNanos);
         }
     }
 }
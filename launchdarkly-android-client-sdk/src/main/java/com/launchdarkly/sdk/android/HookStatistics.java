@@ -0,0 +1,108 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+
+import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder;
+
+/**
+ * An immutable snapshot of how long one hook's stages have taken, as returned by
+ * {@link LDClient#getHookStatistics()} and passed to an {@link LDHookStatusListener}.
+ * <p>
+ * Every stage the SDK calls is timed, including one that throws, from the moment the SDK calls it to
+ * the moment it returns; counters are cumulative since the hook was added to the client. A stage that
+ * ran on the SDK's background thread, because of
+ * {@link HooksConfigurationBuilder#runAfterStagesAsynchronously}, is timed there.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ */
+public final class HookStatistics {
+    /**
+     * The stages of a hook that the SDK times.
+     * <p>
+     * This enum is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     */
+    public enum Stage {
+        /**
+         * {@link com.launchdarkly.sdk.android.integrations.Hook#beforeEvaluation}
+         */
+        BEFORE_EVALUATION,
+        /**
+         * {@link com.launchdarkly.sdk.android.integrations.Hook#afterEvaluation}
+         */
+        AFTER_EVALUATION,
+        /**
+         * {@link com.launchdarkly.sdk.android.integrations.Hook#beforeIdentify}
+         */
+        BEFORE_IDENTIFY,
+        /**
+         * {@link com.launchdarkly.sdk.android.integrations.Hook#afterIdentify}
+         */
+        AFTER_IDENTIFY,
+        /**
+         * {@link com.launchdarkly.sdk.android.integrations.Hook#afterTrack}, or
+         * {@link com.launchdarkly.sdk.android.integrations.Hook#afterTrackBatch}, timed once per batch
+         */
+        AFTER_TRACK
+    }
+
+    @NonNull
+    private final String hookName;
+    @NonNull
+    private final LatencyHistogram[] latencies;
+    private final long budgetOverruns;
+    private final boolean bypassed;
+
+    HookStatistics(@NonNull String hookName, @NonNull LatencyHistogram[] latencies, long budgetOverruns,
+                   boolean bypassed) {
+        this.hookName = hookName;
+        this.latencies = latencies;
+        this.budgetOverruns = budgetOverruns;
+        this.bypassed = bypassed;
+    }
+
+    /**
+     * @return the name from the hook's metadata
+     */
+    @NonNull
+    public String getHookName() {
+        return hookName;
+    }
+
+    /**
+     * @param stage a stage
+     * @return how long that stage has taken each time it was called
+     */
+    @NonNull
+    public LatencyHistogram getLatency(@NonNull Stage stage) {
+        return latencies[stage.ordinal()];
+    }
+
+    /**
+     * @return how many stages have taken longer than the budget set with
+     *         {@link HooksConfigurationBuilder#bypassSlowHooks(long, int)}, whether or not in a row;
+     *         zero if no budget was set
+     */
+    public long getBudgetOverruns() {
+        return budgetOverruns;
+    }
+
+    /**
+     * @return true if the hook has exceeded its budget often enough in a row that the SDK no longer
+     *         calls it
+     */
+    public boolean isBypassed() {
+        return bypassed;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder("HookStatistics(hookName=").append(hookName);
+        for (Stage stage : Stage.values()) {
+            s.append(", ").append(stage).append('=').append(latencies[stage.ordinal()]);
+        }
+        return s.append(", budgetOverruns=").append(budgetOverruns)
+                .append(", bypassed=").append(bypassed).append(')').toString();
+    }
+}
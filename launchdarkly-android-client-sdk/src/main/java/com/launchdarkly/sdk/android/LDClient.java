@@ -23,9 +23,11 @@ import com.launchdarkly.sdk.android.integrations.IdentifySeriesResult;
 import com.launchdarkly.sdk.android.integrations.Plugin;
 import com.launchdarkly.sdk.android.integrations.RegistrationCompleteResult;
 import com.launchdarkly.sdk.android.integrations.SdkMetadata;
+import com.launchdarkly.sdk.android.integrations.TrackSeriesContext;
 import com.launchdarkly.sdk.android.subsystems.ApplicationInfo;
 import com.launchdarkly.sdk.android.subsystems.Callback;
 import com.launchdarkly.sdk.android.subsystems.EventProcessor;
+import com.launchdarkly.sdk.android.subsystems.HookConfiguration;
 import com.launchdarkly.sdk.android.subsystems.PersistentDataStore;
 
 import java.io.Closeable;
@@ -70,6 +72,9 @@ public class LDClient implements LDClientInterface, Closeable {
     static Object initLock = new Object();
 
     private static volatile LDLogger sharedLogger;
+    // The store that init created, if the configuration did not provide one; it may be holding
+    // writes that have not been committed yet.
+    private static volatile SharedPreferencesPersistentDataStore defaultStore;
     private final LDConfig config;
     private final ContextDataManager contextDataManager;
     private final EventProcessor eventProcessor;
@@ -80,8 +85,17 @@ public class LDClient implements LDClientInterface, Closeable {
     // application may take on every redraw of a view.
     private final String mobileKeyHash;
     private List<Plugin> plugins;
+    // When the initial context's cached flags were loaded, for the startup report.
+    private final long cachedDataLoadStartNanos;
+    private final long cachedDataLoadEndNanos;
+    // Set by init for each client it creates; null for a client created some other way.
+    private volatile StartupTimeline startupTimeline;
+    private final AtomicBoolean startupFinished = new AtomicBoolean();
+    private volatile StartupReport startupReport;
     // If 15 seconds or more is passed as a timeout to init, we will log a warning.
     private static final int EXCESSIVE_INIT_WAIT_SECONDS = 15;
+    // The most clients, one per environment, that init constructs at the same time.
+    private static final int MAX_CONCURRENT_CLIENT_CONSTRUCTIONS = 4;
 
 
     /**
@@ -109,6 +123,8 @@ public class LDClient implements LDClientInterface, Closeable {
     public static Future<LDClient> init(@NonNull Application application,
                                         @NonNull LDConfig config,
                                         @NonNull LDContext context) {
+        StartupTimeline sharedTimeline = new StartupTimeline(System.nanoTime());
+
         // As this is an externally facing API we should still check these, so we hide the linter
         // warnings
 
@@ -145,17 +161,54 @@ public class LDClient implements LDClientInterface, Closeable {
 
             TaskExecutor sharedTaskExecutor = new AndroidTaskExecutor(application, logger);
             PlatformState sharedPlatformState = new AndroidPlatformState(application, sharedTaskExecutor, logger);
-
-            PersistentDataStore store = config.getPersistentDataStore() == null ?
-                    new SharedPreferencesPersistentDataStore(application, logger) :
-                    config.getPersistentDataStore();
+            releaseMemoryOnPressure(sharedPlatformState, logger);
+
+            long phaseStartNanos = System.nanoTime();
+            PersistenceInstrumentation persistenceInstrumentation = new PersistenceInstrumentation();
+            PersistentDataStore store = config.getPersistentDataStore();
+            if (store == null) {
+                SharedPreferencesPersistentDataStore sharedPrefsStore = new SharedPreferencesPersistentDataStore(
+                        application,
+                        config.getPersistenceWriteBackDelayMillis(),
+                        config.getPersistenceMaxDirtyAgeMillis(),
+                        persistenceInstrumentation,
+                        logger
+                );
+                // Commit anything that is waiting for the write-back delay while the process is
+                // unlikely to be killed.
+                sharedPlatformState.addForegroundChangeListener(foreground -> {
+                    if (!foreground) {
+                        sharedPrefsStore.flushSynchronously();
+                    }
+                });
+                sharedPlatformState.addMemoryPressureListener(level -> sharedPrefsStore.flushSynchronously());
+                defaultStore = sharedPrefsStore;
+                store = sharedPrefsStore;
+            }
             PersistentDataStoreWrapper persistentData = new PersistentDataStoreWrapper(
                     store,
+                    persistenceInstrumentation,
+                    config.getCachedFlagDataCompressionThreshold(),
                     logger
             );
+            sharedTimeline.recordSince(StartupReport.Phase.PERSISTENT_STORE, phaseStartNanos);
+
+            // Only the part of the migration that the clients depend on is done here; removing
+            // obsolete data is left to the task executor.
+            phaseStartNanos = System.nanoTime();
+            Runnable remainingMigration = Migration.beginMigrationWhenNeeded(store, logger);
+            sharedTimeline.recordSince(StartupReport.Phase.MIGRATION, phaseStartNanos);
+            if (remainingMigration != null) {
+                sharedTaskExecutor.scheduleTask(() -> {
+                    try {
+                        remainingMigration.run();
+                    } catch (RuntimeException e) {
+                        LDUtil.logExceptionAtWarnLevel(logger, e, "Unable to remove data stored by earlier SDK versions");
+                    }
+                }, 0);
+            }
 
-            Migration.migrateWhenNeeded(store, logger);
-
+            phaseStartNanos = System.nanoTime();
             EnvironmentReporterBuilder reporterBuilder = new EnvironmentReporterBuilder();
             reporterBuilder.setApplicationInfo(config.applicationInfo);
             if (config.isAutoEnvAttributes()) {
@@ -164,7 +217,9 @@ public class LDClient implements LDClientInterface, Closeable {
             IEnvironmentReporter environmentReporter = reporterBuilder.build();
             ApplicationInfo applicationInfo = environmentReporter.getApplicationInfo();
             SdkMetadata sdkMetadata = new SdkMetadata(LDPackageConsts.SDK_CLIENT_NAME, BuildConfig.VERSION_NAME);
+            sharedTimeline.recordSince(StartupReport.Phase.ENVIRONMENT_REPORTER, phaseStartNanos);
 
+            phaseStartNanos = System.nanoTime();
             if (config.isAutoEnvAttributes()) {
                 autoEnvContextModifier = new AutoEnvContextModifier(persistentData, environmentReporter, logger);
             } else {
@@ -174,39 +229,54 @@ public class LDClient implements LDClientInterface, Closeable {
 
             modifiedContext = autoEnvContextModifier.modifyContext(context);
             modifiedContext = anonymousKeyContextModifier.modifyContext(modifiedContext);
+            sharedTimeline.recordSince(StartupReport.Phase.CONTEXT_MODIFIERS, phaseStartNanos);
 
             Set<Map.Entry<String, String>> envAndMobileKeys = config.getMobileKeys().entrySet();
             // Create, but don't start, every LDClient instance
-            final Map<String, LDClient> newInstances = new HashMap<>(envAndMobileKeys.size());
+            final LDContext initialContext = modifiedContext;
+            List<ConcurrentConstruction.Constructor<LDClient>> constructors = new ArrayList<>(envAndMobileKeys.size());
+            for (Map.Entry<String, String> entry : envAndMobileKeys) {
+                String envName = entry.getKey(), mobileKey = entry.getValue();
+                constructors.add(() -> new LDClient(
+                        sharedPlatformState,
+                        environmentReporter,
+                        sharedTaskExecutor,
+                        persistentData.perEnvironmentData(mobileKey),
+                        initialContext,
+                        config,
+                        mobileKey,
+                        envName
+                ));
+            }
+            // Each client reads and decodes its environment's stored flags as it is constructed, so
+            // several are constructed at once. If one fails, those already constructed are closed.
+            List<LDClient> createdInstances;
+            try {
+                createdInstances = ConcurrentConstruction.constructAll(constructors,
+                        MAX_CONCURRENT_CLIENT_CONSTRUCTIONS, LDClient::closeInternal);
+            } catch (LaunchDarklyException e) {
+                resultFuture.setException(e);
+                return resultFuture;
+            }
 
+            final Map<String, LDClient> newInstances = new HashMap<>(envAndMobileKeys.size());
             LDClient createdPrimaryClient = null;
+            int index = 0;
             for (Map.Entry<String, String> entry : envAndMobileKeys) {
                 String envName = entry.getKey(), mobileKey = entry.getValue();
-                try {
-                    final LDClient instance = new LDClient(
-                            sharedPlatformState,
-                            environmentReporter,
-                            sharedTaskExecutor,
-                            persistentData.perEnvironmentData(mobileKey),
-                            modifiedContext,
-                            config,
-                            mobileKey,
-                            envName
-                    );
-                    instance.plugins = config.pluginsConfig.getPlugins();
-
-                    newInstances.put(envName, instance);
-                    if (mobileKey.equals(config.getMobileKey())) {
-                        createdPrimaryClient = instance;
-                    }
-
-                    // metadata created per environment since mobile key varies
-                    instanceMetadatas.put(instance, new EnvironmentMetadata(applicationInfo, sdkMetadata, mobileKey));
-
-                } catch (LaunchDarklyException e) {
-                    resultFuture.setException(e);
-                    return resultFuture;
+                LDClient instance = createdInstances.get(index++);
+                instance.plugins = config.pluginsConfig.getPlugins();
+                instance.startupTimeline = sharedTimeline.copy();
+                instance.startupTimeline.record(StartupReport.Phase.CACHED_DATA_LOAD,
+                        instance.cachedDataLoadStartNanos, instance.cachedDataLoadEndNanos);
+
+                newInstances.put(envName, instance);
+                if (mobileKey.equals(config.getMobileKey())) {
+                    createdPrimaryClient = instance;
                 }
+
+                // metadata created per environment since mobile key varies
+                instanceMetadatas.put(instance, new EnvironmentMetadata(applicationInfo, sdkMetadata, mobileKey));
             }
             primaryClient = createdPrimaryClient;
             // this indirect way of setting primaryClient is simply to make it easier to reference
@@ -219,6 +289,7 @@ public class LDClient implements LDClientInterface, Closeable {
         for (Map.Entry<LDClient, EnvironmentMetadata> entry : instanceMetadatas.entrySet()) {
             LDClient instance = entry.getKey();
             EnvironmentMetadata metadata = entry.getValue();
+            long pluginsStartNanos = System.nanoTime();
 
             for (Plugin plugin : instance.plugins) {
                 // try is for each plugin so that if one plugin has an issue, the others will have an opportunity to be used
@@ -253,18 +324,24 @@ public class LDClient implements LDClientInterface, Closeable {
                     logger.error("Exception thrown executing onPluginsReady for plugin " + plugin.getMetadata().getName() + ".");
                 }
             }
+            instance.startupTimeline.recordSince(StartupReport.Phase.PLUGIN_REGISTRATION, pluginsStartNanos);
         }
 
         final AtomicInteger initCounter = new AtomicInteger(config.getMobileKeys().size());
         class CompleteWhenCounterZero implements Callback<Void> {
             final private HookRunner.AfterIdentifyMethod afterIdentify;
+            final private LDClient instance;
+            final private long startNanos;
 
-            CompleteWhenCounterZero(HookRunner.AfterIdentifyMethod afterIdentify) {
+            CompleteWhenCounterZero(HookRunner.AfterIdentifyMethod afterIdentify, LDClient instance) {
                 this.afterIdentify = afterIdentify;
+                this.instance = instance;
+                this.startNanos = System.nanoTime();
             }
 
             @Override
             public void onSuccess(Void result) {
+                instance.finishStartup(startNanos, true);
                 afterIdentify.invoke(new IdentifySeriesResult(IdentifySeriesResult.IdentifySeriesStatus.COMPLETED));
                 if (initCounter.decrementAndGet() == 0) {
                     resultFuture.set(primaryClient);
@@ -273,6 +350,7 @@ public class LDClient implements LDClientInterface, Closeable {
 
             @Override
             public void onError(Throwable e) {
+                instance.finishStartup(startNanos, false);
                 afterIdentify.invoke(new IdentifySeriesResult(IdentifySeriesResult.IdentifySeriesStatus.ERROR));
                 resultFuture.setException(e);
             }
@@ -281,7 +359,7 @@ public class LDClient implements LDClientInterface, Closeable {
         // Start up all instances
         for (final LDClient instance : instances.values()) {
             HookRunner.AfterIdentifyMethod afterIdentify = instance.hookRunner.identify(modifiedContext, null);
-            if (instance.connectivityManager.startUp(instance.contextDataManager, new CompleteWhenCounterZero(afterIdentify))) {
+            if (instance.connectivityManager.startUp(instance.contextDataManager, new CompleteWhenCounterZero(afterIdentify, instance))) {
                 instance.eventProcessor.recordIdentifyEvent(modifiedContext);
             }
         }
@@ -289,6 +367,54 @@ public class LDClient implements LDClientInterface, Closeable {
         return resultFuture;
     }
 
+    /**
+     * Completes this client's startup report with its data source's first result, the first time
+     * that is called.
+     */
+    private void finishStartup(long dataSourceStartNanos, boolean dataSourceSucceeded) {
+        StartupTimeline timeline = startupTimeline;
+        if (timeline == null || !startupFinished.compareAndSet(false, true)) {
+            return;
+        }
+        timeline.recordSince(StartupReport.Phase.FIRST_DATA_SOURCE_RESULT, dataSourceStartNanos);
+        StartupReport report = timeline.toReport(clientContextImpl.getEnvironmentName(), dataSourceSucceeded);
+        startupReport = report;
+        logger.debug("Startup took {} ms: {}", report.getTotalMillis(), report);
+
+        EventProcessorInstrumentation instrumentation = getEventProcessorInstrumentation();
+        if (instrumentation != null) {
+            instrumentation.setStartupDurationMillis(report.getTotalMillis());
+        }
+        LDStartupReportListener listener = config.getStartupReportListener();
+        if (listener != null) {
+            clientContextImpl.getTaskExecutor().executeOnMainThread(() -> {
+                try {
+                    listener.onStartupReport(report);
+                } catch (Exception e) {
+                    LDUtil.logExceptionAtWarnLevel(logger, e, "Unexpected exception from startup report listener");
+                }
+            });
+        }
+    }
+
+    /**
+     * Has the SDK drop what it holds only to save time or memory later, and can rebuild as needed,
+     * whenever the platform reports memory pressure.
+     */
+    static void releaseMemoryOnPressure(PlatformState platformState, LDLogger logger) {
+        platformState.addMemoryPressureListener(level -> releaseMemory(level, logger));
+    }
+
+    private static void releaseMemory(int level, LDLogger logger) {
+        // The pool's keys and values are held weakly and go with the flags that use them, so only
+        // its prerequisite lists are worth dropping. Flags loaded from the store keep its JSON until
+        // every one of them has been decoded, which is left alone, since decoding the rest to let go
+        // of it would take more memory, not less.
+        int prerequisiteListCount = FlagDataPool.shared().clearPrerequisiteLists();
+        logger.info("Memory is low (level {}); released {} pooled prerequisite lists",
+                level, prerequisiteListCount);
+    }
+
     /**
      * Initializes the singleton instance and blocks for up to <code>startWaitSeconds</code> seconds
      * until the client has been initialized. If the client does not initialize within
@@ -430,14 +556,21 @@ public class LDClient implements LDClientInterface, Closeable {
         );
 
         boolean usingFDv2 = config.dataSource instanceof FDv2DataSourceBuilder;
+        // Constructing the ContextDataManager loads the initial context's cached flags.
+        this.cachedDataLoadStartNanos = System.nanoTime();
         this.contextDataManager = new ContextDataManager(
                 clientContextImpl,
                 environmentStore,
                 config.getMaxCachedContexts(),
                 usingFDv2
         );
+        this.cachedDataLoadEndNanos = System.nanoTime();
 
         eventProcessor = config.events.build(clientContextImpl);
+        EventProcessorInstrumentation eventInstrumentation = getEventProcessorInstrumentation();
+        if (eventInstrumentation != null) {
+            eventInstrumentation.setPersistenceInstrumentation(environmentStore.getInstrumentation());
+        }
 
         connectivityManager = new ConnectivityManager(
                 clientContextImpl,
@@ -446,7 +579,13 @@ public class LDClient implements LDClientInterface, Closeable {
                 environmentStore
         );
 
-        hookRunner = new HookRunner(logger, config.hooks.getHooks(), this::exposureKey);
+        HookConfiguration hooksConfig = config.hooks;
+        hookRunner = new HookRunner(logger, hooksConfig.getHooks(), this::exposureKey,
+                hooksConfig.isRunAfterStagesAsynchronously() ?
+                        new AsyncHookExecutor(hooksConfig.getAsyncQueueCapacity(),
+                                hooksConfig.getAsyncOverflowPolicy(), logger) : null,
+                hooksConfig.getSlowHookBudgetMicros(), hooksConfig.getSlowHookOverrunLimit(),
+                hooksConfig.isRecordStatistics());
     }
 
     @Override
@@ -470,6 +609,71 @@ public class LDClient implements LDClientInterface, Closeable {
         hookRunner.afterTrack(eventName, clientContextImpl.getEvaluationContext(), data, metricValue);
     }
 
+    @Override
+    public void trackBatch(List<TrackedEvent> events) {
+        trackBatch(events, false);
+    }
+
+    @Override
+    public void trackBatch(List<TrackedEvent> events, boolean aggregateMetrics) {
+        if (events == null || events.isEmpty()) {
+            return;
+        }
+        LDContext context = clientContextImpl.getEvaluationContext();
+
+        // Each slot is either an event to track as is, or the running total of the metric events of
+        // one name, which takes the position of the first of them.
+        List<Object> slots = new ArrayList<>(events.size());
+        Map<String, MetricAggregate> aggregates = aggregateMetrics ? new HashMap<>() : null;
+        for (TrackedEvent event : events) {
+            if (event == null) {
+                continue;
+            }
+            if (aggregates != null && event.getMetricValue() != null &&
+                    (event.getData() == null || event.getData().isNull())) {
+                MetricAggregate aggregate = aggregates.get(event.getEventName());
+                if (aggregate == null) {
+                    aggregate = new MetricAggregate();
+                    aggregates.put(event.getEventName(), aggregate);
+                    slots.add(aggregate);
+                }
+                aggregate.add(event);
+                continue;
+            }
+            slots.add(event);
+        }
+
+        List<TrackSeriesContext> tracked = new ArrayList<>(slots.size());
+        for (Object slot : slots) {
+            TrackSeriesContext seriesContext;
+            if (slot instanceof MetricAggregate) {
+                MetricAggregate aggregate = (MetricAggregate) slot;
+                seriesContext = new TrackSeriesContext(aggregate.eventName, context,
+                        LDValue.buildObject().put("count", aggregate.count).build(), aggregate.sum);
+            } else {
+                TrackedEvent event = (TrackedEvent) slot;
+                seriesContext = new TrackSeriesContext(event.getEventName(), context,
+                        event.getData(), event.getMetricValue());
+            }
+            eventProcessor.recordCustomEvent(context, seriesContext.key, seriesContext.data,
+                    seriesContext.metricValue);
+            tracked.add(seriesContext);
+        }
+        hookRunner.afterTrack(tracked);
+    }
+
+    private static final class MetricAggregate {
+        String eventName;
+        double sum;
+        int count;
+
+        void add(TrackedEvent event) {
+            eventName = event.getEventName();
+            sum += event.getMetricValue();
+            count++;
+        }
+    }
+
     @Override
     public Future<Void> identify(LDContext context) {
         if (context == null) {
@@ -691,7 +895,7 @@ public class LDClient implements LDClientInterface, Closeable {
             }
 
             LDValue value = flag.getValue();
-            int variation = flag.getVariation() == null ? EvaluationDetail.NO_VARIATION : flag.getVariation();
+            int variation = flag.getVariationIndex();
             if (value.isNull()) {
                 logger.warn("Feature flag \"{}\" retrieved with no value; returning default value", key);
                 value = defaultValue;
@@ -707,7 +911,7 @@ public class LDClient implements LDClientInterface, Closeable {
                     context,
                     key,
                     flag.getVersionForEvents(),
-                    flag.getVariation() == null ? -1 : flag.getVariation().intValue(),
+                    variation,
                     value,
                     flag.isTrackReason() | needsReason ? result.getReason() : null,
                     defaultValue,
@@ -733,8 +937,7 @@ public class LDClient implements LDClientInterface, Closeable {
      */
     private EvaluationExposureKey exposureKey(EvaluationSeriesContext seriesContext, @Nullable Flag flag) {
         String flagKey = seriesContext.flagKey;
-        int variation = flag == null || flag.getVariation() == null
-                ? EvaluationDetail.NO_VARIATION : flag.getVariation();
+        int variation = flag == null ? EvaluationDetail.NO_VARIATION : flag.getVariationIndex();
         int flagVersion = flag == null ? EventProcessor.NO_VERSION : flag.getVersionForEvents();
         // The value the evaluation returns, which is the default value when there is no value to
         // return: a flag the SDK has no data for, and a flag whose data carries no value, both fall
@@ -757,6 +960,14 @@ public class LDClient implements LDClientInterface, Closeable {
     public void close() throws IOException {
         closeInstances();
 
+        SharedPreferencesPersistentDataStore store = defaultStore;
+        defaultStore = null;
+        if (store != null) {
+            // Waiting for the commit would block the caller, which may be the main thread; the
+            // flush thread goes on to commit whatever is waiting for the write-back delay.
+            store.flushAsynchronously();
+        }
+
         synchronized (initLock) {
             clientContextImpl.getTaskExecutor().close();
             clientContextImpl.getPlatformState().close();
@@ -765,6 +976,7 @@ public class LDClient implements LDClientInterface, Closeable {
 
     private void closeInternal() {
         connectivityManager.shutDown();
+        hookRunner.close();
         try {
             eventProcessor.close();
         } catch (IOException e) {
@@ -867,6 +1079,149 @@ public class LDClient implements LDClientInterface, Closeable {
         contextDataManager.unregisterAllFlagsListener(allFlagsListener);
     }
 
+    /**
+     * Returns a snapshot of what the analytics event pipeline has done: how many events it has
+     * buffered, dropped, and delivered, and how large and how slow its deliveries have been.
+     * <p>
+     * The snapshot is refreshed each time events are flushed, so between flushes it describes the
+     * pipeline as of the most recent one. If the SDK is not sending events, as when it was configured
+     * with {@link Components#noEvents()}, every value is zero.
+     *
+     * @return the most recent statistics snapshot; never null
+     * @see #registerEventFlushListener(LDEventFlushListener)
+     */
+    public EventProcessorStatistics getEventProcessorStatistics() {
+        EventProcessorInstrumentation instrumentation = getEventProcessorInstrumentation();
+        return instrumentation == null ? EventProcessorStatistics.EMPTY : instrumentation.getStatistics();
+    }
+
+    /**
+     * Returns how {@link LDClient#init(Application, LDConfig, LDContext, int)} spent its
+     * time for this client's environment: opening storage, loading cached flags, registering
+     * plugins, and waiting for the first result from LaunchDarkly, among other phases.
+     * <p>
+     * The report is complete once the client has got its first result from its data source, and is
+     * not available before then.
+     *
+     * @return the startup report, or null if startup is not over yet
+     * @see LDConfig.Builder#startupReportListener(LDStartupReportListener)
+     */
+    public StartupReport getStartupReport() {
+        return startupReport;
+    }
+
+    /**
+     * Returns how many evaluation contexts have flag data cached locally for this client's
+     * environment, and how large that data is.
+     * <p>
+     * The cache is limited by {@link LDConfig.Builder#maxCachedContexts(int)} and
+     * {@link LDConfig.Builder#maxCachedContextBytes(long)}.
+     *
+     * @return the current usage of the context cache
+     */
+    public ContextCacheUsage getContextCacheUsage() {
+        return contextDataManager.getCacheUsage();
+    }
+
+    /**
+     * Returns a snapshot of what the SDK's flag data persistence has done: how many commits to
+     * storage it has made and how long they took, how much it has written, how many writes are
+     * waiting, and how long decoding stored flag data took.
+     * <p>
+     * Persistence is shared by all environments, so every client returns the same values. A summary
+     * is also reported to LaunchDarkly in diagnostic events, unless
+     * {@link LDConfig.Builder#diagnosticOptOut(boolean)} is set.
+     *
+     * @return a statistics snapshot taken now; never null
+     */
+    public PersistenceStatistics getPersistenceStatistics() {
+        return clientContextImpl.getPerEnvironmentData().getInstrumentation().getStatistics();
+    }
+
+    /**
+     * Returns how many flag updates have not notified flag change listeners because they changed
+     * neither the flag's value nor its variation.
+     * <p>
+     * This is always zero unless the SDK was configured with
+     * {@link LDConfig.Builder#notifyOnlyOnFlagValueChange(boolean)}. It counts one for each flag in
+     * each update, since the SDK was initialized.
+     *
+     * @return the number of suppressed notifications
+     */
+    public long getSuppressedFlagChangeNotificationCount() {
+        return contextDataManager.getSuppressedNotificationCount();
+    }
+
+    /**
+     * Registers a {@link LDEventFlushListener} to be called after each attempt to deliver analytics
+     * events, with the statistics snapshot taken after that attempt.
+     *
+     * @param listener the listener to be called after each flush
+     */
+    public void registerEventFlushListener(LDEventFlushListener listener) {
+        EventProcessorInstrumentation instrumentation = getEventProcessorInstrumentation();
+        if (instrumentation != null && listener != null) {
+            instrumentation.addFlushListener(listener);
+        }
+    }
+
+    /**
+     * Unregisters a {@link LDEventFlushListener} so it will no longer be called after flushes.
+     *
+     * @param listener the listener to be removed
+     */
+    public void unregisterEventFlushListener(LDEventFlushListener listener) {
+        EventProcessorInstrumentation instrumentation = getEventProcessorInstrumentation();
+        if (instrumentation != null) {
+            instrumentation.removeFlushListener(listener);
+        }
+    }
+
+    /**
+     * Returns how long each registered hook's stages have taken, in the order the hooks were
+     * registered, including hooks added by plugins and with {@link #addHook(Hook)}.
+     * <p>
+     * Use it to find a hook that is slowing down evaluations, and to choose a budget for
+     * {@link com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder#bypassSlowHooks(long, int)}.
+     * Stages are only timed if a budget is set or
+     * {@link com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder#recordStatistics(boolean)}
+     * was; otherwise every latency is empty.
+     *
+     * @return a snapshot per hook; never null
+     */
+    public List<HookStatistics> getHookStatistics() {
+        return hookRunner.getStatistics();
+    }
+
+    /**
+     * Registers a {@link LDHookStatusListener} to be called when a hook is bypassed for exceeding
+     * the budget set with
+     * {@link com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder#bypassSlowHooks(long, int)}.
+     *
+     * @param listener the listener to be called when a hook is bypassed
+     */
+    public void registerHookStatusListener(LDHookStatusListener listener) {
+        if (listener != null) {
+            hookRunner.addStatusListener(listener);
+        }
+    }
+
+    /**
+     * Unregisters a {@link LDHookStatusListener} so it will no longer be called.
+     *
+     * @param listener the listener to be removed
+     */
+    public void unregisterHookStatusListener(LDHookStatusListener listener) {
+        hookRunner.removeStatusListener(listener);
+    }
+
+    private EventProcessorInstrumentation getEventProcessorInstrumentation() {
+        // Only the SDK's own event processor can report on itself; noEvents() and custom
+        // implementations have nothing to report.
+        return eventProcessor instanceof ComponentsImpl.InstrumentedEventProcessor ?
+                ((ComponentsImpl.InstrumentedEventProcessor) eventProcessor).getInstrumentation() : null;
+    }
+
     @Override
     public String getVersion() {
         return BuildConfig.VERSION_NAME;
@@ -8,6 +8,7 @@ import com.launchdarkly.sdk.LDValue;
 import com.launchdarkly.sdk.android.integrations.Hook;
 
 import java.io.Closeable;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Future;
 
@@ -121,6 +122,45 @@ public interface LDClientInterface extends Closeable {
      */
     void track(String eventName);
 
+    /**
+     * Tracks a batch of application-defined events, as if each had been passed to
+     * {@link #track(String)}, {@link #trackData(String, LDValue)}, or
+     * {@link #trackMetric(String, LDValue, double)} in turn.
+     * <p>
+     * The whole batch is tracked for the evaluation context that is current when this method is
+     * called. Hooks see it as one track series: each registered hook's
+     * {@link Hook#afterTrackBatch(List)} stage is called once, with the events in the order of the
+     * batch, after all of them have been enqueued. By default that stage calls the hook's
+     * {@code afterTrack} for each event, so hooks that do not know about batches see the same events,
+     * in the same order, as they would from calling the single-event methods in a loop.
+     * <p>
+     * Null entries in the list are ignored.
+     *
+     * @param events the events to track
+     * @see #trackBatch(List, boolean)
+     */
+    void trackBatch(List<TrackedEvent> events);
+
+    /**
+     * Tracks a batch of application-defined events, optionally combining metric events before they
+     * are recorded.
+     * <p>
+     * If {@code aggregateMetrics} is true, every metric event in the batch that has no custom data
+     * is combined with the others of the same name into a single event, whose metric value is their
+     * sum and whose data is an object with a {@code "count"} property holding how many were combined.
+     * That turns hundreds of samples of one metric into a single event, at the cost of the individual
+     * values; only aggregate metrics whose experiment or export uses the sum. Other events are
+     * tracked as they are. Combined events are tracked, and seen by hooks, where the first event of
+     * their name was in the batch.
+     * <p>
+     * With {@code aggregateMetrics} false this is the same as {@link #trackBatch(List)}.
+     *
+     * @param events           the events to track
+     * @param aggregateMetrics true to combine metric events with no data by name
+     * @see #trackBatch(List)
+     */
+    void trackBatch(List<TrackedEvent> events, boolean aggregateMetrics);
+
     /**
      * Changes the current evaluation context, requests flags for that context from LaunchDarkly if we are online,
      * and generates an analytics event to tell LaunchDarkly about the context.
@@ -28,6 +28,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 import okhttp3.MediaType;
 
@@ -63,6 +64,9 @@ public class LDConfig {
     static final String primaryEnvironmentName = "default";
 
     static final int DEFAULT_MAX_CACHED_CONTEXTS = 5;
+    static final long NO_MAX_CACHED_CONTEXT_BYTES = -1;
+    static final long NO_MAX_CACHED_CONTEXT_AGE = -1;
+    static final int NO_CACHED_FLAG_DATA_COMPRESSION = -1;
     static final int DEFAULT_CONNECTION_TIMEOUT_MILLIS = 10_000; // 10 seconds
 
     private final Map<String, String> mobileKeys;
@@ -86,8 +90,19 @@ public class LDConfig {
     private final LDLogAdapter logAdapter;
     private final String loggerName;
     private final int maxCachedContexts;
+    private final long maxCachedContextBytes;
+    private final long maxCachedContextAgeMillis;
+    private final boolean evictLeastFrequentlyUsedContexts;
+    private final int cachedFlagDataCompressionThreshold;
     private final boolean offline;
     private final long connectionModeStateDebounceMs;
+    private final int flagChangeCoalesceWindowMillis;
+    private final Executor flagChangeListenerExecutor;
+    private final boolean notifyOnlyOnFlagValueChange;
+    private final boolean loadCachedFlagsInBackground;
+    private final LDStartupReportListener startupReportListener;
+    private final int persistenceWriteBackDelayMillis;
+    private final int persistenceMaxDirtyAgeMillis;
     private final PersistentDataStore persistentDataStore; // configurable for testing only
 
     LDConfig(Map<String, String> mobileKeys,
@@ -104,9 +119,20 @@ public class LDConfig {
              boolean evaluationReasons,
              boolean diagnosticOptOut,
              int maxCachedContexts,
+             long maxCachedContextBytes,
+             long maxCachedContextAgeMillis,
+             boolean evictLeastFrequentlyUsedContexts,
+             int cachedFlagDataCompressionThreshold,
              boolean generateAnonymousKeys,
              boolean autoEnvAttributes,
              long connectionModeStateDebounceMs,
+             int flagChangeCoalesceWindowMillis,
+             Executor flagChangeListenerExecutor,
+             boolean notifyOnlyOnFlagValueChange,
+             boolean loadCachedFlagsInBackground,
+             LDStartupReportListener startupReportListener,
+             int persistenceWriteBackDelayMillis,
+             int persistenceMaxDirtyAgeMillis,
              PersistentDataStore persistentDataStore,
              LDLogAdapter logAdapter,
              String loggerName) {
@@ -124,9 +150,20 @@ public class LDConfig {
         this.evaluationReasons = evaluationReasons;
         this.diagnosticOptOut = diagnosticOptOut;
         this.maxCachedContexts = maxCachedContexts;
+        this.maxCachedContextBytes = maxCachedContextBytes;
+        this.maxCachedContextAgeMillis = maxCachedContextAgeMillis;
+        this.evictLeastFrequentlyUsedContexts = evictLeastFrequentlyUsedContexts;
+        this.cachedFlagDataCompressionThreshold = cachedFlagDataCompressionThreshold;
         this.generateAnonymousKeys = generateAnonymousKeys;
         this.autoEnvAttributes = autoEnvAttributes;
         this.connectionModeStateDebounceMs = connectionModeStateDebounceMs;
+        this.flagChangeCoalesceWindowMillis = flagChangeCoalesceWindowMillis;
+        this.flagChangeListenerExecutor = flagChangeListenerExecutor;
+        this.notifyOnlyOnFlagValueChange = notifyOnlyOnFlagValueChange;
+        this.loadCachedFlagsInBackground = loadCachedFlagsInBackground;
+        this.startupReportListener = startupReportListener;
+        this.persistenceWriteBackDelayMillis = persistenceWriteBackDelayMillis;
+        this.persistenceMaxDirtyAgeMillis = persistenceMaxDirtyAgeMillis;
         this.persistentDataStore = persistentDataStore;
         this.logAdapter = logAdapter;
         this.loggerName = loggerName;
@@ -195,6 +232,36 @@ public class LDConfig {
         return maxCachedContexts;
     }
 
+    /**
+     * @return the maximum total size of cached flag data, or {@link #NO_MAX_CACHED_CONTEXT_BYTES}
+     */
+    long getMaxCachedContextBytes() {
+        return maxCachedContextBytes;
+    }
+
+    /**
+     * @return how long a context's cached flag data is kept after it was last used, in
+     * milliseconds, or {@link #NO_MAX_CACHED_CONTEXT_AGE}
+     */
+    long getMaxCachedContextAgeMillis() {
+        return maxCachedContextAgeMillis;
+    }
+
+    /**
+     * @return true if {@link #getMaxCachedContexts()} is enforced by removing the least often used
+     * contexts first, rather than the least recently used
+     */
+    boolean isEvictLeastFrequentlyUsedContexts() {
+        return evictLeastFrequentlyUsedContexts;
+    }
+
+    /**
+     * @return the shortest cached flag data to compress, or {@link #NO_CACHED_FLAG_DATA_COMPRESSION}
+     */
+    int getCachedFlagDataCompressionThreshold() {
+        return cachedFlagDataCompressionThreshold;
+    }
+
     /**
      * @return true if keys should be generated for anonymous contexts, false otherwise
      */
@@ -207,6 +274,60 @@ public class LDConfig {
         return autoEnvAttributes;
     }
 
+    /**
+     * @return how long to collect flag changes before notifying listeners of them, or
+     * {@link FlagChangeDispatcher#NO_COALESCING}
+     */
+    int getFlagChangeCoalesceWindowMillis() {
+        return flagChangeCoalesceWindowMillis;
+    }
+
+    /**
+     * @return the executor that flag change listeners are called on, or null for the main thread
+     */
+    @Nullable
+    Executor getFlagChangeListenerExecutor() {
+        return flagChangeListenerExecutor;
+    }
+
+    /**
+     * @return true if flag updates that change neither a flag's value nor its variation should not
+     * notify listeners
+     */
+    boolean isNotifyOnlyOnFlagValueChange() {
+        return notifyOnlyOnFlagValueChange;
+    }
+
+    /**
+     * @return true if cached flags for a newly identified context should be read and decoded on a
+     * worker thread
+     */
+    boolean isLoadCachedFlagsInBackground() {
+        return loadCachedFlagsInBackground;
+    }
+
+    /**
+     * @return the listener for startup reports, or null if there is none
+     */
+    @Nullable
+    LDStartupReportListener getStartupReportListener() {
+        return startupReportListener;
+    }
+
+    /**
+     * @return how long the default persistent store waits after a write before committing it
+     */
+    int getPersistenceWriteBackDelayMillis() {
+        return persistenceWriteBackDelayMillis;
+    }
+
+    /**
+     * @return the longest that the default persistent store lets a write wait to be committed
+     */
+    int getPersistenceMaxDirtyAgeMillis() {
+        return persistenceMaxDirtyAgeMillis;
+    }
+
     PersistentDataStore getPersistentDataStore() { return persistentDataStore; }
 
     LDLogAdapter getLogAdapter() { return logAdapter; }
@@ -263,6 +384,10 @@ public class LDConfig {
         private ComponentConfigurer<HttpConfiguration> http = null;
 
         private int maxCachedContexts = DEFAULT_MAX_CACHED_CONTEXTS;
+        private long maxCachedContextBytes = NO_MAX_CACHED_CONTEXT_BYTES;
+        private long maxCachedContextAgeMillis = NO_MAX_CACHED_CONTEXT_AGE;
+        private boolean evictLeastFrequentlyUsedContexts = false;
+        private int cachedFlagDataCompressionThreshold = NO_CACHED_FLAG_DATA_COMPRESSION;
 
         private boolean offline = false;
         private boolean disableBackgroundUpdating = false;
@@ -275,9 +400,17 @@ public class LDConfig {
         private boolean autoEnvAttributes = false;
 
         private PersistentDataStore persistentDataStore;
+        private int persistenceWriteBackDelayMillis = 0;
+        private int persistenceMaxDirtyAgeMillis = 0;
 
         private long connectionModeStateDebounceMs = StateDebounceManager.DEFAULT_DEBOUNCE_MS;
 
+        private int flagChangeCoalesceWindowMillis = FlagChangeDispatcher.NO_COALESCING;
+        private Executor flagChangeListenerExecutor = null;
+        private boolean notifyOnlyOnFlagValueChange = false;
+        private boolean loadCachedFlagsInBackground = false;
+        private LDStartupReportListener startupReportListener = null;
+
         private LDLogAdapter logAdapter = defaultLogAdapter();
         private String loggerName = LDPackageConsts.DEFAULT_LOGGER_NAME;
         private LDLogLevel logLevel = null;
@@ -629,6 +762,250 @@ public class LDConfig {
             return this;
         }
 
+        /**
+         * Sets the maximum total size of the flag data cached locally for all evaluation contexts.
+         * <p>
+         * The number of contexts set by {@link #maxCachedContexts(int)} says little about how much
+         * storage the cache takes when some contexts have many more flags than others. With this
+         * limit as well, the SDK removes the least recently used contexts' data until the total is
+         * within it. The active evaluation context's data is always kept, even if it is larger than
+         * the limit on its own.
+         * <p>
+         * The size of a context's data is the length of the JSON that is stored for it, which is its
+         * size in bytes unless flag values hold non-ASCII text, or the length of the compressed form
+         * if {@link #cachedFlagDataCompressionThreshold(int)} applies to it. The size of data stored by an SDK
+         * version that did not record it is not known until the data is stored again, and counts as
+         * zero until then. {@link LDClient#getContextCacheUsage()} reports the current total.
+         * <p>
+         * If not specified, there is no limit on the total size.
+         *
+         * @param maxCachedContextBytes the maximum total size in bytes; a negative value means no limit
+         * @return the builder
+         */
+        public Builder maxCachedContextBytes(long maxCachedContextBytes) {
+            this.maxCachedContextBytes = maxCachedContextBytes;
+            return this;
+        }
+
+        /**
+         * Sets how long the flag data cached locally for an evaluation context is kept after the
+         * context was last used.
+         * <p>
+         * A context counts as used when flag data is stored for it. Data that has not been used for
+         * longer than this is removed the next time the SDK stores flag data, even if
+         * {@link #maxCachedContexts(int)} would allow it to be kept. The active evaluation context's
+         * data is always kept.
+         * <p>
+         * The time of a use is only recorded to within a minute, so that flag updates for the active
+         * context do not each rewrite the index of cached contexts.
+         * <p>
+         * If not specified, cached data is kept for as long as the other limits allow.
+         *
+         * @param maxCachedContextAgeMillis the maximum time in milliseconds; a negative value means
+         *                                  no limit
+         * @return the builder
+         */
+        public Builder maxCachedContextAgeMillis(long maxCachedContextAgeMillis) {
+            this.maxCachedContextAgeMillis = maxCachedContextAgeMillis;
+            return this;
+        }
+
+        /**
+         * Sets whether {@link #maxCachedContexts(int)} removes the cached flag data of the least
+         * often used evaluation contexts first, rather than that of the least recently used.
+         * <p>
+         * The SDK counts how many times it has switched to each cached context, with
+         * {@link LDClient#identify(LDContext)} or at startup. Counting by use suits apps that return
+         * to a few contexts often but also visit others once, which would otherwise push the frequent
+         * ones out. Contexts used equally often are removed least recently used first, and the
+         * active evaluation context's data is always kept.
+         * <p>
+         * Use counts are not recorded by SDK versions before this option was added, so contexts
+         * cached by one start from zero.
+         * <p>
+         * If not specified, the default is false: the least recently used are removed first.
+         *
+         * @param evictLeastFrequentlyUsedContexts true to remove the least often used first
+         * @return the builder
+         */
+        public Builder evictLeastFrequentlyUsedContexts(boolean evictLeastFrequentlyUsedContexts) {
+            this.evictLeastFrequentlyUsedContexts = evictLeastFrequentlyUsedContexts;
+            return this;
+        }
+
+        /**
+         * Sets how large a context's flag data must be for the SDK to compress it when caching it
+         * locally.
+         * <p>
+         * Android reads a whole SharedPreferences file into memory when it is first used, and
+         * rewrites the whole file on every commit, so environments with many flags or large flag
+         * values make both slow. Compressed data is typically several times smaller, but has to be
+         * decompressed each time the SDK loads cached flags, such as at startup and when changing
+         * contexts. Compare {@link PersistenceStatistics#getFlagDataDecompressLatency()} with
+         * {@link PersistenceStatistics#getCommitLatency()}, from
+         * {@link LDClient#getPersistenceStatistics()}, to see whether it helps on your users' devices.
+         * <p>
+         * The size is the length of the JSON. Data is stored uncompressed if compressing it would not
+         * make it smaller. Data stored either way can be read whatever this is set to, so it can be
+         * changed at any time. Earlier SDK versions cannot read compressed data, and treat it as if
+         * nothing was cached.
+         * <p>
+         * If not specified, data is never compressed.
+         *
+         * @param cachedFlagDataCompressionThreshold the shortest flag data to compress, in
+         *                                           characters; a negative value means never
+         * @return the builder
+         */
+        public Builder cachedFlagDataCompressionThreshold(int cachedFlagDataCompressionThreshold) {
+            this.cachedFlagDataCompressionThreshold = cachedFlagDataCompressionThreshold;
+            return this;
+        }
+
+        /**
+         * Sets how long the SDK waits after storing flag data before writing it to
+         * SharedPreferences, so that several updates in quick succession are written at once.
+         * <p>
+         * By default, the SDK writes to SharedPreferences in the background as soon as it can, so
+         * a burst of streaming updates becomes a burst of writes to the device's storage. With
+         * this option, each update postpones the write by this long, up to the limit set by
+         * {@link #persistenceMaxDirtyAgeMillis(int)}. Until then, the SDK reads its own data from
+         * memory. Everything that is waiting is written at once when the application goes to the
+         * background, when the device is low on memory, and when the client is closed, so a
+         * delay only risks losing updates if the process is killed while in the foreground.
+         * <p>
+         * If not specified, the default is 0, meaning no delay.
+         *
+         * @param persistenceWriteBackDelayMillis the delay in milliseconds; zero or negative for none
+         * @return the builder
+         * @see #persistenceMaxDirtyAgeMillis(int)
+         */
+        public Builder persistenceWriteBackDelayMillis(int persistenceWriteBackDelayMillis) {
+            this.persistenceWriteBackDelayMillis = persistenceWriteBackDelayMillis;
+            return this;
+        }
+
+        /**
+         * Sets the longest time that stored flag data may wait to be written to SharedPreferences
+         * when {@link #persistenceWriteBackDelayMillis(int)} is set, however often it is updated.
+         * <p>
+         * If not specified, or less than the write-back delay, the write-back delay is used, so
+         * that a write is never postponed more than once.
+         *
+         * @param persistenceMaxDirtyAgeMillis the maximum time in milliseconds
+         * @return the builder
+         */
+        public Builder persistenceMaxDirtyAgeMillis(int persistenceMaxDirtyAgeMillis) {
+            this.persistenceMaxDirtyAgeMillis = persistenceMaxDirtyAgeMillis;
+            return this;
+        }
+
+        /**
+         * Sets how long the SDK collects flag changes before telling listeners about them.
+         * <p>
+         * By default, every update the SDK receives is passed to the
+         * {@link FeatureFlagChangeListener}s and {@link LDAllFlagsListener}s on its own, so a burst
+         * of streaming updates becomes a burst of listener calls. With this option, changes are
+         * collected into a batch: each {@link LDAllFlagsListener} is called once with every key in
+         * the batch, and each {@link FeatureFlagChangeListener} once for its flag, however many times
+         * that flag changed in the meantime.
+         * <p>
+         * With a window of zero, a batch holds the changes that arrive before the listeners next get
+         * to run, which on the main thread is usually within a frame. With a positive window, it holds
+         * those that arrive within that many milliseconds of the first. A negative value turns batching
+         * off, which is the default.
+         *
+         * @param windowMillis how long to collect changes, in milliseconds; zero to collect them until
+         *                     the listeners run, or negative to call listeners for each update
+         * @return the builder
+         * @see #flagChangeListenerExecutor(Executor)
+         */
+        public Builder coalesceFlagChangeNotifications(int windowMillis) {
+            this.flagChangeCoalesceWindowMillis = Math.max(FlagChangeDispatcher.NO_COALESCING, windowMillis);
+            return this;
+        }
+
+        /**
+         * Sets the executor that {@link FeatureFlagChangeListener}s and {@link LDAllFlagsListener}s
+         * are called on.
+         * <p>
+         * By default, listeners are called on the main thread. If none of your listeners touch the
+         * UI, you can give them a background executor instead to keep that work off the main thread;
+         * a single-threaded executor keeps calls in the order the changes arrived. A listener that
+         * needs the UI must then switch to the main thread itself.
+         *
+         * @param executor the executor, or null to use the main thread
+         * @return the builder
+         * @see #coalesceFlagChangeNotifications(int)
+         */
+        public Builder flagChangeListenerExecutor(Executor executor) {
+            this.flagChangeListenerExecutor = executor;
+            return this;
+        }
+
+        /**
+         * Set to {@code true} to notify listeners of a streamed flag update only if it changes the
+         * flag's value or variation.
+         * <p>
+         * By default, every update that the SDK receives for a single flag notifies that flag's
+         * {@link FeatureFlagChangeListener}s and the {@link LDAllFlagsListener}s, even when only
+         * the flag's version changed and its evaluation result is the same, because applications
+         * may have come to rely on it. With this option, such an update is still stored but does not
+         * notify anyone; an update that adds or deletes a flag always does. Changes arising from a
+         * full set of flag data, as when switching contexts, are already compared by value.
+         * <p>
+         * {@link LDClient#getSuppressedFlagChangeNotificationCount()} reports how many updates this
+         * has kept from listeners.
+         *
+         * @param notifyOnlyOnFlagValueChange true to skip notifications for updates that change
+         *                                    neither value nor variation
+         * @return the builder
+         */
+        public Builder notifyOnlyOnFlagValueChange(boolean notifyOnlyOnFlagValueChange) {
+            this.notifyOnlyOnFlagValueChange = notifyOnlyOnFlagValueChange;
+            return this;
+        }
+
+        /**
+         * Set to {@code true} to load a context's cached flags on a worker thread when
+         * {@link LDClient#identify(LDContext)} switches to it.
+         * <p>
+         * By default, {@code identify} reads and decodes the new context's cached flags before it
+         * returns, so they are available for evaluations straight away; with many flags, that can
+         * take long enough on the main thread to stall the UI. With this option, {@code identify}
+         * returns at once, evaluations return their default values until the cached flags are
+         * loaded, and flag data received from LaunchDarkly before then takes precedence over the
+         * cache. The {@link java.util.concurrent.Future} returned by {@code identify} completes as
+         * soon as cached flags are loaded, without waiting for LaunchDarkly; if there are none, it
+         * completes as it otherwise would, but not before the cache has been read.
+         * <p>
+         * This does not affect the flags loaded by {@link LDClient#init(android.app.Application, LDConfig, LDContext, int)},
+         * which are always available by the time it returns.
+         *
+         * @param loadCachedFlagsInBackground true to load cached flags for identified contexts in
+         *                                    the background
+         * @return the builder
+         */
+        public Builder loadCachedFlagsInBackground(boolean loadCachedFlagsInBackground) {
+            this.loadCachedFlagsInBackground = loadCachedFlagsInBackground;
+            return this;
+        }
+
+        /**
+         * Sets a listener to be told how {@link LDClient#init(android.app.Application, LDConfig, LDContext, int)}
+         * spent its time, once for each environment when its startup is over.
+         * <p>
+         * The same report is available afterwards from {@link LDClient#getStartupReport()}; the
+         * listener is for applications that want it as soon as it is ready, for example to log it
+         * along with their own startup timings.
+         *
+         * @param listener the listener, or null for none
+         * @return the builder
+         */
+        public Builder startupReportListener(LDStartupReportListener listener) {
+            this.startupReportListener = listener;
+            return this;
+        }
+
         /**
          * Set to {@code true} to make the SDK provide unique keys for anonymous contexts.
          * <p>
@@ -837,9 +1214,20 @@ public class LDConfig {
                     evaluationReasons,
                     diagnosticOptOut,
                     maxCachedContexts,
+                    maxCachedContextBytes,
+                    maxCachedContextAgeMillis,
+                    evictLeastFrequentlyUsedContexts,
+                    cachedFlagDataCompressionThreshold,
                     generateAnonymousKeys,
                     autoEnvAttributes,
                     connectionModeStateDebounceMs,
+                    flagChangeCoalesceWindowMillis,
+                    flagChangeListenerExecutor,
+                    notifyOnlyOnFlagValueChange,
+                    loadCachedFlagsInBackground,
+                    startupReportListener,
+                    persistenceWriteBackDelayMillis,
+                    persistenceMaxDirtyAgeMillis,
                     persistentDataStore,
                     actualLogAdapter,
                     loggerName);
@@ -0,0 +1,19 @@
+package com.launchdarkly.sdk.android;
+
+/**
+ * Listener for deliveries of analytics events to LaunchDarkly.
+ * <p>
+ * The listener is called on the SDK's event delivery thread, after each attempt to deliver a
+ * payload, whether or not it succeeded. It should return quickly, and must not block on anything
+ * that waits for events to be flushed.
+ *
+ * @see LDClient#registerEventFlushListener(LDEventFlushListener)
+ */
+public interface LDEventFlushListener {
+    /**
+     * Invoked after each attempt to deliver a payload of events.
+     *
+     * @param statistics the state of the event pipeline after the attempt
+     */
+    void onEventsFlushed(EventProcessorStatistics statistics);
+}
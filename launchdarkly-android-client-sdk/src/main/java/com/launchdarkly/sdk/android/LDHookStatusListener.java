@@ -0,0 +1,22 @@
+package com.launchdarkly.sdk.android;
+
+import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder;
+
+/**
+ * Listener for hooks that the SDK stops calling because they are too slow.
+ * <p>
+ * The listener is called on the thread that ran the stage which tripped the budget set with
+ * {@link HooksConfigurationBuilder#bypassSlowHooks(long, int)}, which for an evaluation is often the
+ * main thread, so it should return quickly.
+ *
+ * @see LDClient#registerHookStatusListener(LDHookStatusListener)
+ */
+public interface LDHookStatusListener {
+    /**
+     * Invoked once for a hook, when the SDK stops calling it.
+     *
+     * @param statistics the hook's statistics as of the stage that tripped the budget
+     * @param stage      that stage
+     */
+    void onHookBypassed(HookStatistics statistics, HookStatistics.Stage stage);
+}
@@ -0,0 +1,18 @@
+package com.launchdarkly.sdk.android;
+
+/**
+ * Listener for the end of startup for each environment.
+ * <p>
+ * The listener is called on the main thread, once for each environment, when the client for that
+ * environment has got its first result from its data source.
+ *
+ * @see LDConfig.Builder#startupReportListener(LDStartupReportListener)
+ */
+public interface LDStartupReportListener {
+    /**
+     * Invoked when startup is over for one environment.
+     *
+     * @param report how startup spent its time for that environment
+     */
+    void onStartupReport(StartupReport report);
+}
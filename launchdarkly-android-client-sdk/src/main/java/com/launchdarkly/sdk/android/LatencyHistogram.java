@@ -0,0 +1,209 @@
+package com.launchdarkly.sdk.android;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * An immutable snapshot of how long some operation in the SDK has taken, as a histogram of
+ * durations.
+ * <p>
+ * Durations are counted into buckets whose upper bounds are powers of two, in microseconds: the
+ * first bucket holds durations of up to 1µs, the next those over 1µs and up to 2µs, and so on, with
+ * the last bucket holding everything longer than the bound before it. That is coarse, but it is
+ * fixed, so snapshots taken at different times or on different devices can be compared bucket by
+ * bucket, and recording a duration costs a few atomic increments and no allocation.
+ * <p>
+ * Instances are obtained from the SDK's statistics APIs, such as
+ * {@link EventProcessorStatistics#getFlushLatency()}.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ */
+public final class LatencyHistogram {
+    /**
+     * The number of buckets in every histogram, including the last one, which is unbounded.
+     */
+    public static final int BUCKET_COUNT = 26;
+
+    /**
+     * A histogram with nothing recorded.
+     */
+    public static final LatencyHistogram EMPTY = new LatencyHistogram(new long[BUCKET_COUNT], 0, 0, 0);
+
+    private final long[] bucketCounts;
+    private final long count;
+    private final long totalMicros;
+    private final long maxMicros;
+
+    private LatencyHistogram(long[] bucketCounts, long count, long totalMicros, long maxMicros) {
+        this.bucketCounts = bucketCounts;
+        this.count = count;
+        this.totalMicros = totalMicros;
+        this.maxMicros = maxMicros;
+    }
+
+    /**
+     * Returns the inclusive upper bound of a bucket.
+     *
+     * @param bucket a bucket index, from 0 to {@code BUCKET_COUNT - 1}
+     * @return the longest duration the bucket holds, in microseconds, or {@link Long#MAX_VALUE} for
+     *         the last bucket
+     */
+    public static long getBucketUpperBoundMicros(int bucket) {
+        return bucket >= BUCKET_COUNT - 1 ? Long.MAX_VALUE : 1L << bucket;
+    }
+
+    /**
+     * Returns the bucket that a duration falls into.
+     *
+     * @param micros a duration in microseconds; a negative one is treated as zero
+     * @return a bucket index, from 0 to {@code BUCKET_COUNT - 1}
+     */
+    public static int getBucketForMicros(long micros) {
+        if (micros <= 1) {
+            return 0;
+        }
+        // Bucket i holds (2^(i-1), 2^i], so it is the bit length of micros - 1.
+        return Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(micros - 1));
+    }
+
+    /**
+     * Creates a histogram from counts that were kept elsewhere, such as by a hook that measures
+     * durations of its own.
+     *
+     * @param bucketCounts how many durations fell into each bucket; it is copied, and must have
+     *                     {@link #BUCKET_COUNT} elements
+     * @param totalMicros  the sum of the durations, in microseconds
+     * @param maxMicros    the longest duration, in microseconds
+     * @return a histogram
+     * @throws IllegalArgumentException if {@code bucketCounts} has the wrong length
+     */
+    public static LatencyHistogram fromBucketCounts(long[] bucketCounts, long totalMicros, long maxMicros) {
+        if (bucketCounts == null || bucketCounts.length != BUCKET_COUNT) {
+            throw new IllegalArgumentException("bucketCounts must have " + BUCKET_COUNT + " elements");
+        }
+        long count = 0;
+        for (long c : bucketCounts) {
+            count += c;
+        }
+        return new LatencyHistogram(bucketCounts.clone(), count, totalMicros, maxMicros);
+    }
+
+    /**
+     * @param bucket a bucket index, from 0 to {@code BUCKET_COUNT - 1}
+     * @return how many durations fell into that bucket
+     */
+    public long getBucketCount(int bucket) {
+        return bucketCounts[bucket];
+    }
+
+    /**
+     * @return how many durations were recorded
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the sum of every duration recorded, in microseconds
+     */
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    /**
+     * @return the longest duration recorded, in microseconds, or zero if none was
+     */
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    /**
+     * @return the mean duration, in microseconds, or zero if none was recorded
+     */
+    public double getMeanMicros() {
+        return count == 0 ? 0 : (double) totalMicros / count;
+    }
+
+    /**
+     * Estimates a percentile from the buckets. The estimate is the upper bound of the bucket the
+     * percentile falls into, so it errs long by at most a factor of two; for the last bucket, whose
+     * bound is unlimited, it is the longest duration recorded.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the estimated duration in microseconds, or zero if none was recorded
+     */
+    public long getPercentileMicros(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(count * Math.max(0, Math.min(100, percentile)) / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT - 1; i++) {
+            seen += bucketCounts[i];
+            if (seen >= rank && seen > 0) {
+                return Math.min(getBucketUpperBoundMicros(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencyHistogram(count=" + count + ", meanMicros=" + getMeanMicros()
+                + ", p50Micros=" + getPercentileMicros(50) + ", p99Micros=" + getPercentileMicros(99)
+                + ", maxMicros=" + maxMicros + ")";
+    }
+
+    /**
+     * Records durations into a histogram. Recording is thread-safe and does not allocate; a
+     * snapshot taken while durations are being recorded may count a duration in its total before
+     * its bucket, but never loses one.
+     */
+    static final class Recorder {
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        /**
+         * Records one duration.
+         *
+         * @param nanos the duration in nanoseconds; a negative duration, which a clock that is not
+         *              monotonic can produce, is recorded as zero
+         */
+        void recordNanos(long nanos) {
+            long micros = Math.max(0, nanos) / 1000;
+            bucketCounts.incrementAndGet(getBucketForMicros(micros));
+            count.incrementAndGet();
+            totalMicros.addAndGet(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        /**
+         * @return an immutable copy of what has been recorded so far
+         */
+        LatencyHistogram snapshot() {
+            long[] counts = new long[BUCKET_COUNT];
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts[i] = bucketCounts.get(i);
+            }
+            return new LatencyHistogram(counts, count.get(), totalMicros.get(), maxMicros.get());
+        }
+
+        /**
+         * Forgets everything recorded so far.
+         */
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                bucketCounts.set(i, 0);
+            }
+            count.set(0);
+            totalMicros.set(0);
+            maxMicros.set(0);
+        }
+    }
+}
@@ -0,0 +1,457 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+
+import com.launchdarkly.sdk.android.DataModel.Flag;
+import com.launchdarkly.sdk.internal.GsonHelpers;
+import com.launchdarkly.sdk.json.SerializationException;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A map of flag keys to flags that is backed by the JSON the flags were stored as, and only decodes
+ * each flag the first time it is asked for, as {@link EnvironmentData#fromJsonLazily(String)}
+ * returns.
+ * <p>
+ * Loading a context's cached flags decoded every one of them, although a session typically
+ * evaluates only a few. Instead, this scans the JSON once, noting where each flag's value starts and
+ * ends, which costs much less than decoding it. {@link #get(Object)} decodes a flag then, and keeps
+ * the result. Iterating decodes whatever has not been decoded yet, so everything that works with a
+ * map, such as getting all flags or comparing data sets, still does.
+ * <p>
+ * Copies made by {@link #copy()} share the JSON and the decoded flags, so copying is as cheap as
+ * copying a map of that size, and a flag that is decoded through either copy is decoded for both.
+ * Each map lets go of the JSON once every flag it holds that was read from it has been decoded, so
+ * the JSON can be collected once no copy needs it; until then it is kept rather than decoding the
+ * rest, which would cost more memory than the JSON does.
+ * Copies can be modified, which replaces or removes entries in that copy only. {@link #toJson()}
+ * writes flags that have not been replaced as the JSON they were read from, so storing data that was
+ * loaded this way does not decode it either.
+ * <p>
+ * The JSON is checked for structure when it is scanned, but a flag's own properties are not looked
+ * at until it is decoded. A flag that cannot be decoded then, which only happens if the stored data
+ * was corrupted, is treated as deleted, so it is not used, and it is replaced like any other when
+ * new flag data arrives.
+ * <p>
+ * Reading a map that is not being modified is thread-safe; decoding the same flag on two threads at
+ * once just decodes it twice.
+ * <p>
+ * If it is given a {@link PersistenceInstrumentation}, each flag's decoding is timed there, since it
+ * is the part of loading stored data that happens after the data is returned.
+ */
+final class LazyFlagMap extends AbstractMap<String, Flag> {
+    private static final class Slot {
+        // Where the flag's JSON is in the source, or -1 if it was not read from the source.
+        final int start;
+        final int end;
+        volatile Flag flag;
+
+        Slot(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        Slot(Flag flag) {
+            this(-1, -1);
+            this.flag = flag;
+        }
+    }
+
+    // The JSON the flags were read from; null once no slot in this map needs it. Only set to null
+    // after every such slot's flag is set, so a reader that finds it null will find the flag.
+    private volatile String json;
+    private final HashMap<String, Slot> slots;
+    // How many slots may still need the JSON. It can be too high, since flags decoded through a copy
+    // are not counted here, or too low, if two threads decode the same flag at once; so when it
+    // reaches zero, the slots are counted again before the JSON is let go of.
+    private final AtomicInteger undecodedCount;
+    private final PersistenceInstrumentation instrumentation; // may be null
+    private EntrySet entrySet;
+
+    private LazyFlagMap(String json, HashMap<String, Slot> slots, PersistenceInstrumentation instrumentation) {
+        this.slots = slots;
+        this.instrumentation = instrumentation;
+        int undecoded = countUndecoded(slots);
+        this.undecodedCount = new AtomicInteger(undecoded);
+        this.json = undecoded == 0 ? null : json;
+    }
+
+    /**
+     * Scans a JSON object whose property names are flag keys and whose values are flags.
+     *
+     * @param json the JSON
+     * @return a map that decodes the flags as they are asked for
+     * @throws SerializationException if the JSON is not an object, or is malformed
+     */
+    static LazyFlagMap parse(String json) throws SerializationException {
+        return parse(json, null);
+    }
+
+    /**
+     * Like {@link #parse(String)}, and records how long each flag takes to decode.
+     *
+     * @param json the JSON
+     * @param instrumentation where to record how long each flag takes to decode, or null
+     * @return a map that decodes the flags as they are asked for
+     * @throws SerializationException if the JSON is not an object, or is malformed
+     */
+    static LazyFlagMap parse(String json, PersistenceInstrumentation instrumentation)
+            throws SerializationException {
+        Scanner s = new Scanner(json);
+        HashMap<String, Slot> slots = new HashMap<>();
+        FlagDataPool pool = FlagDataPool.shared();
+        try {
+            s.skipWhitespace();
+            s.expect('{');
+            s.skipWhitespace();
+            if (s.peek() == '}') {
+                s.pos++;
+            } else {
+                while (true) {
+                    String key = s.readString();
+                    s.skipWhitespace();
+                    s.expect(':');
+                    s.skipWhitespace();
+                    int start = s.pos;
+                    s.skipValue();
+                    slots.put(pool.internKey(key), new Slot(start, s.pos));
+                    s.skipWhitespace();
+                    if (s.peek() == ',') {
+                        s.pos++;
+                        s.skipWhitespace();
+                    } else {
+                        s.expect('}');
+                        break;
+                    }
+                }
+            }
+            s.skipWhitespace();
+            if (s.pos != json.length()) {
+                throw new IllegalArgumentException("unexpected data after end of object at " + s.pos);
+            }
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new SerializationException(e);
+        }
+        return new LazyFlagMap(json, slots, instrumentation);
+    }
+
+    /**
+     * @return a modifiable copy that shares this map's JSON and decoded flags
+     */
+    LazyFlagMap copy() {
+        return new LazyFlagMap(json, new HashMap<>(slots), instrumentation);
+    }
+
+    /**
+     * @return true if this map still holds the JSON it was read from; for tests
+     */
+    boolean holdsSource() {
+        return json != null;
+    }
+
+    /**
+     * @return how many flags have been decoded or put into this map; for tests
+     */
+    int decodedCount() {
+        int count = 0;
+        for (Slot slot : slots.values()) {
+            if (slot.flag != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public int size() {
+        return slots.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slots.containsKey(key);
+    }
+
+    @Override
+    public Flag get(Object key) {
+        Slot slot = slots.get(key);
+        return slot == null ? null : materialize((String) key, slot);
+    }
+
+    @Override
+    public Flag put(String key, Flag flag) {
+        Slot old = slots.put(key, new Slot(flag));
+        return old == null ? null : materialize(key, old);
+    }
+
+    @Override
+    public Flag remove(Object key) {
+        Slot old = slots.remove(key);
+        return old == null ? null : materialize((String) key, old);
+    }
+
+    @Override
+    public void clear() {
+        slots.clear();
+        undecodedCount.set(0);
+        json = null;
+    }
+
+    @Override
+    public Set<String> keySet() {
+        // Unlike the default, this does not go through the entries, so it decodes nothing.
+        return slots.keySet();
+    }
+
+    @NonNull
+    @Override
+    public Set<Entry<String, Flag>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    /**
+     * @return the same JSON that serializing the map as a {@code Map<String, Flag>} would produce,
+     * apart from the order of properties and from flags that have not been decoded being written
+     * exactly as they were read
+     */
+    String toJson() {
+        String source = json;
+        StringBuilder sb = new StringBuilder(source == null ? 16 : source.length() + 16);
+        sb.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Slot> e : slots.entrySet()) {
+            if (!first) {
+                sb.append(',');
+            }
+            first = false;
+            sb.append(GsonHelpers.gsonInstance().toJson(e.getKey())).append(':');
+            Slot slot = e.getValue();
+            if (slot.start >= 0 && source != null) {
+                sb.append(source, slot.start, slot.end);
+            } else {
+                sb.append(GsonHelpers.gsonInstance().toJson(materialize(e.getKey(), slot), Flag.class));
+            }
+        }
+        return sb.append('}').toString();
+    }
+
+    private Flag materialize(String key, Slot slot) {
+        Flag flag = slot.flag;
+        if (flag == null && slot.start >= 0) {
+            String source = json;
+            if (source == null) {
+                // Another thread decoded this flag and then let go of the JSON.
+                return slot.flag;
+            }
+            long startNanos = System.nanoTime();
+            try {
+                flag = EnvironmentData.normalizeFlag(key,
+                        GsonHelpers.gsonInstance().fromJson(source.substring(slot.start, slot.end), Flag.class));
+            } catch (Exception e) { // Gson throws various kinds of parsing exceptions that have no common base class
+                flag = null;
+            }
+            if (instrumentation != null) {
+                instrumentation.recordFlagDecode(System.nanoTime() - startNanos);
+            }
+            if (flag == null) {
+                flag = Flag.deletedItemPlaceholder(key, 0);
+            }
+            slot.flag = flag;
+            if (undecodedCount.decrementAndGet() <= 0) {
+                releaseSourceIfDecoded();
+            }
+        }
+        return flag;
+    }
+
+    private void releaseSourceIfDecoded() {
+        int undecoded = countUndecoded(slots);
+        if (undecoded == 0) {
+            json = null;
+        } else {
+            undecodedCount.set(undecoded);
+        }
+    }
+
+    private static int countUndecoded(HashMap<String, Slot> slots) {
+        int count = 0;
+        for (Slot slot : slots.values()) {
+            if (slot.start >= 0 && slot.flag == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private final class EntrySet extends AbstractSet<Entry<String, Flag>> {
+        @Override
+        public int size() {
+            return slots.size();
+        }
+
+        @Override
+        public void clear() {
+            slots.clear();
+        }
+
+        @NonNull
+        @Override
+        public Iterator<Entry<String, Flag>> iterator() {
+            final Iterator<Map.Entry<String, Slot>> it = slots.entrySet().iterator();
+            return new Iterator<Entry<String, Flag>>() {
+                @Override
+                public boolean hasNext() {
+                    if (it.hasNext()) {
+                        return true;
+                    }
+                    // An iteration over the entries has decoded every flag by now, including any
+                    // that were decoded through a copy, which this map did not count.
+                    if (json != null) {
+                        releaseSourceIfDecoded();
+                    }
+                    return false;
+                }
+
+                @Override
+                public Entry<String, Flag> next() {
+                    Map.Entry<String, Slot> e = it.next();
+                    return new SimpleImmutableEntry<>(e.getKey(), materialize(e.getKey(), e.getValue()));
+                }
+
+                @Override
+                public void remove() {
+                    it.remove();
+                }
+            };
+        }
+    }
+
+    // Finds where values start and end, without decoding any but the property names.
+    private static final class Scanner {
+        final String json;
+        int pos;
+
+        Scanner(String json) {
+            this.json = json;
+        }
+
+        char peek() {
+            if (pos >= json.length()) {
+                throw new IllegalArgumentException("unexpected end of data");
+            }
+            return json.charAt(pos);
+        }
+
+        void expect(char c) {
+            if (peek() != c) {
+                throw new IllegalArgumentException("expected '" + c + "' at " + pos);
+            }
+            pos++;
+        }
+
+        void skipWhitespace() {
+            while (pos < json.length()) {
+                char c = json.charAt(pos);
+                if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                    return;
+                }
+                pos++;
+            }
+        }
+
+        String readString() {
+            expect('"');
+            int start = pos;
+            StringBuilder sb = null;
+            while (true) {
+                char c = peek();
+                if (c == '"') {
+                    String s = sb == null ? json.substring(start, pos) : sb.toString();
+                    pos++;
+                    return s;
+                }
+                if (c == '\\') {
+                    if (sb == null) {
+                        sb = new StringBuilder(json.substring(start, pos));
+                    }
+                    pos++;
+                    char escaped = peek();
+                    pos++;
+                    switch (escaped) {
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'n': sb.append('\n'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'u':
+                            sb.append((char) Integer.parseInt(json.substring(pos, pos + 4), 16));
+                            pos += 4;
+                            break;
+                        default: sb.append(escaped); break;
+                    }
+                } else {
+                    if (sb != null) {
+                        sb.append(c);
+                    }
+                    pos++;
+                }
+            }
+        }
+
+        void skipString() {
+            expect('"');
+            while (true) {
+                char c = peek();
+                pos++;
+                if (c == '"') {
+                    return;
+                }
+                if (c == '\\') {
+                    pos++;
+                }
+            }
+        }
+
+        void skipValue() {
+            char c = peek();
+            if (c == '"') {
+                skipString();
+                return;
+            }
+            if (c == '{' || c == '[') {
+                int depth = 0;
+                do {
+                    c = peek();
+                    if (c == '"') {
+                        skipString();
+                        continue;
+                    }
+                    if (c == '{' || c == '[') {
+                        depth++;
+                    } else if (c == '}' || c == ']') {
+                        depth--;
+                    }
+                    pos++;
+                } while (depth > 0);
+                return;
+            }
+            // A number, true, false, or null.
+            int start = pos;
+            while (pos < json.length() && ",}] \t\n\r".indexOf(json.charAt(pos)) < 0) {
+                pos++;
+            }
+            if (pos == start) {
+                throw new IllegalArgumentException("expected a value at " + pos);
+            }
+        }
+    }
+}
@@ -1,11 +1,14 @@
 package com.launchdarkly.sdk.android;
 
+import androidx.annotation.Nullable;
+
 import com.launchdarkly.logging.LDLogger;
 import com.launchdarkly.sdk.ContextKind;
 import com.launchdarkly.sdk.android.subsystems.PersistentDataStore;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 abstract class Migration {
     // This logic updates or removes persistent data generated by earlier versions of the SDK for
@@ -25,52 +28,93 @@ abstract class Migration {
     // is being used in the SDK instead of the default SharedPreferences implementation, it is
     // still desirable to migrate SDK data if we change the schema in the future.
 
+    //
+    // Migration is done in two parts so that it can stay off the critical path of LDClient.init.
+    // Data that the current schema still uses, such as a generated anonymous key, is carried over
+    // before the SDK reads the store; that only touches the namespaces it comes from. Deleting the
+    // rest of the obsolete data requires listing every namespace, which can be slow with many
+    // SharedPreferences files, so that can be left to a background task. Each step records its
+    // progress in the store, so if the app is stopped partway, the next run carries on from there.
+
     static final String SHARED_PREFS_BASE_KEY = "LaunchDarkly-";
     static final String MIGRATIONS_NAMESPACE = SHARED_PREFS_BASE_KEY + "migrations";
     static final String CURRENT_SCHEMA_ID = "v4.0.0";
+    // Set once the data that is carried over to the current schema has been, and removed once the
+    // whole migration is done.
+    static final String CARRIED_OVER_KEY = CURRENT_SCHEMA_ID + "_carriedOver";
+
+    private static final String LEGACY_ID_NAMESPACE = SHARED_PREFS_BASE_KEY + "id";
+    private static final String LEGACY_ANON_USER_KEY = "instanceId";
 
     private Migration() {}
 
+    /**
+     * Does the whole migration, if it has not been done.
+     */
     static void migrateWhenNeeded(PersistentDataStore store, LDLogger logger) {
-        if (store.getValue(MIGRATIONS_NAMESPACE, CURRENT_SCHEMA_ID) != null) {
-            return;
+        Runnable remainder = beginMigrationWhenNeeded(store, logger);
+        if (remainder != null) {
+            remainder.run();
         }
+    }
 
-        updateFromPre_v4_0_0(store, logger);
-
-        store.setValue(MIGRATIONS_NAMESPACE, CURRENT_SCHEMA_ID, CURRENT_SCHEMA_ID);
+    /**
+     * Carries over the stored data that the current schema still uses, if that has not been done,
+     * so that the SDK can start using the store.
+     *
+     * @return a task that finishes the migration, which can be run on any thread, or null if the
+     * migration is already done
+     */
+    @Nullable
+    static Runnable beginMigrationWhenNeeded(PersistentDataStore store, LDLogger logger) {
+        if (store.getValue(MIGRATIONS_NAMESPACE, CURRENT_SCHEMA_ID) != null) {
+            return null;
+        }
+        if (store.getValue(MIGRATIONS_NAMESPACE, CARRIED_OVER_KEY) == null) {
+            long startNanos = System.nanoTime();
+            carryOverFromPre_v4_0_0(store, logger);
+            store.setValue(MIGRATIONS_NAMESPACE, CARRIED_OVER_KEY, CARRIED_OVER_KEY);
+            logger.debug("Carried over data from earlier SDK versions in {} ms",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        }
+        return () -> {
+            long startNanos = System.nanoTime();
+            int removed = removeFromPre_v4_0_0(store);
+            store.setValue(MIGRATIONS_NAMESPACE, CURRENT_SCHEMA_ID, CURRENT_SCHEMA_ID);
+            store.setValue(MIGRATIONS_NAMESPACE, CARRIED_OVER_KEY, null);
+            logger.debug("initialized v4.0.0 store schema and removed {} namespaces of earlier SDK data in {} ms",
+                    removed, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        };
     }
 
-    static void updateFromPre_v4_0_0(PersistentDataStore store, LDLogger logger) {
+    private static void carryOverFromPre_v4_0_0(PersistentDataStore store, LDLogger logger) {
         // Prior to the v4.0.0 release, all supported versions have been using the v2.7.0 schema. We
         // are not able to migrate stored flag data from v2.7.0, because the storage namespaces are
         // based on one-way hashes of the full JSON representation of a user, whereas now we are just
         // hashing the key; there's no way to reconstruct just the key value from the existing hash. So
-        // we will simply delete any stored flag data from the old schema.
+        // we will simply delete any stored flag data from the old schema; see removeFromPre_v4_0_0.
         //
         // We are able to migrate the generated anonymous user key, if present, which we persist as
         // a generated key for the context kind "user".
+        String generatedAnonUserKey = store.getValue(LEGACY_ID_NAMESPACE, LEGACY_ANON_USER_KEY);
+        if (generatedAnonUserKey != null) {
+            PersistentDataStoreWrapper w = new PersistentDataStoreWrapper(store, logger);
+            w.setGeneratedContextKey(ContextKind.DEFAULT, generatedAnonUserKey);
+        }
+    }
 
+    // Returns the number of namespaces removed. Since a namespace that has been removed is no longer
+    // listed, running this again after an interruption only removes those that are left.
+    private static int removeFromPre_v4_0_0(PersistentDataStore store) {
         List<String> namespacesToDelete = new ArrayList<>();
-        String generatedAnonUserKey = null;
         for (String namespace: store.getAllNamespaces()) {
-            if (namespace.startsWith(SHARED_PREFS_BASE_KEY)) {
+            if (namespace.startsWith(SHARED_PREFS_BASE_KEY) && !namespace.equals(MIGRATIONS_NAMESPACE)) {
                 namespacesToDelete.add(namespace);
-                if (namespace.equals(SHARED_PREFS_BASE_KEY + "id")) {
-                    generatedAnonUserKey = store.getValue(namespace, "instanceId");
-                }
             }
         }
         for (String namespace: namespacesToDelete) {
             store.clear(namespace, true);
         }
-        if (generatedAnonUserKey != null) {
-            PersistentDataStoreWrapper w = new PersistentDataStoreWrapper(store, logger);
-            w.setGeneratedContextKey(ContextKind.DEFAULT, generatedAnonUserKey);
-        }
-
-        if (namespacesToDelete.size() != 0) {
-            logger.debug("initialized v4.0.0 store schema and removed earlier SDK data");
-        }
+        return namespacesToDelete.size();
     }
 }
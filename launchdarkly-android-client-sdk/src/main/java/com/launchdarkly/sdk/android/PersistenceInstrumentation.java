@@ -0,0 +1,111 @@
+package com.launchdarkly.sdk.android;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts what flag data persistence does, for {@link PersistenceStatistics}.
+ * <p>
+ * {@link SharedPreferencesPersistentDataStore} reports its commits, queue sizes, and reads, and
+ * {@link PersistentDataStoreWrapper} reports loading of stored flag data, and {@link LazyFlagMap}
+ * the decoding of each flag in it. One instance is shared by
+ * everything {@link LDClient#init(android.app.Application, LDConfig, com.launchdarkly.sdk.LDContext, int)}
+ * creates. Recording reads and decoding is lock-free and does not allocate; a commit, which is on
+ * the persistence thread and much slower anyway, takes a lock to count its bytes by namespace.
+ */
+final class PersistenceInstrumentation {
+    private final LatencyHistogram.Recorder commitLatency = new LatencyHistogram.Recorder();
+    private final AtomicLong commitFailures = new AtomicLong();
+    private final Map<String, Long> bytesWrittenByNamespace = new HashMap<>(); // guarded by itself
+    private final AtomicLong totalBytesWritten = new AtomicLong();
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicInteger committingWrites = new AtomicInteger();
+    private final AtomicInteger maxPendingWrites = new AtomicInteger();
+    private final AtomicLong pendingReadHits = new AtomicLong();
+    private final AtomicLong committingReadHits = new AtomicLong();
+    private final AtomicLong storeReads = new AtomicLong();
+    private final LatencyHistogram.Recorder flagDataDecodeLatency = new LatencyHistogram.Recorder();
+    private final LatencyHistogram.Recorder flagDataDecompressLatency = new LatencyHistogram.Recorder();
+    private final LatencyHistogram.Recorder flagDecodeLatency = new LatencyHistogram.Recorder();
+
+    /**
+     * Counts a commit of one namespace.
+     *
+     * @param namespace the namespace
+     * @param bytesWritten the size of the keys and values written
+     * @param elapsedNanos how long the commit took
+     * @param success false if the commit failed, in which case nothing is counted as written
+     */
+    void recordCommit(String namespace, long bytesWritten, long elapsedNanos, boolean success) {
+        commitLatency.recordNanos(elapsedNanos);
+        if (!success) {
+            commitFailures.incrementAndGet();
+            return;
+        }
+        synchronized (bytesWrittenByNamespace) {
+            Long previous = bytesWrittenByNamespace.get(namespace);
+            bytesWrittenByNamespace.put(namespace, (previous == null ? 0 : previous) + bytesWritten);
+        }
+        totalBytesWritten.addAndGet(bytesWritten);
+    }
+
+    /**
+     * Records how many writes are waiting and being committed, whenever either changes.
+     */
+    void recordQueueSizes(int pending, int committing) {
+        pendingWrites.set(pending);
+        committingWrites.set(committing);
+        int max = maxPendingWrites.get();
+        while (pending > max && !maxPendingWrites.compareAndSet(max, pending)) {
+            max = maxPendingWrites.get();
+        }
+    }
+
+    void recordPendingReadHit() {
+        pendingReadHits.incrementAndGet();
+    }
+
+    void recordCommittingReadHit() {
+        committingReadHits.incrementAndGet();
+    }
+
+    void recordStoreRead() {
+        storeReads.incrementAndGet();
+    }
+
+    void recordFlagDataDecode(long elapsedNanos) {
+        flagDataDecodeLatency.recordNanos(elapsedNanos);
+    }
+
+    void recordFlagDataDecompress(long elapsedNanos) {
+        flagDataDecompressLatency.recordNanos(elapsedNanos);
+    }
+
+    void recordFlagDecode(long elapsedNanos) {
+        flagDecodeLatency.recordNanos(elapsedNanos);
+    }
+
+    PersistenceStatistics getStatistics() {
+        Map<String, Long> bytesByNamespace;
+        synchronized (bytesWrittenByNamespace) {
+            bytesByNamespace = new HashMap<>(bytesWrittenByNamespace);
+        }
+        return new PersistenceStatistics(
+                commitLatency.snapshot(),
+                commitFailures.get(),
+                bytesByNamespace,
+                totalBytesWritten.get(),
+                pendingWrites.get(),
+                committingWrites.get(),
+                maxPendingWrites.get(),
+                pendingReadHits.get(),
+                committingReadHits.get(),
+                storeReads.get(),
+                flagDataDecodeLatency.snapshot(),
+                flagDataDecompressLatency.snapshot(),
+                flagDecodeLatency.snapshot()
+        );
+    }
+}
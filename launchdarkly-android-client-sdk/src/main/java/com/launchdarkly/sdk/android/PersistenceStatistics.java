@@ -0,0 +1,196 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * An immutable snapshot of what the SDK's flag data persistence has done, as returned by
+ * {@link LDClient#getPersistenceStatistics()}.
+ * <p>
+ * By default the SDK keeps its data in SharedPreferences, collecting writes in memory and committing
+ * them to disk in the background; see {@link LDConfig.Builder#persistenceWriteBackDelayMillis(int)}.
+ * The counters here are cumulative since {@link LDClient#init(android.app.Application, LDConfig,
+ * com.launchdarkly.sdk.LDContext, int)}, and are shared by all environments, which share the store.
+ * Use them to see when persistence is costing the device more I/O than expected: many commits with
+ * few bytes each suggest a write-back delay would help, and long commits suggest slow storage.
+ * <p>
+ * A "write" in the queue sizes is one key set or removed in one namespace, or a namespace being
+ * cleared; repeated writes to the same key while it waits count once. The namespaces are the names
+ * of the SharedPreferences files.
+ * <p>
+ * Loading and decoding times are measured for flag data read back from the store, whichever store is used. Everything
+ * else is only measured by the default store, and is zero otherwise.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ */
+public final class PersistenceStatistics {
+    @NonNull
+    private final LatencyHistogram commitLatency;
+    private final long commitFailures;
+    @NonNull
+    private final Map<String, Long> bytesWrittenByNamespace;
+    private final long totalBytesWritten;
+    private final int pendingWrites;
+    private final int committingWrites;
+    private final int maxPendingWrites;
+    private final long pendingReadHits;
+    private final long committingReadHits;
+    private final long storeReads;
+    @NonNull
+    private final LatencyHistogram flagDataDecodeLatency;
+    @NonNull
+    private final LatencyHistogram flagDataDecompressLatency;
+    @NonNull
+    private final LatencyHistogram flagDecodeLatency;
+
+    PersistenceStatistics(
+            @NonNull LatencyHistogram commitLatency,
+            long commitFailures,
+            @NonNull Map<String, Long> bytesWrittenByNamespace,
+            long totalBytesWritten,
+            int pendingWrites,
+            int committingWrites,
+            int maxPendingWrites,
+            long pendingReadHits,
+            long committingReadHits,
+            long storeReads,
+            @NonNull LatencyHistogram flagDataDecodeLatency,
+            @NonNull LatencyHistogram flagDataDecompressLatency,
+            @NonNull LatencyHistogram flagDecodeLatency
+    ) {
+        this.commitLatency = commitLatency;
+        this.commitFailures = commitFailures;
+        this.bytesWrittenByNamespace = Collections.unmodifiableMap(bytesWrittenByNamespace);
+        this.totalBytesWritten = totalBytesWritten;
+        this.pendingWrites = pendingWrites;
+        this.committingWrites = committingWrites;
+        this.maxPendingWrites = maxPendingWrites;
+        this.pendingReadHits = pendingReadHits;
+        this.committingReadHits = committingReadHits;
+        this.storeReads = storeReads;
+        this.flagDataDecodeLatency = flagDataDecodeLatency;
+        this.flagDataDecompressLatency = flagDataDecompressLatency;
+        this.flagDecodeLatency = flagDecodeLatency;
+    }
+
+    /**
+     * @return how long each commit of one namespace to disk took, whether or not it succeeded
+     */
+    @NonNull
+    public LatencyHistogram getCommitLatency() {
+        return commitLatency;
+    }
+
+    /**
+     * @return how many commits failed
+     */
+    public long getCommitFailures() {
+        return commitFailures;
+    }
+
+    /**
+     * @return for each namespace that has been committed to, the size of the keys and values written
+     *         to it, in characters, which is bytes unless they hold non-ASCII text
+     */
+    @NonNull
+    public Map<String, Long> getBytesWrittenByNamespace() {
+        return bytesWrittenByNamespace;
+    }
+
+    /**
+     * @return the total of {@link #getBytesWrittenByNamespace()}
+     */
+    public long getTotalBytesWritten() {
+        return totalBytesWritten;
+    }
+
+    /**
+     * @return how many writes were waiting to be committed when the snapshot was taken
+     */
+    public int getPendingWrites() {
+        return pendingWrites;
+    }
+
+    /**
+     * @return how many writes were being committed when the snapshot was taken
+     */
+    public int getCommittingWrites() {
+        return committingWrites;
+    }
+
+    /**
+     * @return the most writes that have been waiting to be committed at once
+     */
+    public int getMaxPendingWrites() {
+        return maxPendingWrites;
+    }
+
+    /**
+     * @return how many reads were answered by a write that was waiting to be committed
+     */
+    public long getPendingReadHits() {
+        return pendingReadHits;
+    }
+
+    /**
+     * @return how many reads were answered by a write that was being committed
+     */
+    public long getCommittingReadHits() {
+        return committingReadHits;
+    }
+
+    /**
+     * @return how many reads went to SharedPreferences
+     */
+    public long getStoreReads() {
+        return storeReads;
+    }
+
+    /**
+     * @return how long loading each context's stored flag data took, including decompressing it and
+     *         finding where each flag is in it; the flags themselves are decoded one at a time when
+     *         first used, which {@link #getFlagDecodeLatency()} measures
+     */
+    @NonNull
+    public LatencyHistogram getFlagDataDecodeLatency() {
+        return flagDataDecodeLatency;
+    }
+
+    /**
+     * @return how long decompressing each context's stored flag data took, for data that was
+     *         stored compressed; see {@link LDConfig.Builder#cachedFlagDataCompressionThreshold(int)}
+     */
+    @NonNull
+    public LatencyHistogram getFlagDataDecompressLatency() {
+        return flagDataDecompressLatency;
+    }
+
+    /**
+     * @return how long decoding each flag from stored flag data took, which happens the first time
+     *         that flag is used after the data is loaded
+     */
+    @NonNull
+    public LatencyHistogram getFlagDecodeLatency() {
+        return flagDecodeLatency;
+    }
+
+    @Override
+    public String toString() {
+        return "PersistenceStatistics(commitLatency=" + commitLatency
+                + ", commitFailures=" + commitFailures
+                + ", totalBytesWritten=" + totalBytesWritten
+                + ", bytesWrittenByNamespace=" + bytesWrittenByNamespace
+                + ", pendingWrites=" + pendingWrites
+                + ", committingWrites=" + committingWrites
+                + ", maxPendingWrites=" + maxPendingWrites
+                + ", pendingReadHits=" + pendingReadHits
+                + ", committingReadHits=" + committingReadHits
+                + ", storeReads=" + storeReads
+                + ", flagDataDecodeLatency=" + flagDataDecodeLatency
+                + ", flagDataDecompressLatency=" + flagDataDecompressLatency
+                + ", flagDecodeLatency=" + flagDecodeLatency + ")";
+    }
+}
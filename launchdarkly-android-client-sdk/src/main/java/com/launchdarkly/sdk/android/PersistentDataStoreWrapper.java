@@ -54,6 +54,7 @@ final class PersistentDataStoreWrapper {
     private static final String NAMESPACE_PREFIX = "LaunchDarkly_";
     private static final String ANON_CONTEXT_KEY_PREFIX = "anonKey_";
     private static final String ENVIRONMENT_METADATA_KEY = "index";
+    private static final String ENVIRONMENT_INDEX_STATS_KEY = "indexStats";
     private static final String ENVIRONMENT_CONTEXT_DATA_KEY_PREFIX = "flags_";
     private static final String ENVIRONMENT_CONTEXT_FINGERPRINT_KEY_PREFIX = "contextFingerprint_";
     private static final String ENVIRONMENT_LAST_SUCCESS_TIME_KEY = "lastSuccessfulConnection";
@@ -61,6 +62,8 @@ final class PersistentDataStoreWrapper {
     private static final String ENVIRONMENT_LAST_FAILURE_KEY = "lastFailure";
 
     private final PersistentDataStore persistentStore;
+    private final PersistenceInstrumentation instrumentation;
+    private final int compressionThreshold;
 
     private final LDLogger logger;
     private final Object storeLock = new Object();
@@ -72,8 +75,27 @@ final class PersistentDataStoreWrapper {
     public PersistentDataStoreWrapper(
             PersistentDataStore persistentStore,
             LDLogger logger
+    ) {
+        this(persistentStore, new PersistenceInstrumentation(), LDConfig.NO_CACHED_FLAG_DATA_COMPRESSION, logger);
+    }
+
+    /**
+     * @param persistentStore the store
+     * @param instrumentation receives the time taken to decode stored flag data
+     * @param compressionThreshold the shortest flag data JSON to store compressed, or
+     *                             {@link LDConfig#NO_CACHED_FLAG_DATA_COMPRESSION}; see
+     *                             {@link StoredFlagDataCodec}
+     * @param logger the logger
+     */
+    public PersistentDataStoreWrapper(
+            PersistentDataStore persistentStore,
+            PersistenceInstrumentation instrumentation,
+            int compressionThreshold,
+            LDLogger logger
     ) {
         this.persistentStore = persistentStore;
+        this.instrumentation = instrumentation;
+        this.compressionThreshold = compressionThreshold;
         this.logger = logger;
     }
 
@@ -170,6 +192,13 @@ final class PersistentDataStoreWrapper {
             this.environmentNamespace = NAMESPACE_PREFIX + LDUtil.urlSafeBase64Hash(mobileKey);
         }
 
+        /**
+         * @return the instrumentation of the persistence that all environments share
+         */
+        PersistenceInstrumentation getInstrumentation() {
+            return instrumentation;
+        }
+
         /**
          * Returns the stored flag data, if any, for a specific context.
          *
@@ -179,10 +208,20 @@ final class PersistentDataStoreWrapper {
         public EnvironmentData getContextData(String hashedContextId) {
             String serializedData = tryGetValue(environmentNamespace,
                     keyForContextId(hashedContextId));
+            if (serializedData == null) {
+                return null;
+            }
+            long startNanos = System.nanoTime();
             try {
-                return serializedData == null ? null : EnvironmentData.fromJson(serializedData);
+                if (StoredFlagDataCodec.isCompressed(serializedData)) {
+                    serializedData = StoredFlagDataCodec.decode(serializedData);
+                    instrumentation.recordFlagDataDecompress(System.nanoTime() - startNanos);
+                }
+                return EnvironmentData.fromJsonLazily(serializedData, instrumentation);
             } catch (SerializationException e) {
                 return null;
+            } finally {
+                instrumentation.recordFlagDataDecode(System.nanoTime() - startNanos);
             }
         }
 
@@ -192,10 +231,13 @@ final class PersistentDataStoreWrapper {
          * @param hashedContextId the hashed canonical key of the context
          * @param fingerprint that is unique for the given context and considers all attributes as part of its calculation
          * @param allData the flag data
+         * @return the size of the stored flag data in UTF-8 bytes, after any compression
          */
-        public void setContextData(String hashedContextId, String fingerprint, EnvironmentData allData) {
-            trySetValue(environmentNamespace, keyForContextId(hashedContextId), allData.toJson());
+        public int setContextData(String hashedContextId, String fingerprint, EnvironmentData allData) {
+            String serializedData = StoredFlagDataCodec.encode(allData.toJson(), compressionThreshold);
+            trySetValue(environmentNamespace, keyForContextId(hashedContextId), serializedData);
             trySetValue(environmentNamespace, keyForContextFingerprint(hashedContextId), fingerprint);
+            return utf8Length(serializedData);
         }
 
         /**
@@ -215,22 +257,29 @@ final class PersistentDataStoreWrapper {
          */
         @NonNull
         public ContextIndex getIndex() {
-            String serializedData = tryGetValue(environmentNamespace, ENVIRONMENT_METADATA_KEY);
-            try {
-                return serializedData == null ? new ContextIndex() :
-                        ContextIndex.fromJson(serializedData);
-            } catch (SerializationException e) {
-                return null;
-            }
+            return readIndex(true);
         }
 
         /**
-         * Updates the list of contexts that have stored flag data for this environment.
+         * Updates the list of contexts that have stored flag data for this environment. Only the
+         * parts of the index that changed since it was read or last stored are written, so this
+         * does nothing for an unchanged index.
          *
          * @param contextIndex the context index
          */
         public void setIndex(@NonNull ContextIndex contextIndex) {
-            trySetValue(environmentNamespace, ENVIRONMENT_METADATA_KEY, contextIndex.toJson());
+            if (!contextIndex.isDirty() && !contextIndex.isStatsDirty()) {
+                return;
+            }
+            Map<String, String> updates = new HashMap<>();
+            if (contextIndex.isDirty()) {
+                updates.put(ENVIRONMENT_METADATA_KEY, contextIndex.toJson());
+            }
+            if (contextIndex.isStatsDirty()) {
+                updates.put(ENVIRONMENT_INDEX_STATS_KEY, contextIndex.statsToJson());
+            }
+            trySetValues(environmentNamespace, updates);
+            contextIndex.markPersisted();
         }
 
         /**
@@ -246,14 +295,22 @@ final class PersistentDataStoreWrapper {
                 return null;
             }
 
-            for (ContextIndex.IndexEntry entry : getIndex().data) {
-                if (entry.contextId.equals(hashedContextId)) {
-                    return entry.timestamp;
-                }
-            }
+            ContextIndex.IndexEntry entry = readIndex(false).getEntry(hashedContextId);
+            return entry == null ? null : entry.timestamp;
+        }
 
-            // no match found
-            return null;
+        @NonNull
+        private ContextIndex readIndex(boolean includeStats) {
+            String serializedData = tryGetValue(environmentNamespace, ENVIRONMENT_METADATA_KEY);
+            if (serializedData == null) {
+                return new ContextIndex();
+            }
+            try {
+                return ContextIndex.fromJson(serializedData,
+                        includeStats ? tryGetValue(environmentNamespace, ENVIRONMENT_INDEX_STATS_KEY) : null);
+            } catch (SerializationException e) {
+                return new ContextIndex();
+            }
         }
 
         /**
@@ -349,4 +406,29 @@ final class PersistentDataStoreWrapper {
             return null;
         }
     }
+
+    /**
+     * Counts the bytes a string takes in UTF-8 without encoding it, since stored flag data can be
+     * large. An unpaired surrogate, which flag JSON should not contain, is counted as three bytes.
+     */
+    static int utf8Length(String s) {
+        int length = s.length();
+        int bytes = length;
+        for (int i = 0; i < length; i++) {
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                continue;
+            }
+            if (c < 0x800) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(s.charAt(i + 1))) {
+                // Four bytes for the pair of chars.
+                bytes += 2;
+                i++;
+            } else {
+                bytes += 2;
+            }
+        }
+        return bytes;
+    }
 }
@@ -12,6 +12,13 @@ interface PlatformState extends Closeable {
         void onForegroundChanged(boolean foreground);
     }
 
+    interface MemoryPressureListener {
+        /**
+         * @param level one of the {@code TRIM_MEMORY_} levels of {@link android.content.ComponentCallbacks2}
+         */
+        void onMemoryPressure(int level);
+    }
+
     /**
      * Returns true if (as far as the OS knows) the network should be working.
      * @return true if the network should be available
@@ -50,6 +57,20 @@ interface PlatformState extends Closeable {
      */
     void removeForegroundChangeListener(ForegroundChangeListener listener);
 
+    /**
+     * Registers a listener to be called when the OS asks the application to use less memory. It is
+     * not called for {@link android.content.ComponentCallbacks2#TRIM_MEMORY_UI_HIDDEN}, which only
+     * means the UI is no longer visible.
+     * @param listener a listener
+     */
+    void addMemoryPressureListener(MemoryPressureListener listener);
+
+    /**
+     * Undoes the effect of {@link #addMemoryPressureListener(MemoryPressureListener)}.
+     * @param listener a listener
+     */
+    void removeMemoryPressureListener(MemoryPressureListener listener);
+
     /**
      * Returns the preferred filesystem location for cache files.
      * @return a directory path
@@ -19,9 +19,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -47,17 +46,24 @@ import java.util.concurrent.atomic.AtomicInteger;
  * While there are pending writes, the background flush drain is throttled by the
  * speed of the underlying SharedPreferences.edit().commit() call which matches
  * previous performance.
+ * <p>
+ * With a write-back delay, the flush waits that long after a write in case more follow, so
+ * that a stream of small updates produces one commit per window rather than one each. Each
+ * write postpones the flush again, but never to more than the maximum dirty age after the
+ * oldest write that is waiting. {@link #flushSynchronously()} commits everything at once, for
+ * when the application is going to the background, and {@link #flushAsynchronously()} starts doing
+ * so without waiting, for when the client is closed.
  */
 final class SharedPreferencesPersistentDataStore implements PersistentDataStore {
-    // Single class-static executor for all persistence flushes across all instances.
-    private static final Executor FLUSH_EXECUTOR = new ThreadPoolExecutor(
-            0, 1,
-            10L, TimeUnit.SECONDS,
-            new LinkedBlockingQueue<Runnable>(),
-            new PersistenceThreadFactory());
+    // Single class-static executor for all persistence flushes across all instances. Its one
+    // thread exits when it has been idle for a while.
+    private static final ScheduledThreadPoolExecutor FLUSH_EXECUTOR = createFlushExecutor();
 
     private final Application application;
     private final LDLogger logger;
+    private final long writeBackDelayMillis;
+    private final long maxDirtyAgeMillis;
+    private final PersistenceInstrumentation instrumentation;
 
     // Writes land here as resolved per-namespace state. Reads consult this map first.
     private final Map<String, State> pending = new HashMap<>();
@@ -71,10 +77,22 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
     // under this lock. Disk I/O (commit()) does NOT happen under this lock.
     private final Object lock = new Object();
 
+    // How many writes `pending` and `committing` hold, as counted by writeCount, kept up to date as
+    // they change so that reporting them does not walk the maps. Guarded by lock.
+    private int pendingWrites = 0;
+    private int committingWrites = 0;
+
     // True while a flush task is either queued or currently running on FLUSH_EXECUTOR.
     // Prevents redundant task submissions during a burst.
     private boolean flushScheduled = false;
 
+    // With a write-back delay: the queued flush task, or null once it has started; when it is due;
+    // and when the oldest write in `pending` was made, if pendingSinceKnown. Guarded by lock.
+    private ScheduledFuture<?> delayedFlush = null;
+    private long delayedFlushDueNanos;
+    private long pendingSinceNanos;
+    private boolean pendingSinceKnown = false;
+
     // Invoked by commitState immediately before Editor.commit(). Tests set
     // this to interpose behavior between "state moved into committing" and "commit to
     // disk begins" (e.g., to assert reads served by the committing layer). Volatile so
@@ -87,8 +105,41 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
     private boolean persistenceErrorLogged = false;
 
     public SharedPreferencesPersistentDataStore(Application application, LDLogger logger) {
+        this(application, 0, 0, logger);
+    }
+
+    /**
+     * @param application the application
+     * @param writeBackDelayMillis how long to wait after a write before committing, in case more
+     *                             follow; zero or negative to commit as soon as possible
+     * @param maxDirtyAgeMillis the longest that a write may wait to be committed; if it is less
+     *                          than {@code writeBackDelayMillis}, that is used instead
+     * @param logger the logger
+     */
+    public SharedPreferencesPersistentDataStore(
+            Application application,
+            long writeBackDelayMillis,
+            long maxDirtyAgeMillis,
+            LDLogger logger
+    ) {
+        this(application, writeBackDelayMillis, maxDirtyAgeMillis, new PersistenceInstrumentation(), logger);
+    }
+
+    /**
+     * As above, but reporting what the store does to {@code instrumentation}.
+     */
+    SharedPreferencesPersistentDataStore(
+            Application application,
+            long writeBackDelayMillis,
+            long maxDirtyAgeMillis,
+            PersistenceInstrumentation instrumentation,
+            LDLogger logger
+    ) {
         this.application = application;
         this.logger = logger;
+        this.writeBackDelayMillis = Math.max(0, writeBackDelayMillis);
+        this.maxDirtyAgeMillis = Math.max(this.writeBackDelayMillis, maxDirtyAgeMillis);
+        this.instrumentation = instrumentation;
     }
 
     public SharedPreferencesPersistentDataStore(Application application) {
@@ -102,17 +153,18 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
             // layer short-circuits to null (the namespace is cleared as far as this layer
             // knows), otherwise we fall through to the next layer.
             State state = pending.get(storeNamespace);
-            if (state != null) {
-                if (state.changes.containsKey(key)) return state.changes.get(key);
-                if (state.clear) return null;
+            if (state != null && (state.clear || state.changes.containsKey(key))) {
+                instrumentation.recordPendingReadHit();
+                return state.changes.get(key);
             }
             state = committing.get(storeNamespace);
-            if (state != null) {
-                if (state.changes.containsKey(key)) return state.changes.get(key);
-                if (state.clear) return null;
+            if (state != null && (state.clear || state.changes.containsKey(key))) {
+                instrumentation.recordCommittingReadHit();
+                return state.changes.get(key);
             }
         }
         // Neither layer knows about this key; fall through to shared preferences.
+        instrumentation.recordStoreRead();
         SharedPreferences prefs = getSharedPreferences(storeNamespace);
         try {
             return prefs.getString(key, null);
@@ -139,10 +191,13 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
             if (state.changes == State.NO_CHANGES) {
                 state.changes = new HashMap<>();
             }
+            int writesBefore = state.changes.size();
             state.changes.put(key, value);
+            pendingWrites += state.changes.size() - writesBefore;
             // Do not touch state.clear or state.fullyDelete. A prior clear/fullyDelete stays
             // scheduled — it purges unknown data (and, for fullyDelete, the file itself)
             // before these writes recreate the file at commit time.
+            recordQueueSizesLocked();
             scheduleFlushLocked();
         }
     }
@@ -158,8 +213,11 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
             if (state.changes == State.NO_CHANGES) {
                 state.changes = new HashMap<>();
             }
+            int writesBefore = state.changes.size();
             state.changes.putAll(keysAndValues);
+            pendingWrites += state.changes.size() - writesBefore;
             // Do not touch state.clear or state.fullyDelete. See setValue.
+            recordQueueSizesLocked();
             scheduleFlushLocked();
         }
     }
@@ -221,21 +279,26 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
             state.clear = true;
             state.fullyDelete = fullyDelete || carriedFullyDelete;
             pending.put(storeNamespace, state);
+            pendingWrites += writeCount(state) - (prior == null ? 0 : writeCount(prior));
+            recordQueueSizesLocked();
             scheduleFlushLocked();
         }
     }
 
     /**
      * Blocks until every write requested against this store up to this call has been
-     * committed to disk. Exposed with package-private visibility solely so that tests
-     * can assert on disk state after asynchronous writes.
+     * committed to disk, without waiting for the write-back delay. The SDK calls this when the
+     * application goes to the background and when memory is low, both of which it learns of on a
+     * background thread; tests use it to assert on disk state after asynchronous writes.
+     * <p>
+     * This waits for {@link SharedPreferences.Editor#commit()}, so it must not be called on the
+     * main thread.
      */
-    @VisibleForTesting
     void flushSynchronously() {
         final CountDownLatch latch = new CountDownLatch(1);
         FLUSH_EXECUTOR.execute(() -> {
             try {
-                drainPending();
+                drainPending(true);
             } finally {
                 latch.countDown();
             }
@@ -247,12 +310,48 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
         }
     }
 
+    /**
+     * Starts committing every write requested against this store up to this call, without waiting
+     * for the write-back delay, and returns at once. The SDK calls this when the client is closed,
+     * which applications may do on the main thread.
+     */
+    void flushAsynchronously() {
+        FLUSH_EXECUTOR.execute(() -> drainPending(true));
+    }
+
     private void scheduleFlushLocked() {
-        if (flushScheduled) {
+        if (writeBackDelayMillis == 0) {
+            if (flushScheduled) {
+                return;
+            }
+            flushScheduled = true;
+            FLUSH_EXECUTOR.execute(() -> drainPending(false));
             return;
         }
+
+        long now = System.nanoTime();
+        if (!pendingSinceKnown) {
+            pendingSinceKnown = true;
+            pendingSinceNanos = now;
+        }
+        long latestDueNanos = pendingSinceNanos + TimeUnit.MILLISECONDS.toNanos(maxDirtyAgeMillis);
+        long dueNanos = Math.min(now + TimeUnit.MILLISECONDS.toNanos(writeBackDelayMillis), latestDueNanos);
+        if (flushScheduled) {
+            // A flush that is already running picks up this write, or reschedules for it. A
+            // queued one is only replaced if that postpones it, which it cannot do once the
+            // maximum dirty age is reached.
+            if (delayedFlush == null || dueNanos <= delayedFlushDueNanos || !delayedFlush.cancel(false)) {
+                return;
+            }
+        }
         flushScheduled = true;
-        FLUSH_EXECUTOR.execute(this::drainPending);
+        delayedFlushDueNanos = dueNanos;
+        delayedFlush = FLUSH_EXECUTOR.schedule(() -> {
+            synchronized (lock) {
+                delayedFlush = null;
+            }
+            drainPending(false);
+        }, Math.max(0, dueNanos - now), TimeUnit.NANOSECONDS);
     }
 
     /**
@@ -267,21 +366,38 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
      * By processing committing first, its writes reach SharedPreferences'
      * {@code mMap} before the newer pending writes are applied on top — natural
      * merge, no State-level merge logic required.
+     * <p>
+     * With a write-back delay, writes made while this is committing wait for a flush of
+     * their own, unless {@code force} is set.
      */
-    private void drainPending() {
+    private void drainPending(boolean force) {
+        boolean tookPending = false;
         try {
             while (true) {
                 Set<String> namespacesToCommit;
                 synchronized (lock) {
                     if (committing.isEmpty()) {
-                        if (pending.isEmpty()) {
+                        if (pending.isEmpty() || (tookPending && writeBackDelayMillis > 0 && !force)) {
                             flushScheduled = false;
+                            if (delayedFlush != null) {
+                                // Only a forced flush gets here with one queued.
+                                delayedFlush.cancel(false);
+                                delayedFlush = null;
+                            }
+                            if (!pending.isEmpty()) {
+                                scheduleFlushLocked();
+                            }
                             return;
                         }
                         // committing is empty here, so putAll cannot overwrite a
                         // stranded entry from a prior failed drain.
                         committing.putAll(pending);
                         pending.clear();
+                        committingWrites = pendingWrites;
+                        pendingWrites = 0;
+                        pendingSinceKnown = false;
+                        tookPending = true;
+                        recordQueueSizesLocked();
                     }
                     // If committing was non-empty on entry, drain it first without
                     // pulling from pending. This preserves any state stranded by an
@@ -299,6 +415,8 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
                     commitState(namespace, state);
                     synchronized (lock) {
                         committing.remove(namespace);
+                        committingWrites -= writeCount(state);
+                        recordQueueSizesLocked();
                     }
                 }
             }
@@ -334,16 +452,21 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
      * (subject to log-once-per-episode gating) logged.
      */
     private void commitState(String namespace, State state) {
+        long startNanos = System.nanoTime();
+        long bytesWritten = 0;
+        boolean success = false;
         try {
             SharedPreferences.Editor editor = getSharedPreferences(namespace).edit();
             if (state.clear) {
                 editor.clear();
             }
             for (Map.Entry<String, String> kv : state.changes.entrySet()) {
+                bytesWritten += kv.getKey().length();
                 if (kv.getValue() == null) {
                     editor.remove(kv.getKey());
                 } else {
                     editor.putString(kv.getKey(), kv.getValue());
+                    bytesWritten += kv.getValue().length();
                 }
             }
 
@@ -354,7 +477,7 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
                 runnable.run();
             }
 
-            editor.commit();
+            success = editor.commit();
 
             // Successful commit — clear the log-once gate
             persistenceErrorLogged = false;
@@ -371,9 +494,28 @@ final class SharedPreferencesPersistentDataStore implements PersistentDataStore
                         namespace, t);
                 persistenceErrorLogged = true;
             }
+        } finally {
+            instrumentation.recordCommit(namespace, bytesWritten, System.nanoTime() - startNanos, success);
         }
     }
 
+    private void recordQueueSizesLocked() {
+        instrumentation.recordQueueSizes(pendingWrites, committingWrites);
+    }
+
+    // A write is a key set or removed, or a clear.
+    private static int writeCount(State state) {
+        return state.changes.size() + (state.clear ? 1 : 0);
+    }
+
+    private static ScheduledThreadPoolExecutor createFlushExecutor() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new PersistenceThreadFactory());
+        executor.setKeepAliveTime(10L, TimeUnit.SECONDS);
+        executor.allowCoreThreadTimeOut(true);
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
     private SharedPreferences getSharedPreferences(String storeNamespace) {
         // Note, the Android API guarantees that whenever we call getSharedPreferences with the
         // same string, we receive the same object, so it is OK to make this call repeatedly
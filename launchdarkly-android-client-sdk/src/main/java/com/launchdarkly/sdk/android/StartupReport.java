@@ -0,0 +1,173 @@
+package com.launchdarkly.sdk.android;
+
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A timeline of how {@link LDClient#init(Application, LDConfig, com.launchdarkly.sdk.LDContext, int)}
+ * spent its time for one environment, as returned by {@link LDClient#getStartupReport()} and passed
+ * to an {@link LDStartupReportListener}.
+ * <p>
+ * Each phase is measured with a monotonic clock, from the moment {@code init} started. Phases that
+ * are done once for all environments, such as opening the persistent store, appear in the report of
+ * every environment with the same timing. A phase that did not happen, such as loading cached flags
+ * when there were none, still appears, with whatever time it took to find that out.
+ * <p>
+ * Use it to find out which part of startup is slow on the devices where it is, and to notice when a
+ * change to the application or an SDK upgrade makes it slower. The total is also reported to
+ * LaunchDarkly in diagnostic events, unless {@link LDConfig.Builder#diagnosticOptOut(boolean)} is set.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ */
+public final class StartupReport {
+    /**
+     * The parts of startup that a {@link StartupReport} measures, in the order they happen.
+     */
+    public enum Phase {
+        /**
+         * Creating the persistent store, which by default opens SharedPreferences.
+         */
+        PERSISTENT_STORE,
+        /**
+         * Carrying over data stored by earlier SDK versions, if that has not been done. Removing the
+         * rest of their data is done in the background and is not included.
+         */
+        MIGRATION,
+        /**
+         * Collecting application and device information, for automatic environment attributes and
+         * event headers.
+         */
+        ENVIRONMENT_REPORTER,
+        /**
+         * Applying automatic environment attributes and generated anonymous keys to the context.
+         */
+        CONTEXT_MODIFIERS,
+        /**
+         * Reading and decoding the context's cached flags for this environment.
+         */
+        CACHED_DATA_LOAD,
+        /**
+         * Getting hooks from plugins and registering them with this environment's client.
+         */
+        PLUGIN_REGISTRATION,
+        /**
+         * Waiting for this environment's data source to succeed or fail for the first time, which is
+         * usually the first response from LaunchDarkly.
+         */
+        FIRST_DATA_SOURCE_RESULT
+    }
+
+    /**
+     * When one phase of startup started, and how long it took.
+     */
+    public static final class PhaseTiming {
+        private final Phase phase;
+        private final long startMillis;
+        private final long durationMillis;
+
+        PhaseTiming(@NonNull Phase phase, long startMillis, long durationMillis) {
+            this.phase = phase;
+            this.startMillis = startMillis;
+            this.durationMillis = durationMillis;
+        }
+
+        /**
+         * @return the phase
+         */
+        @NonNull
+        public Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return when the phase started, in milliseconds after {@code init} started
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * @return how long the phase took, in milliseconds
+         */
+        public long getDurationMillis() {
+            return durationMillis;
+        }
+
+        @Override
+        public String toString() {
+            return phase + "@" + startMillis + "+" + durationMillis + "ms";
+        }
+    }
+
+    private final String environmentName;
+    private final List<PhaseTiming> phases;
+    private final long totalMillis;
+    private final boolean dataSourceSucceeded;
+
+    StartupReport(
+            @NonNull String environmentName,
+            @NonNull List<PhaseTiming> phases,
+            long totalMillis,
+            boolean dataSourceSucceeded
+    ) {
+        this.environmentName = environmentName;
+        this.phases = Collections.unmodifiableList(phases);
+        this.totalMillis = totalMillis;
+        this.dataSourceSucceeded = dataSourceSucceeded;
+    }
+
+    /**
+     * @return the name of the environment, as in {@link LDConfig.Builder#secondaryMobileKeys(java.util.Map)}
+     */
+    @NonNull
+    public String getEnvironmentName() {
+        return environmentName;
+    }
+
+    /**
+     * @return the phases that were measured, in the order they started
+     */
+    @NonNull
+    public List<PhaseTiming> getPhases() {
+        return phases;
+    }
+
+    /**
+     * @param phase a phase
+     * @return the timing of that phase, or null if it was not measured
+     */
+    @Nullable
+    public PhaseTiming getPhase(@NonNull Phase phase) {
+        for (PhaseTiming timing : phases) {
+            if (timing.getPhase() == phase) {
+                return timing;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the time from the start of {@code init} to the end of the last phase, in milliseconds
+     */
+    public long getTotalMillis() {
+        return totalMillis;
+    }
+
+    /**
+     * @return true if the data source's first result was a success; false if it was a failure
+     */
+    public boolean isDataSourceSucceeded() {
+        return dataSourceSucceeded;
+    }
+
+    @Override
+    public String toString() {
+        return "StartupReport(" + environmentName + ", " + totalMillis + "ms, " + phases + ")";
+    }
+}
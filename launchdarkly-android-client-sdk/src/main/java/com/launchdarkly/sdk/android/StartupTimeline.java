@@ -0,0 +1,62 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Collects the phases of startup for a {@link StartupReport}, as {@link System#nanoTime()} readings.
+ * <p>
+ * {@code init} records the phases it does once for all environments in one timeline, and then
+ * {@link #copy()}s it for each environment, whose phases are recorded from whichever thread does
+ * them.
+ */
+final class StartupTimeline {
+    private final long originNanos;
+    // Guarded by this.
+    private final List<StartupReport.PhaseTiming> phases;
+    private long endNanos;
+
+    StartupTimeline(long originNanos) {
+        this(originNanos, new ArrayList<>(), originNanos);
+    }
+
+    private StartupTimeline(long originNanos, List<StartupReport.PhaseTiming> phases, long endNanos) {
+        this.originNanos = originNanos;
+        this.phases = phases;
+        this.endNanos = endNanos;
+    }
+
+    /**
+     * Records a phase that started at {@code startNanos} and has just ended.
+     */
+    void recordSince(@NonNull StartupReport.Phase phase, long startNanos) {
+        record(phase, startNanos, System.nanoTime());
+    }
+
+    synchronized void record(@NonNull StartupReport.Phase phase, long startNanos, long phaseEndNanos) {
+        phases.add(new StartupReport.PhaseTiming(phase, toMillis(startNanos - originNanos),
+                toMillis(phaseEndNanos - startNanos)));
+        endNanos = Math.max(endNanos, phaseEndNanos);
+    }
+
+    synchronized StartupTimeline copy() {
+        return new StartupTimeline(originNanos, new ArrayList<>(phases), endNanos);
+    }
+
+    synchronized StartupReport toReport(@NonNull String environmentName, boolean dataSourceSucceeded) {
+        List<StartupReport.PhaseTiming> sorted = new ArrayList<>(phases);
+        // Phases from different threads may have been recorded out of order; the sort is stable, so
+        // the order they were recorded in settles ties.
+        Collections.sort(sorted, (a, b) -> Long.compare(a.getStartMillis(), b.getStartMillis()));
+        return new StartupReport(environmentName, sorted, toMillis(endNanos - originNanos),
+                dataSourceSucceeded);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
@@ -0,0 +1,106 @@
+package com.launchdarkly.sdk.android;
+
+import android.util.Base64;
+
+import com.launchdarkly.sdk.json.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.Charset;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Converts a context's flag data JSON to and from what {@link PersistentDataStoreWrapper} stores,
+ * optionally compressing it, as configured by
+ * {@link LDConfig.Builder#cachedFlagDataCompressionThreshold(int)}.
+ * <p>
+ * The stored value is either the JSON itself, which is what every SDK version has stored, or
+ * {@link #COMPRESSED_PREFIX} followed by the Base64 encoding of the Deflate-compressed UTF-8 JSON.
+ * The prefix cannot begin a JSON object, so values stored either way can always be read, whatever
+ * the current setting is. A later format would use a different prefix. An SDK version that does not
+ * know a prefix fails to parse the value and treats it as if nothing was cached, so downgrading
+ * costs one network request for flags rather than showing wrong values.
+ * <p>
+ * Compression only pays off when the data is large: it makes every load of cached flags spend time
+ * inflating, in exchange for a smaller SharedPreferences file, which Android reads in full and
+ * rewrites in full on every commit. {@link PersistenceStatistics#getFlagDataDecompressLatency()},
+ * against {@link PersistenceStatistics#getCommitLatency()} and the bytes written, shows how that
+ * trade-off turns out on real devices.
+ */
+final class StoredFlagDataCodec {
+    /**
+     * Marks a compressed value, and is the version of its format.
+     */
+    static final String COMPRESSED_PREFIX = "z1:";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private StoredFlagDataCodec() {
+    }
+
+    /**
+     * @param json the flag data JSON
+     * @param compressionThreshold the shortest JSON to compress; negative never to compress
+     * @return the value to store; the JSON itself if it is under the threshold, or if compressing
+     *         it would not make it shorter
+     */
+    static String encode(String json, int compressionThreshold) {
+        if (compressionThreshold < 0 || json.length() < compressionThreshold) {
+            return json;
+        }
+        byte[] input = json.getBytes(UTF_8);
+        Deflater deflater = new Deflater();
+        ByteArrayOutputStream output = new ByteArrayOutputStream(input.length / 4);
+        try {
+            deflater.setInput(input);
+            deflater.finish();
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                output.write(buffer, 0, deflater.deflate(buffer));
+            }
+        } finally {
+            deflater.end();
+        }
+        String encoded = COMPRESSED_PREFIX + Base64.encodeToString(output.toByteArray(), Base64.NO_WRAP);
+        return encoded.length() < json.length() ? encoded : json;
+    }
+
+    /**
+     * @param stored a stored value
+     * @return true if it was compressed by {@link #encode(String, int)}
+     */
+    static boolean isCompressed(String stored) {
+        return stored.startsWith(COMPRESSED_PREFIX);
+    }
+
+    /**
+     * @param stored a value returned by {@link #encode(String, int)}
+     * @return the flag data JSON
+     * @throws SerializationException if the value was compressed but cannot be inflated
+     */
+    static String decode(String stored) throws SerializationException {
+        if (!isCompressed(stored)) {
+            return stored;
+        }
+        Inflater inflater = new Inflater();
+        try {
+            byte[] input = Base64.decode(stored.substring(COMPRESSED_PREFIX.length()), Base64.NO_WRAP);
+            inflater.setInput(input);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(input.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int count = inflater.inflate(buffer);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("truncated data");
+                }
+                output.write(buffer, 0, count);
+            }
+            return new String(output.toByteArray(), UTF_8);
+        } catch (DataFormatException | IllegalArgumentException e) {
+            throw new SerializationException(e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
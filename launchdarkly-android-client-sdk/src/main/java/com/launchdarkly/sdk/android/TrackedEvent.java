@@ -0,0 +1,104 @@
+package com.launchdarkly.sdk.android;
+
+import androidx.annotation.NonNull;
+
+import com.launchdarkly.sdk.LDValue;
+
+import java.util.Objects;
+
+/**
+ * One application-defined event in a batch passed to {@link LDClient#trackBatch(java.util.List)}.
+ * <p>
+ * Each instance describes what a single call to {@link LDClient#track(String)},
+ * {@link LDClient#trackData(String, LDValue)}, or {@link LDClient#trackMetric(String, LDValue, double)}
+ * would have tracked; the context is not part of it, because the whole batch is tracked for the
+ * current evaluation context.
+ */
+public final class TrackedEvent {
+    @NonNull
+    private final String eventName;
+    private final LDValue data;
+    private final Double metricValue;
+
+    private TrackedEvent(@NonNull String eventName, LDValue data, Double metricValue) {
+        this.eventName = eventName;
+        this.data = data;
+        this.metricValue = metricValue;
+    }
+
+    /**
+     * An event with no data, as tracked by {@link LDClient#track(String)}.
+     *
+     * @param eventName the name of the event
+     * @return the event
+     */
+    public static TrackedEvent of(@NonNull String eventName) {
+        return new TrackedEvent(eventName, null, null);
+    }
+
+    /**
+     * An event with custom data, as tracked by {@link LDClient#trackData(String, LDValue)}.
+     *
+     * @param eventName the name of the event
+     * @param data      additional data associated with the event, or null
+     * @return the event
+     */
+    public static TrackedEvent ofData(@NonNull String eventName, LDValue data) {
+        return new TrackedEvent(eventName, data, null);
+    }
+
+    /**
+     * An event with a numeric metric, as tracked by
+     * {@link LDClient#trackMetric(String, LDValue, double)}.
+     *
+     * @param eventName   the name of the event
+     * @param data        additional data associated with the event, or null
+     * @param metricValue the numeric value of the metric
+     * @return the event
+     */
+    public static TrackedEvent ofMetric(@NonNull String eventName, LDValue data, double metricValue) {
+        return new TrackedEvent(eventName, data, metricValue);
+    }
+
+    /**
+     * @return the name of the event
+     */
+    @NonNull
+    public String getEventName() {
+        return eventName;
+    }
+
+    /**
+     * @return the custom data, or null if there is none
+     */
+    public LDValue getData() {
+        return data;
+    }
+
+    /**
+     * @return the metric value, or null if this is not a metric event
+     */
+    public Double getMetricValue() {
+        return metricValue;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        TrackedEvent other = (TrackedEvent) obj;
+        return eventName.equals(other.eventName) &&
+                Objects.equals(data, other.data) &&
+                Objects.equals(metricValue, other.metricValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(eventName, data, metricValue);
+    }
+
+    @Override
+    public String toString() {
+        return "TrackedEvent(" + eventName + "," + data + "," + metricValue + ")";
+    }
+}
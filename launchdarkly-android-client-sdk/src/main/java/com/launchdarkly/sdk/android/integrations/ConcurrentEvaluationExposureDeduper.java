@@ -0,0 +1,392 @@
+package com.launchdarkly.sdk.android.integrations;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link EvaluationExposureDeduper} for hooks that see evaluations from many threads at once, and
+ * for applications that evaluate more distinct flags than they want to remember.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ * <p>
+ * It decides exactly as {@link EvaluationExposureDeduper} does, and differs in how it holds what it
+ * has seen:
+ * <ul>
+ *     <li>Records are split across independently locked stripes by flag, so evaluations of different
+ *     flags on different threads rarely wait for each other, where the base class makes every
+ *     evaluation on every thread take the same lock.</li>
+ *     <li>It holds at most about {@code maxEntries} records. When it is full, the record of the flag
+ *     evaluated least recently is forgotten, and that flag's next evaluation is reported as if it
+ *     were new.</li>
+ *     <li>A record whose window has elapsed is forgotten as time passes, not only on
+ *     {@link #reset()}. Each stripe files its records in a timer wheel by the time their window ends,
+ *     and sweeps the slots that time has passed as it is used, so forgetting costs a little work
+ *     spread over evaluations rather than a scan. The first evaluation of each tick in a stripe also
+ *     sweeps any other stripe not in use at that moment, so that stripes whose flags are no longer
+ *     evaluated are emptied too.</li>
+ *     <li>An evaluation that is suppressed allocates nothing: the lookup is made with the strings the
+ *     key already holds, and records are linked into their stripe's table, recency list, and wheel
+ *     in place.</li>
+ * </ul>
+ *
+ * <pre><code>
+ *     Components.hooks()
+ *         .addHook(new DedupingHook(new ObservabilityHook(),
+ *                 new ConcurrentEvaluationExposureDeduper(60_000, 5_000)))
+ * </code></pre>
+ */
+public class ConcurrentEvaluationExposureDeduper extends EvaluationExposureDeduper {
+    /**
+     * The maximum number of records held by a deduper built without a maximum of its own.
+     */
+    public static final int DEFAULT_MAX_ENTRIES = 10_000;
+
+    private static final int MAX_STRIPES = 16;
+    private static final int WHEEL_SLOTS = 64;
+    // Windows span at most half the wheel, so that a record never wraps round to a slot that is
+    // about to be swept before its window has ended.
+    private static final int WINDOW_SLOTS = WHEEL_SLOTS / 2;
+
+    private final long windowMillis;
+    private final long tickMillis;
+    private final Stripe[] stripes;
+
+    /**
+     * Creates a deduper with a window of {@link #DEFAULT_WINDOW_MILLIS} and a maximum of
+     * {@link #DEFAULT_MAX_ENTRIES} records.
+     */
+    public ConcurrentEvaluationExposureDeduper() {
+        this(DEFAULT_WINDOW_MILLIS, DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * @param windowMillis the dedupe window in milliseconds; zero or negative disables
+     *                     deduplication, so every evaluation reaches the hook
+     * @param maxEntries   about how many flags to remember at once; zero or negative means
+     *                     {@link #DEFAULT_MAX_ENTRIES}
+     */
+    public ConcurrentEvaluationExposureDeduper(int windowMillis, int maxEntries) {
+        super(windowMillis);
+        this.windowMillis = windowMillis;
+        this.tickMillis = Math.max(1, ((long) windowMillis + WINDOW_SLOTS - 1) / WINDOW_SLOTS);
+        int max = maxEntries <= 0 ? DEFAULT_MAX_ENTRIES : maxEntries;
+        int stripeCount = Math.min(MAX_STRIPES, Integer.highestOneBit(max));
+        int perStripe = (max + stripeCount - 1) / stripeCount;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    @Override
+    public boolean shouldRecord(EvaluationExposureKey key, long nowMillis) {
+        if (windowMillis <= 0) {
+            return true;
+        }
+        String mobileKeyHash = key.getMobileKeyHash();
+        String flagKey = key.getFlagKey();
+        int hash = spread(31 * hashOf(mobileKeyHash) + hashOf(flagKey));
+        Stripe stripe = stripes[hash & (stripes.length - 1)];
+        long nowTick = nowMillis / tickMillis;
+        long staleBeforeMillis = nowMillis - windowMillis;
+        boolean swept;
+        boolean record;
+        stripe.lock();
+        try {
+            swept = stripe.expire(nowTick, staleBeforeMillis);
+            record = decide(stripe, hash, key, mobileKeyHash, flagKey, nowMillis);
+        } finally {
+            stripe.unlock();
+        }
+        if (swept) {
+            sweepIdleStripes(stripe, nowTick, staleBeforeMillis);
+        }
+        return record;
+    }
+
+    private boolean decide(Stripe stripe, int hash, EvaluationExposureKey key, String mobileKeyHash,
+                           String flagKey, long nowMillis) {
+        Record record = stripe.find(hash, mobileKeyHash, flagKey);
+        if (record == null) {
+            stripe.insert(new Record(hash, mobileKeyHash, flagKey), key, nowMillis, slotFor(nowMillis));
+            return true;
+        }
+        stripe.touch(record);
+        if (record.atMillis > nowMillis - windowMillis && record.key.equals(key)) {
+            return false;
+        }
+        stripe.report(record, key, nowMillis, slotFor(nowMillis));
+        return true;
+    }
+
+    /**
+     * A stripe only sweeps when it is used, so one whose flags have stopped being evaluated would
+     * hold on to their records. A stripe that has just moved on to a new tick therefore sweeps the
+     * others as well, which happens at most once a tick per stripe. It skips any stripe that is busy,
+     * since that one is in use and sweeping itself, so this never waits for a lock.
+     */
+    private void sweepIdleStripes(Stripe current, long nowTick, long staleBeforeMillis) {
+        for (Stripe other : stripes) {
+            if (other != current && other.tryLock()) {
+                try {
+                    other.expire(nowTick, staleBeforeMillis);
+                } finally {
+                    other.unlock();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        for (Stripe stripe : stripes) {
+            stripe.lock();
+            try {
+                stripe.clear();
+            } finally {
+                stripe.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return how many records are held, for tests
+     */
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock();
+            try {
+                size += stripe.size;
+            } finally {
+                stripe.unlock();
+            }
+        }
+        return size;
+    }
+
+    private int slotFor(long reportedAtMillis) {
+        // The slot of the tick in which the window ends.
+        return (int) (((reportedAtMillis + windowMillis) / tickMillis) % WHEEL_SLOTS);
+    }
+
+    private static int hashOf(String s) {
+        return s == null ? 0 : s.hashCode();
+    }
+
+    // Stripes are chosen by the low bits and table buckets by the bits above them, and flag keys
+    // often differ only in a trailing digit, so every bit of the string hashes is mixed into both:
+    // this is the MurmurHash3 finalizer.
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * A flag's record. It is linked into three lists of its stripe at once, so that finding it,
+     * keeping it in recency order, and filing it by when its window ends cost no allocation.
+     */
+    private static final class Record {
+        final int hash;
+        final String mobileKeyHash;
+        final String flagKey;
+        EvaluationExposureKey key;
+        long atMillis;
+
+        Record nextInBucket;
+        Record lessRecent;
+        Record moreRecent;
+        Record prevInSlot;
+        Record nextInSlot;
+        int slot = -1;
+
+        Record(int hash, String mobileKeyHash, String flagKey) {
+            this.hash = hash;
+            this.mobileKeyHash = mobileKeyHash;
+            this.flagKey = flagKey;
+        }
+
+        boolean is(int hash, String mobileKeyHash, String flagKey) {
+            return this.hash == hash && equal(this.flagKey, flagKey) && equal(this.mobileKeyHash, mobileKeyHash);
+        }
+
+        private static boolean equal(String a, String b) {
+            return a == null ? b == null : a.equals(b);
+        }
+    }
+
+    /**
+     * One stripe's records, guarded by the stripe itself. It is a lock rather than a monitor so that
+     * a sweep of idle stripes can pass over a busy one instead of waiting for it.
+     */
+    private static final class Stripe extends ReentrantLock {
+        private final int maxEntries;
+        private final Record[] table;
+        private final Record[] wheel = new Record[WHEEL_SLOTS];
+        private Record leastRecent;
+        private Record mostRecent;
+        private int size;
+        // The last tick whose slot has been swept, or -1 before the first sweep.
+        private long sweptTick = -1;
+
+        Stripe(int maxEntries) {
+            this.maxEntries = maxEntries;
+            // A fixed table sized so that a full stripe averages under one record per bucket.
+            int buckets = Integer.highestOneBit(Math.max(1, maxEntries * 4 / 3)) << 1;
+            this.table = new Record[buckets];
+        }
+
+        Record find(int hash, String mobileKeyHash, String flagKey) {
+            for (Record r = table[bucket(hash)]; r != null; r = r.nextInBucket) {
+                if (r.is(hash, mobileKeyHash, flagKey)) {
+                    return r;
+                }
+            }
+            return null;
+        }
+
+        void insert(Record record, EvaluationExposureKey key, long nowMillis, int slot) {
+            if (size >= maxEntries && leastRecent != null) {
+                remove(leastRecent);
+            }
+            int b = bucket(record.hash);
+            record.nextInBucket = table[b];
+            table[b] = record;
+            linkMostRecent(record);
+            size++;
+            report(record, key, nowMillis, slot);
+        }
+
+        void report(Record record, EvaluationExposureKey key, long nowMillis, int slot) {
+            record.key = key;
+            record.atMillis = nowMillis;
+            if (record.slot != slot) {
+                unlinkFromSlot(record);
+                record.slot = slot;
+                record.prevInSlot = null;
+                record.nextInSlot = wheel[slot];
+                if (wheel[slot] != null) {
+                    wheel[slot].prevInSlot = record;
+                }
+                wheel[slot] = record;
+            }
+        }
+
+        void touch(Record record) {
+            if (record != mostRecent) {
+                unlinkFromRecency(record);
+                linkMostRecent(record);
+            }
+        }
+
+        /**
+         * Sweeps the slots of every tick since the last sweep, forgetting the records in them whose
+         * window ended at or before {@code staleBeforeMillis}. A record filed in a swept slot whose
+         * window has not ended stays.
+         *
+         * @return true if time had moved on to a tick not yet swept
+         */
+        boolean expire(long nowTick, long staleBeforeMillis) {
+            if (sweptTick < 0) {
+                sweptTick = nowTick;
+                return false;
+            }
+            if (nowTick <= sweptTick) {
+                return false;
+            }
+            long ticks = Math.min(nowTick - sweptTick, WHEEL_SLOTS);
+            for (long t = nowTick - ticks + 1; t <= nowTick; t++) {
+                Record r = wheel[(int) (t % WHEEL_SLOTS)];
+                while (r != null) {
+                    Record next = r.nextInSlot;
+                    if (r.atMillis <= staleBeforeMillis) {
+                        remove(r);
+                    }
+                    r = next;
+                }
+            }
+            sweptTick = nowTick;
+            return true;
+        }
+
+        void clear() {
+            Arrays.fill(table, null);
+            Arrays.fill(wheel, null);
+            leastRecent = null;
+            mostRecent = null;
+            size = 0;
+            sweptTick = -1;
+        }
+
+        private void remove(Record record) {
+            int b = bucket(record.hash);
+            if (table[b] == record) {
+                table[b] = record.nextInBucket;
+            } else {
+                for (Record r = table[b]; r != null; r = r.nextInBucket) {
+                    if (r.nextInBucket == record) {
+                        r.nextInBucket = record.nextInBucket;
+                        break;
+                    }
+                }
+            }
+            record.nextInBucket = null;
+            unlinkFromRecency(record);
+            unlinkFromSlot(record);
+            size--;
+        }
+
+        private void linkMostRecent(Record record) {
+            record.lessRecent = mostRecent;
+            record.moreRecent = null;
+            if (mostRecent != null) {
+                mostRecent.moreRecent = record;
+            } else {
+                leastRecent = record;
+            }
+            mostRecent = record;
+        }
+
+        private void unlinkFromRecency(Record record) {
+            if (record.lessRecent != null) {
+                record.lessRecent.moreRecent = record.moreRecent;
+            } else {
+                leastRecent = record.moreRecent;
+            }
+            if (record.moreRecent != null) {
+                record.moreRecent.lessRecent = record.lessRecent;
+            } else {
+                mostRecent = record.lessRecent;
+            }
+            record.lessRecent = null;
+            record.moreRecent = null;
+        }
+
+        private void unlinkFromSlot(Record record) {
+            if (record.slot < 0) {
+                return;
+            }
+            if (record.prevInSlot != null) {
+                record.prevInSlot.nextInSlot = record.nextInSlot;
+            } else {
+                wheel[record.slot] = record.nextInSlot;
+            }
+            if (record.nextInSlot != null) {
+                record.nextInSlot.prevInSlot = record.prevInSlot;
+            }
+            record.prevInSlot = null;
+            record.nextInSlot = null;
+            record.slot = -1;
+        }
+
+        private int bucket(int hash) {
+            // The low bits chose the stripe, so they are the same for every record here.
+            return (hash >>> 4) & (table.length - 1);
+        }
+    }
+}
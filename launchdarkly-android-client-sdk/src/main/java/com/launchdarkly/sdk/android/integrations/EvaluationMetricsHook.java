@@ -0,0 +1,448 @@
+package com.launchdarkly.sdk.android.integrations;
+
+import androidx.annotation.NonNull;
+
+import com.launchdarkly.sdk.EvaluationDetail;
+import com.launchdarkly.sdk.EvaluationReason;
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.android.LatencyHistogram;
+
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A hook that counts, per flag, what the application's evaluations have returned, without sending
+ * anything anywhere.
+ * <p>
+ * For each flag it counts evaluations, evaluations per variation, evaluations that fell back to the
+ * application's default value, and the errors {@link EvaluationReason.ErrorKind#WRONG_TYPE} and
+ * {@link EvaluationReason.ErrorKind#FLAG_NOT_FOUND}, and it times evaluations. That is enough to find
+ * the flags evaluated most often, flags that are configured but never evaluated, and defaults that
+ * do not match the flag they are given for, in production and without one record per evaluation
+ * leaving the device. Read the counts with {@link #getMetrics()}, or have them handed to an
+ * {@link Exporter} periodically.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ *
+ * <pre><code>
+ *     EvaluationMetricsHook metrics = new EvaluationMetricsHook(true, 60_000,
+ *             snapshot -&gt; myAnalytics.report(snapshot));
+ *     Components.hooks()
+ *         .addHook(metrics)
+ *         .addHook(new ObservabilityHook())
+ * </code></pre>
+ * <p>
+ * Counting is cheap enough to leave on: each evaluation increments a few counters spread across
+ * stripes by thread, so that evaluations on different threads rarely touch the same memory, and
+ * allocates nothing. The latency of an evaluation is the time from this hook's before stage to its
+ * after stage, so it includes the stages of the hooks registered after this one; register it first to
+ * measure the most. The start time is kept per thread rather than in series data, so latency is only
+ * measured when the after stage runs on the thread that evaluated: when after stages run
+ * asynchronously, because of {@link HooksConfigurationBuilder#runAfterStagesAsynchronously}, only
+ * counts are kept, and the same goes for the outer of two evaluations when a hook evaluates a flag.
+ * <p>
+ * Counts are cumulative from when the hook was created, and cover every context and every
+ * environment the hook is registered for.
+ */
+public final class EvaluationMetricsHook extends Hook implements Closeable {
+    /**
+     * Receives the metrics periodically.
+     * <p>
+     * The exporter is called on a background thread owned by the hook. It must handle its own errors;
+     * one it throws is discarded, and the next export still happens.
+     */
+    public interface Exporter {
+        /**
+         * @param metrics the metrics of every flag evaluated so far, by flag key
+         */
+        void export(@NonNull Map<String, FlagMetrics> metrics);
+    }
+
+    private static final String NAME = "LaunchDarkly Evaluation Metrics";
+    private static final String THREAD_NAME = "LaunchDarkly-EvaluationMetricsHook";
+
+    private final boolean measureLatency;
+    private final ConcurrentHashMap<String, FlagCounters> flags = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService exportExecutor;
+    private final Exporter exporter;
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    // When the evaluation under way on each thread began, so that timing it allocates no series data.
+    private final ThreadLocal<StartTime> startTimes = new ThreadLocal<StartTime>() {
+        @Override
+        protected StartTime initialValue() {
+            return new StartTime();
+        }
+    };
+
+    /**
+     * Creates a hook that measures latency and does not export.
+     */
+    public EvaluationMetricsHook() {
+        this(true);
+    }
+
+    /**
+     * Creates a hook that does not export.
+     *
+     * @param measureLatency false to count without timing, which lets the SDK skip this hook's before
+     *                       stage
+     */
+    public EvaluationMetricsHook(boolean measureLatency) {
+        this(measureLatency, 0, null);
+    }
+
+    /**
+     * @param measureLatency       false to count without timing, which lets the SDK skip this hook's
+     *                             before stage
+     * @param exportIntervalMillis how often to hand the metrics to {@code exporter}; zero or less does
+     *                             not export
+     * @param exporter             receives the metrics; null does not export
+     */
+    public EvaluationMetricsHook(boolean measureLatency, long exportIntervalMillis, Exporter exporter) {
+        super(NAME, measureLatency);
+        this.measureLatency = measureLatency;
+        if (exporter != null && exportIntervalMillis > 0) {
+            this.exporter = exporter;
+            this.exportExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, THREAD_NAME);
+                thread.setDaemon(true);
+                return thread;
+            });
+            exportExecutor.scheduleAtFixedRate(this::export, exportIntervalMillis, exportIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        } else {
+            this.exporter = null;
+            this.exportExecutor = null;
+        }
+    }
+
+    /**
+     * Notes when the evaluation began, if latency is measured.
+     *
+     * @param seriesContext container of parameters associated with this evaluation
+     * @param seriesData    immutable data from the previous stage in the evaluation series
+     * @return {@code seriesData}
+     */
+    @Override
+    public Map<String, Object> beforeEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData) {
+        if (measureLatency) {
+            StartTime start = startTimes.get();
+            start.nanos = System.nanoTime();
+            start.set = true;
+        }
+        return seriesData;
+    }
+
+    /**
+     * Counts the evaluation.
+     *
+     * @param seriesContext    container of parameters associated with this evaluation
+     * @param seriesData       the data returned by this hook's before stage
+     * @param evaluationDetail the result of the evaluation
+     * @return {@code seriesData}
+     */
+    @Override
+    public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                               EvaluationDetail<LDValue> evaluationDetail) {
+        long elapsedNanos = -1;
+        if (measureLatency) {
+            StartTime start = startTimes.get();
+            if (start.set) {
+                elapsedNanos = System.nanoTime() - start.nanos;
+                start.set = false;
+            }
+        }
+        String flagKey = seriesContext.flagKey;
+        if (flagKey == null || evaluationDetail == null) {
+            return seriesData;
+        }
+        FlagCounters counters = flags.get(flagKey);
+        if (counters == null) {
+            FlagCounters created = new FlagCounters(measureLatency);
+            counters = flags.putIfAbsent(flagKey, created);
+            if (counters == null) {
+                counters = created;
+            }
+        }
+        counters.record(evaluationDetail);
+        if (elapsedNanos >= 0) {
+            counters.latency.recordNanos(elapsedNanos);
+        }
+        return seriesData;
+    }
+
+    /**
+     * Returns what has been counted so far.
+     *
+     * @return the metrics of every flag evaluated, by flag key, in key order
+     */
+    @NonNull
+    public Map<String, FlagMetrics> getMetrics() {
+        Map<String, FlagMetrics> metrics = new TreeMap<>();
+        for (Map.Entry<String, FlagCounters> e : flags.entrySet()) {
+            metrics.put(e.getKey(), e.getValue().snapshot(e.getKey()));
+        }
+        return Collections.unmodifiableMap(metrics);
+    }
+
+    /**
+     * Forgets everything counted so far.
+     */
+    public void reset() {
+        flags.clear();
+    }
+
+    /**
+     * Stops exporting, after one last export of the metrics, so that what was counted since the
+     * previous export is not lost.
+     * <p>
+     * The last export runs on the hook's export thread, after any export already under way, so that
+     * the exporter is never called twice at once; this method does not wait for it. Closing again
+     * does nothing.
+     */
+    @Override
+    public void close() {
+        if (exportExecutor != null && closed.compareAndSet(false, true)) {
+            // Queued before shutting down, which cancels the periodic export but still runs this.
+            exportExecutor.execute(this::export);
+            exportExecutor.shutdown();
+        }
+    }
+
+    private void export() {
+        try {
+            exporter.export(getMetrics());
+        } catch (RuntimeException e) {
+            // An exception escaping would cancel every later export.
+        }
+    }
+
+    /**
+     * An immutable snapshot of what one flag's evaluations have returned, as returned by
+     * {@link EvaluationMetricsHook#getMetrics()}.
+     * <p>
+     * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     */
+    public static final class FlagMetrics {
+        private final String flagKey;
+        private final long evaluations;
+        private final Map<Integer, Long> variationCounts;
+        private final long defaultValueCount;
+        private final long errorCount;
+        private final long wrongTypeCount;
+        private final long flagNotFoundCount;
+        private final LatencyHistogram latency;
+
+        FlagMetrics(String flagKey, long evaluations, Map<Integer, Long> variationCounts, long defaultValueCount,
+                    long errorCount, long wrongTypeCount, long flagNotFoundCount, LatencyHistogram latency) {
+            this.flagKey = flagKey;
+            this.evaluations = evaluations;
+            this.variationCounts = variationCounts;
+            this.defaultValueCount = defaultValueCount;
+            this.errorCount = errorCount;
+            this.wrongTypeCount = wrongTypeCount;
+            this.flagNotFoundCount = flagNotFoundCount;
+            this.latency = latency;
+        }
+
+        /**
+         * @return the flag key
+         */
+        @NonNull
+        public String getFlagKey() {
+            return flagKey;
+        }
+
+        /**
+         * @return how many times the flag was evaluated
+         */
+        public long getEvaluations() {
+            return evaluations;
+        }
+
+        /**
+         * @return how many evaluations returned each variation, by variation index, in index order;
+         *         evaluations that returned the default value have no variation, and are not counted
+         *         here
+         */
+        @NonNull
+        public Map<Integer, Long> getVariationCounts() {
+            return variationCounts;
+        }
+
+        /**
+         * @return how many evaluations returned the application's default value, whether because of
+         *         an error or because the flag was off with no off variation
+         */
+        public long getDefaultValueCount() {
+            return defaultValueCount;
+        }
+
+        /**
+         * @return how many evaluations had a reason of kind {@link EvaluationReason.Kind#ERROR}, of
+         *         any error kind
+         */
+        public long getErrorCount() {
+            return errorCount;
+        }
+
+        /**
+         * @return how many evaluations failed because the flag's value is not of the type the
+         *         application asked for, which usually means a default of the wrong type
+         */
+        public long getWrongTypeCount() {
+            return wrongTypeCount;
+        }
+
+        /**
+         * @return how many evaluations were of a flag the SDK had no data for
+         */
+        public long getFlagNotFoundCount() {
+            return flagNotFoundCount;
+        }
+
+        /**
+         * @return how long evaluations took, or an empty histogram if latency was not measured
+         */
+        @NonNull
+        public LatencyHistogram getLatency() {
+            return latency;
+        }
+
+        @Override
+        public String toString() {
+            return "FlagMetrics(flagKey=" + flagKey + ", evaluations=" + evaluations
+                    + ", variationCounts=" + variationCounts + ", defaultValueCount=" + defaultValueCount
+                    + ", errorCount=" + errorCount + ", wrongTypeCount=" + wrongTypeCount
+                    + ", flagNotFoundCount=" + flagNotFoundCount + ", latency=" + latency + ")";
+        }
+    }
+
+    /**
+     * One flag's counters, striped by thread. Each stripe is a run of {@link #STRIDE} longs, which is
+     * two cache lines on most devices, so that two threads counting the same flag do not contend for
+     * one line; a snapshot sums the stripes. Variations past {@link #STRIPED_VARIATIONS}, which few
+     * flags have, are counted unstriped.
+     */
+    private static final class FlagCounters {
+        private static final int EVALUATIONS = 0;
+        private static final int DEFAULT_VALUE = 1;
+        private static final int ERROR = 2;
+        private static final int WRONG_TYPE = 3;
+        private static final int FLAG_NOT_FOUND = 4;
+        private static final int FIRST_VARIATION = 8;
+        private static final int STRIPED_VARIATIONS = 8;
+        private static final int STRIDE = FIRST_VARIATION + STRIPED_VARIATIONS;
+        private static final int STRIPES = stripeCount();
+
+        private final AtomicLongArray cells = new AtomicLongArray(STRIPES * STRIDE);
+        private final ConcurrentHashMap<Integer, AtomicLong> moreVariations = new ConcurrentHashMap<>();
+        private final LatencyCounter latency;
+
+        FlagCounters(boolean measureLatency) {
+            this.latency = measureLatency ? new LatencyCounter() : null;
+        }
+
+        void record(EvaluationDetail<LDValue> detail) {
+            int base = ((int) Thread.currentThread().getId() & (STRIPES - 1)) * STRIDE;
+            cells.incrementAndGet(base + EVALUATIONS);
+            int variation = detail.getVariationIndex();
+            if (variation == EvaluationDetail.NO_VARIATION) {
+                cells.incrementAndGet(base + DEFAULT_VALUE);
+            } else if (variation >= 0 && variation < STRIPED_VARIATIONS) {
+                cells.incrementAndGet(base + FIRST_VARIATION + variation);
+            } else if (variation >= 0) {
+                AtomicLong count = moreVariations.get(variation);
+                if (count == null) {
+                    AtomicLong created = new AtomicLong();
+                    count = moreVariations.putIfAbsent(variation, created);
+                    if (count == null) {
+                        count = created;
+                    }
+                }
+                count.incrementAndGet();
+            }
+            EvaluationReason reason = detail.getReason();
+            if (reason != null && reason.getKind() == EvaluationReason.Kind.ERROR) {
+                cells.incrementAndGet(base + ERROR);
+                if (reason.getErrorKind() == EvaluationReason.ErrorKind.WRONG_TYPE) {
+                    cells.incrementAndGet(base + WRONG_TYPE);
+                } else if (reason.getErrorKind() == EvaluationReason.ErrorKind.FLAG_NOT_FOUND) {
+                    cells.incrementAndGet(base + FLAG_NOT_FOUND);
+                }
+            }
+        }
+
+        FlagMetrics snapshot(String flagKey) {
+            long[] sums = new long[STRIDE];
+            for (int stripe = 0; stripe < STRIPES; stripe++) {
+                for (int i = 0; i < STRIDE; i++) {
+                    sums[i] += cells.get(stripe * STRIDE + i);
+                }
+            }
+            Map<Integer, Long> variations = new TreeMap<>();
+            for (int v = 0; v < STRIPED_VARIATIONS; v++) {
+                if (sums[FIRST_VARIATION + v] != 0) {
+                    variations.put(v, sums[FIRST_VARIATION + v]);
+                }
+            }
+            for (Map.Entry<Integer, AtomicLong> e : moreVariations.entrySet()) {
+                variations.put(e.getKey(), e.getValue().get());
+            }
+            return new FlagMetrics(flagKey, sums[EVALUATIONS], Collections.unmodifiableMap(variations),
+                    sums[DEFAULT_VALUE], sums[ERROR], sums[WRONG_TYPE], sums[FLAG_NOT_FOUND],
+                    latency == null ? LatencyHistogram.EMPTY : latency.snapshot());
+        }
+
+        // A power of two above the processor count, and at most eight: more stripes than threads that
+        // evaluate at once would only make snapshots slower.
+        private static int stripeCount() {
+            int processors = Math.max(1, Runtime.getRuntime().availableProcessors());
+            return Math.min(8, Integer.highestOneBit(processors) * 2);
+        }
+    }
+
+    private static final class StartTime {
+        long nanos;
+        boolean set;
+    }
+
+    /**
+     * Counts one flag's evaluation durations into the buckets of {@link LatencyHistogram}.
+     */
+    private static final class LatencyCounter {
+        private final AtomicLongArray bucketCounts = new AtomicLongArray(LatencyHistogram.BUCKET_COUNT);
+        private final AtomicLong totalMicros = new AtomicLong();
+        private final AtomicLong maxMicros = new AtomicLong();
+
+        void recordNanos(long nanos) {
+            long micros = Math.max(0, nanos) / 1000;
+            bucketCounts.incrementAndGet(LatencyHistogram.getBucketForMicros(micros));
+            totalMicros.addAndGet(micros);
+            long max = maxMicros.get();
+            while (micros > max && !maxMicros.compareAndSet(max, micros)) {
+                max = maxMicros.get();
+            }
+        }
+
+        LatencyHistogram snapshot() {
+            long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = bucketCounts.get(i);
+            }
+            return LatencyHistogram.fromBucketCounts(counts, totalMicros.get(), maxMicros.get());
+        }
+    }
+}
@@ -7,6 +7,8 @@ import com.launchdarkly.sdk.android.subsystems.ComponentConfigurer;
 import com.launchdarkly.sdk.android.subsystems.EventProcessor;
 
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
@@ -71,6 +73,16 @@ public abstract class EventProcessorBuilder implements ComponentConfigurer<Event
      */
     protected Set<AttributeRef> privateAttributes;
 
+    /**
+     * Sampling ratios for full and debug evaluation events, by flag key pattern
+     */
+    protected Map<String, Double> evaluationEventSampling = new LinkedHashMap<>();
+
+    /**
+     * Sampling ratios for custom events, by event name pattern
+     */
+    protected Map<String, Double> customEventSampling = new LinkedHashMap<>();
+
     /**
      * Sets whether or not all optional context attributes should be hidden from LaunchDarkly.
      * <p>
@@ -155,4 +167,86 @@ public abstract class EventProcessorBuilder implements ComponentConfigurer<Event
         }
         return this;
     }
+
+    /**
+     * Records only a fraction of the full and debug evaluation events for some flags.
+     * <p>
+     * A flag that has event tracking or debugging turned on produces an event for every evaluation,
+     * which for a flag evaluated in a tight loop can be a large share of the events the SDK buffers,
+     * serializes, and sends. Sampling keeps a full or debug event for only {@code ratio} of the
+     * contexts that evaluate the flag. The choice is deterministic: a given context is either always
+     * or never sampled for a given flag, so the events that are kept describe complete sessions
+     * rather than random slices of them.
+     * <p>
+     * Summary counts are not affected. Every evaluation, sampled or not, is still counted in the
+     * summary event, so the evaluation counts shown in LaunchDarkly stay exact.
+     * <p>
+     * The pattern is either a flag key, or a key prefix followed by {@code *}, as in
+     * {@code "checkout-*"}. When more than one pattern matches a flag, an exact key wins over a
+     * prefix, and a longer prefix over a shorter one. Calling this again with the same pattern
+     * replaces its ratio.
+     *
+     * @param flagKeyPattern a flag key, or a flag key prefix followed by {@code *}
+     * @param ratio the fraction of contexts to record events for, from 0 (none) to 1 (all);
+     *              values outside that range are clamped to it
+     * @return the builder
+     * @see #sampleCustomEvents(String, double)
+     */
+    public EventProcessorBuilder sampleEvaluationEvents(String flagKeyPattern, double ratio) {
+        if (flagKeyPattern != null) {
+            evaluationEventSampling.put(flagKeyPattern, clampRatio(ratio));
+        }
+        return this;
+    }
+
+    /**
+     * Records only a fraction of the custom events with some names, as sent by
+     * {@link com.launchdarkly.sdk.android.LDClient#track(String)} and its variants.
+     * <p>
+     * As with {@link #sampleEvaluationEvents(String, double)}, the choice is deterministic for each
+     * context and event name, and the pattern is either an event name or a name prefix followed by
+     * {@code *}. Custom events that are not sampled are discarded; hooks still see every call.
+     * <p>
+     * Sampling an event that is used as a metric in an experiment reduces the data available to that
+     * experiment, so only sample events that are not.
+     *
+     * @param eventNamePattern an event name, or an event name prefix followed by {@code *}
+     * @param ratio the fraction of contexts to record events for, from 0 (none) to 1 (all);
+     *              values outside that range are clamped to it
+     * @return the builder
+     * @see #sampleEvaluationEvents(String, double)
+     */
+    public EventProcessorBuilder sampleCustomEvents(String eventNamePattern, double ratio) {
+        if (eventNamePattern != null) {
+            customEventSampling.put(eventNamePattern, clampRatio(ratio));
+        }
+        return this;
+    }
+
+    /**
+     * Maps a context and a key to a point in [0, 1) that is the same on every device and every run,
+     * for deciding whether the context is in a sample. The two string hashes, which the language
+     * specifies, are combined and then put through the MurmurHash3 finalizer, since
+     * {@code String.hashCode()} alone spreads keys that differ only in their last characters, such
+     * as numbered user keys, very unevenly. Event sampling and {@link SamplingHook} both use it, so
+     * at equal ratios they choose the same contexts. It is protected so that the SDK's implementation
+     * of this builder, in another package, can reach it without it being public.
+     *
+     * @param contextKey the context's fully qualified key
+     * @param key        a flag key or event name; null is treated like an empty string
+     * @return the point
+     */
+    protected static double sampleBucket(String contextKey, String key) {
+        long h = contextKey.hashCode() * 31L + (key == null ? 0 : key.hashCode());
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (h >>> 11) * 0x1.0p-53;
+    }
+
+    private static double clampRatio(double ratio) {
+        return Double.isNaN(ratio) ? 1 : Math.max(0, Math.min(1, ratio));
+    }
 }
@@ -3,6 +3,7 @@ package com.launchdarkly.sdk.android.integrations;
 import com.launchdarkly.sdk.EvaluationDetail;
 import com.launchdarkly.sdk.LDValue;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,6 +22,7 @@ import java.util.Map;
 public abstract class Hook {
 
     private final HookMetadata metadata;
+    private final boolean skipsBeforeEvaluation;
 
     /**
      * @return the hooks metadata
@@ -35,7 +37,43 @@ public abstract class Hook {
      * @param name a friendly name for the hooks
      */
     public Hook(String name) {
+        this(name, true);
+    }
+
+    /**
+     * Creates an instance of {@link Hook} with the given name, declaring whether it does anything in
+     * {@link #beforeEvaluation(EvaluationSeriesContext, Map)}.
+     * <p>
+     * A hook that observes only the result of an evaluation, such as one that counts or exports
+     * evaluations, can pass {@code false}, and the SDK then never calls its before stage:
+     * {@link #afterEvaluation(EvaluationSeriesContext, Map, EvaluationDetail)} is given the empty
+     * series data the before stage would have started from. That saves a call per evaluation, which
+     * adds up for a flag evaluated in a loop.
+     * <p>
+     * This constructor is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     *
+     * @param name                 a friendly name for the hooks
+     * @param runsBeforeEvaluation false if the SDK may skip this hook's before evaluation stage
+     */
+    protected Hook(String name, boolean runsBeforeEvaluation) {
         metadata = new HookMetadata(name) {};
+        this.skipsBeforeEvaluation = !runsBeforeEvaluation;
+    }
+
+    /**
+     * Reports what the hook declared when it was constructed. This is final, and is held as the
+     * negation of what the hook declared, so that it answers {@code true} for any instance that was
+     * not built through a constructor, such as a mock, and that hook's before stage keeps running.
+     * <p>
+     * This method is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     *
+     * @return false if the SDK may skip this hook's before evaluation stage
+     * @see #Hook(String, boolean)
+     */
+    public final boolean runsBeforeEvaluation() {
+        return !skipsBeforeEvaluation;
     }
 
     /**
@@ -152,4 +190,30 @@ public abstract class Hook {
     public void afterTrack(TrackSeriesContext seriesContext) {
         //  default implementation is no-op
     }
+
+    /**
+     * {@link #afterTrackBatch(List)} is called once for a batch of events tracked together with
+     * {@link com.launchdarkly.sdk.android.LDClient#trackBatch(List, boolean)}, after all of them have
+     * been enqueued, with the events in the order they were tracked.
+     * <p>
+     * By default it calls {@link #afterTrack(TrackSeriesContext)} for each event in turn, so a hook
+     * that only implements that stage sees a batch as separate events. A hook that can handle many
+     * events at once, such as one that forwards them to a system that takes them in bulk, can
+     * override this to do its work once per batch. An exception thrown by either ends the batch for
+     * this hook; the other hooks still see all of it.
+     * <p>
+     * A {@link HookDecorator} does not forward this stage, so that a decorator that filters
+     * {@link #afterTrack(TrackSeriesContext)} also filters batches; the hook it wraps sees a batch one
+     * event at a time.
+     * <p>
+     * This method is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     *
+     * @param seriesContexts the tracked events; not mutable
+     */
+    public void afterTrackBatch(List<TrackSeriesContext> seriesContexts) {
+        for (int i = 0; i < seriesContexts.size(); i++) {
+            afterTrack(seriesContexts.get(i));
+        }
+    }
 }
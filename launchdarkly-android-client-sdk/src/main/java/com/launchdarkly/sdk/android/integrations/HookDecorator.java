@@ -44,8 +44,9 @@ import java.util.Objects;
  * <p>
  * That hook filters evaluations and still forwards identify and track, which it never mentions.
  * <p>
- * {@link DedupingHook} is the decorator the SDK ships: it forwards an evaluation series only when the
- * flag's result is one its hook has not just been told about.
+ * {@link DedupingHook} and {@link SamplingHook} are the decorators the SDK ships: the first forwards an
+ * evaluation series only when the flag's result is one its hook has not just been told about, and the
+ * second forwards a fixed fraction of series, chosen by context and flag, plus every change of result.
  * <p>
  * Decorators stack, so a hook may be wrapped in as many as it needs, each wrapping the one inside it:
  *
@@ -38,11 +38,79 @@ import java.util.List;
  */
 public abstract class HooksConfigurationBuilder {
 
+    /**
+     * What {@link #runAfterStagesAsynchronously(int, AsyncOverflowPolicy)} does with an after stage
+     * when its queue is full.
+     * <p>
+     * This enum is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     */
+    public enum AsyncOverflowPolicy {
+        /**
+         * Discards the stage being queued, so the hooks never hear about that evaluation, identify, or
+         * track. The calling thread never waits.
+         */
+        DROP_NEWEST,
+
+        /**
+         * Discards the stage that has been waiting longest to make room for the new one, so the hooks
+         * hear about the most recent activity. The calling thread never waits.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Makes the calling thread wait for room in the queue, so nothing is lost, at the cost of
+         * slowing the caller down to the pace of the hooks whenever they fall behind.
+         */
+        BLOCK
+    }
+
+    /**
+     * The default queue capacity for {@link #runAfterStagesAsynchronously(int, AsyncOverflowPolicy)}.
+     */
+    public static final int DEFAULT_ASYNC_QUEUE_CAPACITY = 1000;
+
+    /**
+     * The default number of stages in a row that may exceed the budget set with
+     * {@link #bypassSlowHooks(long, int)} before a hook is bypassed.
+     */
+    public static final int DEFAULT_SLOW_HOOK_OVERRUN_LIMIT = 10;
+
     /**
      * The current set of hooks the builder has.
      */
     protected List<Hook> hooks = Collections.emptyList();
 
+    /**
+     * Whether after stages are run on a background thread
+     */
+    protected boolean runAfterStagesAsynchronously = false;
+
+    /**
+     * How many after stages may wait for the background thread
+     */
+    protected int asyncQueueCapacity = DEFAULT_ASYNC_QUEUE_CAPACITY;
+
+    /**
+     * What to do with an after stage when the queue is full
+     */
+    protected AsyncOverflowPolicy asyncOverflowPolicy = AsyncOverflowPolicy.DROP_OLDEST;
+
+    /**
+     * The longest a hook stage may take, in microseconds, or zero for no limit
+     */
+    protected long slowHookBudgetMicros = 0;
+
+    /**
+     * How many stages of one hook in a row may exceed the budget before it is bypassed
+     */
+    protected int slowHookOverrunLimit = DEFAULT_SLOW_HOOK_OVERRUN_LIMIT;
+
+    /**
+     * Whether every hook stage is timed even if no budget is set
+     */
+    protected boolean recordStatistics = false;
+
     /**
      * Adds the provided list of hooks to the configuration.  Note that the order of hooks is important and controls
      * the order in which they will be executed.  See {@link Hook} for more details.
@@ -69,6 +137,94 @@ public abstract class HooksConfigurationBuilder {
         return setHooks(hooks);
     }
 
+    /**
+     * Runs the after stages of every hook on a background thread, instead of on the thread that
+     * called the SDK.
+     * <p>
+     * By default {@link Hook#afterEvaluation}, {@link Hook#afterIdentify}, and {@link Hook#afterTrack}
+     * run before the call that triggered them returns, which for an evaluation is usually on the main
+     * thread; a hook that does real work there, such as exporting a span or forwarding to an analytics
+     * library, slows down every variation call. With this option set, those stages are queued and run
+     * in order on a single SDK thread. Before stages still run on the calling thread, and the series
+     * data a hook returns from {@link Hook#beforeEvaluation} still reaches its after stage.
+     * <p>
+     * Each hook sees its stages in the same order as it would have synchronously. What changes is
+     * when: an after stage may run after the call that triggered it has returned, and after later
+     * before stages have run, so a hook whose before and after stages share state must make that
+     * state thread-safe and must not assume that an after stage follows its own before stage
+     * immediately.
+     * <p>
+     * The queue holds at most {@code queueCapacity} series; {@code overflowPolicy} decides what
+     * happens when the hooks cannot keep up.
+     * <p>
+     * This method is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     *
+     * @param queueCapacity  how many series may wait to run; zero or less means
+     *                       {@link #DEFAULT_ASYNC_QUEUE_CAPACITY}
+     * @param overflowPolicy what to do with a series that arrives when the queue is full; null means
+     *                       {@link AsyncOverflowPolicy#DROP_OLDEST}
+     * @return the builder
+     */
+    public HooksConfigurationBuilder runAfterStagesAsynchronously(int queueCapacity, AsyncOverflowPolicy overflowPolicy) {
+        this.runAfterStagesAsynchronously = true;
+        this.asyncQueueCapacity = queueCapacity <= 0 ? DEFAULT_ASYNC_QUEUE_CAPACITY : queueCapacity;
+        this.asyncOverflowPolicy = overflowPolicy == null ? AsyncOverflowPolicy.DROP_OLDEST : overflowPolicy;
+        return this;
+    }
+
+    /**
+     * Stops calling a hook whose stages keep taking longer than a budget.
+     * <p>
+     * With a budget set, the SDK times every stage of every hook, and reports what it measured through
+     * {@link com.launchdarkly.sdk.android.LDClient#getHookStatistics()}. A hook one of whose stages
+     * takes longer than {@code budgetMicros} in {@code overrunLimit} runs of that stage in a row is
+     * bypassed: the SDK no longer calls any of its stages for as long as the client lives. That is
+     * logged as a warning, and reported to any
+     * {@link com.launchdarkly.sdk.android.LDHookStatusListener}. One slow run, such as the first,
+     * which may be loading classes, does not bypass a hook, and a run of the same stage within the
+     * budget starts the count for that stage again.
+     * <p>
+     * This protects the caller of the SDK, which for an evaluation is usually the main thread, from a
+     * hook that has become slow, at the cost of that hook missing everything after it is bypassed. A
+     * stage run on the background thread, because of
+     * {@link #runAfterStagesAsynchronously(int, AsyncOverflowPolicy)}, counts towards the budget too,
+     * since a hook that is slow there holds up every other hook.
+     * <p>
+     * This method is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     *
+     * @param budgetMicros  the longest a stage may take, in microseconds; zero or less sets no limit
+     * @param overrunLimit  how many stages of one hook in a row may take longer before it is bypassed;
+     *                      zero or less means {@link #DEFAULT_SLOW_HOOK_OVERRUN_LIMIT}
+     * @return the builder
+     */
+    public HooksConfigurationBuilder bypassSlowHooks(long budgetMicros, int overrunLimit) {
+        this.slowHookBudgetMicros = Math.max(0, budgetMicros);
+        this.slowHookOverrunLimit = overrunLimit <= 0 ? DEFAULT_SLOW_HOOK_OVERRUN_LIMIT : overrunLimit;
+        return this;
+    }
+
+    /**
+     * Times every stage of every hook, so that
+     * {@link com.launchdarkly.sdk.android.LDClient#getHookStatistics()} reports how long they take,
+     * even if {@link #bypassSlowHooks(long, int)} has not set a budget.
+     * <p>
+     * Without this or a budget, stages are not timed, which saves reading the clock twice per hook
+     * per stage, and every latency in the statistics is empty. Use it to choose a budget, or to find
+     * a hook that is slowing down evaluations.
+     * <p>
+     * This method is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+     * It is experimental.
+     *
+     * @param recordStatistics true to time every stage
+     * @return the builder
+     */
+    public HooksConfigurationBuilder recordStatistics(boolean recordStatistics) {
+        this.recordStatistics = recordStatistics;
+        return this;
+    }
+
     /**
      * @return the hooks configuration
      */
@@ -0,0 +1,176 @@
+package com.launchdarkly.sdk.android.integrations;
+
+import com.launchdarkly.sdk.EvaluationDetail;
+import com.launchdarkly.sdk.LDContext;
+import com.launchdarkly.sdk.LDValue;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps a hook so that it is told about only a fraction of evaluations, chosen by context and flag,
+ * and about every evaluation whose result has changed.
+ * <p>
+ * This suits a hook that cannot take one record per evaluation, such as one that opens a tracing span
+ * for each, but for which {@link DedupingHook}'s one-per-window is too coarse. Each evaluation is
+ * sampled by hashing the context's fully qualified key with the flag key, with the same hash as
+ * {@link EventProcessorBuilder#sampleEvaluationEvents(String, double)}, so the decision is the same
+ * every time for a given context and flag: a context that is sampled for a flag is seen evaluating it
+ * every time, rather than in scattered fragments, and the fraction of contexts sampled is the ratio.
+ * <p>
+ * This class is not stable, and not subject to any backwards compatibility guarantees or semantic versioning.
+ * It is experimental.
+ *
+ * <pre><code>
+ *     Map&lt;String, Double&gt; flagRatios = new HashMap&lt;&gt;();
+ *     flagRatios.put("checkout-flow", 1.0);    // every evaluation of this flag
+ *     flagRatios.put("render-theme", 0.001);
+ *     Components.hooks()
+ *         .addHook(new SamplingHook(new TracingHook(), 0.05, flagRatios))
+ * </code></pre>
+ * <p>
+ * Whatever the ratio, an evaluation is forwarded when its flag's value, variation, or version differs
+ * from those of the previous evaluation of that flag in the same environment, so the wrapped hook hears
+ * about every change of result, including the first evaluation of each flag and the arrival of flag
+ * data after evaluations made without it. That takes a result the SDK describes, so an evaluation
+ * series context built by something other than the SDK is only sampled.
+ * <p>
+ * A skipped evaluation reaches neither {@link Hook#beforeEvaluation(EvaluationSeriesContext, Map)} nor
+ * {@link Hook#afterEvaluation(EvaluationSeriesContext, Map, EvaluationDetail)}, because hooks pair
+ * their stages. The identify and track stages are always forwarded, and analytics events are
+ * unaffected.
+ * <p>
+ * Wrap outermost when you stack decorators, for the reason given on {@link DedupingHook}.
+ */
+public final class SamplingHook extends HookDecorator {
+
+    // Namespaced because it travels in series data that the wrapped hook may also write to.
+    private static final String SKIPPED = "com.launchdarkly.sdk.android.SamplingHook.skipped";
+
+    private final double ratio;
+    private final Map<String, Double> flagRatios;
+
+    // The result last seen for each flag, by environment and then by flag key, whether or not it was
+    // forwarded, so that a change is noticed even when it is first seen by a context that is not
+    // sampled. Holds one entry per flag evaluated. Nesting the maps rather than keying one by both
+    // means an evaluation looks up strings it already has, so it neither locks nor allocates.
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, EvaluationExposureKey>> lastSeen =
+            new ConcurrentHashMap<>();
+
+    // Returned in place of the wrapped hook's series data when an evaluation is skipped, and
+    // recognized by identity so that stacked instances each recognize only their own.
+    private final Map<String, Object> skippedSeriesData = Collections.singletonMap(SKIPPED, this);
+
+    /**
+     * @param delegate the hook to wrap
+     * @param ratio    the fraction of evaluations to forward, from 0 to 1
+     */
+    public SamplingHook(Hook delegate, double ratio) {
+        this(delegate, ratio, Collections.emptyMap());
+    }
+
+    /**
+     * @param delegate   the hook to wrap
+     * @param ratio      the fraction of evaluations to forward, from 0 to 1, for a flag with no ratio
+     *                   of its own
+     * @param flagRatios ratios for particular flags, by flag key
+     */
+    public SamplingHook(Hook delegate, double ratio, Map<String, Double> flagRatios) {
+        super(delegate);
+        this.ratio = clampRatio(ratio);
+        Map<String, Double> ratios = new HashMap<>();
+        if (flagRatios != null) {
+            for (Map.Entry<String, Double> e : flagRatios.entrySet()) {
+                if (e.getKey() != null && e.getValue() != null) {
+                    ratios.put(e.getKey(), clampRatio(e.getValue()));
+                }
+            }
+        }
+        this.flagRatios = ratios;
+    }
+
+    /**
+     * Forwards the evaluation if it is sampled or its result has changed.
+     *
+     * @param seriesContext container of parameters associated with this evaluation
+     * @param seriesData    immutable data from the previous stage in the evaluation series
+     * @return the wrapped hook's series data, or data marking the series as skipped
+     */
+    @Override
+    public Map<String, Object> beforeEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData) {
+        // Both are evaluated, so that a sampled evaluation still updates the result last seen.
+        boolean changed = resultChanged(seriesContext.getEvaluationExposureKey());
+        if (!changed && !isSampled(seriesContext)) {
+            return skippedSeriesData;
+        }
+        return super.beforeEvaluation(seriesContext, seriesData);
+    }
+
+    /**
+     * Forwards the result unless this instance skipped the series in its before stage.
+     *
+     * @param seriesContext    container of parameters associated with this evaluation
+     * @param seriesData       the data returned by this hook's before stage
+     * @param evaluationDetail the result of the evaluation
+     * @return the wrapped hook's series data, unchanged if the series was skipped
+     */
+    @Override
+    public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                               EvaluationDetail<LDValue> evaluationDetail) {
+        if (seriesData != null && seriesData.get(SKIPPED) == this) {
+            return seriesData;
+        }
+        return super.afterEvaluation(seriesContext, seriesData, evaluationDetail);
+    }
+
+    private boolean isSampled(EvaluationSeriesContext seriesContext) {
+        Double flagRatio = flagRatios.isEmpty() ? null : flagRatios.get(seriesContext.flagKey);
+        double r = flagRatio == null ? ratio : flagRatio;
+        if (r >= 1) {
+            return true;
+        }
+        if (r <= 0) {
+            return false;
+        }
+        LDContext context = seriesContext.context;
+        String contextKey = context == null ? "" : context.getFullyQualifiedKey();
+        return EventProcessorBuilder.sampleBucket(contextKey, seriesContext.flagKey) < r;
+    }
+
+    private boolean resultChanged(EvaluationExposureKey key) {
+        if (key == null) {
+            return false;
+        }
+        EvaluationExposureKey previous = lastSeenFor(key.getMobileKeyHash()).put(nonNull(key.getFlagKey()), key);
+        // The context is not compared: a different context getting the same result is not a change.
+        return previous == null
+                || previous.getVariation() != key.getVariation()
+                || previous.getFlagVersion() != key.getFlagVersion()
+                || !Objects.equals(previous.getValue(), key.getValue());
+    }
+
+    private Map<String, EvaluationExposureKey> lastSeenFor(String mobileKeyHash) {
+        String environment = nonNull(mobileKeyHash);
+        ConcurrentHashMap<String, EvaluationExposureKey> flags = lastSeen.get(environment);
+        if (flags == null) {
+            ConcurrentHashMap<String, EvaluationExposureKey> created = new ConcurrentHashMap<>();
+            flags = lastSeen.putIfAbsent(environment, created);
+            if (flags == null) {
+                flags = created;
+            }
+        }
+        return flags;
+    }
+
+    // ConcurrentHashMap takes no null keys; a key the SDK built always has both.
+    private static String nonNull(String s) {
+        return s == null ? "" : s;
+    }
+
+    private static double clampRatio(double ratio) {
+        return Double.isNaN(ratio) ? 1 : Math.max(0, Math.min(1, ratio));
+    }
+}
@@ -1,6 +1,7 @@
 package com.launchdarkly.sdk.android.subsystems;
 
 import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder;
+import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder.AsyncOverflowPolicy;
 import com.launchdarkly.sdk.android.integrations.Hook;
 
 import java.util.Collections;
@@ -14,12 +15,44 @@ import java.util.List;
 public class HookConfiguration {
 
     private final List<Hook> hooks;
+    private final boolean runAfterStagesAsynchronously;
+    private final int asyncQueueCapacity;
+    private final AsyncOverflowPolicy asyncOverflowPolicy;
+    private final long slowHookBudgetMicros;
+    private final int slowHookOverrunLimit;
+    private final boolean recordStatistics;
 
     /**
      * @param hooks the list of {@link Hook} that will be registered.
      */
     public HookConfiguration(List<Hook> hooks) {
+        this(hooks, false, HooksConfigurationBuilder.DEFAULT_ASYNC_QUEUE_CAPACITY, AsyncOverflowPolicy.DROP_OLDEST,
+                0, HooksConfigurationBuilder.DEFAULT_SLOW_HOOK_OVERRUN_LIMIT, false);
+    }
+
+    /**
+     * Used internally by {@link HooksConfigurationBuilder}; applications should use the builder to
+     * set these options. This constructor is not stable, and not subject to any backwards
+     * compatibility guarantees or semantic versioning: its parameters change as options are added.
+     *
+     * @param hooks                        the list of {@link Hook} that will be registered.
+     * @param runAfterStagesAsynchronously true to run after stages on a background thread
+     * @param asyncQueueCapacity           how many series may wait for the background thread
+     * @param asyncOverflowPolicy          what to do with a series when the queue is full
+     * @param slowHookBudgetMicros         the longest a hook stage may take, or zero for no limit
+     * @param slowHookOverrunLimit         how many stages in a row may exceed it before a hook is bypassed
+     * @param recordStatistics             true to time every stage even if there is no limit
+     */
+    public HookConfiguration(List<Hook> hooks, boolean runAfterStagesAsynchronously, int asyncQueueCapacity,
+                             AsyncOverflowPolicy asyncOverflowPolicy, long slowHookBudgetMicros,
+                             int slowHookOverrunLimit, boolean recordStatistics) {
         this.hooks = Collections.unmodifiableList(hooks);
+        this.runAfterStagesAsynchronously = runAfterStagesAsynchronously;
+        this.asyncQueueCapacity = asyncQueueCapacity;
+        this.asyncOverflowPolicy = asyncOverflowPolicy;
+        this.slowHookBudgetMicros = slowHookBudgetMicros;
+        this.slowHookOverrunLimit = slowHookOverrunLimit;
+        this.recordStatistics = recordStatistics;
     }
 
     /**
@@ -28,4 +61,46 @@ public class HookConfiguration {
     public List<Hook> getHooks() {
         return hooks;
     }
+
+    /**
+     * @return true if after stages run on a background thread
+     */
+    public boolean isRunAfterStagesAsynchronously() {
+        return runAfterStagesAsynchronously;
+    }
+
+    /**
+     * @return how many series may wait for the background thread
+     */
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    /**
+     * @return what to do with a series when the queue is full
+     */
+    public AsyncOverflowPolicy getAsyncOverflowPolicy() {
+        return asyncOverflowPolicy;
+    }
+
+    /**
+     * @return the longest a hook stage may take, in microseconds, or zero for no limit
+     */
+    public long getSlowHookBudgetMicros() {
+        return slowHookBudgetMicros;
+    }
+
+    /**
+     * @return how many stages of one hook in a row may exceed the budget before it is bypassed
+     */
+    public int getSlowHookOverrunLimit() {
+        return slowHookOverrunLimit;
+    }
+
+    /**
+     * @return true if every hook stage is timed even if there is no budget
+     */
+    public boolean isRecordStatistics() {
+        return recordStatistics;
+    }
 }
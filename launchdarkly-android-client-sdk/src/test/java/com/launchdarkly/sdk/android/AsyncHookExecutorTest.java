@@ -0,0 +1,103 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder.AsyncOverflowPolicy;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class AsyncHookExecutorTest {
+    @Rule
+    public LogCaptureRule logging = new LogCaptureRule();
+
+    /**
+     * Occupies the worker thread until released, so that a test can fill the queue behind it.
+     */
+    private static CountDownLatch occupyWorker(AsyncHookExecutor executor) throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        return release;
+    }
+
+    /**
+     * Queues three tasks behind a busy worker in a queue that holds two, and returns the two that ran.
+     */
+    private static List<String> runThreeInQueueOfTwo(AsyncHookExecutor executor) throws InterruptedException {
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch release = occupyWorker(executor);
+        for (String name : new String[] { "a", "b", "c" }) {
+            executor.execute(() -> ran.add(name));
+        }
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (ran.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        return new ArrayList<>(ran);
+    }
+
+    @Test
+    public void runsTasksInOrderOffTheCallingThread() throws InterruptedException {
+        AsyncHookExecutor executor = new AsyncHookExecutor(10, AsyncOverflowPolicy.BLOCK, logging.logger);
+        List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> ran = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(5);
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            executor.execute(() -> {
+                threads.add(Thread.currentThread());
+                ran.add(n);
+                done.countDown();
+            });
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        executor.close();
+
+        assertEquals(List.of(0, 1, 2, 3, 4), ran);
+        assertFalse(threads.contains(Thread.currentThread()));
+    }
+
+    @Test
+    public void dropNewestDiscardsWhatArrivesWhenFull() throws InterruptedException {
+        AsyncHookExecutor executor = new AsyncHookExecutor(2, AsyncOverflowPolicy.DROP_NEWEST, logging.logger);
+        assertEquals(List.of("a", "b"), runThreeInQueueOfTwo(executor));
+        assertEquals(1, executor.getDroppedCount());
+        executor.close();
+    }
+
+    @Test
+    public void dropOldestDiscardsWhatHasWaitedLongest() throws InterruptedException {
+        AsyncHookExecutor executor = new AsyncHookExecutor(2, AsyncOverflowPolicy.DROP_OLDEST, logging.logger);
+        assertEquals(List.of("b", "c"), runThreeInQueueOfTwo(executor));
+        assertEquals(1, executor.getDroppedCount());
+        executor.close();
+    }
+
+    @Test
+    public void discardsTasksAfterClose() throws InterruptedException {
+        AsyncHookExecutor executor = new AsyncHookExecutor(2, AsyncOverflowPolicy.BLOCK, logging.logger);
+        executor.close();
+        List<String> ran = Collections.synchronizedList(new ArrayList<>());
+        executor.execute(() -> ran.add("late"));
+        Thread.sleep(50);
+        assertEquals(List.of(), ran);
+    }
+}
@@ -0,0 +1,146 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class ConcurrentConstructionTest {
+    private final List<String> cleanedUp = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    public void instancesAreReturnedInTheOrderOfTheirConstructors() throws Exception {
+        // Each constructor waits for the one after it, so they finish in the reverse order.
+        int count = 4;
+        List<CountDownLatch> finished = new ArrayList<>();
+        for (int i = 0; i <= count; i++) {
+            finished.add(new CountDownLatch(1));
+        }
+        finished.get(count).countDown();
+        List<ConcurrentConstruction.Constructor<String>> constructors = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            int n = i;
+            constructors.add(() -> {
+                await(finished.get(n + 1));
+                finished.get(n).countDown();
+                return "instance" + n;
+            });
+        }
+
+        List<String> instances = ConcurrentConstruction.constructAll(constructors, count, cleanedUp::add);
+
+        assertEquals(Arrays.asList("instance0", "instance1", "instance2", "instance3"), instances);
+        assertEquals(Collections.emptyList(), cleanedUp);
+    }
+
+    @Test
+    public void constructorsRunAtMostMaxConcurrentAtOnce() throws Exception {
+        Object lock = new Object();
+        int[] running = new int[1], maxRunning = new int[1];
+        List<ConcurrentConstruction.Constructor<String>> constructors = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            int n = i;
+            constructors.add(() -> {
+                synchronized (lock) {
+                    maxRunning[0] = Math.max(maxRunning[0], ++running[0]);
+                }
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException e) {
+                    throw new LaunchDarklyException("interrupted", e);
+                }
+                synchronized (lock) {
+                    running[0]--;
+                }
+                return "instance" + n;
+            });
+        }
+
+        assertEquals(6, ConcurrentConstruction.constructAll(constructors, 2, cleanedUp::add).size());
+        assertTrue(maxRunning[0] <= 2);
+    }
+
+    @Test
+    public void firstFailureInOrderIsThrownAndOtherInstancesAreCleanedUp() throws Exception {
+        LaunchDarklyException first = new LaunchDarklyException("first");
+        CountDownLatch firstMayFail = new CountDownLatch(1);
+        List<ConcurrentConstruction.Constructor<String>> constructors = Arrays.asList(
+                () -> "instance0",
+                () -> {
+                    // Fails after the later constructor has, so that order is by position, not time.
+                    await(firstMayFail);
+                    throw first;
+                },
+                () -> "instance2",
+                () -> {
+                    firstMayFail.countDown();
+                    throw new LaunchDarklyException("second");
+                },
+                () -> "instance4"
+        );
+
+        try {
+            ConcurrentConstruction.constructAll(constructors, constructors.size(), cleanedUp::add);
+            fail("expected exception");
+        } catch (LaunchDarklyException e) {
+            assertSame(first, e);
+        }
+        assertEquals(new HashSet<>(Arrays.asList("instance0", "instance2", "instance4")),
+                new HashSet<>(cleanedUp));
+        assertEquals(3, cleanedUp.size());
+    }
+
+    @Test
+    public void uncheckedFailureIsThrownAsIs() throws Exception {
+        IllegalStateException failure = new IllegalStateException("failed");
+        List<ConcurrentConstruction.Constructor<String>> constructors = Arrays.asList(
+                () -> "instance0",
+                () -> {
+                    throw failure;
+                }
+        );
+
+        try {
+            ConcurrentConstruction.constructAll(constructors, 2, cleanedUp::add);
+            fail("expected exception");
+        } catch (IllegalStateException e) {
+            assertSame(failure, e);
+        }
+        assertEquals(Collections.singletonList("instance0"), cleanedUp);
+    }
+
+    @Test
+    public void singleConstructorRunsOnTheCallingThread() throws Exception {
+        Thread caller = Thread.currentThread();
+        Set<Thread> threads = new HashSet<>();
+        List<String> instances = ConcurrentConstruction.constructAll(
+                Collections.<ConcurrentConstruction.Constructor<String>>singletonList(() -> {
+                    threads.add(Thread.currentThread());
+                    return "instance";
+                }), 4, cleanedUp::add);
+
+        assertEquals(Collections.singletonList("instance"), instances);
+        assertEquals(Collections.singleton(caller), threads);
+    }
+
+    private static void await(CountDownLatch latch) throws LaunchDarklyException {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new LaunchDarklyException("timed out");
+            }
+        } catch (InterruptedException e) {
+            throw new LaunchDarklyException("interrupted", e);
+        }
+    }
+}
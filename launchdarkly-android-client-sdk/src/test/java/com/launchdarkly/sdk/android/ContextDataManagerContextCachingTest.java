@@ -2,6 +2,8 @@ package com.launchdarkly.sdk.android;
 
 import static org.junit.Assert.assertEquals;
 
+import com.launchdarkly.sdk.android.LDConfig.Builder.AutoEnvAttributes;
+
 import org.junit.Test;
 
 public class ContextDataManagerContextCachingTest extends ContextDataManagerTestBase {
@@ -29,7 +31,7 @@ public class ContextDataManagerContextCachingTest extends ContextDataManagerTest
         for (int i = 1; i <= numContexts; i++) {
             assertContextIsCached(makeContext(i), makeFlagData(i));
         }
-        assertEquals(numContexts, environmentStore.getIndex().data.size());
+        assertEquals(numContexts, environmentStore.getIndex().size());
     }
 
     @Test
@@ -69,4 +71,99 @@ public class ContextDataManagerContextCachingTest extends ContextDataManagerTest
         assertContextIsCached(makeContext(3), makeFlagData(3));
     }
 
+    @Test
+    public void deletesLeastRecentContextsOverByteBudget() {
+        long dataSize = makeFlagData(1).toJson().length();
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .maxCachedContextBytes(dataSize * 2).build();
+        ContextDataManager manager = createDataManager(config, -1);
+
+        for (int i = 1; i <= 3; i++) {
+            manager.switchToContext(makeContext(i), false, LDUtil.noOpCallback());
+            manager.initData(makeContext(i), makeFlagData(i));
+        }
+
+        assertContextIsNotCached(makeContext(1));
+        assertContextIsCached(makeContext(2), makeFlagData(2));
+        assertContextIsCached(makeContext(3), makeFlagData(3));
+
+        ContextCacheUsage usage = manager.getCacheUsage();
+        assertEquals(2, usage.getContextCount());
+        assertEquals(dataSize * 2, usage.getTotalBytes());
+        assertEquals(dataSize, usage.getCurrentContextBytes());
+        assertEquals(-1, usage.getMaxContexts());
+        assertEquals(dataSize * 2, usage.getMaxTotalBytes());
+    }
+
+    @Test
+    public void keepsCurrentContextLargerThanByteBudget() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .maxCachedContextBytes(1).build();
+        ContextDataManager manager = createDataManager(config, -1);
+
+        for (int i = 1; i <= 2; i++) {
+            manager.switchToContext(makeContext(i), false, LDUtil.noOpCallback());
+            manager.initData(makeContext(i), makeFlagData(i));
+        }
+
+        assertContextIsNotCached(makeContext(1));
+        assertContextIsCached(makeContext(2), makeFlagData(2));
+        assertEquals(1, manager.getCacheUsage().getContextCount());
+    }
+
+    @Test
+    public void deletesLeastFrequentlyUsedContextsWhenConfigured() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .evictLeastFrequentlyUsedContexts(true).build();
+        ContextDataManager manager = createDataManager(config, 2);
+
+        for (int i = 1; i <= 2; i++) {
+            manager.switchToContext(makeContext(i), false, LDUtil.noOpCallback());
+            manager.initData(makeContext(i), makeFlagData(i));
+        }
+        // Switching back uses the stored data, so context 1 is used again without being stored again,
+        // and stays the least recently stored.
+        manager.switchToContext(makeContext(1), false, LDUtil.noOpCallback());
+        manager.switchToContext(makeContext(3), false, LDUtil.noOpCallback());
+        manager.initData(makeContext(3), makeFlagData(3));
+
+        assertContextIsCached(makeContext(1), makeFlagData(1));
+        assertContextIsNotCached(makeContext(2));
+        assertContextIsCached(makeContext(3), makeFlagData(3));
+        assertEquals(2, environmentStore.getIndex().getEntry(
+                LDUtil.urlSafeBase64HashedContextId(makeContext(1))).useCount);
+    }
+
+    @Test
+    public void deletesContextsOlderThanMaxAge() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .maxCachedContextAgeMillis(60_000).build();
+        ContextIndex oldIndex = new ContextIndex();
+        oldIndex.touch(LDUtil.urlSafeBase64HashedContextId(makeContext(1)), System.currentTimeMillis() - 120_000);
+        environmentStore.setContextData(LDUtil.urlSafeBase64HashedContextId(makeContext(1)),
+                LDUtil.urlSafeBase64Hash(makeContext(1)), makeFlagData(1));
+        environmentStore.setIndex(oldIndex);
+        ContextDataManager manager = createDataManager(config, -1);
+
+        manager.switchToContext(makeContext(2), false, LDUtil.noOpCallback());
+        manager.initData(makeContext(2), makeFlagData(2));
+
+        assertContextIsNotCached(makeContext(1));
+        assertContextIsCached(makeContext(2), makeFlagData(2));
+    }
+
+    @Test
+    public void updatesToTheCurrentContextDoNotRewriteTheIndex() {
+        ContextDataManager manager = createDataManager(1);
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.initData(CONTEXT, makeFlagData(1));
+        String environmentNamespace = "LaunchDarkly_" + LDUtil.urlSafeBase64Hash(MOBILE_KEY);
+        // Replaced behind the manager's back, so that any rewrite would show.
+        store.setValue(environmentNamespace, "index", "[]");
+
+        manager.upsert(CONTEXT, new FlagBuilder("flag1").version(2).build());
+        manager.upsert(CONTEXT, new FlagBuilder("flag1").version(3).build());
+
+        assertEquals("[]", store.getValue(environmentNamespace, "index"));
+    }
 }
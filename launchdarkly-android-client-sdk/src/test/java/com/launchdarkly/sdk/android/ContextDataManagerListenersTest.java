@@ -1,12 +1,14 @@
 package com.launchdarkly.sdk.android;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.launchdarkly.sdk.LDContext;
 import com.launchdarkly.sdk.LDValue;
 import com.launchdarkly.sdk.android.DataModel.Flag;
+import com.launchdarkly.sdk.android.LDConfig.Builder.AutoEnvAttributes;
 import com.launchdarkly.sdk.android.LDUtil;
 import com.launchdarkly.sdk.fdv2.ChangeSet;
 import com.launchdarkly.sdk.fdv2.ChangeSetType;
@@ -14,8 +16,13 @@ import com.launchdarkly.sdk.fdv2.Selector;
 
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -187,6 +194,235 @@ public class ContextDataManagerListenersTest extends ContextDataManagerTestBase
         assertTrue(allFlagsListener.isCalledFromMainThread());
     }
 
+    @Test
+    public void coalescedChangesAreDeliveredOncePerBatch() throws InterruptedException {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .coalesceFlagChangeNotifications(500)
+                .build();
+        final ContextDataManager manager = createDataManager(config, 1);
+        AwaitableFlagListener listener = new AwaitableFlagListener();
+        BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+
+        manager.registerListener("flag1", listener);
+        manager.registerAllFlagsListener(batches::add);
+
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.upsert(CONTEXT, new FlagBuilder("flag1").version(1).build());
+        manager.upsert(CONTEXT, new FlagBuilder("flag2").version(1).build());
+        manager.upsert(CONTEXT, new FlagBuilder("flag1").version(2).build());
+
+        assertEquals(Arrays.asList("flag1", "flag2"), batches.poll(5, TimeUnit.SECONDS));
+        assertEquals("flag1", listener.expectUpdate(5, TimeUnit.SECONDS));
+        listener.expectNoUpdates(100, TimeUnit.MILLISECONDS);
+        assertNull(batches.poll(100, TimeUnit.MILLISECONDS));
+        assertTrue(listener.isCalledFromMainThread());
+    }
+
+    @Test
+    public void listenerIsCalledOnConfiguredExecutor() throws InterruptedException {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .flagChangeListenerExecutor(action -> new Thread(action, "listener-executor").start())
+                .build();
+        final ContextDataManager manager = createDataManager(config, 1);
+        BlockingQueue<String> threadNames = new LinkedBlockingQueue<>();
+
+        manager.registerListener("flag", flagKey -> threadNames.add(Thread.currentThread().getName()));
+        manager.registerAllFlagsListener(flagKeys -> threadNames.add(Thread.currentThread().getName()));
+
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.upsert(CONTEXT, new FlagBuilder("flag").version(1).build());
+
+        assertEquals("listener-executor", threadNames.poll(5, TimeUnit.SECONDS));
+        assertEquals("listener-executor", threadNames.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void upsertThatChangesOnlyTheVersionDoesNotNotifyWhenValueChangesAreRequired() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .notifyOnlyOnFlagValueChange(true)
+                .build();
+        final ContextDataManager manager = createDataManager(config, 1);
+        AwaitableFlagListener listener = new AwaitableFlagListener();
+        AwaitableFlagListener allFlagsListener = new AwaitableFlagListener();
+
+        manager.registerListener("flag", listener);
+        manager.registerAllFlagsListener(allFlagsListener);
+
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.upsert(CONTEXT, new FlagBuilder("flag").version(1).value(true).variation(0).build());
+        assertEquals("flag", listener.expectUpdate(5, TimeUnit.SECONDS));
+        assertEquals("flag", allFlagsListener.expectUpdate(5, TimeUnit.SECONDS));
+
+        assertTrue(manager.upsert(CONTEXT, new FlagBuilder("flag").version(2).value(true).variation(0).build()));
+        listener.expectNoUpdates(100, TimeUnit.MILLISECONDS);
+        allFlagsListener.expectNoUpdates(100, TimeUnit.MILLISECONDS);
+        assertEquals(1, manager.getSuppressedNotificationCount());
+
+        manager.upsert(CONTEXT, new FlagBuilder("flag").version(3).value(true).variation(1).build());
+        assertEquals("flag", listener.expectUpdate(5, TimeUnit.SECONDS));
+
+        manager.upsert(CONTEXT, Flag.deletedItemPlaceholder("flag", 4));
+        assertEquals("flag", listener.expectUpdate(5, TimeUnit.SECONDS));
+        assertEquals(1, manager.getSuppressedNotificationCount());
+    }
+
+    @Test
+    public void partialApplyOnlyNotifiesForChangedValuesWhenValueChangesAreRequired() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .notifyOnlyOnFlagValueChange(true)
+                .build();
+        ContextDataManager manager = createDataManager(config, 1);
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.initData(CONTEXT, new DataSetBuilder()
+                .add(new FlagBuilder("same").version(1).value(true).build())
+                .add(new FlagBuilder("changed").version(1).value(true).build())
+                .build());
+
+        AwaitableFlagListener sameListener = new AwaitableFlagListener();
+        AwaitableFlagListener changedListener = new AwaitableFlagListener();
+        manager.registerListener("same", sameListener);
+        manager.registerListener("changed", changedListener);
+
+        Map<String, Flag> items = new HashMap<>();
+        items.put("same", new FlagBuilder("same").version(2).value(true).build());
+        items.put("changed", new FlagBuilder("changed").version(2).value(false).build());
+        manager.apply(CONTEXT, new ChangeSet<>(ChangeSetType.Partial, Selector.EMPTY, items, null, false));
+
+        assertEquals("changed", changedListener.expectUpdate(5, TimeUnit.SECONDS));
+        sameListener.expectNoUpdates(100, TimeUnit.MILLISECONDS);
+        assertEquals(1, manager.getSuppressedNotificationCount());
+    }
+
+    @Test
+    public void findsAddedRemovedAndChangedFlags() {
+        EnvironmentData oldData = makeOldChangeTestData(), newData = makeNewChangeTestData();
+
+        assertEquals(new HashSet<>(Arrays.asList("changed", "removed", "added")),
+                ContextDataManager.findChangedFlagKeys(oldData, newData));
+        assertEquals(Collections.emptySet(), ContextDataManager.findChangedFlagKeys(newData, newData));
+    }
+
+    @Test
+    public void findsTheSameFlagsInLazilyDecodedData() throws Exception {
+        EnvironmentData oldData = makeOldChangeTestData(), newData = makeNewChangeTestData();
+        EnvironmentData empty = new EnvironmentData();
+        Set<String> expected = ContextDataManager.findChangedFlagKeys(oldData, newData);
+
+        assertEquals(expected, ContextDataManager.findChangedFlagKeys(
+                EnvironmentData.fromJsonLazily(oldData.toJson()), newData));
+        assertEquals(expected, ContextDataManager.findChangedFlagKeys(
+                oldData, EnvironmentData.fromJsonLazily(newData.toJson())));
+        assertEquals(expected, ContextDataManager.findChangedFlagKeys(
+                EnvironmentData.fromJsonLazily(oldData.toJson()), EnvironmentData.fromJsonLazily(newData.toJson())));
+        // With no old data, the keys are taken without decoding anything.
+        assertEquals(ContextDataManager.findChangedFlagKeys(empty, newData), ContextDataManager.findChangedFlagKeys(
+                empty, EnvironmentData.fromJsonLazily(newData.toJson())));
+        assertEquals(ContextDataManager.findChangedFlagKeys(oldData, empty), ContextDataManager.findChangedFlagKeys(
+                EnvironmentData.fromJsonLazily(oldData.toJson()), empty));
+    }
+
+    @Test
+    public void fullApplyOverStoredDataNotifiesTheSameFlagsAsOverDecodedData() throws InterruptedException {
+        EnvironmentData oldData = makeOldChangeTestData(), newData = makeNewChangeTestData();
+        // Stored, so that switching to the context loads it lazily.
+        environmentStore.setContextData(LDUtil.urlSafeBase64HashedContextId(CONTEXT),
+                LDUtil.urlSafeBase64Hash(CONTEXT), oldData);
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .flagChangeListenerExecutor(Runnable::run)
+                .build();
+        ContextDataManager manager = createDataManager(config, 1);
+        BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        manager.registerAllFlagsListener(batches::add);
+
+        // The stored data is applied over none, so every key is notified without decoding a flag.
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.initData(CONTEXT, newData);
+
+        assertEquals(oldData.keys(), new HashSet<>(batches.poll(5, TimeUnit.SECONDS)));
+        assertEquals(ContextDataManager.findChangedFlagKeys(oldData, newData),
+                new HashSet<>(batches.poll(5, TimeUnit.SECONDS)));
+        assertNull(batches.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void listenerThatThrowsDoesNotKeepBatchFromOtherListeners() throws InterruptedException {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .flagChangeListenerExecutor(Runnable::run)
+                .build();
+        ContextDataManager manager = createDataManager(config, 1);
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        manager.registerAllFlagsListener(flagKeys -> {
+            throw new RuntimeException("all flags listener failed");
+        });
+        BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        manager.registerAllFlagsListener(batches::add);
+        manager.registerListener("flag1", flagKey -> {
+            throw new RuntimeException("flag listener failed");
+        });
+        AwaitableFlagListener listener = new AwaitableFlagListener();
+        manager.registerListener("flag1", listener);
+
+        manager.upsert(CONTEXT, new FlagBuilder("flag1").version(1).build());
+
+        assertEquals(Collections.singletonList("flag1"), batches.poll(5, TimeUnit.SECONDS));
+        assertEquals("flag1", listener.expectUpdate(5, TimeUnit.SECONDS));
+        logging.assertWarnLogged("Flag change listener threw an exception");
+    }
+
+    private static EnvironmentData makeOldChangeTestData() {
+        return new DataSetBuilder()
+                .add(new FlagBuilder("same").version(1).value(true).build())
+                .add(new FlagBuilder("changed").version(1).value(true).build())
+                .add(new FlagBuilder("removed").version(1).value(true).build())
+                .build();
+    }
+
+    private static EnvironmentData makeNewChangeTestData() {
+        return new DataSetBuilder()
+                .add(new FlagBuilder("same").version(2).value(true).build())
+                .add(new FlagBuilder("changed").version(2).value(false).build())
+                .add(new FlagBuilder("added").version(1).value(true).build())
+                .build();
+    }
+
+    @Test
+    public void listenerIsCalledAfterLargeFullApply() {
+        ContextDataManager manager = createDataManager();
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        AwaitableFlagListener listener = new AwaitableFlagListener();
+        manager.registerListener("flag0", listener);
+
+        Map<String, Flag> items = new HashMap<>();
+        for (int i = 0; i < ContextDataManager.BACKGROUND_DIFF_FLAG_COUNT; i++) {
+            items.put("flag" + i, new FlagBuilder("flag" + i).version(1).value(true).build());
+        }
+        manager.apply(CONTEXT, new ChangeSet<>(ChangeSetType.Full, Selector.EMPTY, items, null, false));
+
+        assertEquals("flag0", listener.expectUpdate(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void changesAppliedAfterALargeFullApplyAreNotifiedAfterIt() throws InterruptedException {
+        // Delivering on the notifying thread makes the order listeners hear in the order notified.
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .flagChangeListenerExecutor(Runnable::run)
+                .build();
+        ContextDataManager manager = createDataManager(config, 1);
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        BlockingQueue<List<String>> batches = new LinkedBlockingQueue<>();
+        manager.registerAllFlagsListener(batches::add);
+
+        Map<String, Flag> items = new HashMap<>();
+        for (int i = 0; i < ContextDataManager.BACKGROUND_DIFF_FLAG_COUNT; i++) {
+            items.put("flag" + i, new FlagBuilder("flag" + i).version(1).value(true).build());
+        }
+        manager.apply(CONTEXT, new ChangeSet<>(ChangeSetType.Full, Selector.EMPTY, items, null, false));
+        manager.upsert(CONTEXT, new FlagBuilder("flag0").version(2).value(false).build());
+
+        assertEquals(ContextDataManager.BACKGROUND_DIFF_FLAG_COUNT, batches.poll(5, TimeUnit.SECONDS).size());
+        assertEquals(Collections.singletonList("flag0"), batches.poll(5, TimeUnit.SECONDS));
+    }
+
     private class AwaitableFlagListener implements FeatureFlagChangeListener, LDAllFlagsListener {
         private final BlockingQueue<String> flagKeysUpdated = new LinkedBlockingQueue<>();
         private volatile boolean calledFromMainThread;
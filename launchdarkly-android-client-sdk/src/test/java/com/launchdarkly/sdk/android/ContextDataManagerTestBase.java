@@ -46,8 +46,17 @@ public abstract class ContextDataManagerTestBase extends EasyMockSupport {
     }
 
     protected ContextDataManager createDataManager(int maxCachedContexts) {
+        return createDataManager(new LDConfig.Builder(AutoEnvAttributes.Disabled).build(), maxCachedContexts);
+    }
+
+    protected ContextDataManager createDataManager(LDConfig config, int maxCachedContexts) {
+        return createDataManager(config, maxCachedContexts, taskExecutor);
+    }
+
+    protected ContextDataManager createDataManager(LDConfig config, int maxCachedContexts,
+                                                   TaskExecutor taskExecutor) {
         ClientContext clientContext = ClientContextImpl.fromConfig(
-                new LDConfig.Builder(AutoEnvAttributes.Disabled).build(),
+                config,
                 "mobile-key",
                 "",
                 environmentStore, null,
@@ -77,12 +86,9 @@ public abstract class ContextDataManagerTestBase extends EasyMockSupport {
 
         ContextIndex index = environmentStore.getIndex();
         assertNotNull(index);
-        for (ContextIndex.IndexEntry e: index.data) {
-            if (e.contextId.equals(contextHash)) {
-                return;
-            }
+        if (index.getEntry(contextHash) == null) {
+            fail("context hash " + contextHash + " not found in index");
         }
-        fail("context hash " + contextHash + " not found in index");
     }
 
     protected void assertContextIsNotCached(LDContext context) {
@@ -92,7 +98,7 @@ public abstract class ContextDataManagerTestBase extends EasyMockSupport {
 
         ContextIndex index = environmentStore.getIndex();
         if (index != null) {
-            for (ContextIndex.IndexEntry e: index.data) {
+            for (ContextIndex.IndexEntry e: index.getEntries()) {
                 assertNotEquals("context hash " + contextHash + " should not have been in index",
                         contextHash, e.contextId);
             }
@@ -6,6 +6,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import androidx.annotation.NonNull;
@@ -323,4 +324,140 @@ public class ContextDataManagerViewTest extends ContextDataManagerTestBase {
         assertEquals("Listener should not have been called again", countAfterRegistration, callCount.get());
         assertEquals("Callback should still be invoked", 1, completionCount.get());
     }
+
+    @Test
+    public void storedDataLoadedInBackgroundCompletesSwitchOnce() {
+        Flag flag = new FlagBuilder("flag1").version(1).build();
+        ContextDataManager storingManager = createDataManager();
+        storingManager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        storingManager.initData(CONTEXT, new DataSetBuilder().add(flag).build());
+
+        ManualTaskExecutor executor = new ManualTaskExecutor();
+        ContextDataManager manager = createDataManager(
+                new LDConfig.Builder(LDConfig.Builder.AutoEnvAttributes.Disabled)
+                        .loadCachedFlagsInBackground(true).build(), 1, executor);
+        AtomicReference<Callback<Void>> dataSourceCompletion = new AtomicReference<>();
+        manager.setContextSwitchListener((context, view, onCompletion) -> dataSourceCompletion.set(onCompletion));
+
+        AtomicInteger completionCount = new AtomicInteger(0);
+        manager.switchToContext(CONTEXT, false, new Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                completionCount.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable error) {}
+        });
+        assertNull(manager.getNonDeletedFlag("flag1"));
+        assertEquals(0, completionCount.get());
+
+        executor.runPendingTasks();
+        assertFlagsEqual(flag, manager.getNonDeletedFlag("flag1"));
+        assertEquals(1, completionCount.get());
+
+        dataSourceCompletion.get().onSuccess(null);
+        assertEquals(1, completionCount.get());
+    }
+
+    @Test
+    public void switchWithBackgroundLoadDoesNotKeepPreviousContextFlags() {
+        ManualTaskExecutor executor = new ManualTaskExecutor();
+        ContextDataManager manager = createDataManager(
+                new LDConfig.Builder(LDConfig.Builder.AutoEnvAttributes.Disabled)
+                        .loadCachedFlagsInBackground(true).build(), 1, executor);
+        manager.initData(INITIAL_CONTEXT, new DataSetBuilder()
+                .add(new FlagBuilder("previous-flag").version(1).build()).build());
+        assertNotNull(manager.getNonDeletedFlag("previous-flag"));
+
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+
+        assertNull(manager.getNonDeletedFlag("previous-flag"));
+        executor.runPendingTasks();
+        assertNull(manager.getNonDeletedFlag("previous-flag"));
+    }
+
+    @Test
+    public void dataSourceErrorDoesNotCompleteSwitchBeforeStoredDataIsApplied() {
+        Flag flag = new FlagBuilder("flag1").version(1).build();
+        ContextDataManager storingManager = createDataManager();
+        storingManager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        storingManager.initData(CONTEXT, new DataSetBuilder().add(flag).build());
+
+        ManualTaskExecutor executor = new ManualTaskExecutor();
+        ContextDataManager manager = createDataManager(
+                new LDConfig.Builder(LDConfig.Builder.AutoEnvAttributes.Disabled)
+                        .loadCachedFlagsInBackground(true).build(), 1, executor);
+        AtomicReference<Callback<Void>> dataSourceCompletion = new AtomicReference<>();
+        manager.setContextSwitchListener((context, view, onCompletion) -> dataSourceCompletion.set(onCompletion));
+        AtomicInteger successCount = new AtomicInteger(0);
+        AtomicInteger errorCount = new AtomicInteger(0);
+        manager.switchToContext(CONTEXT, false, new Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {
+                successCount.incrementAndGet();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                errorCount.incrementAndGet();
+            }
+        });
+
+        dataSourceCompletion.get().onError(new Exception("network error"));
+        assertEquals(0, successCount.get() + errorCount.get());
+
+        executor.runPendingTasks();
+        assertFlagsEqual(flag, manager.getNonDeletedFlag("flag1"));
+        assertEquals(1, successCount.get());
+        assertEquals(0, errorCount.get());
+    }
+
+    @Test
+    public void dataSourceResultCompletesSwitchOnceNoStoredDataIsFound() {
+        ManualTaskExecutor executor = new ManualTaskExecutor();
+        ContextDataManager manager = createDataManager(
+                new LDConfig.Builder(LDConfig.Builder.AutoEnvAttributes.Disabled)
+                        .loadCachedFlagsInBackground(true).build(), 1, executor);
+        AtomicReference<Callback<Void>> dataSourceCompletion = new AtomicReference<>();
+        manager.setContextSwitchListener((context, view, onCompletion) -> dataSourceCompletion.set(onCompletion));
+        AtomicReference<Throwable> reportedError = new AtomicReference<>();
+        manager.switchToContext(CONTEXT, false, new Callback<Void>() {
+            @Override
+            public void onSuccess(Void result) {}
+
+            @Override
+            public void onError(Throwable error) {
+                reportedError.set(error);
+            }
+        });
+
+        Exception error = new Exception("network error");
+        dataSourceCompletion.get().onError(error);
+        assertNull(reportedError.get());
+
+        executor.runPendingTasks();
+        assertSame(error, reportedError.get());
+    }
+
+    @Test
+    public void storedDataLoadedInBackgroundDoesNotReplaceNewerData() {
+        Flag storedFlag = new FlagBuilder("flag1").version(1).build();
+        ContextDataManager storingManager = createDataManager();
+        storingManager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        storingManager.initData(CONTEXT, new DataSetBuilder().add(storedFlag).build());
+
+        ManualTaskExecutor executor = new ManualTaskExecutor();
+        ContextDataManager manager = createDataManager(
+                new LDConfig.Builder(LDConfig.Builder.AutoEnvAttributes.Disabled)
+                        .loadCachedFlagsInBackground(true).build(), 1, executor);
+        manager.switchToContext(CONTEXT, false, LDUtil.noOpCallback());
+        ContextDataManager.ContextDataManagerView view = captureView(manager);
+
+        Flag newerFlag = new FlagBuilder("flag1").version(2).build();
+        view.init(CONTEXT, Collections.singletonMap(newerFlag.getKey(), newerFlag));
+        executor.runPendingTasks();
+
+        assertFlagsEqual(newerFlag, manager.getNonDeletedFlag("flag1"));
+    }
 }
@@ -4,7 +4,10 @@ import static com.launchdarkly.sdk.android.AssertHelpers.assertJsonEqual;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import com.launchdarkly.sdk.json.SerializationException;
@@ -18,30 +21,76 @@ public class ContextIndexTest {
     @Test
     public void emptyConstructor() {
         ContextIndex ci = new ContextIndex();
-        assertNotNull(ci.data);
-        assertEquals(0, ci.data.size());
+        assertNotNull(ci.getEntries());
+        assertEquals(0, ci.size());
+        assertFalse(ci.isDirty());
+        assertFalse(ci.isStatsDirty());
     }
 
     @Test
     public void serialize() {
-        ContextIndex ci = new ContextIndex()
-                .updateTimestamp("user1", 1000)
-                .updateTimestamp("user2", 2000);
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.touch("user2", 2000);
         String json = ci.toJson();
         String expected = "[[\"user1\",1000],[\"user2\",2000]]";
         assertJsonEqual(expected, json);
     }
 
+    @Test
+    public void serializeStats() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.recordUse("user1");
+        ci.recordUse("user1");
+        ci.setByteSize("user1", 300);
+        ci.touch("user2", 2000);
+        assertJsonEqual("{\"user1\":[2,300]}", ci.statsToJson());
+    }
+
     @Test
     public void deserialize() throws Exception {
         String json = "[[\"user1\",1000],[\"user2\",2000]]";
         ContextIndex ci = ContextIndex.fromJson(json);
 
-        assertEquals(2, ci.data.size());
-        assertEquals("user1", ci.data.get(0).contextId);
-        assertEquals(1000, ci.data.get(0).timestamp);
-        assertEquals("user2", ci.data.get(1).contextId);
-        assertEquals(2000, ci.data.get(1).timestamp);
+        List<ContextIndex.IndexEntry> entries = ci.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("user1", entries.get(0).contextId);
+        assertEquals(1000, entries.get(0).timestamp);
+        assertEquals("user2", entries.get(1).contextId);
+        assertEquals(2000, entries.get(1).timestamp);
+        assertFalse(ci.isDirty());
+    }
+
+    @Test
+    public void deserializeSortsByTimestampAndIgnoresExtraValues() throws Exception {
+        String json = "[[\"user2\",2000,\"x\",[1]],[\"user1\",1000]]";
+        ContextIndex ci = ContextIndex.fromJson(json);
+
+        List<ContextIndex.IndexEntry> entries = ci.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("user1", entries.get(0).contextId);
+        assertEquals("user2", entries.get(1).contextId);
+    }
+
+    @Test
+    public void deserializeWithStats() throws Exception {
+        String json = "[[\"user1\",1000],[\"user2\",2000]]";
+        String statsJson = "{\"user2\":[3,400],\"unknown\":[1,1000]}";
+        ContextIndex ci = ContextIndex.fromJson(json, statsJson);
+
+        assertEquals(0, ci.getEntry("user1").useCount);
+        assertEquals(3, ci.getEntry("user2").useCount);
+        assertEquals(400, ci.getEntry("user2").byteSize);
+        assertEquals(400, ci.getTotalBytes());
+        assertFalse(ci.isStatsDirty());
+    }
+
+    @Test
+    public void malformedStatsAreIgnored() throws Exception {
+        ContextIndex ci = ContextIndex.fromJson("[[\"user1\",1000]]", "{\"user1\":[\"no\"");
+        assertEquals(1, ci.size());
+        assertEquals(0, ci.getTotalBytes());
     }
 
     @Test
@@ -62,55 +111,192 @@ public class ContextIndexTest {
 
     @Test
     public void updateTimestampForExistingContext() {
-        ContextIndex ci = new ContextIndex()
-                .updateTimestamp("user1", 1000)
-                .updateTimestamp("user2", 2000);
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.touch("user2", 2000);
+
+        ci.touch("user1", 2001);
+
+        List<ContextIndex.IndexEntry> entries = ci.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("user2", entries.get(0).contextId);
+        assertEquals(2000, entries.get(0).timestamp);
+        assertEquals("user1", entries.get(1).contextId);
+        assertEquals(2001, entries.get(1).timestamp);
+    }
+
+    @Test
+    public void touchingTheMostRecentContextOnlyUpdatesItsTimestampAfterTheResolution() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.markPersisted();
 
-        ci = ci.updateTimestamp("user1", 2001);
+        ci.touch("user1", 1000 + ContextIndex.TIMESTAMP_RESOLUTION_MILLIS - 1);
+        assertFalse(ci.isDirty());
+        assertEquals(1000, ci.getEntry("user1").timestamp);
 
-        assertEquals(2, ci.data.size());
-        assertEquals("user2", ci.data.get(0).contextId);
-        assertEquals(2000, ci.data.get(0).timestamp);
-        assertEquals("user1", ci.data.get(1).contextId);
-        assertEquals(2001, ci.data.get(1).timestamp);
+        ci.touch("user1", 1000 + ContextIndex.TIMESTAMP_RESOLUTION_MILLIS);
+        assertTrue(ci.isDirty());
+        assertEquals(1000 + ContextIndex.TIMESTAMP_RESOLUTION_MILLIS, ci.getEntry("user1").timestamp);
     }
 
     @Test
-    public void pruneRemovesLeastRecentContexts() {
-        ContextIndex ci = new ContextIndex()
-                .updateTimestamp("user1", 1000)
-                .updateTimestamp("user2", 2000)
-                .updateTimestamp("user3", 1111) // deliberately out of order
-                .updateTimestamp("user4", 3000)
-                .updateTimestamp("user5", 4000);
+    public void touchingAnotherContextAlwaysMakesItTheMostRecent() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.touch("user2", 1001);
+        ci.markPersisted();
+
+        ci.touch("user1", 1002);
+        assertTrue(ci.isDirty());
+        assertEquals("user1", ci.getMostRecentlyUsed().contextId);
+
+        ci.remove("user1");
+        assertEquals("user2", ci.getMostRecentlyUsed().contextId);
+        ci.remove("user2");
+        assertNull(ci.getMostRecentlyUsed());
+    }
+
+    @Test
+    public void recordUseCountsOnlyContextsInTheIndex() {
+        ContextIndex ci = new ContextIndex();
+        assertFalse(ci.recordUse("user1"));
+        assertFalse(ci.isStatsDirty());
+
+        ci.touch("user1", 1000);
+        ci.markPersisted();
+        assertTrue(ci.recordUse("user1"));
+        assertEquals(1, ci.getEntry("user1").useCount);
+        assertEquals(1000, ci.getEntry("user1").timestamp);
+        assertFalse(ci.isDirty());
+        assertTrue(ci.isStatsDirty());
+    }
+
+    @Test
+    public void pruneRemovesLeastRecentContexts() throws Exception {
+        ContextIndex ci = ContextIndex.fromJson("[[\"user1\",1000],[\"user2\",2000]," +
+                "[\"user3\",1111],[\"user4\",3000],[\"user5\",4000]]"); // deliberately out of order
 
         List<String> removed = new ArrayList<>();
-        ci = ci.prune(3, removed);
+        ci.evict(ContextEvictionPolicy.leastRecentlyUsed(3), 5000, removed);
         assertThat(removed, hasItems("user1", "user3"));
+        assertEquals(2, removed.size());
 
-        assertEquals(3, ci.data.size());
-        assertEquals("user2", ci.data.get(0).contextId);
-        assertEquals(2000, ci.data.get(0).timestamp);
-        assertEquals("user4", ci.data.get(1).contextId);
-        assertEquals(3000, ci.data.get(1).timestamp);
-        assertEquals("user5", ci.data.get(2).contextId);
-        assertEquals(4000, ci.data.get(2).timestamp);
+        List<ContextIndex.IndexEntry> entries = ci.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals("user2", entries.get(0).contextId);
+        assertEquals(2000, entries.get(0).timestamp);
+        assertEquals("user4", entries.get(1).contextId);
+        assertEquals(3000, entries.get(1).timestamp);
+        assertEquals("user5", entries.get(2).contextId);
+        assertEquals(4000, entries.get(2).timestamp);
     }
 
     @Test
     public void pruneWhenLimitIsNotExceeded() {
-        ContextIndex ci = new ContextIndex()
-                .updateTimestamp("user1", 1000)
-                .updateTimestamp("user2", 2000);
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.touch("user2", 2000);
+        ci.markPersisted();
+
+        List<String> removed = new ArrayList<>();
+        ci.evict(ContextEvictionPolicy.leastRecentlyUsed(3), 3000, removed);
+        ci.evict(ContextEvictionPolicy.leastRecentlyUsed(-1), 3000, removed);
+        assertEquals(0, removed.size());
+        assertFalse(ci.isDirty());
+
+        List<ContextIndex.IndexEntry> entries = ci.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals("user1", entries.get(0).contextId);
+        assertEquals(1000, entries.get(0).timestamp);
+        assertEquals("user2", entries.get(1).contextId);
+        assertEquals(2000, entries.get(1).timestamp);
+    }
+
+    @Test
+    public void leastFrequentlyUsedKeepsMostUsedAndMostRecent() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("often", 1000);
+        ci.recordUse("often");
+        ci.recordUse("often");
+        ci.touch("once-a", 1002);
+        ci.recordUse("once-a");
+        ci.touch("once-b", 1003);
+        ci.recordUse("once-b");
+        ci.touch("new", 1004);
+        ci.recordUse("new");
+
+        List<String> removed = new ArrayList<>();
+        ci.evict(ContextEvictionPolicy.leastFrequentlyUsed(2), 2000, removed);
+        assertThat(removed, hasItems("once-a", "once-b"));
+        assertEquals(2, removed.size());
+        assertNotNull(ci.getEntry("often"));
+        assertNotNull(ci.getEntry("new"));
+    }
+
+    @Test
+    public void maxAgeRemovesOldContextsButNotTheMostRecent() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("old", 1000);
+        ci.touch("recent", 9000);
 
         List<String> removed = new ArrayList<>();
-        ci = ci.prune(3, removed);
+        ci.evict(ContextEvictionPolicy.maxAge(5000), 10000, removed);
+        assertThat(removed, hasItems("old"));
+        assertEquals(1, removed.size());
+
+        removed.clear();
+        ci.evict(ContextEvictionPolicy.maxAge(5000), 100000, removed);
         assertEquals(0, removed.size());
+        assertEquals(1, ci.size());
+    }
+
+    @Test
+    public void maxTotalBytesRemovesLeastRecentUntilWithinBudget() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        ci.setByteSize("user1", 400);
+        ci.touch("user2", 2000);
+        ci.setByteSize("user2", 400);
+        ci.touch("user3", 3000);
+        ci.setByteSize("user3", 400);
+        ci.touch("user1", 4000);
+        assertEquals(1200, ci.getTotalBytes());
+
+        List<String> removed = new ArrayList<>();
+        ci.evict(ContextEvictionPolicy.maxTotalBytes(800), 5000, removed);
+        assertThat(removed, hasItems("user2"));
+        assertEquals(1, removed.size());
+        assertEquals(800, ci.getTotalBytes());
+
+        removed.clear();
+        ci.evict(ContextEvictionPolicy.maxTotalBytes(100), 5000, removed);
+        assertThat(removed, hasItems("user3"));
+        assertEquals(1, ci.size());
+        assertNotNull(ci.getEntry("user1"));
+    }
+
+    @Test
+    public void changesAreTrackedUntilPersisted() {
+        ContextIndex ci = new ContextIndex();
+        ci.touch("user1", 1000);
+        assertTrue(ci.isDirty());
+        assertFalse(ci.isStatsDirty());
+
+        ci.markPersisted();
+        ci.setByteSize("user1", 100);
+        assertFalse(ci.isDirty());
+        assertTrue(ci.isStatsDirty());
+
+        ci.markPersisted();
+        ci.setByteSize("user1", 100);
+        assertFalse(ci.remove("user2"));
+        assertFalse(ci.isDirty());
+        assertFalse(ci.isStatsDirty());
 
-        assertEquals(2, ci.data.size());
-        assertEquals("user1", ci.data.get(0).contextId);
-        assertEquals(1000, ci.data.get(0).timestamp);
-        assertEquals("user2", ci.data.get(1).contextId);
-        assertEquals(2000, ci.data.get(1).timestamp);
+        assertTrue(ci.remove("user1"));
+        assertTrue(ci.isDirty());
+        assertTrue(ci.isStatsDirty());
+        assertEquals(0, ci.getTotalBytes());
     }
 }
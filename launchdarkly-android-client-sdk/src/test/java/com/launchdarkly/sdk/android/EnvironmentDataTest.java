@@ -3,7 +3,6 @@ package com.launchdarkly.sdk.android;
 import static com.launchdarkly.sdk.android.AssertHelpers.assertJsonEqual;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
-import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
@@ -17,6 +16,8 @@ import com.launchdarkly.sdk.android.DataModel.Flag;
 
 import org.junit.Test;
 
+import java.util.Arrays;
+
 public class EnvironmentDataTest {
     @Test
     public void emptyConstructorHasNonNullEmptyFlags() {
@@ -89,7 +90,7 @@ public class EnvironmentDataTest {
         assertEquals(Integer.valueOf(222), flag1.getFlagVersion());
         assertEquals(LDValue.of(true), flag1.getValue());
         assertEquals(Integer.valueOf(1), flag1.getVariation());
-        assertArrayEquals(new String[]{"flagA", "flagB"}, flag1.getPrerequisites());
+        assertEquals(Arrays.asList("flagA", "flagB"), flag1.getPrerequisites());
         assertTrue(flag1.isTrackEvents());
         assertTrue(flag1.isTrackReason());
         assertEquals(Long.valueOf(1000), flag1.getDebugEventsUntilDate());
@@ -108,6 +109,26 @@ public class EnvironmentDataTest {
         assertFalse(flag2.isDeleted());
     }
 
+    @Test
+    public void fromJsonLazily() throws Exception {
+        Flag flag1 = new FlagBuilder("flag1").version(100).value(true).build();
+        Flag flag2 = new FlagBuilder("flag2").version(200).value(false).build();
+        String json = new DataSetBuilder().add(flag1).add(flag2).build().toJson();
+        EnvironmentData data = EnvironmentData.fromJsonLazily(json);
+
+        assertEquals(2, data.size());
+        assertEquals(LDValue.of(true), data.getFlag("flag1").getValue());
+        assertNull(data.getFlag("flag3"));
+
+        EnvironmentData updated = data.withFlagUpdatedOrAdded(
+                new FlagBuilder("flag3").version(1).value(LDValue.of("x")).build()).withFlagRemoved("flag2");
+        assertEquals(2, data.size());
+        assertEquals(2, updated.size());
+        assertSame(data.getFlag("flag1"), updated.getFlag("flag1"));
+        assertEquals(2, updated.getAll().size());
+        assertEquals(updated.getAll().keySet(), EnvironmentData.fromJson(updated.toJson()).getAll().keySet());
+    }
+
     @Test
     public void fromJsonWithMissingKeys() throws Exception {
         // This edge case should not be encountered in real LD usage, but can happen in tests and in
@@ -0,0 +1,213 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import com.launchdarkly.logging.LDLogger;
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.internal.events.EventSender;
+
+import org.junit.Test;
+
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+
+public class EventProcessorInstrumentationTest {
+    private static final URI BASE_URI = URI.create("https://events.example.com");
+
+    private static EventSender fixedResultSender(boolean success) {
+        return new EventSender() {
+            @Override
+            public Result sendAnalyticsEvents(byte[] data, int eventCount, URI eventsBaseUri) {
+                return new Result(success, false, null);
+            }
+
+            @Override
+            public Result sendDiagnosticEvent(byte[] data, URI eventsBaseUri) {
+                return new Result(success, false, null);
+            }
+
+            @Override
+            public void close() {}
+        };
+    }
+
+    @Test
+    public void statisticsAreEmptyBeforeFirstFlush() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(10, LDLogger.none());
+        instrumentation.recordEvent(1);
+        assertSame(EventProcessorStatistics.EMPTY, instrumentation.getStatistics());
+    }
+
+    @Test
+    public void flushPublishesCountersAndDrainsQueue() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(10, LDLogger.none());
+        EventSender sender = instrumentation.instrument(fixedResultSender(true));
+        instrumentation.recordEvent(1);
+        instrumentation.recordEvent(0);
+        instrumentation.recordEvent(2);
+
+        sender.sendAnalyticsEvents(new byte[100], 4, BASE_URI);
+        instrumentation.recordEvent(1);
+        sender.sendAnalyticsEvents(new byte[40], 2, BASE_URI);
+
+        EventProcessorStatistics stats = instrumentation.getStatistics();
+        assertEquals(4, stats.getEventsRecorded());
+        assertEquals(0, stats.getQueueDepth());
+        assertEquals(0, stats.getEventsDroppedAtCapacity());
+        assertEquals(2, stats.getFlushCount());
+        assertEquals(0, stats.getFlushFailures());
+        assertEquals(6, stats.getEventsDelivered());
+        assertEquals(40, stats.getLastPayloadBytes());
+        assertEquals(100, stats.getMaxPayloadBytes());
+        assertEquals(140, stats.getTotalPayloadBytes());
+        assertEquals(2, stats.getFlushLatency().getCount());
+    }
+
+    @Test
+    public void eventsBeyondCapacityAreCountedAsDropped() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(2, LDLogger.none());
+        EventSender sender = instrumentation.instrument(fixedResultSender(true));
+        instrumentation.recordEvent(1);
+        instrumentation.recordEvent(2);
+        instrumentation.recordEvent(1);
+        sender.sendAnalyticsEvents(new byte[1], 2, BASE_URI);
+
+        assertEquals(2, instrumentation.getStatistics().getEventsDroppedAtCapacity());
+    }
+
+    @Test
+    public void failedFlushIsCountedButNotDelivered() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(10, LDLogger.none());
+        EventSender sender = instrumentation.instrument(fixedResultSender(false));
+        instrumentation.recordEvent(1);
+        sender.sendAnalyticsEvents(new byte[10], 1, BASE_URI);
+
+        EventProcessorStatistics stats = instrumentation.getStatistics();
+        assertEquals(1, stats.getFlushCount());
+        assertEquals(1, stats.getFlushFailures());
+        assertEquals(0, stats.getEventsDelivered());
+    }
+
+    @Test
+    public void flushListenersAreCalledWithSnapshot() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(10, LDLogger.none());
+        EventSender sender = instrumentation.instrument(fixedResultSender(true));
+        List<EventProcessorStatistics> received = new ArrayList<>();
+        instrumentation.addFlushListener(stats -> {
+            throw new RuntimeException("listener failure should not stop the others");
+        });
+        LDEventFlushListener listener = received::add;
+        instrumentation.addFlushListener(listener);
+
+        sender.sendAnalyticsEvents(new byte[10], 1, BASE_URI);
+        instrumentation.removeFlushListener(listener);
+        sender.sendAnalyticsEvents(new byte[10], 1, BASE_URI);
+
+        assertEquals(1, received.size());
+        assertEquals(1, received.get(0).getFlushCount());
+    }
+
+    @Test
+    public void startupDurationIsAddedToDiagnosticEventsOnceKnown() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(10, LDLogger.none());
+        List<String> sent = new ArrayList<>();
+        EventSender sender = instrumentation.instrument(new EventSender() {
+            @Override
+            public Result sendAnalyticsEvents(byte[] data, int eventCount, URI eventsBaseUri) {
+                return new Result(true, false, null);
+            }
+
+            @Override
+            public Result sendDiagnosticEvent(byte[] data, URI eventsBaseUri) {
+                sent.add(new String(data, Charset.forName("UTF-8")));
+                return new Result(true, false, null);
+            }
+
+            @Override
+            public void close() {}
+        });
+        byte[] event = "{\"kind\":\"diagnostic\",\"droppedEvents\":0}".getBytes(Charset.forName("UTF-8"));
+
+        sender.sendDiagnosticEvent(event, BASE_URI);
+        instrumentation.setStartupDurationMillis(1234);
+        sender.sendDiagnosticEvent(event, BASE_URI);
+
+        assertEquals(LDValue.parse("{\"kind\":\"diagnostic\",\"droppedEvents\":0}"), LDValue.parse(sent.get(0)));
+        assertEquals(LDValue.parse("{\"kind\":\"diagnostic\",\"droppedEvents\":0,\"startupDurationMillis\":1234}"),
+                LDValue.parse(sent.get(1)));
+    }
+
+    @Test
+    public void persistenceSummaryIsAddedToDiagnosticEvents() {
+        EventProcessorInstrumentation instrumentation = new EventProcessorInstrumentation(10, LDLogger.none());
+        List<String> sent = new ArrayList<>();
+        EventSender sender = instrumentation.instrument(new EventSender() {
+            @Override
+            public Result sendAnalyticsEvents(byte[] data, int eventCount, URI eventsBaseUri) {
+                return new Result(true, false, null);
+            }
+
+            @Override
+            public Result sendDiagnosticEvent(byte[] data, URI eventsBaseUri) {
+                sent.add(new String(data, Charset.forName("UTF-8")));
+                return new Result(true, false, null);
+            }
+
+            @Override
+            public void close() {}
+        });
+        PersistenceInstrumentation persistence = new PersistenceInstrumentation();
+        persistence.recordCommit("ns", 300, 2_000, true);
+        persistence.recordPendingReadHit();
+        instrumentation.setPersistenceInstrumentation(persistence);
+
+        sender.sendDiagnosticEvent("{\"kind\":\"diagnostic\"}".getBytes(Charset.forName("UTF-8")), BASE_URI);
+
+        LDValue summary = LDValue.parse(sent.get(0)).get(EventProcessorInstrumentation.PERSISTENCE_PROPERTY);
+        assertEquals(1, summary.get("commits").intValue());
+        assertEquals(300, summary.get("bytesWritten").intValue());
+        assertEquals(1, summary.get("pendingReadHits").intValue());
+        assertEquals(0, summary.get("flagDataDecodes").intValue());
+        assertEquals(LDValue.ofNull(), LDValue.parse(sent.get(0)).get(EventProcessorInstrumentation.STARTUP_DURATION_PROPERTY));
+    }
+
+    @Test
+    public void histogramBucketsDurationsByPowersOfTwo() {
+        LatencyHistogram.Recorder recorder = new LatencyHistogram.Recorder();
+        recorder.recordNanos(500);       // 0µs
+        recorder.recordNanos(2_000);     // 2µs
+        recorder.recordNanos(3_000);     // 3µs
+        recorder.recordNanos(-5);        // treated as zero
+        LatencyHistogram histogram = recorder.snapshot();
+
+        assertEquals(4, histogram.getCount());
+        assertEquals(2, histogram.getBucketCount(0));
+        assertEquals(1, histogram.getBucketCount(1));
+        assertEquals(1, histogram.getBucketCount(2));
+        assertEquals(3, histogram.getMaxMicros());
+        assertEquals(5, histogram.getTotalMicros());
+        assertEquals(3, histogram.getPercentileMicros(100));
+        assertEquals(1, histogram.getPercentileMicros(50));
+
+        recorder.reset();
+        assertEquals(0, recorder.snapshot().getCount());
+    }
+
+    @Test
+    public void histogramCanBeBuiltFromBucketCounts() {
+        long[] counts = new long[LatencyHistogram.BUCKET_COUNT];
+        counts[LatencyHistogram.getBucketForMicros(3)]++;
+        counts[LatencyHistogram.getBucketForMicros(2_000_000)]++;
+        LatencyHistogram histogram = LatencyHistogram.fromBucketCounts(counts, 2_000_003, 2_000_000);
+
+        assertEquals(2, histogram.getCount());
+        assertEquals(1, histogram.getBucketCount(2));
+        assertEquals(1, histogram.getBucketCount(21));
+        assertEquals(2_000_000, histogram.getPercentileMicros(100));
+        counts[0] = 100;
+        assertEquals(0, histogram.getBucketCount(0));
+    }
+}
@@ -0,0 +1,85 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.launchdarkly.sdk.LDContext;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class EventSamplerTest {
+    private static EventSampler sampler(Object... patternsAndRatios) {
+        Map<String, Double> ratios = new HashMap<>();
+        for (int i = 0; i < patternsAndRatios.length; i += 2) {
+            ratios.put((String) patternsAndRatios[i], (Double) patternsAndRatios[i + 1]);
+        }
+        return new EventSampler(ratios);
+    }
+
+    @Test
+    public void unconfiguredKeysAreAlwaysSampled() {
+        EventSampler sampler = sampler("flag", 0.0);
+        assertTrue(EventSampler.NONE.isSampled("flag", LDContext.create("a")));
+        assertTrue(sampler.isSampled("other-flag", LDContext.create("a")));
+    }
+
+    @Test
+    public void ratiosOfZeroAndOneAreAbsolute() {
+        EventSampler sampler = sampler("never", 0.0, "always", 1.0);
+        for (int i = 0; i < 100; i++) {
+            LDContext context = LDContext.create("context-" + i);
+            assertFalse(sampler.isSampled("never", context));
+            assertTrue(sampler.isSampled("always", context));
+        }
+    }
+
+    @Test
+    public void exactKeyWinsOverLongerPrefixWhichWinsOverShorter() {
+        EventSampler sampler = sampler("check*", 1.0, "checkout-*", 0.0, "checkout-button", 1.0);
+        LDContext context = LDContext.create("a");
+        assertTrue(sampler.isSampled("checkout-button", context));
+        assertFalse(sampler.isSampled("checkout-banner", context));
+        assertTrue(sampler.isSampled("checkbox", context));
+    }
+
+    @Test
+    public void rememberedPrefixMatchesAreBounded() {
+        EventSampler sampler = sampler("checkout-*", 0.0, "exact", 0.0);
+        LDContext context = LDContext.create("a");
+        for (int i = 0; i < EventSampler.MAX_RESOLVED_KEYS * 2; i++) {
+            assertFalse(sampler.isSampled("checkout-" + i, context));
+            assertTrue(sampler.isSampled("other-" + i, context));
+        }
+        assertFalse(sampler.isSampled("exact", context));
+        assertEquals(EventSampler.MAX_RESOLVED_KEYS, sampler.resolvedKeyCount());
+        assertFalse(sampler.isSampled("checkout-new", context));
+    }
+
+    @Test
+    public void samplingIsDeterministicPerContext() {
+        EventSampler sampler = sampler("flag", 0.5);
+        for (int i = 0; i < 100; i++) {
+            LDContext context = LDContext.create("context-" + i);
+            boolean first = sampler.isSampled("flag", context);
+            for (int j = 0; j < 5; j++) {
+                assertEquals(first, sampler.isSampled("flag", LDContext.create("context-" + i)));
+            }
+        }
+    }
+
+    @Test
+    public void sampledFractionIsCloseToRatio() {
+        EventSampler sampler = sampler("flag", 0.25);
+        int sampled = 0;
+        for (int i = 0; i < 10_000; i++) {
+            if (sampler.isSampled("flag", LDContext.create("context-" + i))) {
+                sampled++;
+            }
+        }
+        assertTrue("sampled " + sampled, sampled > 2_250 && sampled < 2_750);
+    }
+}
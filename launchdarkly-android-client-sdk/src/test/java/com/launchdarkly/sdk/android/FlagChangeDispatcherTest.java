@@ -0,0 +1,112 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+public class FlagChangeDispatcherTest {
+    @Rule
+    public LogCaptureRule logging = new LogCaptureRule();
+
+    private final ManualTaskExecutor taskExecutor = new ManualTaskExecutor();
+    private final List<List<String>> delivered = new ArrayList<>();
+
+    // Holds actions until the test runs them, standing in for a main thread that is busy.
+    private final List<Runnable> queuedActions = new ArrayList<>();
+
+    private FlagChangeDispatcher dispatcher(int coalesceWindowMillis) {
+        return new FlagChangeDispatcher(taskExecutor, queuedActions::add, coalesceWindowMillis,
+                delivered::add, logging.logger);
+    }
+
+    private void runQueuedActions() {
+        List<Runnable> actions = new ArrayList<>(queuedActions);
+        queuedActions.clear();
+        for (Runnable action : actions) {
+            action.run();
+        }
+    }
+
+    @Test
+    public void deliversEachUpdateSeparatelyWithoutCoalescing() {
+        FlagChangeDispatcher dispatcher = dispatcher(FlagChangeDispatcher.NO_COALESCING);
+
+        dispatcher.dispatch(Collections.singletonList("flag1"));
+        dispatcher.dispatch(Collections.singletonList("flag1"));
+        runQueuedActions();
+
+        assertEquals(Arrays.asList(Collections.singletonList("flag1"), Collections.singletonList("flag1")),
+                delivered);
+    }
+
+    @Test
+    public void collectsUpdatesUntilTheDeliveryRunsWithAZeroWindow() {
+        FlagChangeDispatcher dispatcher = dispatcher(0);
+
+        dispatcher.dispatch(Arrays.asList("flag1", "flag2"));
+        dispatcher.dispatch(Arrays.asList("flag3", "flag1"));
+        assertEquals(1, queuedActions.size());
+        runQueuedActions();
+
+        dispatcher.dispatch(Collections.singletonList("flag2"));
+        runQueuedActions();
+
+        assertEquals(Arrays.asList(Arrays.asList("flag1", "flag2", "flag3"), Collections.singletonList("flag2")),
+                delivered);
+    }
+
+    @Test
+    public void collectsUpdatesForTheWindow() {
+        FlagChangeDispatcher dispatcher = dispatcher(100);
+
+        dispatcher.dispatch(Collections.singletonList("flag1"));
+        dispatcher.dispatch(Collections.singletonList("flag2"));
+        runQueuedActions();
+        assertEquals(Collections.emptyList(), delivered);
+
+        taskExecutor.runPendingTasks();
+        dispatcher.dispatch(Collections.singletonList("flag3"));
+        runQueuedActions();
+
+        assertEquals(Collections.singletonList(Arrays.asList("flag1", "flag2")), delivered);
+    }
+
+    @Test
+    public void ignoresNullKeys() {
+        FlagChangeDispatcher dispatcher = dispatcher(0);
+
+        dispatcher.dispatch(Collections.singletonList(null));
+        dispatcher.dispatch(Arrays.asList(null, "flag1"));
+        runQueuedActions();
+
+        assertEquals(Collections.singletonList(Collections.singletonList("flag1")), delivered);
+    }
+
+    @Test
+    public void dropsABatchTheExecutorRejects() {
+        List<Runnable> accepted = new ArrayList<>();
+        boolean[] reject = { true };
+        FlagChangeDispatcher dispatcher = new FlagChangeDispatcher(taskExecutor, action -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException("shut down");
+            }
+            accepted.add(action);
+        }, 0, delivered::add, logging.logger);
+
+        dispatcher.dispatch(Collections.singletonList("flag1"));
+        logging.assertWarnLogged("rejected");
+
+        reject[0] = false;
+        dispatcher.dispatch(Collections.singletonList("flag2"));
+        accepted.get(0).run();
+
+        assertEquals(Collections.singletonList(Collections.singletonList("flag2")), delivered);
+    }
+}
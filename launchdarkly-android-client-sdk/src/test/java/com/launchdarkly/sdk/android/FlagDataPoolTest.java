@@ -0,0 +1,142 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.android.DataModel.Flag;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+public class FlagDataPoolTest {
+    @Rule
+    public final LogCaptureRule logging = new LogCaptureRule();
+
+    @Test
+    public void equalKeysAndValuesAreShared() {
+        FlagDataPool pool = new FlagDataPool();
+        String key = pool.internKey(new String("flag-key"));
+        assertSame(key, pool.internKey(new String("flag-key")));
+
+        LDValue value = pool.internValue(LDValue.parse("{\"a\":[1,2,3]}"));
+        assertSame(value, pool.internValue(LDValue.parse("{\"a\":[1,2,3]}")));
+        assertNotSame(value, pool.internValue(LDValue.parse("{\"a\":[1,2]}")));
+
+        assertNull(pool.internKey(null));
+        assertNull(pool.internValue(null));
+    }
+
+    @Test
+    public void equalPrerequisiteListsAreShared() {
+        FlagDataPool pool = new FlagDataPool();
+        List<String> prerequisites = pool.internPrerequisites(new String[] { new String("a"), new String("b") });
+        assertSame(prerequisites, pool.internPrerequisites(new String[] { new String("a"), new String("b") }));
+        assertSame(pool.internKey(new String("a")), prerequisites.get(0));
+        assertEquals(Arrays.asList("b", "a"),
+                pool.internPrerequisites(new String[] { new String("b"), new String("a") }));
+        assertNull(pool.internPrerequisites(null));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sharedPrerequisiteListsCannotBeModified() {
+        new FlagDataPool().internPrerequisites(new String[] { "a" }).set(0, "b");
+    }
+
+    @Test
+    public void threadsInterningAtOnceShareOneInstance() throws InterruptedException {
+        FlagDataPool pool = new FlagDataPool();
+        int threadCount = 8;
+        LDValue[][] interned = new LDValue[threadCount][100];
+        Thread[] threads = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int thread = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    interned[thread][i] = pool.internValue(LDValue.parse("{\"n\":[" + i + ",\"x\"]}"));
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 100; i++) {
+            for (int t = 1; t < threadCount; t++) {
+                assertSame(interned[0][i], interned[t][i]);
+            }
+        }
+    }
+
+    @Test
+    public void prerequisiteListsAreBounded() {
+        FlagDataPool pool = new FlagDataPool();
+        List<String> first = pool.internPrerequisites(new String[] { "prereq-0" });
+        for (int i = 1; i <= FlagDataPool.MAX_PREREQUISITE_LISTS; i++) {
+            pool.internPrerequisites(new String[] { "prereq-" + i });
+        }
+        assertNotSame(first, pool.internPrerequisites(new String[] { "prereq-0" }));
+    }
+
+    @Test
+    public void clearForgetsEverything() {
+        FlagDataPool pool = new FlagDataPool();
+        String key = pool.internKey(new String("flag-key"));
+        LDValue value = pool.internValue(LDValue.parse("[\"x\"]"));
+        pool.internPrerequisites(new String[] { "prereq" });
+
+        assertEquals(4, pool.clear());
+        assertEquals(0, pool.size());
+        assertNotSame(key, pool.internKey(new String("flag-key")));
+        assertNotSame(value, pool.internValue(LDValue.parse("[\"x\"]")));
+    }
+
+    @Test
+    public void clearingPrerequisiteListsKeepsKeysAndValues() {
+        FlagDataPool pool = new FlagDataPool();
+        String key = pool.internKey(new String("flag-key"));
+        List<String> prerequisites = pool.internPrerequisites(new String[] { "prereq" });
+
+        assertEquals(1, pool.clearPrerequisiteLists());
+        assertSame(key, pool.internKey(new String("flag-key")));
+        assertNotSame(prerequisites, pool.internPrerequisites(new String[] { "prereq" }));
+    }
+
+    @Test
+    public void memoryPressureReleasesSharedPrerequisiteLists() {
+        MockPlatformState platformState = new MockPlatformState();
+        LDClient.releaseMemoryOnPressure(platformState, logging.logger);
+        List<String> prerequisites = FlagDataPool.shared().internPrerequisites(new String[] { "pressure-prereq" });
+
+        platformState.notifyMemoryPressureListeners(15);
+
+        assertNotSame(prerequisites, FlagDataPool.shared().internPrerequisites(new String[] { "pressure-prereq" }));
+        logging.assertInfoLogged("pooled prerequisite lists");
+    }
+
+    @Test
+    public void decodedFlagsShareKeysValuesAndPrerequisites() {
+        String json = "{\"key\":\"pooled-flag\",\"value\":\"some string value\",\"version\":1," +
+                "\"prerequisites\":[\"pooled-prereq\"]}";
+        Flag flag1 = Flag.fromJson(json);
+        Flag flag2 = Flag.fromJson(json);
+        assertEquals(flag1, flag2);
+        assertSame(flag1.getKey(), flag2.getKey());
+        assertSame(flag1.getValue(), flag2.getValue());
+        assertSame(flag1.getPrerequisites(), flag2.getPrerequisites());
+    }
+
+    @Test
+    public void environmentDataSharesMapKeysWithFlags() throws Exception {
+        EnvironmentData data = EnvironmentData.fromJson(
+                "{\"pooled-env-flag\":{\"key\":\"pooled-env-flag\",\"value\":true,\"version\":1}}");
+        Flag flag = data.getFlag("pooled-env-flag");
+        String mapKey = data.getAll().keySet().iterator().next();
+        assertSame(flag.getKey(), mapKey);
+    }
+}
@@ -21,11 +21,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
-import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 public class FlagTest {
@@ -222,7 +222,7 @@ public class FlagTest {
     public void prerequisitesIsDeserialized() {
         final String jsonStr = "{\"version\": 99, \"prerequisites\": [\"flagA\",\"flagB\"]}";
         final Flag r = gson.fromJson(jsonStr, Flag.class);
-        assertArrayEquals(new String[]{"flagA","flagB"}, r.getPrerequisites());
+        assertEquals(Arrays.asList("flagA", "flagB"), r.getPrerequisites());
     }
 
     @Test
@@ -315,4 +315,61 @@ public class FlagTest {
         assertEquals(10, withVersion.getVersionForEvents());
         assertEquals(5, withVersionAndFlagVersion.getVersionForEvents());
     }
+
+    @Test
+    public void hasSameValueAsComparesValues() {
+        LDValue bigValue = LDValue.buildObject().put("a", LDValue.arrayOf(LDValue.of(1), LDValue.of("x"))).build();
+        Flag flag = new FlagBuilder("flag").version(1).value(bigValue).build();
+
+        assertTrue(flag.hasSameValueAs(new FlagBuilder("flag").version(2).value(
+                LDValue.parse("{\"a\":[1,\"x\"]}")).build()));
+        assertFalse(flag.hasSameValueAs(new FlagBuilder("flag").version(2).value(
+                LDValue.parse("{\"a\":[1,\"y\"]}")).build()));
+        assertTrue(new FlagBuilder("flag").build().hasSameValueAs(Flag.deletedItemPlaceholder("flag", 2)));
+    }
+
+    @Test
+    public void valueHashIsNotSerialized() throws Exception {
+        Flag flag = Flag.fromJson("{\"key\":\"flag\",\"value\":true,\"version\":1}");
+
+        assertFalse(flag.toJson().contains("valueHash"));
+    }
+
+    @Test
+    public void everyPropertySurvivesJsonRoundTrip() throws Exception {
+        Flag flag = new FlagBuilder("flag").value(LDValue.of("yes")).version(99).flagVersion(100)
+                .variation(2).trackEvents(true).trackReason(true).debugEventsUntilDate(2500000000L)
+                .reason(EvaluationReason.ruleMatch(1, "id")).prerequisites(new String[]{"a", "b"}).build();
+
+        Flag decoded = Flag.fromJson(flag.toJson());
+
+        assertEquals("flag", decoded.getKey());
+        assertEquals(LDValue.of("yes"), decoded.getValue());
+        assertEquals(99, decoded.getVersion());
+        assertEquals(Integer.valueOf(100), decoded.getFlagVersion());
+        assertEquals(Integer.valueOf(2), decoded.getVariation());
+        assertEquals(2, decoded.getVariationIndex());
+        assertTrue(decoded.isTrackEvents());
+        assertTrue(decoded.isTrackReason());
+        assertEquals(Long.valueOf(2500000000L), decoded.getDebugEventsUntilDate());
+        assertEquals(EvaluationReason.ruleMatch(1, "id"), decoded.getReason());
+        assertEquals(Arrays.asList("a", "b"), decoded.getPrerequisites());
+        assertFalse(decoded.isDeleted());
+
+        Flag deleted = Flag.fromJson(Flag.deletedItemPlaceholder("flag", 3).toJson());
+        assertTrue(deleted.isDeleted());
+        assertEquals(3, deleted.getVersion());
+        assertEquals(-1, deleted.getVariationIndex());
+    }
+
+    @Test
+    public void decodedFlagsShareCommonValuesAndReasons() throws Exception {
+        String json = "{\"key\":\"flag\",\"value\":%s,\"version\":1,\"reason\":{\"kind\":\"OFF\"}}";
+        for (String value : Arrays.asList("true", "false", "null", "0", "42", "-1")) {
+            Flag a = Flag.fromJson(String.format(json, value));
+            Flag b = Flag.fromJson(String.format(json, value));
+            assertSame(value, a.getValue(), b.getValue());
+            assertSame(a.getReason(), b.getReason());
+        }
+    }
 }
@@ -3,9 +3,12 @@ package com.launchdarkly.sdk.android;
 import static org.easymock.EasyMock.anyObject;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.getCurrentArguments;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import com.launchdarkly.sdk.EvaluationDetail;
 import com.launchdarkly.sdk.EvaluationReason;
@@ -16,6 +19,7 @@ import com.launchdarkly.sdk.android.integrations.EvaluationExposureKey;
 import com.launchdarkly.sdk.android.integrations.EvaluationSeriesContext;
 import com.launchdarkly.sdk.android.integrations.Hook;
 import com.launchdarkly.sdk.android.integrations.HookMetadata;
+import com.launchdarkly.sdk.android.integrations.HooksConfigurationBuilder;
 import com.launchdarkly.sdk.android.integrations.IdentifySeriesContext;
 import com.launchdarkly.sdk.android.integrations.IdentifySeriesResult;
 import com.launchdarkly.sdk.android.integrations.TrackSeriesContext;
@@ -153,6 +157,196 @@ public class HookRunnerTest extends EasyMockSupport {
         assertEquals(List.of("before", "after"), hook.stages);
     }
 
+    @Test
+    public void skipsBeforeEvaluationOfAHookThatDeclaresItDoesNotRunIt() {
+        List<String> stages = new ArrayList<>();
+        List<Map<String, Object>> afterData = new ArrayList<>();
+        Hook afterOnly = new Hook("after-only", false) {
+            @Override
+            public Map<String, Object> beforeEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData) {
+                stages.add("before");
+                return seriesData;
+            }
+
+            @Override
+            public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                                       EvaluationDetail<LDValue> evaluationDetail) {
+                stages.add("after");
+                afterData.add(seriesData);
+                return seriesData;
+            }
+        };
+        RecordingHook recording = new RecordingHook("recording");
+
+        evaluate(new HookRunner(logging.logger, List.of(afterOnly, recording)));
+
+        assertEquals(List.of("after"), stages);
+        assertEquals(List.of(Collections.emptyMap()), afterData);
+        assertEquals(List.of("before", "after"), recording.stages);
+    }
+
+    @Test
+    public void givesEachHookBackOnlyTheSeriesDataItReturned() {
+        List<Map<String, Object>> afterData = new ArrayList<>();
+        Hook returningData = new Hook("returning-data") {
+            @Override
+            public Map<String, Object> beforeEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData) {
+                return Map.of("started", true);
+            }
+
+            @Override
+            public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                                       EvaluationDetail<LDValue> evaluationDetail) {
+                afterData.add(seriesData);
+                return seriesData;
+            }
+        };
+        Hook returningNothing = new Hook("returning-nothing") {
+            @Override
+            public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                                       EvaluationDetail<LDValue> evaluationDetail) {
+                afterData.add(seriesData);
+                return seriesData;
+            }
+        };
+
+        evaluate(new HookRunner(logging.logger, List.of(returningData, returningNothing)));
+
+        // After stages run in reverse, so the hook that returned nothing is first.
+        assertEquals(List.of(Collections.emptyMap(), Map.of("started", true)), afterData);
+        logging.assertNothingLogged();
+    }
+
+    @Test
+    public void asyncAfterStagesGetSeriesDataOfBeforeStagesAndAreDrainedOnClose() throws Exception {
+        AtomicInteger evaluations = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch afterStagesRun = new CountDownLatch(3);
+        List<Object> afterData = Collections.synchronizedList(new ArrayList<>());
+        List<String> afterThreads = Collections.synchronizedList(new ArrayList<>());
+        Hook hook = new Hook("async") {
+            @Override
+            public Map<String, Object> beforeEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData) {
+                return Map.of("evaluation", evaluations.incrementAndGet());
+            }
+
+            @Override
+            public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                                       EvaluationDetail<LDValue> evaluationDetail) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                afterData.add(seriesData.get("evaluation"));
+                afterThreads.add(Thread.currentThread().getName());
+                afterStagesRun.countDown();
+                return seriesData;
+            }
+        };
+        AsyncHookExecutor executor = new AsyncHookExecutor(10,
+                HooksConfigurationBuilder.AsyncOverflowPolicy.BLOCK, logging.logger);
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook), null, executor);
+
+        for (int i = 0; i < 3; i++) {
+            evaluate(runner);
+        }
+        // The first after stage is still waiting, so the other two are queued when the runner is closed.
+        runner.close();
+        evaluate(runner);
+        release.countDown();
+
+        assertTrue(afterStagesRun.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1, 2, 3), afterData);
+        for (String thread : afterThreads) {
+            assertFalse(thread.equals(Thread.currentThread().getName()));
+        }
+        // The evaluation made after close() ran its before stage, but its after stage was discarded.
+        Thread.sleep(100);
+        assertEquals(4, evaluations.get());
+        assertEquals(3, afterData.size());
+        logging.assertNothingLogged();
+    }
+
+    @Test
+    public void timesEveryStageOfEveryHook() {
+        RecordingHook hook = new RecordingHook("recording");
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook), null, null, 0, 0, true);
+
+        evaluate(runner);
+        evaluate(runner);
+        runner.identify(LDContext.create("user-123"), null)
+                .invoke(new IdentifySeriesResult(IdentifySeriesResult.IdentifySeriesStatus.COMPLETED));
+        runner.afterTrack("event", LDContext.create("user-123"), LDValue.ofNull(), null);
+
+        List<HookStatistics> statistics = runner.getStatistics();
+        assertEquals(1, statistics.size());
+        HookStatistics recording = statistics.get(0);
+        assertEquals("recording", recording.getHookName());
+        assertEquals(2, recording.getLatency(HookStatistics.Stage.BEFORE_EVALUATION).getCount());
+        assertEquals(2, recording.getLatency(HookStatistics.Stage.AFTER_EVALUATION).getCount());
+        assertEquals(1, recording.getLatency(HookStatistics.Stage.BEFORE_IDENTIFY).getCount());
+        assertEquals(1, recording.getLatency(HookStatistics.Stage.AFTER_IDENTIFY).getCount());
+        assertEquals(1, recording.getLatency(HookStatistics.Stage.AFTER_TRACK).getCount());
+        assertEquals(0, recording.getBudgetOverruns());
+        assertFalse(recording.isBypassed());
+    }
+
+    @Test
+    public void doesNotTimeStagesWithoutABudgetUnlessAskedTo() {
+        RecordingHook hook = new RecordingHook("recording");
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook));
+
+        evaluate(runner);
+
+        assertEquals(List.of("before", "after"), hook.stages);
+        HookStatistics recording = runner.getStatistics().get(0);
+        assertEquals(0, recording.getLatency(HookStatistics.Stage.BEFORE_EVALUATION).getCount());
+        assertEquals(0, recording.getLatency(HookStatistics.Stage.AFTER_EVALUATION).getCount());
+    }
+
+    @Test
+    public void bypassesAHookThatKeepsExceedingTheBudget() {
+        AtomicInteger slowCalls = new AtomicInteger();
+        Hook slow = new Hook("slow") {
+            @Override
+            public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                                       EvaluationDetail<LDValue> evaluationDetail) {
+                slowCalls.incrementAndGet();
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return seriesData;
+            }
+        };
+        RecordingHook fast = new RecordingHook("fast");
+        HookRunner runner = new HookRunner(logging.logger, List.of(slow, fast), null, null, 1000, 3, false);
+        List<HookStatistics> bypassed = new ArrayList<>();
+        List<HookStatistics.Stage> bypassedIn = new ArrayList<>();
+        runner.addStatusListener((statistics, stage) -> {
+            bypassed.add(statistics);
+            bypassedIn.add(stage);
+        });
+
+        for (int i = 0; i < 5; i++) {
+            evaluate(runner);
+        }
+
+        // The third slow stage in a row is the last one called; the fast hook is unaffected.
+        assertEquals(3, slowCalls.get());
+        assertEquals(10, fast.stages.size());
+        assertEquals(1, bypassed.size());
+        assertEquals("slow", bypassed.get(0).getHookName());
+        assertTrue(bypassed.get(0).isBypassed());
+        assertEquals(3, bypassed.get(0).getBudgetOverruns());
+        assertEquals(List.of(HookStatistics.Stage.AFTER_EVALUATION), bypassedIn);
+        assertTrue(runner.getStatistics().get(0).isBypassed());
+        assertFalse(runner.getStatistics().get(1).isBypassed());
+        logging.assertWarnLogged("Hook \"slow\" took longer than 1000µs in 3 stages in a row");
+    }
+
     @Test
     public void describesTheEvaluationsOwnReadOfTheFlagToEveryHookThatAsks() {
         KeyReadingHook first = new KeyReadingHook("first");
@@ -474,6 +668,71 @@ public class HookRunnerTest extends EasyMockSupport {
         assertEquals(afterTrackOrder, List.of("a", "b", "c"));
     }
 
+    @Test
+    public void executesAfterTrackHooksForEachEventOfBatchInOrder() {
+        List<String> afterTrackOrder = new ArrayList<>();
+        Hook hookA = new Hook("a") {
+            @Override
+            public void afterTrack(TrackSeriesContext seriesContext) {
+                afterTrackOrder.add("a:" + seriesContext.key);
+            }
+        };
+        Hook hookB = new Hook("b") {
+            @Override
+            public void afterTrack(TrackSeriesContext seriesContext) {
+                afterTrackOrder.add("b:" + seriesContext.key);
+            }
+        };
+
+        HookRunner runner = new HookRunner(logging.logger, List.of(hookA, hookB));
+
+        LDContext context = LDContext.create("user-123");
+        runner.afterTrack(List.of(
+                new TrackSeriesContext("first", context, null, null),
+                new TrackSeriesContext("second", context, null, 1.0)));
+
+        // One series per batch: each hook sees the whole batch, in order, before the next hook.
+        assertEquals(List.of("a:first", "a:second", "b:first", "b:second"), afterTrackOrder);
+        logging.assertNothingLogged();
+    }
+
+    @Test
+    public void hookThatHandlesBatchesIsCalledOncePerBatch() {
+        List<List<String>> batches = new ArrayList<>();
+        Hook batchHook = new Hook("batch") {
+            @Override
+            public void afterTrack(TrackSeriesContext seriesContext) {
+                fail("should not be called for a batch");
+            }
+
+            @Override
+            public void afterTrackBatch(List<TrackSeriesContext> seriesContexts) {
+                List<String> keys = new ArrayList<>();
+                for (TrackSeriesContext c : seriesContexts) {
+                    keys.add(c.key);
+                }
+                batches.add(keys);
+            }
+        };
+        Hook failingHook = new Hook("failing") {
+            @Override
+            public void afterTrackBatch(List<TrackSeriesContext> seriesContexts) {
+                throw new RuntimeException("boom");
+            }
+        };
+
+        HookRunner runner = new HookRunner(logging.logger, List.of(failingHook, batchHook), null, null, 0, 0, true);
+
+        LDContext context = LDContext.create("user-123");
+        runner.afterTrack(List.of(
+                new TrackSeriesContext("first", context, null, null),
+                new TrackSeriesContext("second", context, null, 1.0)));
+
+        assertEquals(List.of(List.of("first", "second")), batches);
+        assertEquals(1, runner.getStatistics().get(1).getLatency(HookStatistics.Stage.AFTER_TRACK).getCount());
+        logging.assertErrorLogged("During tracking of a batch of 2 events. Stage \"afterTrackBatch\" of hook \"failing\" reported error: java.lang.RuntimeException: boom");
+    }
+
     @Test public void usesAddedHookInFutureInvocations() {
         Hook newHook = mock(Hook.class);
         hookRunner.addHook(newHook);
@@ -66,6 +66,48 @@ public class LDConfigTest {
         assertEquals(-1, config.getMaxCachedContexts());
     }
 
+    @Test
+    public void testBuilderMaxCachedContextBytes() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled).build();
+        assertEquals(LDConfig.NO_MAX_CACHED_CONTEXT_BYTES, config.getMaxCachedContextBytes());
+        config = new LDConfig.Builder(AutoEnvAttributes.Disabled).maxCachedContextBytes(100_000).build();
+        assertEquals(100_000, config.getMaxCachedContextBytes());
+    }
+
+    @Test
+    public void testBuilderCachedContextEviction() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled).build();
+        assertEquals(LDConfig.NO_MAX_CACHED_CONTEXT_AGE, config.getMaxCachedContextAgeMillis());
+        assertFalse(config.isEvictLeastFrequentlyUsedContexts());
+        config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .maxCachedContextAgeMillis(86_400_000)
+                .evictLeastFrequentlyUsedContexts(true)
+                .build();
+        assertEquals(86_400_000, config.getMaxCachedContextAgeMillis());
+        assertTrue(config.isEvictLeastFrequentlyUsedContexts());
+    }
+
+    @Test
+    public void testBuilderCachedFlagDataCompressionThreshold() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled).build();
+        assertEquals(LDConfig.NO_CACHED_FLAG_DATA_COMPRESSION, config.getCachedFlagDataCompressionThreshold());
+        config = new LDConfig.Builder(AutoEnvAttributes.Disabled).cachedFlagDataCompressionThreshold(16_384).build();
+        assertEquals(16_384, config.getCachedFlagDataCompressionThreshold());
+    }
+
+    @Test
+    public void testBuilderPersistenceWriteBack() {
+        LDConfig config = new LDConfig.Builder(AutoEnvAttributes.Disabled).build();
+        assertEquals(0, config.getPersistenceWriteBackDelayMillis());
+        assertEquals(0, config.getPersistenceMaxDirtyAgeMillis());
+        config = new LDConfig.Builder(AutoEnvAttributes.Disabled)
+                .persistenceWriteBackDelayMillis(500)
+                .persistenceMaxDirtyAgeMillis(5000)
+                .build();
+        assertEquals(500, config.getPersistenceWriteBackDelayMillis());
+        assertEquals(5000, config.getPersistenceMaxDirtyAgeMillis());
+    }
+
     Map<String, String> headersToMap(Headers headers) {
         Map<String, List<String>> multimap = headers.toMultimap();
         HashMap<String, String> collapsed = new HashMap<>();
@@ -0,0 +1,144 @@
+package com.launchdarkly.sdk.android;
+
+import static com.launchdarkly.sdk.android.AssertHelpers.assertJsonEqual;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.android.DataModel.Flag;
+import com.launchdarkly.sdk.json.SerializationException;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+
+public class LazyFlagMapTest {
+    private static final String JSON = "{ \"flag1\" : {\"key\":\"flag1\",\"version\":100,\"value\":true," +
+            "\"prerequisites\":[\"flagA\",\"flagB\"],\"reason\":{\"kind\":\"OFF\"}},\n" +
+            "\"flag2\":{\"version\":200,\"value\":\"a \\\"quoted\\\" } string\"}," +
+            "\"flag\\u0033\":{\"key\":\"flag3\",\"version\":300,\"value\":[{},[]]} }";
+
+    @Test
+    public void flagsAreDecodedWhenFirstRequested() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse(JSON);
+        assertEquals(3, flags.size());
+        assertEquals(new HashSet<>(Arrays.asList("flag1", "flag2", "flag3")), flags.keySet());
+        assertTrue(flags.containsKey("flag3"));
+        assertEquals(0, flags.decodedCount());
+
+        Flag flag1 = flags.get("flag1");
+        assertNotNull(flag1);
+        assertEquals(100, flag1.getVersion());
+        assertEquals(LDValue.of(true), flag1.getValue());
+        assertEquals(1, flags.decodedCount());
+        assertSame(flag1, flags.get("flag1"));
+        assertNull(flags.get("flag4"));
+    }
+
+    @Test
+    public void decodedFlagsAreNormalized() throws Exception {
+        Flag flag2 = LazyFlagMap.parse(JSON).get("flag2");
+        assertEquals("flag2", flag2.getKey());
+        assertEquals(LDValue.of("a \"quoted\" } string"), flag2.getValue());
+    }
+
+    @Test
+    public void iteratingDecodesAllFlags() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse(JSON);
+        int count = 0;
+        for (Map.Entry<String, Flag> e : flags.entrySet()) {
+            assertEquals(e.getKey(), e.getValue().getKey());
+            count++;
+        }
+        assertEquals(3, count);
+        assertEquals(3, flags.decodedCount());
+    }
+
+    @Test
+    public void sourceIsReleasedOnceEveryFlagIsDecoded() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse(JSON);
+        flags.get("flag1");
+        flags.get("flag2");
+        assertTrue(flags.holdsSource());
+
+        flags.get("flag3");
+        assertFalse(flags.holdsSource());
+        LazyFlagMap reparsed = LazyFlagMap.parse(flags.toJson());
+        assertEquals(flags.keySet(), reparsed.keySet());
+        assertEquals(LDValue.of("a \"quoted\" } string"), reparsed.get("flag2").getValue());
+    }
+
+    @Test
+    public void copyReleasesSourceAfterIteratingFlagsDecodedThroughAnother() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse(JSON);
+        LazyFlagMap copy = flags.copy();
+        for (String key : flags.keySet()) {
+            flags.get(key);
+        }
+        assertFalse(flags.holdsSource());
+        assertTrue(copy.holdsSource());
+
+        assertEquals(3, copy.entrySet().size());
+        for (Map.Entry<String, Flag> e : copy.entrySet()) {
+            assertNotNull(e.getValue());
+        }
+        assertFalse(copy.holdsSource());
+        assertFalse(flags.copy().holdsSource());
+    }
+
+    @Test
+    public void copiesShareDecodedFlagsButNotChanges() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse(JSON);
+        LazyFlagMap copy = flags.copy();
+        Flag flag1 = copy.get("flag1");
+        assertSame(flag1, flags.get("flag1"));
+
+        Flag newFlag = new FlagBuilder("flag4").version(1).value(false).build();
+        copy.put("flag4", newFlag);
+        assertSame(flag1, copy.remove("flag1"));
+        assertSame(newFlag, copy.get("flag4"));
+        assertFalse(copy.containsKey("flag1"));
+        assertEquals(3, flags.size());
+        assertFalse(flags.containsKey("flag4"));
+    }
+
+    @Test
+    public void toJsonKeepsFlagsThatWereNotDecodedAsTheyWere() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse(JSON);
+        flags.put("flag4", new FlagBuilder("flag4").version(1).value(false).build());
+        flags.remove("flag3");
+        String json = flags.toJson();
+        assertEquals(0, LazyFlagMap.parse(json).decodedCount());
+        assertJsonEqual("{\"flag1\":{\"key\":\"flag1\",\"version\":100,\"value\":true," +
+                "\"prerequisites\":[\"flagA\",\"flagB\"],\"reason\":{\"kind\":\"OFF\"}}," +
+                "\"flag2\":{\"version\":200,\"value\":\"a \\\"quoted\\\" } string\"}," +
+                "\"flag4\":{\"key\":\"flag4\",\"version\":1,\"value\":false}}", json);
+    }
+
+    @Test
+    public void flagThatCannotBeDecodedIsTreatedAsDeleted() throws Exception {
+        LazyFlagMap flags = LazyFlagMap.parse("{\"flag1\":{\"version\":\"x\"},\"flag2\":null}");
+        assertTrue(flags.get("flag1").isDeleted());
+        assertTrue(flags.get("flag2").isDeleted());
+    }
+
+    @Test
+    public void malformedJsonCannotBeParsed() {
+        for (String bad : new String[] {
+                "", "[]", "{", "{\"flag1\"}", "{\"flag1\":}", "{\"flag1\":{}", "{\"flag1\":{},}", "{} {}",
+                "{\"flag1\":\"unterminated}"
+        }) {
+            try {
+                LazyFlagMap.parse(bad);
+                fail("expected exception for " + bad);
+            } catch (SerializationException e) {}
+        }
+    }
+}
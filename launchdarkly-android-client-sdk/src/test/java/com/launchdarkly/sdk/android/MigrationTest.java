@@ -4,6 +4,8 @@ import static org.easymock.EasyMock.expect;
 import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.hasItems;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
 import com.launchdarkly.sdk.ContextKind;
 import com.launchdarkly.sdk.android.subsystems.PersistentDataStore;
@@ -64,6 +66,44 @@ public class MigrationTest extends EasyMockSupport {
         assertThat(w.getOrGenerateContextKey(ContextKind.DEFAULT), equalTo(generatedKey));
     }
 
+    @Test
+    public void carriesOverGeneratedKeyBeforeRemovingEarlierData() {
+        String generatedKey = "key12345";
+        store.setValue(Migration.SHARED_PREFS_BASE_KEY + "id", "instanceId", generatedKey);
+        store.setValue(Migration.SHARED_PREFS_BASE_KEY + "data", "a", "b");
+
+        Runnable remainder = Migration.beginMigrationWhenNeeded(store, logging.logger);
+
+        assertNotNull(remainder);
+        PersistentDataStoreWrapper w = new PersistentDataStoreWrapper(store, logging.logger);
+        assertThat(w.getOrGenerateContextKey(ContextKind.DEFAULT), equalTo(generatedKey));
+        assertThat(store.getAllNamespaces(), hasItems(Migration.SHARED_PREFS_BASE_KEY + "data"));
+        assertNull(store.getValue(Migration.MIGRATIONS_NAMESPACE, Migration.CURRENT_SCHEMA_ID));
+
+        remainder.run();
+
+        assertThat(store.getAllNamespaces().size(), equalTo(2));
+        assertCurrentSchemaIdIsPresent();
+        assertNull(Migration.beginMigrationWhenNeeded(store, logging.logger));
+    }
+
+    @Test
+    public void interruptedMigrationDoesNotCarryOverDataAgain() {
+        store.setValue(Migration.SHARED_PREFS_BASE_KEY + "id", "instanceId", "key12345");
+        Migration.beginMigrationWhenNeeded(store, logging.logger);
+        // the app stops before the rest of the migration runs, and a new key is generated later
+        PersistentDataStoreWrapper w = new PersistentDataStoreWrapper(store, logging.logger);
+        w.setGeneratedContextKey(ContextKind.DEFAULT, "newer-key");
+
+        Runnable remainder = Migration.beginMigrationWhenNeeded(store, logging.logger);
+        assertNotNull(remainder);
+        remainder.run();
+
+        PersistentDataStoreWrapper w2 = new PersistentDataStoreWrapper(store, logging.logger);
+        assertThat(w2.getOrGenerateContextKey(ContextKind.DEFAULT), equalTo("newer-key"));
+        assertCurrentSchemaIdIsPresent();
+    }
+
     private void assertCurrentSchemaIdIsPresent() {
         assertThat(store.getAllNamespaces(), hasItems(Migration.MIGRATIONS_NAMESPACE));
         assertThat(store.getValue(Migration.MIGRATIONS_NAMESPACE, Migration.CURRENT_SCHEMA_ID),
@@ -0,0 +1,62 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class PersistenceInstrumentationTest {
+    @Test
+    public void statisticsAreEmptyInitially() {
+        PersistenceStatistics stats = new PersistenceInstrumentation().getStatistics();
+        assertEquals(0, stats.getCommitLatency().getCount());
+        assertEquals(0, stats.getTotalBytesWritten());
+        assertEquals(0, stats.getBytesWrittenByNamespace().size());
+        assertEquals(0, stats.getFlagDataDecodeLatency().getCount());
+    }
+
+    @Test
+    public void commitsAreCountedByNamespace() {
+        PersistenceInstrumentation instrumentation = new PersistenceInstrumentation();
+        instrumentation.recordCommit("a", 100, 2_000, true);
+        instrumentation.recordCommit("b", 50, 4_000, true);
+        instrumentation.recordCommit("a", 10, 1_000, true);
+        instrumentation.recordCommit("b", 1000, 8_000, false);
+
+        PersistenceStatistics stats = instrumentation.getStatistics();
+        assertEquals(4, stats.getCommitLatency().getCount());
+        assertEquals(8, stats.getCommitLatency().getMaxMicros());
+        assertEquals(1, stats.getCommitFailures());
+        assertEquals(Long.valueOf(110), stats.getBytesWrittenByNamespace().get("a"));
+        assertEquals(Long.valueOf(50), stats.getBytesWrittenByNamespace().get("b"));
+        assertEquals(160, stats.getTotalBytesWritten());
+    }
+
+    @Test
+    public void queueSizesKeepCurrentAndMaximum() {
+        PersistenceInstrumentation instrumentation = new PersistenceInstrumentation();
+        instrumentation.recordQueueSizes(3, 0);
+        instrumentation.recordQueueSizes(7, 0);
+        instrumentation.recordQueueSizes(0, 7);
+
+        PersistenceStatistics stats = instrumentation.getStatistics();
+        assertEquals(0, stats.getPendingWrites());
+        assertEquals(7, stats.getCommittingWrites());
+        assertEquals(7, stats.getMaxPendingWrites());
+    }
+
+    @Test
+    public void readsAreCountedByLayer() {
+        PersistenceInstrumentation instrumentation = new PersistenceInstrumentation();
+        instrumentation.recordPendingReadHit();
+        instrumentation.recordPendingReadHit();
+        instrumentation.recordCommittingReadHit();
+        instrumentation.recordStoreRead();
+        instrumentation.recordFlagDataDecode(5_000);
+
+        PersistenceStatistics stats = instrumentation.getStatistics();
+        assertEquals(2, stats.getPendingReadHits());
+        assertEquals(1, stats.getCommittingReadHits());
+        assertEquals(1, stats.getStoreReads());
+        assertEquals(5, stats.getFlagDataDecodeLatency().getTotalMicros());
+    }
+}
@@ -13,11 +13,17 @@ import org.easymock.EasyMockSupport;
 import org.junit.Rule;
 import org.junit.Test;
 
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
 import static org.easymock.EasyMock.anyString;
 import static org.easymock.EasyMock.eq;
 import static org.easymock.EasyMock.expect;
 import static org.easymock.EasyMock.expectLastCall;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -36,6 +42,7 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
     private static final String EXPECTED_CONTEXT_FLAGS_KEY = "flags_" + CONTEXT_KEY_HASH;
     private static final String EXPECTED_CONTEXT_FINGERPRINT_KEY = "contextFingerprint_" + CONTEXT_KEY_HASH;
     private static final String EXPECTED_INDEX_KEY = "index";
+    private static final String EXPECTED_INDEX_STATS_KEY = "indexStats";
     private static final String EXPECTED_GENERATED_CONTEXT_KEY_PREFIX = "anonKey_";
     private static final Flag FLAG = new Flag("flagkey", LDValue.of(true), 1,
             null, 0, false, false, null, null, null);
@@ -86,6 +93,40 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
         logging.assertNothingLogged();
     }
 
+    @Test
+    public void getContextDataRecordsDecodeTime() {
+        String serializedData = new DataSetBuilder().add(FLAG).build().toJson();
+        expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE,
+                EXPECTED_CONTEXT_FLAGS_KEY)).andReturn(serializedData);
+        expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE,
+                EXPECTED_CONTEXT_FLAGS_KEY)).andReturn(null);
+        replayAll();
+
+        envWrapper.getContextData(CONTEXT_KEY_HASH);
+        envWrapper.getContextData(CONTEXT_KEY_HASH);
+        verifyAll();
+
+        // Nothing to decode the second time.
+        assertEquals(1, envWrapper.getInstrumentation().getStatistics().getFlagDataDecodeLatency().getCount());
+    }
+
+    @Test
+    public void getContextDataRecordsFlagDecodeTimeWhenFlagIsFirstUsed() {
+        String serializedData = new DataSetBuilder().add(FLAG).add("other-flag", 1, LDValue.of(true), 0)
+                .build().toJson();
+        expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE,
+                EXPECTED_CONTEXT_FLAGS_KEY)).andReturn(serializedData);
+        replayAll();
+
+        EnvironmentData data = envWrapper.getContextData(CONTEXT_KEY_HASH);
+        verifyAll();
+        assertEquals(0, envWrapper.getInstrumentation().getStatistics().getFlagDecodeLatency().getCount());
+
+        data.getFlag(FLAG.getKey());
+        data.getFlag(FLAG.getKey());
+        assertEquals(1, envWrapper.getInstrumentation().getStatistics().getFlagDecodeLatency().getCount());
+    }
+
     @Test
     public void getContextDataWhenStoreThrowsException() {
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE,
@@ -112,6 +153,54 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
         logging.assertNothingLogged();
     }
 
+    @Test
+    public void contextDataOverCompressionThresholdIsStoredCompressed() {
+        InMemoryPersistentDataStore store = new InMemoryPersistentDataStore();
+        PersistenceInstrumentation instrumentation = new PersistenceInstrumentation();
+        PersistentDataStoreWrapper.PerEnvironmentData compressingWrapper =
+                new PersistentDataStoreWrapper(store, instrumentation, 1000, logging.logger)
+                        .perEnvironmentData(MOBILE_KEY);
+        DataSetBuilder builder = new DataSetBuilder();
+        for (int i = 0; i < 50; i++) {
+            builder.add(new Flag("flag" + i, LDValue.of("value" + i), i,
+                    null, 0, false, false, null, null, null));
+        }
+        EnvironmentData data = builder.build();
+
+        int size = compressingWrapper.setContextData(CONTEXT_KEY_HASH, CONTEXT_FINGERPRINT, data);
+
+        String stored = store.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_CONTEXT_FLAGS_KEY);
+        assertTrue(stored.startsWith(StoredFlagDataCodec.COMPRESSED_PREFIX));
+        assertEquals(stored.length(), size);
+        assertTrue(size < data.toJson().length());
+        assertDataSetsEqual(data, compressingWrapper.getContextData(CONTEXT_KEY_HASH));
+        assertEquals(1, instrumentation.getStatistics().getFlagDataDecompressLatency().getCount());
+
+        // A small data set stays as it is, and is still readable.
+        EnvironmentData small = new DataSetBuilder().add(FLAG).build();
+        compressingWrapper.setContextData(CONTEXT_KEY_HASH, CONTEXT_FINGERPRINT, small);
+        assertEquals(small.toJson(), store.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_CONTEXT_FLAGS_KEY));
+        assertDataSetsEqual(small, compressingWrapper.getContextData(CONTEXT_KEY_HASH));
+        logging.assertNothingLogged();
+    }
+
+    @Test
+    public void contextDataSizeIsCountedInUtf8Bytes() {
+        InMemoryPersistentDataStore store = new InMemoryPersistentDataStore();
+        PersistentDataStoreWrapper.PerEnvironmentData wrapper =
+                new PersistentDataStoreWrapper(store, logging.logger).perEnvironmentData(MOBILE_KEY);
+        EnvironmentData data = new DataSetBuilder()
+                .add(new Flag("flag-\u00e9", LDValue.of("\u20ac \ud83d\ude00"), 1,
+                        null, 0, false, false, null, null, null))
+                .build();
+
+        int size = wrapper.setContextData(CONTEXT_KEY_HASH, CONTEXT_FINGERPRINT, data);
+
+        String stored = store.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_CONTEXT_FLAGS_KEY);
+        assertEquals(stored.getBytes(Charset.forName("UTF-8")).length, size);
+        assertTrue(size > stored.length());
+    }
+
     @Test
     public void setContextDataWhenStoreThrowsException() {
         EnvironmentData data = new DataSetBuilder().add(FLAG).build();
@@ -153,15 +242,25 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
 
     @Test
     public void getIndex() {
-        ContextIndex expectedIndex = new ContextIndex().updateTimestamp("user1", 1000);
+        ContextIndex expectedIndex = new ContextIndex();
+        expectedIndex.touch("user1", 1000);
+        expectedIndex.touch("user2", 2000);
+        expectedIndex.recordUse("user2");
+        expectedIndex.setByteSize("user2", 500);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_KEY))
                 .andReturn(expectedIndex.toJson());
+        expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_STATS_KEY))
+                .andReturn(expectedIndex.statsToJson());
         replayAll();
 
         ContextIndex index = envWrapper.getIndex();
         verifyAll();
         assertNotNull(index);
         assertJsonEqual(expectedIndex.toJson(), index.toJson());
+        assertJsonEqual(expectedIndex.statsToJson(), index.statsToJson());
+        assertEquals(500, index.getTotalBytes());
+        assertFalse(index.isDirty());
+        assertFalse(index.isStatsDirty());
         logging.assertNothingLogged();
     }
 
@@ -193,8 +292,38 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
 
     @Test
     public void setIndex() {
-        ContextIndex index = new ContextIndex().updateTimestamp("user1", 1000);
-        mockPersistentStore.setValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_KEY, index.toJson());
+        ContextIndex index = new ContextIndex();
+        index.touch("user1", 1000);
+        mockPersistentStore.setValues(EXPECTED_ENVIRONMENT_NAMESPACE,
+                Collections.singletonMap(EXPECTED_INDEX_KEY, index.toJson()));
+        expectLastCall();
+        replayAll();
+
+        envWrapper.setIndex(index);
+        verifyAll();
+        logging.assertNothingLogged();
+    }
+
+    @Test
+    public void setIndexWritesOnlyWhatChanged() {
+        ContextIndex index = new ContextIndex();
+        index.touch("user1", 1000);
+        index.recordUse("user1");
+        Map<String, String> expected = new HashMap<>();
+        expected.put(EXPECTED_INDEX_KEY, index.toJson());
+        expected.put(EXPECTED_INDEX_STATS_KEY, index.statsToJson());
+        mockPersistentStore.setValues(EXPECTED_ENVIRONMENT_NAMESPACE, expected);
+        expectLastCall();
+        replayAll();
+
+        envWrapper.setIndex(index);
+        envWrapper.setIndex(index); // unchanged, so not written again
+        verifyAll();
+
+        resetAll();
+        index.setByteSize("user1", 100);
+        mockPersistentStore.setValues(EXPECTED_ENVIRONMENT_NAMESPACE,
+                Collections.singletonMap(EXPECTED_INDEX_STATS_KEY, index.statsToJson()));
         expectLastCall();
         replayAll();
 
@@ -205,8 +334,10 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
 
     @Test
     public void setIndexWhenStoreThrowsException() {
-        ContextIndex index = new ContextIndex().updateTimestamp("user1", 1000);
-        mockPersistentStore.setValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_KEY, index.toJson());
+        ContextIndex index = new ContextIndex();
+        index.touch("user1", 1000);
+        mockPersistentStore.setValues(EXPECTED_ENVIRONMENT_NAMESPACE,
+                Collections.singletonMap(EXPECTED_INDEX_KEY, index.toJson()));
         expectLastCall().andThrow(makeException());
         replayAll();
 
@@ -217,7 +348,8 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
 
     @Test
     public void getLastUpdated() {
-        ContextIndex expectedIndex = new ContextIndex().updateTimestamp(CONTEXT_KEY_HASH, 1000);
+        ContextIndex expectedIndex = new ContextIndex();
+        expectedIndex.touch(CONTEXT_KEY_HASH, 1000);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_CONTEXT_FINGERPRINT_KEY)).andReturn(CONTEXT_FINGERPRINT);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_KEY))
                 .andReturn(expectedIndex.toJson());
@@ -230,7 +362,8 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
 
     @Test
     public void getLastUpdatedNoMatchingHashedContextId() {
-        ContextIndex expectedIndex = new ContextIndex().updateTimestamp("ImABogusContextHash", 1000);
+        ContextIndex expectedIndex = new ContextIndex();
+        expectedIndex.touch("ImABogusContextHash", 1000);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_CONTEXT_FINGERPRINT_KEY)).andReturn(CONTEXT_FINGERPRINT);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_KEY))
                 .andReturn(expectedIndex.toJson());
@@ -241,7 +374,8 @@ public class PersistentDataStoreWrapperTest extends EasyMockSupport {
 
     @Test
     public void getLastUpdatedNoMatchingFingerprint() {
-        ContextIndex expectedIndex = new ContextIndex().updateTimestamp(CONTEXT_KEY_HASH, 1000);
+        ContextIndex expectedIndex = new ContextIndex();
+        expectedIndex.touch(CONTEXT_KEY_HASH, 1000);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_CONTEXT_FINGERPRINT_KEY)).andReturn(null);
         expect(mockPersistentStore.getValue(EXPECTED_ENVIRONMENT_NAMESPACE, EXPECTED_INDEX_KEY))
                 .andReturn(expectedIndex.toJson());
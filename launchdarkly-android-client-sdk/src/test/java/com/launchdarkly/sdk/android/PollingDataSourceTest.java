@@ -142,8 +142,9 @@ public class PollingDataSourceTest {
         String fingerPrint = LDUtil.urlSafeBase64Hash(CONTEXT);
         PersistentDataStoreWrapper.PerEnvironmentData perEnvironmentData = clientContext.getPerEnvironmentData();
         perEnvironmentData.setContextData(hashedContextId, fingerPrint, new EnvironmentData());
-        ContextIndex newIndex = perEnvironmentData.getIndex().updateTimestamp(hashedContextId, System.currentTimeMillis());
-        perEnvironmentData.setIndex(newIndex);
+        ContextIndex index = perEnvironmentData.getIndex();
+        index.touch(hashedContextId, System.currentTimeMillis());
+        perEnvironmentData.setIndex(index);
 
         // second build should have a non-zero delay due to simulated response storing a recent timestamp
         PollingDataSource ds2 = (PollingDataSource) builder.build(clientContext);
@@ -175,8 +176,9 @@ public class PollingDataSourceTest {
         String fingerPrint = LDUtil.urlSafeBase64Hash(CONTEXT);
         PersistentDataStoreWrapper.PerEnvironmentData perEnvironmentData = clientContext.getPerEnvironmentData();
         perEnvironmentData.setContextData(hashedContextId, fingerPrint, new EnvironmentData());
-        ContextIndex newIndex = perEnvironmentData.getIndex().updateTimestamp(hashedContextId, System.currentTimeMillis());
-        perEnvironmentData.setIndex(newIndex);
+        ContextIndex index = perEnvironmentData.getIndex();
+        index.touch(hashedContextId, System.currentTimeMillis());
+        perEnvironmentData.setIndex(index);
 
         // second build should have a non-zero delay and so one shot is prevented by max number of polls being 0.
         PollingDataSource ds2 = (PollingDataSource) builder.build(clientContext);
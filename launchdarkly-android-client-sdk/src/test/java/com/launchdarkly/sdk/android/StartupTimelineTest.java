@@ -0,0 +1,59 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class StartupTimelineTest {
+    private static final long ORIGIN = 1_000_000_000L;
+
+    private static long at(long millis) {
+        return ORIGIN + TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    public void reportHasPhasesInStartOrderAndTotalToLastEnd() {
+        StartupTimeline timeline = new StartupTimeline(ORIGIN);
+        timeline.record(StartupReport.Phase.PERSISTENT_STORE, at(0), at(5));
+        timeline.record(StartupReport.Phase.PLUGIN_REGISTRATION, at(20), at(25));
+        timeline.record(StartupReport.Phase.CACHED_DATA_LOAD, at(5), at(15));
+        timeline.record(StartupReport.Phase.FIRST_DATA_SOURCE_RESULT, at(25), at(300));
+
+        StartupReport report = timeline.toReport("default", true);
+
+        assertEquals("default", report.getEnvironmentName());
+        assertEquals(300, report.getTotalMillis());
+        assertTrue(report.isDataSourceSucceeded());
+        assertEquals(4, report.getPhases().size());
+        assertEquals(StartupReport.Phase.PERSISTENT_STORE, report.getPhases().get(0).getPhase());
+        assertEquals(StartupReport.Phase.CACHED_DATA_LOAD, report.getPhases().get(1).getPhase());
+        assertEquals(StartupReport.Phase.PLUGIN_REGISTRATION, report.getPhases().get(2).getPhase());
+        StartupReport.PhaseTiming cacheLoad = report.getPhase(StartupReport.Phase.CACHED_DATA_LOAD);
+        assertEquals(5, cacheLoad.getStartMillis());
+        assertEquals(10, cacheLoad.getDurationMillis());
+        assertNull(report.getPhase(StartupReport.Phase.MIGRATION));
+    }
+
+    @Test
+    public void copiesShareEarlierPhasesButNotLaterOnes() {
+        StartupTimeline shared = new StartupTimeline(ORIGIN);
+        shared.record(StartupReport.Phase.PERSISTENT_STORE, at(0), at(5));
+        StartupTimeline first = shared.copy();
+        StartupTimeline second = shared.copy();
+        first.record(StartupReport.Phase.CACHED_DATA_LOAD, at(5), at(50));
+
+        StartupReport firstReport = first.toReport("first", false);
+        StartupReport secondReport = second.toReport("second", true);
+
+        assertEquals(2, firstReport.getPhases().size());
+        assertEquals(50, firstReport.getTotalMillis());
+        assertFalse(firstReport.isDataSourceSucceeded());
+        assertEquals(1, secondReport.getPhases().size());
+        assertEquals(5, secondReport.getTotalMillis());
+    }
+}
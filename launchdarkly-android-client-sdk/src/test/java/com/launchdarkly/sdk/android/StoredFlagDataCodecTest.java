@@ -0,0 +1,69 @@
+package com.launchdarkly.sdk.android;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import com.launchdarkly.sdk.json.SerializationException;
+
+import org.junit.Test;
+
+public class StoredFlagDataCodecTest {
+    private static String makeJson(int flagCount) {
+        StringBuilder sb = new StringBuilder("{");
+        for (int i = 0; i < flagCount; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("\"flag-").append(i).append("\":{\"key\":\"flag-").append(i)
+                    .append("\",\"version\":").append(i).append(",\"value\":\"é\",\"variation\":1}");
+        }
+        return sb.append('}').toString();
+    }
+
+    @Test
+    public void dataIsNotCompressedWhenDisabledOrUnderThreshold() {
+        String json = makeJson(100);
+        assertSame(json, StoredFlagDataCodec.encode(json, LDConfig.NO_CACHED_FLAG_DATA_COMPRESSION));
+        assertSame(json, StoredFlagDataCodec.encode(json, json.length() + 1));
+    }
+
+    @Test
+    public void compressedDataRoundTrips() throws Exception {
+        String json = makeJson(100);
+        String stored = StoredFlagDataCodec.encode(json, json.length());
+        assertTrue(StoredFlagDataCodec.isCompressed(stored));
+        assertTrue(stored.length() < json.length() / 4);
+        assertEquals(json, StoredFlagDataCodec.decode(stored));
+    }
+
+    @Test
+    public void dataIsNotCompressedWhenThatWouldNotMakeItShorter() {
+        String json = "{}";
+        assertSame(json, StoredFlagDataCodec.encode(json, 0));
+    }
+
+    @Test
+    public void uncompressedDataIsReadAsIs() throws Exception {
+        String json = makeJson(2);
+        assertFalse(StoredFlagDataCodec.isCompressed(json));
+        assertSame(json, StoredFlagDataCodec.decode(json));
+    }
+
+    @Test
+    public void corruptCompressedDataCannotBeDecoded() {
+        String stored = StoredFlagDataCodec.encode(makeJson(100), 0);
+        for (String bad : new String[] {
+                StoredFlagDataCodec.COMPRESSED_PREFIX + "not base64!",
+                StoredFlagDataCodec.COMPRESSED_PREFIX + "AAAA",
+                stored.substring(0, stored.length() / 2)
+        }) {
+            try {
+                StoredFlagDataCodec.decode(bad);
+                fail("expected exception for " + bad);
+            } catch (SerializationException e) {}
+        }
+    }
+}
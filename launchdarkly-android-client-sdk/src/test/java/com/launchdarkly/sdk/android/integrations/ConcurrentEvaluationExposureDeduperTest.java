@@ -0,0 +1,141 @@
+package com.launchdarkly.sdk.android.integrations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.launchdarkly.sdk.LDValue;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lives in the deduper's own package so that it can see how many records it holds.
+ */
+public class ConcurrentEvaluationExposureDeduperTest {
+    private static EvaluationExposureKey key(String flagKey) {
+        return new EvaluationExposureKey(
+                "mobile-key-hash", flagKey, LDValue.of("value"), 1, 2, "user-key");
+    }
+
+    private static EvaluationExposureKey otherResult(String flagKey) {
+        return new EvaluationExposureKey(
+                "mobile-key-hash", flagKey, LDValue.of("other-value"), 3, 2, "user-key");
+    }
+
+    @Test
+    public void recordsEverythingForNonPositiveWindow() {
+        for (int window : new int[] { 0, -1 }) {
+            ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(window, 10);
+            assertTrue(deduper.shouldRecord(key("a"), 0));
+            assertTrue(deduper.shouldRecord(key("a"), 0));
+        }
+    }
+
+    @Test
+    public void decidesAsTheBaseDeduperDoes() {
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(100, 10);
+        assertTrue(deduper.shouldRecord(key("a"), 1000));
+        assertFalse(deduper.shouldRecord(key("a"), 1099));
+        assertTrue(deduper.shouldRecord(key("b"), 1000));
+        assertTrue(deduper.shouldRecord(otherResult("a"), 1010));
+        assertFalse(deduper.shouldRecord(otherResult("a"), 1020));
+        assertTrue(deduper.shouldRecord(key("a"), 1030));
+
+        // Recording restarts the window rather than extending the original one.
+        assertTrue(deduper.shouldRecord(key("a"), 1130));
+        assertFalse(deduper.shouldRecord(key("a"), 1180));
+        assertTrue(deduper.shouldRecord(key("a"), 1230));
+    }
+
+    @Test
+    public void usesTheDefaultsWhenBuiltWithoutThem() {
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper();
+        assertTrue(deduper.shouldRecord(key("a"), 1000));
+        assertFalse(deduper.shouldRecord(key("a"), 600_999));
+        assertTrue(deduper.shouldRecord(key("a"), 601_000));
+
+        for (int i = 0; i < 20_000; i++) {
+            deduper.shouldRecord(key("key-" + i), 1000);
+        }
+        assertTrue(deduper.size() <= ConcurrentEvaluationExposureDeduper.DEFAULT_MAX_ENTRIES + 16);
+    }
+
+    @Test
+    public void forgetsTheLeastRecentlyEvaluatedFlagWhenFull() {
+        // A maximum of one is a single stripe holding a single record.
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(60_000, 1);
+        assertTrue(deduper.shouldRecord(key("a"), 1000));
+        assertTrue(deduper.shouldRecord(key("b"), 1010));
+        assertFalse(deduper.shouldRecord(key("b"), 1020));
+        assertTrue(deduper.shouldRecord(key("a"), 1030));
+        assertEquals(1, deduper.size());
+    }
+
+    @Test
+    public void holdsAboutTheMaximumNumberOfRecords() {
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(60_000, 100);
+        for (int i = 0; i < 1_000; i++) {
+            assertTrue(deduper.shouldRecord(key("key-" + i), 1000));
+        }
+
+        // The maximum is split evenly across sixteen stripes, each rounded up.
+        assertTrue(deduper.size() <= 112);
+        // The flag evaluated last is the most recently used in its stripe, so it is still remembered.
+        assertFalse(deduper.shouldRecord(key("key-999"), 1000));
+    }
+
+    @Test
+    public void forgetsRecordsWhoseWindowHasElapsed() {
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(100, 1_000);
+        for (int i = 0; i < 50; i++) {
+            deduper.shouldRecord(key("key-" + i), 1000);
+        }
+        assertEquals(50, deduper.size());
+
+        // One evaluation once the window is over sweeps its own stripe and every idle one.
+        assertTrue(deduper.shouldRecord(key("key-0"), 1200));
+        assertEquals(1, deduper.size());
+    }
+
+    @Test
+    public void recordsAgainAfterReset() {
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(100, 10);
+        assertTrue(deduper.shouldRecord(key("a"), 1000));
+        deduper.reset();
+        assertEquals(0, deduper.size());
+        assertTrue(deduper.shouldRecord(key("a"), 1000));
+    }
+
+    @Test
+    public void recordsEachFlagOnceWhenCheckedConcurrently() throws Exception {
+        ConcurrentEvaluationExposureDeduper deduper = new ConcurrentEvaluationExposureDeduper(60_000, 1_000);
+        int threadCount = 8;
+        int flagCount = 200;
+        AtomicInteger recorded = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[threadCount];
+        for (int i = 0; i < threadCount; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int f = 0; f < flagCount; f++) {
+                    if (deduper.shouldRecord(key("key-" + f), 1000)) {
+                        recorded.incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(flagCount, recorded.get());
+    }
+}
@@ -0,0 +1,150 @@
+package com.launchdarkly.sdk.android.integrations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import com.launchdarkly.sdk.EvaluationDetail;
+import com.launchdarkly.sdk.EvaluationReason;
+import com.launchdarkly.sdk.LDContext;
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.android.HookRunner;
+import com.launchdarkly.sdk.android.LogCaptureRule;
+import com.launchdarkly.sdk.android.integrations.EvaluationMetricsHook.FlagMetrics;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+public class EvaluationMetricsHookTest {
+    @Rule
+    public LogCaptureRule logging = new LogCaptureRule();
+
+    private void evaluate(HookRunner runner, String flagKey, EvaluationDetail<LDValue> result) {
+        runner.withEvaluation("testMethod", flagKey, LDContext.create("user-123"), LDValue.of(false),
+                () -> result);
+    }
+
+    @Test
+    public void countsEvaluationsByResult() {
+        EvaluationMetricsHook hook = new EvaluationMetricsHook();
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook));
+
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off()));
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off()));
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(false), 1, EvaluationReason.fallthrough()));
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(false), 12, EvaluationReason.fallthrough()));
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(false), EvaluationDetail.NO_VARIATION,
+                EvaluationReason.error(EvaluationReason.ErrorKind.WRONG_TYPE)));
+        evaluate(runner, "missing", EvaluationDetail.fromValue(LDValue.of(false), EvaluationDetail.NO_VARIATION,
+                EvaluationReason.error(EvaluationReason.ErrorKind.FLAG_NOT_FOUND)));
+
+        Map<String, FlagMetrics> metrics = hook.getMetrics();
+        assertEquals(List.of("flag", "missing"), new ArrayList<>(metrics.keySet()));
+
+        FlagMetrics flag = metrics.get("flag");
+        assertEquals(5, flag.getEvaluations());
+        assertEquals(Map.of(0, 2L, 1, 1L, 12, 1L), flag.getVariationCounts());
+        assertEquals(1, flag.getDefaultValueCount());
+        assertEquals(1, flag.getErrorCount());
+        assertEquals(1, flag.getWrongTypeCount());
+        assertEquals(0, flag.getFlagNotFoundCount());
+        assertEquals(5, flag.getLatency().getCount());
+
+        FlagMetrics missing = metrics.get("missing");
+        assertEquals(1, missing.getEvaluations());
+        assertEquals(Map.of(), missing.getVariationCounts());
+        assertEquals(1, missing.getDefaultValueCount());
+        assertEquals(1, missing.getFlagNotFoundCount());
+        logging.assertNothingLogged();
+    }
+
+    @Test
+    public void countsWithoutTimingWhenLatencyIsNotMeasured() {
+        EvaluationMetricsHook hook = new EvaluationMetricsHook(false);
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook));
+
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off()));
+
+        assertFalse(hook.runsBeforeEvaluation());
+        assertEquals(1, hook.getMetrics().get("flag").getEvaluations());
+        assertEquals(0, hook.getMetrics().get("flag").getLatency().getCount());
+    }
+
+    @Test
+    public void countsEvaluationsFromManyThreads() throws InterruptedException {
+        EvaluationMetricsHook hook = new EvaluationMetricsHook(false);
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook));
+        EvaluationDetail<LDValue> result = EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off());
+
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int n = 0; n < 1_000; n++) {
+                    evaluate(runner, "flag", result);
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(8_000, hook.getMetrics().get("flag").getEvaluations());
+        assertEquals(Map.of(0, 8_000L), hook.getMetrics().get("flag").getVariationCounts());
+    }
+
+    @Test
+    public void forgetsCountsOnReset() {
+        EvaluationMetricsHook hook = new EvaluationMetricsHook();
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook));
+
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off()));
+        hook.reset();
+
+        assertEquals(Map.of(), hook.getMetrics());
+    }
+
+    @Test
+    public void doesNotTimeAnEvaluationWhoseAfterStageRunsOnAnotherThread() throws InterruptedException {
+        EvaluationMetricsHook hook = new EvaluationMetricsHook();
+        EvaluationSeriesContext seriesContext =
+                new EvaluationSeriesContext("testMethod", "flag", LDContext.create("user-123"), LDValue.of(false));
+        EvaluationDetail<LDValue> result = EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off());
+
+        Map<String, Object> seriesData = hook.beforeEvaluation(seriesContext, Map.of());
+        Thread thread = new Thread(() -> hook.afterEvaluation(seriesContext, seriesData, result));
+        thread.start();
+        thread.join();
+
+        assertEquals(Map.of(), seriesData);
+        assertEquals(1, hook.getMetrics().get("flag").getEvaluations());
+        assertEquals(0, hook.getMetrics().get("flag").getLatency().getCount());
+    }
+
+    @Test
+    public void exportsOnceMoreWhenClosed() throws InterruptedException {
+        List<Map<String, FlagMetrics>> exported = new CopyOnWriteArrayList<>();
+        CountDownLatch exportedOnClose = new CountDownLatch(1);
+        EvaluationMetricsHook hook = new EvaluationMetricsHook(true, 3_600_000, metrics -> {
+            exported.add(metrics);
+            exportedOnClose.countDown();
+        });
+        HookRunner runner = new HookRunner(logging.logger, List.of(hook));
+
+        evaluate(runner, "flag", EvaluationDetail.fromValue(LDValue.of(true), 0, EvaluationReason.off()));
+        hook.close();
+        hook.close();
+
+        assertTrue(exportedOnClose.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        assertEquals(1, exported.size());
+        assertTrue(exported.get(0).containsKey("flag"));
+    }
+}
@@ -6,7 +6,9 @@ import com.launchdarkly.sdk.android.subsystems.HookConfiguration;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.easymock.EasyMock.createMock;
 
 import java.util.List;
@@ -27,4 +29,28 @@ public class HookConfigurationBuilderTest {
         assertSame(hookA, configuration.getHooks().get(0));
         assertSame(hookB, configuration.getHooks().get(1));
     }
+
+    @Test
+    public void setsNoBudgetForHooksByDefault() {
+        HookConfiguration configuration = Components.hooks().build();
+        assertEquals(0, configuration.getSlowHookBudgetMicros());
+        assertEquals(HooksConfigurationBuilder.DEFAULT_SLOW_HOOK_OVERRUN_LIMIT, configuration.getSlowHookOverrunLimit());
+        assertFalse(configuration.isRecordStatistics());
+    }
+
+    @Test
+    public void canRecordStatisticsForHooks() {
+        assertTrue(Components.hooks().recordStatistics(true).build().isRecordStatistics());
+    }
+
+    @Test
+    public void canSetBudgetForHooks() {
+        HookConfiguration configuration = Components.hooks().bypassSlowHooks(500, 4).build();
+        assertEquals(500, configuration.getSlowHookBudgetMicros());
+        assertEquals(4, configuration.getSlowHookOverrunLimit());
+
+        configuration = Components.hooks().bypassSlowHooks(-1, 0).build();
+        assertEquals(0, configuration.getSlowHookBudgetMicros());
+        assertEquals(HooksConfigurationBuilder.DEFAULT_SLOW_HOOK_OVERRUN_LIMIT, configuration.getSlowHookOverrunLimit());
+    }
 }
@@ -0,0 +1,150 @@
+package com.launchdarkly.sdk.android.integrations;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import com.launchdarkly.sdk.EvaluationDetail;
+import com.launchdarkly.sdk.EvaluationReason;
+import com.launchdarkly.sdk.LDContext;
+import com.launchdarkly.sdk.LDValue;
+import com.launchdarkly.sdk.android.HookRunner;
+import com.launchdarkly.sdk.android.LogCaptureRule;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Drives hooks through {@link HookRunner}, as {@link DedupingHookTest} does, with a supplier that
+ * describes each evaluation the way the SDK does: by its context, flag, and result.
+ */
+public class SamplingHookTest {
+    @Rule
+    public LogCaptureRule logging = new LogCaptureRule();
+
+    private static class RecordingHook extends Hook {
+        final List<String> stages = new ArrayList<>();
+
+        RecordingHook() {
+            super("recording");
+        }
+
+        @Override
+        public Map<String, Object> beforeEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData) {
+            stages.add("before:" + seriesContext.flagKey);
+            return seriesData;
+        }
+
+        @Override
+        public Map<String, Object> afterEvaluation(EvaluationSeriesContext seriesContext, Map<String, Object> seriesData,
+                                                   EvaluationDetail<LDValue> evaluationDetail) {
+            stages.add("after:" + seriesContext.flagKey);
+            return seriesData;
+        }
+
+        @Override
+        public void afterTrack(TrackSeriesContext seriesContext) {
+            stages.add("afterTrack");
+        }
+    }
+
+    // The variation the next evaluation resolves to, so that a test can change a flag's result.
+    private int variation = 1;
+
+    private HookRunner runner(Hook hook) {
+        return new HookRunner(logging.logger, List.of(hook), (seriesContext, flag) ->
+                new EvaluationExposureKey("mobile-key-hash", seriesContext.flagKey, LDValue.of(variation),
+                        variation, 2, seriesContext.context.getFullyQualifiedKey()));
+    }
+
+    private void evaluate(HookRunner runner, String contextKey, String flagKey) {
+        runner.withEvaluation("testMethod", flagKey, LDContext.create(contextKey), LDValue.of(false),
+                () -> EvaluationDetail.fromValue(LDValue.of(variation), variation, EvaluationReason.off()));
+    }
+
+    @Test
+    public void forwardsOnlyTheFirstEvaluationOfAnUnchangedFlagAtRatioZero() {
+        RecordingHook hook = new RecordingHook();
+        HookRunner runner = runner(new SamplingHook(hook, 0));
+
+        evaluate(runner, "user-1", "flag");
+        evaluate(runner, "user-1", "flag");
+        evaluate(runner, "user-2", "flag");
+
+        // The first evaluation of a flag is a change from knowing nothing about it.
+        assertEquals(List.of("before:flag", "after:flag"), hook.stages);
+    }
+
+    @Test
+    public void forwardsEveryEvaluationAtRatioOne() {
+        RecordingHook hook = new RecordingHook();
+        HookRunner runner = runner(new SamplingHook(hook, 1));
+
+        evaluate(runner, "user-1", "flag");
+        evaluate(runner, "user-1", "flag");
+
+        assertEquals(List.of("before:flag", "after:flag", "before:flag", "after:flag"), hook.stages);
+    }
+
+    @Test
+    public void forwardsAChangeOfResultWhateverTheRatio() {
+        RecordingHook hook = new RecordingHook();
+        HookRunner runner = runner(new SamplingHook(hook, 0));
+
+        evaluate(runner, "user-1", "flag");
+        variation = 2;
+        evaluate(runner, "user-2", "flag");
+        evaluate(runner, "user-2", "flag");
+
+        assertEquals(List.of("before:flag", "after:flag", "before:flag", "after:flag"), hook.stages);
+    }
+
+    @Test
+    public void decidesTheSameWayEveryTimeForAContextAndFlag() {
+        int sampled = 0;
+        for (int i = 0; i < 2_000; i++) {
+            RecordingHook hook = new RecordingHook();
+            HookRunner runner = runner(new SamplingHook(hook, 0.25));
+            String context = "user-" + i;
+
+            evaluate(runner, "someone-else", "flag");
+            evaluate(runner, context, "flag");
+            evaluate(runner, context, "flag");
+
+            // The first evaluation is always forwarded; what follows is all or nothing for a context.
+            int forwarded = hook.stages.size() / 2 - 1;
+            assertTrue(forwarded == 0 || forwarded == 2);
+            if (forwarded == 2) {
+                sampled++;
+            }
+        }
+        assertTrue("sampled " + sampled, sampled > 400 && sampled < 600);
+    }
+
+    @Test
+    public void usesARatioGivenForAFlagOverTheDefault() {
+        RecordingHook hook = new RecordingHook();
+        HookRunner runner = runner(new SamplingHook(hook, 0, Map.of("everything", 1.0)));
+
+        evaluate(runner, "user-1", "everything");
+        evaluate(runner, "user-1", "everything");
+        evaluate(runner, "user-1", "other");
+        evaluate(runner, "user-1", "other");
+
+        assertEquals(List.of("before:everything", "after:everything", "before:everything", "after:everything",
+                "before:other", "after:other"), hook.stages);
+    }
+
+    @Test
+    public void alwaysForwardsTrack() {
+        RecordingHook hook = new RecordingHook();
+        HookRunner runner = runner(new SamplingHook(hook, 0));
+
+        runner.afterTrack("event", LDContext.create("user-1"), LDValue.ofNull(), null);
+
+        assertEquals(List.of("afterTrack"), hook.stages);
+    }
+}
@@ -13,6 +13,8 @@ public class MockPlatformState implements PlatformState {
             new CopyOnWriteArrayList<>();
     private final CopyOnWriteArrayList<ForegroundChangeListener> foregroundChangeListeners =
             new CopyOnWriteArrayList<>();
+    private final CopyOnWriteArrayList<MemoryPressureListener> memoryPressureListeners =
+            new CopyOnWriteArrayList<>();
 
     private volatile boolean foreground = true;
     private volatile boolean networkAvailable = true;
@@ -100,6 +102,22 @@ public class MockPlatformState implements PlatformState {
         }).start();
     }
 
+    @Override
+    public void addMemoryPressureListener(MemoryPressureListener listener) {
+        memoryPressureListeners.add(listener);
+    }
+
+    @Override
+    public void removeMemoryPressureListener(MemoryPressureListener listener) {
+        memoryPressureListeners.remove(listener);
+    }
+
+    public void notifyMemoryPressureListeners(int level) {
+        for (MemoryPressureListener listener: memoryPressureListeners) {
+            listener.onMemoryPressure(level);
+        }
+    }
+
     @Override
     public File getCacheDir() {
         return new File(System.getProperty("java.io.tmpdir"));